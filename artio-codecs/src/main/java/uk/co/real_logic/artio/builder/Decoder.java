@@ -16,6 +16,7 @@
 package uk.co.real_logic.artio.builder;
 
 import uk.co.real_logic.artio.util.AsciiBuffer;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 public interface Decoder
 {
@@ -52,4 +53,24 @@ public interface Decoder
      * or {@code NO_ERROR} if there's no error.
      */
     int rejectReason();
+
+    /**
+     * Appends a human readable, JSON-like, rendering of the decoded message to a builder. The output is the same as
+     * that of {@link #toString()} but no intermediate Strings are created.
+     *
+     * @param builder the builder to append to.
+     * @return the builder.
+     */
+    StringBuilder appendTo(StringBuilder builder);
+
+    /**
+     * Puts the same rendering as {@link #appendTo(StringBuilder)} onto a buffer as ASCII. A builder owned by the
+     * decoder is reused between calls, so this doesn't allocate once it has grown to the size of the messages being
+     * rendered.
+     *
+     * @param buffer the buffer to put the rendering onto.
+     * @param offset the offset within the buffer to start putting the rendering at.
+     * @return the length of the rendering.
+     */
+    int appendTo(MutableAsciiBuffer buffer, int offset);
 }
@@ -20,4 +20,17 @@ import uk.co.real_logic.artio.util.AsciiBuffer;
 public interface Printer
 {
     String toString(AsciiBuffer input, int offset, int length, int messageType);
+
+    /**
+     * Decodes a message and appends its human readable rendering, the same as that of
+     * {@link #toString(AsciiBuffer, int, int, int)}, to a builder without creating intermediate Strings.
+     *
+     * @param builder the builder to append to.
+     * @param input the buffer containing the message.
+     * @param offset the offset of the message within the buffer.
+     * @param length the length of the message.
+     * @param messageType the packed message type of the message.
+     * @return the builder.
+     */
+    StringBuilder appendTo(StringBuilder builder, AsciiBuffer input, int offset, int length, int messageType);
 }
@@ -124,6 +124,44 @@ public final class CodecUtil
         return equals(value, expected, 0, 0, length);
     }
 
+    public static void appendIndent(final StringBuilder builder, final int level)
+    {
+        for (int i = 0; i < level; i++)
+        {
+            builder.append("  ");
+        }
+    }
+
+    // NB: only valid for ASCII bytes.
+    public static void appendAscii(final StringBuilder builder, final byte[] value, final int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            builder.append((char)value[i]);
+        }
+    }
+
+    // Same format as Arrays.toString(byte[])
+    public static void appendData(final StringBuilder builder, final byte[] value)
+    {
+        if (value == null)
+        {
+            builder.append("null");
+            return;
+        }
+
+        builder.append('[');
+        for (int i = 0; i < value.length; i++)
+        {
+            if (i > 0)
+            {
+                builder.append(", ");
+            }
+            builder.append(value[i]);
+        }
+        builder.append(']');
+    }
+
     public static int hashCode(final char[] value, final int offset, final int length)
     {
         int result = 1;
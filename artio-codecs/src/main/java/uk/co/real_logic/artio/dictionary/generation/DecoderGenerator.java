@@ -24,8 +24,12 @@ import uk.co.real_logic.artio.fields.*;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.joining;
@@ -45,7 +49,6 @@ import static uk.co.real_logic.sbe.generation.java.JavaUtil.formatPropertyName;
 // skip decoding of unread header fields - eg: sender/target comp id.
 // optimise the checksum definition to use an int and be calculated or ignored, have optional validation.
 // evaluate utc parsing, adds about 100 nanos
-// remove the REQUIRED_FIELDS validation when there are no required fields
 
 public class DecoderGenerator extends Generator
 {
@@ -81,6 +84,7 @@ public class DecoderGenerator extends Generator
     }
 
     private Aggregate currentAggregate = null;
+    private Map<String, Integer> presentFieldOrdinals = null;
 
     private final int initialBufferSize;
 
@@ -152,7 +156,7 @@ public class DecoderGenerator extends Generator
         getters(out, aggregate.entries());
         out.append(decodeMethod(aggregate.entries(), aggregate, type));
         out.append(completeResetMethod(isMessage, aggregate.entries(), resetValidation(isGroup)));
-        out.append(toString(aggregate, isMessage));
+        out.append(appendTo(aggregate, isMessage));
         out.append("}\n");
         currentAggregate = parentAggregate;
     }
@@ -244,20 +248,175 @@ public class DecoderGenerator extends Generator
         return resetFieldValue(field.name(), "MISSING_INT");
     }
 
-    protected String toStringGroupParameters()
+    private String appendTo(final Aggregate aggregate, final boolean hasCommonCompounds)
     {
+        final String appendHeader = hasCommonCompounds ?
+            "        appendIndent(builder, level);\n" +
+            "        builder.append(\"\\\"header\\\": \");\n" +
+            "        header.appendTo(builder, level + 1);\n" +
+            "        builder.append(\"\\n\");\n" : "";
+
+        final String appendEntries = aggregate
+            .entries()
+            .stream()
+            .map(this::appendEntryTo)
+            .collect(joining());
+
+        // Group entries are chained together, each rendered at the same level as the first.
+        final String appendNext = aggregate instanceof Group ?
+            "        if (next != null)\n" +
+            "        {\n" +
+            "            builder.append(\",\\n\");\n" +
+            "            appendIndent(builder, level - 1);\n" +
+            "            next.appendTo(builder, level);\n" +
+            "        }\n" : "";
+
+        return String.format(
+            "    public String toString()\n" +
+            "    {\n" +
+            "        return appendTo(new StringBuilder()).toString();\n" +
+            "    }\n\n" +
+            "    private StringBuilder appendToBuilder;\n\n" +
+            "    /**\n" +
+            "     * Renders this decoder in the same format as {@link #toString()} into the buffer.\n" +
+            "     *\n" +
+            "     * Fields aren't written directly into the buffer: they're rendered into a StringBuilder that is\n" +
+            "     * allocated on first use and reused by this decoder afterwards, then copied into the buffer.\n" +
+            "     *\n" +
+            "     * @param buffer the buffer to render into.\n" +
+            "     * @param offset the offset within the buffer to start rendering at.\n" +
+            "     * @return the number of bytes written.\n" +
+            "     */\n" +
+            "    public int appendTo(final MutableAsciiBuffer buffer, final int offset)\n" +
+            "    {\n" +
+            "        if (appendToBuilder == null)\n" +
+            "        {\n" +
+            "            appendToBuilder = new StringBuilder();\n" +
+            "        }\n" +
+            "        final StringBuilder builder = appendToBuilder;\n" +
+            "        builder.setLength(0);\n" +
+            "        appendTo(builder);\n" +
+            "        return buffer.putAscii(offset, builder);\n" +
+            "    }\n\n" +
+            "    public StringBuilder appendTo(final StringBuilder builder)\n" +
+            "    {\n" +
+            "        return appendTo(builder, 1);\n" +
+            "    }\n\n" +
+            "    public StringBuilder appendTo(final StringBuilder builder, final int level)\n" +
+            "    {\n" +
+            "        builder.append(\"{\\n\");\n" +
+            "        appendIndent(builder, level);\n" +
+            "        builder.append(\"\\\"MessageName\\\": \\\"%1$s\\\",\\n\");\n" +
+            "%2$s" +
+            "%3$s" +
+            "        appendIndent(builder, level - 1);\n" +
+            "        builder.append(\"}\");\n" +
+            "%4$s" +
+            "        return builder;\n" +
+            "    }\n\n",
+            aggregate.name(),
+            appendHeader,
+            appendEntries,
+            appendNext);
+    }
+
+    private String appendEntryTo(final Entry entry)
+    {
+        if (isBodyLength(entry))
+        {
+            return "";
+        }
+
+        final Entry.Element element = entry.element();
+        final String name = entry.name();
+        if (element instanceof Field)
+        {
+            final Field field = (Field)element;
+            final String appendField =
+                "        appendIndent(builder, level);\n" +
+                "        builder.append(\"\\\"" + name + "\\\": \\\"\");\n" +
+                "        " + appendFieldValue(field) + "\n" +
+                "        builder.append(\"\\\",\\n\");\n";
+
+            return hasFlag(entry, field) ? ifHas(name, appendField) : appendField;
+        }
+        else if (element instanceof Group)
+        {
+            final Group group = (Group)element;
+            final String appendGroup =
+                "        appendIndent(builder, level);\n" +
+                "        builder.append(\"\\\"" + name + "\\\": [\\n\");\n" +
+                "        appendIndent(builder, level);\n" +
+                "        " + formatPropertyName(name) + ".appendTo(builder, level + 1);\n" +
+                "        builder.append(\"\\n\");\n" +
+                "        appendIndent(builder, level);\n" +
+                "        builder.append(\"]\\n\");\n";
+
+            return ifHas(group.numberField().name(), appendGroup);
+        }
+        else if (element instanceof Component)
+        {
+            // Decoders flatten the fields of their components
+            return ((Component)element)
+                .entries()
+                .stream()
+                .map(this::appendEntryTo)
+                .collect(joining());
+        }
+
         return "";
     }
 
-    protected String toStringGroupSuffix()
+    private String ifHas(final String name, final String body)
     {
         return
-            "        if (next != null)\n" +
+            "        if (has" + name + ")\n" +
             "        {\n" +
-            "            entries += \",\\n\" + next.toString();\n" +
+            Stream.of(body.split("\n")).map((line) -> "    " + line + "\n").collect(joining()) +
             "        }\n";
     }
 
+    private String appendFieldValue(final Field field)
+    {
+        final String fieldName = formatPropertyName(field.name());
+        switch (field.type())
+        {
+            case STRING:
+            case MULTIPLEVALUESTRING:
+            case MULTIPLESTRINGVALUE:
+            case MULTIPLECHARVALUE:
+            case CURRENCY:
+            case EXCHANGE:
+            case COUNTRY:
+            case LANGUAGE:
+                return String.format("builder.append(%s, 0, %1$sLength);", fieldName);
+
+            case UTCTIMESTAMP:
+            case UTCTIMEONLY:
+            case UTCDATEONLY:
+            case MONTHYEAR:
+            case LOCALMKTDATE:
+            case TZTIMEONLY:
+            case TZTIMESTAMP:
+                return String.format("appendAscii(builder, %s, %1$sLength);", fieldName);
+
+            case DATA:
+            case XMLDATA:
+                return String.format("appendData(builder, %s);", fieldName);
+
+            case FLOAT:
+            case PRICE:
+            case PRICEOFFSET:
+            case QTY:
+            case PERCENTAGE:
+            case AMT:
+                return String.format("%s.appendTo(builder);", fieldName);
+
+            default:
+                return String.format("builder.append(%s);", fieldName);
+        }
+    }
+
     private String resetValidation(final boolean isGroup)
     {
         return
@@ -265,10 +424,8 @@ public class DecoderGenerator extends Generator
             "        {\n" +
             "            invalidTagId = NO_ERROR;\n" +
             "            rejectReason = NO_ERROR;\n" +
-            "            missingRequiredFields.clear();\n" +
             (isGroup ? "" :
-                "            unknownFields.clear();\n" +
-                "            alreadyVisitedFields.clear();\n") +
+                "            unknownFields.clear();\n") +
             "        }\n";
     }
 
@@ -324,11 +481,11 @@ public class DecoderGenerator extends Generator
             "        }\n" :
             "";
 
+        out.append(presentFields(aggregate.entries(), requiredFields));
+
         out.append(String.format(
             (isGroup ? "" :
-            "    private final IntHashSet alreadyVisitedFields = new IntHashSet(%5$d);\n\n" +
             "    private final IntHashSet unknownFields = new IntHashSet(10);\n\n") +
-            "    private final IntHashSet missingRequiredFields = new IntHashSet(%1$d);\n\n" +
             "    private int invalidTagId = NO_ERROR;\n\n" +
             "    public int invalidTagId()\n" +
             "    {\n" +
@@ -346,24 +503,169 @@ public class DecoderGenerator extends Generator
             "        {\n" +
             "            return false;\n" +
             "        }\n" +
-            "        final IntIterator missingFieldsIterator = missingRequiredFields.iterator();\n" +
             (isMessage ? "        final IntIterator unknownFieldsIterator = unknownFields.iterator();\n" : "") +
+            "%1$s" +
             "%2$s" +
-            "        if (missingFieldsIterator.hasNext())\n" +
-            "        {\n" +
-            "            invalidTagId = missingFieldsIterator.nextValue();\n" +
-            "            rejectReason = " + REQUIRED_TAG_MISSING + ";\n" +
-            "            return false;\n" +
-            "        }\n" +
             "%3$s" +
             "%4$s" +
             "        return true;\n" +
             "    }\n\n",
-            sizeHashSet(requiredFields),
             messageValidation,
+            requiredFields.isEmpty() ? "" : missingRequiredFieldValidation(),
             enumValidation,
-            groupValidation,
-            2 * aggregate.allChildEntries().count()));
+            groupValidation));
+    }
+
+    private String presentFields(final List<Entry> entries, final List<Field> requiredFields)
+    {
+        final List<Entry> presentFieldEntries = presentFieldEntries(entries);
+        final Map<String, Integer> ordinals = presentFieldOrdinals(entries);
+        final int wordCount = (presentFieldEntries.size() + 63) >> 6;
+
+        final String tags = presentFieldEntries
+            .stream()
+            .map((entry) -> "        Constants." + constantName(presentFieldName(entry)) + ",\n")
+            .collect(joining());
+
+        final long[] requiredWords = new long[wordCount];
+        for (final Field field : requiredFields)
+        {
+            final int ordinal = ordinals.get(field.name());
+            requiredWords[ordinal >> 6] |= 1L << (ordinal & 63);
+        }
+
+        // Every field starts out marked as present so that the first reset or decode puts all of them into their
+        // reset state, which isn't always the default value of the Java field.
+        final long[] initialWords = new long[wordCount];
+        for (int ordinal = 0; ordinal < presentFieldEntries.size(); ordinal++)
+        {
+            initialWords[ordinal >> 6] |= 1L << (ordinal & 63);
+        }
+
+        // Group decoders are inner classes, which can't declare static arrays.
+        return String.format(
+            "    private %4$sfinal int[] PRESENT_FIELD_TAGS =\n" +
+            "    {\n" +
+            "%1$s" +
+            "    };\n\n" +
+            "    private %4$sfinal long[] REQUIRED_PRESENT_FIELDS =\n" +
+            "    {\n" +
+            "%2$s" +
+            "    };\n\n" +
+            "    private final long[] presentFields =\n" +
+            "    {\n" +
+            "%3$s" +
+            "    };\n\n",
+            tags,
+            bitsetWords(requiredWords),
+            bitsetWords(initialWords),
+            currentAggregate instanceof Group ? "" : "static ");
+    }
+
+    private static String bitsetWords(final long[] words)
+    {
+        return LongStream
+            .of(words)
+            .mapToObj((word) -> String.format("        0x%xL,\n", word))
+            .collect(joining());
+    }
+
+    private String missingRequiredFieldValidation()
+    {
+        return
+            "        if (" + CODEC_VALIDATION_ENABLED + ")\n" +
+            "        {\n" +
+            "            final long[] presentFields = this.presentFields;\n" +
+            "            for (int i = 0; i < presentFields.length; i++)\n" +
+            "            {\n" +
+            "                final long missingFields = REQUIRED_PRESENT_FIELDS[i] & ~presentFields[i];\n" +
+            "                if (missingFields != 0)\n" +
+            "                {\n" +
+            "                    final int ordinal = (i << 6) + Long.numberOfTrailingZeros(missingFields);\n" +
+            "                    invalidTagId = PRESENT_FIELD_TAGS[ordinal];\n" +
+            "                    rejectReason = " + REQUIRED_TAG_MISSING + ";\n" +
+            "                    return false;\n" +
+            "                }\n" +
+            "            }\n" +
+            "        }\n";
+    }
+
+    private String resetPresentFields(final List<Entry> entries)
+    {
+        final List<Entry> presentFieldEntries = presentFieldEntries(entries);
+        final StringBuilder cases = new StringBuilder();
+        for (int ordinal = 0; ordinal < presentFieldEntries.size(); ordinal++)
+        {
+            final String resetCall = callResetMethod(presentFieldEntries.get(ordinal));
+            if (!resetCall.isEmpty())
+            {
+                cases
+                    .append("            case ").append(ordinal).append(":\n")
+                    .append("        ").append(resetCall)
+                    .append("                break;\n");
+            }
+        }
+
+        return String.format(
+            "    private void resetPresentFields()\n" +
+            "    {\n" +
+            "        final long[] presentFields = this.presentFields;\n" +
+            "        for (int i = 0; i < presentFields.length; i++)\n" +
+            "        {\n" +
+            "            long fields = presentFields[i];\n" +
+            "            presentFields[i] = 0;\n" +
+            "            while (fields != 0)\n" +
+            "            {\n" +
+            "                resetPresentField((i << 6) + Long.numberOfTrailingZeros(fields));\n" +
+            "                fields &= fields - 1;\n" +
+            "            }\n" +
+            "        }\n" +
+            "    }\n\n" +
+            "    private void resetPresentField(final int ordinal)\n" +
+            "    {\n" +
+            "        switch (ordinal)\n" +
+            "        {\n" +
+            "%s" +
+            "        }\n" +
+            "    }\n\n",
+            cases);
+    }
+
+    // The fields and groups decoded directly by an aggregate's decode method, including those of its components.
+    // An entry's index in this list is its ordinal within the presentFields bitset.
+    private List<Entry> presentFieldEntries(final List<Entry> entries)
+    {
+        final List<Entry> presentFieldEntries = new ArrayList<>();
+        for (final Entry entry : entries)
+        {
+            if (entry.isComponent())
+            {
+                presentFieldEntries.addAll(presentFieldEntries(((Component)entry.element()).entries()));
+            }
+            else
+            {
+                presentFieldEntries.add(entry);
+            }
+        }
+
+        return presentFieldEntries;
+    }
+
+    private Map<String, Integer> presentFieldOrdinals(final List<Entry> entries)
+    {
+        final List<Entry> presentFieldEntries = presentFieldEntries(entries);
+        final Map<String, Integer> ordinals = new HashMap<>();
+        for (int ordinal = 0; ordinal < presentFieldEntries.size(); ordinal++)
+        {
+            ordinals.put(presentFieldName(presentFieldEntries.get(ordinal)), ordinal);
+        }
+
+        return ordinals;
+    }
+
+    private static String presentFieldName(final Entry entry)
+    {
+        return entry.isGroup() ? ((Group)entry.element()).numberField().name() : entry.name();
     }
 
     private String generateFieldDictionary(final Collection<Field> fields, final String name,
@@ -578,6 +880,9 @@ public class DecoderGenerator extends Generator
         final String optional = !entry.required() ?
             String.format("    public boolean has%1$s();\n", name) : "";
 
+        final String scaledLong = type.isFloatBased() ?
+            String.format("    public long %1$sAsScaledLong(int scale);\n", fieldName) : "";
+
         final String enumDecoder = EnumGenerator.hasEnumGenerated(field) && !field.type().isMultiValue() ?
             String.format("    public %s %sAsEnum();\n", name, fieldName) : "";
 
@@ -586,13 +891,15 @@ public class DecoderGenerator extends Generator
             "%3$s" +
             "%4$s" +
             "%5$s" +
-            "%6$s",
+            "%6$s" +
+            "%7$s",
             javaTypeOf(type),
             fieldName,
             optional,
             length,
             enumDecoder,
-            stringAsciiView);
+            stringAsciiView,
+            scaledLong);
     }
 
     private void getter(final Entry entry, final Writer out) throws IOException
@@ -614,10 +921,8 @@ public class DecoderGenerator extends Generator
                 "    public %1$s next()\n" +
                 "    {\n" +
                 "        return next;\n" +
-                "    }\n\n" +
-                "    private IntHashSet seenFields = new IntHashSet(%2$d);\n\n",
-                decoderClassName(aggregate),
-                sizeHashSet(aggregate.entries())));
+                "    }\n\n",
+                decoderClassName(aggregate)));
         }
     }
 
@@ -791,6 +1096,15 @@ public class DecoderGenerator extends Generator
             optionalCheck,
             asStringBody) : "";
 
+        final String scaledLongDecoder = type.isFloatBased() ? String.format(
+            "    public long %1$sAsScaledLong(final int scale)\n" +
+            "    {\n" +
+            "%2$s" +
+            "        return %1$s.toScaledLong(scale);\n" +
+            "    }\n\n",
+            fieldName,
+            optionalCheck) : "";
+
         final String enumDecoder = EnumGenerator.hasEnumGenerated(field) && !field.type().isMultiValue() ?
             String.format(
             "    public %s %sAsEnum()\n" +
@@ -812,6 +1126,7 @@ public class DecoderGenerator extends Generator
             "    }\n\n" +
             "%s\n" +
             "%s\n" +
+            "%s" +
             "%s",
             javaTypeOf(type),
             fieldName,
@@ -820,6 +1135,7 @@ public class DecoderGenerator extends Generator
             optionalCheck,
             optionalGetter(entry),
             stringDecoder,
+            scaledLongDecoder,
             enumDecoder);
     }
 
@@ -960,30 +1276,25 @@ public class DecoderGenerator extends Generator
         final boolean hasCommonCompounds = type == MESSAGE;
         final boolean isGroup = type == GROUP;
         final boolean isHeader = type == HEADER;
-        final String endGroupCheck = endGroupCheck(aggregate, isGroup);
 
+        // Fields that were present in a previous decode that wasn't followed by a reset are cleared first, so that
+        // the present fields bitset only ever describes the message being decoded.
         final String prefix =
             "    private AsciiBuffer buffer;\n\n" +
             "    public int decode(final AsciiBuffer buffer, final int offset, final int length)\n" +
             "    {\n" +
             "        // Decode " + aggregate.name() + "\n" +
             "        int seenFieldCount = 0;\n" +
-            "        if (" + CODEC_VALIDATION_ENABLED + ")\n" +
-            "        {\n" +
-            "            missingRequiredFields.copy(" + REQUIRED_FIELDS + ");\n" +
-            (isGroup ? "" : "            alreadyVisitedFields.clear();\n") +
-            "        }\n" +
+            "        resetPresentFields();\n" +
             "        this.buffer = buffer;\n" +
             "        final int end = offset + length;\n" +
             "        int position = offset;\n" +
             (hasCommonCompounds ? "        position += header.decode(buffer, position, length);\n" : "") +
-            (isGroup ? "        seenFields.clear();\n" : "") +
             "        int tag;\n\n" +
             "        while (position < end)\n" +
             "        {\n" +
             "            final int equalsPosition = buffer.scan(position, end, '=');\n" +
             "            tag = buffer.getInt(position, equalsPosition);\n" +
-            endGroupCheck +
             "            final int valueOffset = equalsPosition + 1;\n" +
             "            final int endOfField = buffer.scan(valueOffset, end, START_OF_HEADER);\n" +
             "            final int valueLength = endOfField - valueOffset;\n" +
@@ -1000,39 +1311,23 @@ public class DecoderGenerator extends Generator
             "                    rejectReason = " + TAG_SPECIFIED_WITHOUT_A_VALUE + ";\n" +
             "                }\n" +
             headerValidation(isHeader) +
-
-            (isGroup ? "" :
-            "                if (!alreadyVisitedFields.add(tag))\n" +
-            "                {\n" +
-            "                    invalidTagId = tag;\n" +
-            "                    rejectReason = " + TAG_APPEARS_MORE_THAN_ONCE + ";\n" +
-            "                }\n") +
-
-            "                missingRequiredFields.remove(tag);\n" +
             "                seenFieldCount++;\n" +
             "            }\n" +
             "            switch (tag)\n" +
             "            {\n\n";
 
+        presentFieldOrdinals = presentFieldOrdinals(entries);
         final String body = entries.stream()
             .map(this::decodeEntry)
             .collect(joining("\n", "", "\n"));
 
         final String suffix =
             "            default:\n" +
-            "                if (!" + CODEC_REJECT_UNKNOWN_FIELD_ENABLED + ")\n" +
-            "                {\n" +
-            (isGroup ?
-            "                    seenFields.remove(tag);\n" :
-            "                    alreadyVisitedFields.remove(tag);\n") +
-            "                }\n" +
             (isGroup ? "" :
-            "                else\n" +
+            "                if (" + CODEC_REJECT_UNKNOWN_FIELD_ENABLED + " && !" +
+            unknownFieldPredicate(type) + ")\n" +
             "                {\n" +
-            "                    if (!" + unknownFieldPredicate(type) + ")\n" +
-            "                    {\n" +
-            "                        unknownFields.add(tag);\n" +
-            "                    }\n" +
+            "                    unknownFields.add(tag);\n" +
             "                }\n") +
 
 
@@ -1080,31 +1375,6 @@ public class DecoderGenerator extends Generator
         }
     }
 
-    private String endGroupCheck(final Aggregate aggregate, final boolean isGroup)
-    {
-        final String endGroupCheck;
-        if (isGroup)
-        {
-            endGroupCheck = String.format(
-                "            if (!seenFields.add(tag))\n" +
-                "            {\n" +
-                "                if (next == null)\n" +
-                "                {\n" +
-                "                    next = new %1$s(trailer, %2$s);\n" +
-                "                }\n" +
-                "                return position - offset;\n" +
-                "            }\n",
-                decoderClassName(aggregate),
-                MESSAGE_FIELDS);
-        }
-        else
-        {
-            endGroupCheck = "";
-        }
-
-        return endGroupCheck;
-    }
-
     private String headerValidation(final boolean isHeader)
     {
         return isHeader ?
@@ -1144,15 +1414,6 @@ public class DecoderGenerator extends Generator
             .collect(joining("\n", "", "\n"));
     }
 
-    protected String componentToString(final Component component)
-    {
-        return component
-            .entries()
-            .stream()
-            .map(this::entryToString)
-            .collect(joining(" + \n"));
-    }
-
     private String decodeGroup(final Entry entry)
     {
         final Group group = (Group)entry.element();
@@ -1195,12 +1456,14 @@ public class DecoderGenerator extends Generator
         return String.format(
             "            case Constants.%s:\n" +
             "%s" +
+            "%s" +
             "                %s = buffer.%s);\n" +
             "%s" +
             "%s" +
             "%s" +
             "                break;\n",
             constantName(name),
+            markFieldPresent(name),
             optionalAssign(entry),
             fieldName,
             decodeMethodFor(field.type(), fieldName),
@@ -1209,6 +1472,45 @@ public class DecoderGenerator extends Generator
             suffix);
     }
 
+    // A repeated field is a duplicate within a message, but marks the start of the next entry within a group.
+    private String markFieldPresent(final String name)
+    {
+        final int ordinal = presentFieldOrdinals.get(name);
+        final String word = String.format("presentFields[%d]", ordinal >> 6);
+        final String bit = String.format("0x%xL", 1L << (ordinal & 63));
+
+        final String repeatedField;
+        if (currentAggregate instanceof Group)
+        {
+            repeatedField = String.format(
+                "                if ((%1$s & %2$s) != 0)\n" +
+                "                {\n" +
+                "                    if (next == null)\n" +
+                "                    {\n" +
+                "                        next = new %3$s(trailer, %4$s);\n" +
+                "                    }\n" +
+                "                    return position - offset;\n" +
+                "                }\n",
+                word,
+                bit,
+                decoderClassName(currentAggregate),
+                MESSAGE_FIELDS);
+        }
+        else
+        {
+            repeatedField = String.format(
+                "                if (" + CODEC_VALIDATION_ENABLED + " && (%1$s & %2$s) != 0)\n" +
+                "                {\n" +
+                "                    invalidTagId = tag;\n" +
+                "                    rejectReason = " + TAG_APPEARS_MORE_THAN_ONCE + ";\n" +
+                "                }\n",
+                word,
+                bit);
+        }
+
+        return repeatedField + String.format("                %1$s |= %2$s;\n", word, bit);
+    }
+
     private String storeLengthForVariableLength(final Type type, final String fieldName)
     {
         return type.hasLengthField() ?
@@ -1279,11 +1581,6 @@ public class DecoderGenerator extends Generator
         }
     }
 
-    protected String stringToString(final String fieldName)
-    {
-        return String.format("new String(%s, 0, %1$sLength)", fieldName);
-    }
-
     protected boolean hasFlag(final Entry entry, final Field field)
     {
         return !entry.required();
@@ -1299,10 +1596,19 @@ public class DecoderGenerator extends Generator
         return entries
             .stream()
             .filter(Entry::isComponent)
-            .map((entry) -> resetEntries(((Component)entry.element()).entries(), methods))
+            .map((entry) -> super.resetEntries(((Component)entry.element()).entries(), methods))
             .collect(joining());
     }
 
+    // Every field still gets its own reset method, but reset() only calls those of the fields that were present.
+    protected String resetEntries(final List<Entry> entries, final StringBuilder methods)
+    {
+        super.resetEntries(entries, methods);
+        methods.append(resetPresentFields(entries));
+
+        return "        resetPresentFields();\n";
+    }
+
     @Override
     protected String resetStringBasedData(final String name)
     {
@@ -1316,25 +1622,8 @@ public class DecoderGenerator extends Generator
             formatPropertyName(name));
     }
 
-    protected String groupEntryToString(final Group element, final String name)
-    {
-        return String.format(
-            "                (has%3$s ? String.format(\"  \\\"%1$s\\\": [\\n" +
-            "  %%s" +
-            "\\n  ]" +
-            "\\n\", %2$s.toString().replace(\"\\n\", \"\\n  \")" + ") : \"\")",
-            name,
-            formatPropertyName(name),
-            element.numberField().name());
-    }
-
     protected String optionalReset(final Field field, final String name)
     {
         return resetByFlag(name);
     }
-
-    protected boolean toStringChecksHasGetter(final Entry entry, final Field field)
-    {
-        return hasFlag(entry, field);
-    }
 }
@@ -50,6 +50,8 @@ import static uk.co.real_logic.sbe.generation.java.JavaUtil.formatPropertyName;
 
 public class EncoderGenerator extends Generator
 {
+    private static final String EXPAND_INDENT = ".toString().replace(\"\\n\", \"\\n  \")";
+
     private static final String SUFFIX =
         "        buffer.putSeparator(position);\n" +
         "        position++;\n" +
@@ -900,12 +902,121 @@ public class EncoderGenerator extends Generator
             bytes));
     }
 
-    protected String stringToString(final String fieldName)
+    private String toString(final Aggregate aggregate, final boolean hasCommonCompounds)
+    {
+        final String entriesToString = aggregate
+            .entries()
+            .stream()
+            .map(this::entryToString)
+            .collect(joining(" + \n"));
+
+        final String prefix = !hasCommonCompounds ?
+            "" : "\"  \\\"header\\\": \" + header" + EXPAND_INDENT + " + \"\\n\" + ";
+
+        final String suffix;
+        final String parameters;
+        if (aggregate instanceof Group)
+        {
+            suffix = toStringGroupSuffix();
+
+            parameters = toStringGroupParameters();
+        }
+        else
+        {
+            suffix = "";
+            parameters = "";
+        }
+
+        return String.format(
+            "    public String toString(%5$s)\n" +
+            "    {\n" +
+            "        String entries = %1$s\n" +
+            "%2$s;\n\n" +
+            "        entries = \"{\\n  \\\"MessageName\\\": \\\"%4$s\\\",\\n\" + entries + \"}\";\n" +
+            "%3$s" +
+            "        return entries;\n" +
+            "    }\n\n",
+            prefix,
+            entriesToString,
+            suffix,
+            aggregate.name(),
+            parameters);
+    }
+
+    private String entryToString(final Entry entry)
+    {
+        //"  \"OnBehalfOfCompID\": \"abc\",\n" +
+
+        if (isBodyLength(entry))
+        {
+            return "\"\"";
+        }
+
+        final Element element = entry.element();
+        final String name = entry.name();
+        if (element instanceof Field)
+        {
+            final Field field = (Field)element;
+            final String value = fieldToString(field);
+
+            final String formatter = String.format(
+                "String.format(\"  \\\"%s\\\": \\\"%%s\\\",\\n\", %s)",
+                name,
+                value);
+
+            final boolean hasFlag = toStringChecksHasGetter(entry, field);
+            return "             " +
+                (hasFlag ? String.format("(has%s() ? %s : \"\")", name, formatter) : formatter);
+        }
+        else if (element instanceof Group)
+        {
+            return groupEntryToString((Group)element, name);
+        }
+        else if (element instanceof Component)
+        {
+            return componentToString((Component)element);
+        }
+
+        return "\"\"";
+    }
+
+    private String fieldToString(final Field field)
+    {
+        final String fieldName = formatPropertyName(field.name());
+        switch (field.type())
+        {
+            case STRING:
+            case MULTIPLEVALUESTRING:
+            case MULTIPLESTRINGVALUE:
+            case MULTIPLECHARVALUE:
+            case CURRENCY:
+            case EXCHANGE:
+            case COUNTRY:
+            case LANGUAGE:
+            case UTCTIMEONLY:
+            case UTCDATEONLY:
+            case UTCTIMESTAMP:
+            case LOCALMKTDATE:
+            case MONTHYEAR:
+            case TZTIMEONLY:
+            case TZTIMESTAMP:
+                return stringToString(fieldName);
+
+            case DATA:
+            case XMLDATA:
+                return String.format("Arrays.toString(%s)", fieldName);
+
+            default:
+                return fieldName;
+        }
+    }
+
+    private String stringToString(final String fieldName)
     {
         return String.format("new String(%s, %1$sOffset, %1$sLength, StandardCharsets.US_ASCII)", fieldName);
     }
 
-    protected String componentToString(final Component component)
+    private String componentToString(final Component component)
     {
         final String name = component.name();
         return String.format(
@@ -936,12 +1047,12 @@ public class EncoderGenerator extends Generator
         return resetByFlag(field.name());
     }
 
-    protected String toStringGroupParameters()
+    private String toStringGroupParameters()
     {
         return "final int remainingEntries";
     }
 
-    protected String toStringGroupSuffix()
+    private String toStringGroupSuffix()
     {
         return
             "        if (remainingEntries > 1)\n" +
@@ -976,7 +1087,7 @@ public class EncoderGenerator extends Generator
         return resetLength(name);
     }
 
-    protected String groupEntryToString(final Group element, final String name)
+    private String groupEntryToString(final Group element, final String name)
     {
         final Entry numberField = element.numberField();
         return String.format(
@@ -994,7 +1105,7 @@ public class EncoderGenerator extends Generator
         return field.type().hasLengthField() ? resetLength(name) : resetByFlag(name);
     }
 
-    protected boolean toStringChecksHasGetter(final Entry entry, final Field field)
+    private boolean toStringChecksHasGetter(final Entry entry, final Field field)
     {
         return hasFlag(entry, field) || field.type().hasLengthField();
     }
@@ -22,7 +22,6 @@ import uk.co.real_logic.artio.EncodingException;
 import uk.co.real_logic.artio.dictionary.CharArraySet;
 import uk.co.real_logic.artio.dictionary.StandardFixConstants;
 import uk.co.real_logic.artio.dictionary.ir.*;
-import uk.co.real_logic.artio.dictionary.ir.Entry.Element;
 import uk.co.real_logic.artio.fields.DecimalFloat;
 import uk.co.real_logic.artio.fields.LocalMktDateEncoder;
 import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
@@ -51,7 +50,6 @@ public abstract class Generator
     public static final String BEGIN_STRING = "BeginString";
     public static final String BODY_LENGTH = "BodyLength";
 
-    public static final String EXPAND_INDENT = ".toString().replace(\"\\n\", \"\\n  \")";
     public static final String CODEC_VALIDATION_ENABLED = "CODEC_VALIDATION_ENABLED";
     public static final String CODEC_REJECT_UNKNOWN_FIELD_ENABLED = "CODEC_REJECT_UNKNOWN_FIELD_ENABLED";
     public static final String MESSAGE_FIELDS = "messageFields";
@@ -343,7 +341,7 @@ public abstract class Generator
         return "reset" + name;
     }
 
-    private String callResetMethod(final Entry entry)
+    protected String callResetMethod(final Entry entry)
     {
         if (isNotResettableField(entry.name()))
         {
@@ -441,92 +439,6 @@ public abstract class Generator
             resetValue);
     }
 
-    protected String toString(final Aggregate aggregate, final boolean hasCommonCompounds)
-    {
-        final String entriesToString = aggregate
-            .entries()
-            .stream()
-            .map(this::entryToString)
-            .collect(joining(" + \n"));
-
-        final String prefix = !hasCommonCompounds ?
-            "" : "\"  \\\"header\\\": \" + header" + EXPAND_INDENT + " + \"\\n\" + ";
-
-        final String suffix;
-        final String parameters;
-        if (aggregate instanceof Group)
-        {
-            suffix = toStringGroupSuffix();
-
-            parameters = toStringGroupParameters();
-        }
-        else
-        {
-            suffix = "";
-            parameters = "";
-        }
-
-        return String.format(
-            "    public String toString(%5$s)\n" +
-            "    {\n" +
-            "        String entries = %1$s\n" +
-            "%2$s;\n\n" +
-            "        entries = \"{\\n  \\\"MessageName\\\": \\\"%4$s\\\",\\n\" + entries + \"}\";\n" +
-            "%3$s" +
-            "        return entries;\n" +
-            "    }\n\n",
-            prefix,
-            entriesToString,
-            suffix,
-            aggregate.name(),
-            parameters);
-    }
-
-    protected abstract String toStringGroupParameters();
-
-    protected abstract String toStringGroupSuffix();
-
-    protected String entryToString(final Entry entry)
-    {
-        //"  \"OnBehalfOfCompID\": \"abc\",\n" +
-
-        if (isBodyLength(entry))
-        {
-            return "\"\"";
-        }
-
-        final Element element = entry.element();
-        final String name = entry.name();
-        if (element instanceof Field)
-        {
-            final Field field = (Field)element;
-            final String value = fieldToString(field);
-
-            final String formatter = String.format(
-                "String.format(\"  \\\"%s\\\": \\\"%%s\\\",\\n\", %s)",
-                name,
-                value);
-
-            final boolean hasFlag = toStringChecksHasGetter(entry, field);
-            return "             " +
-                (hasFlag ? String.format("(has%s() ? %s : \"\")", name, formatter) : formatter);
-        }
-        else if (element instanceof Group)
-        {
-            return groupEntryToString((Group)element, name);
-        }
-        else if (element instanceof Component)
-        {
-            return componentToString((Component)element);
-        }
-
-        return "\"\"";
-    }
-
-    protected abstract boolean toStringChecksHasGetter(Entry entry, Field field);
-
-    protected abstract String groupEntryToString(Group element, String name);
-
     protected abstract boolean hasFlag(Entry entry, Field field);
 
     protected String hasGetter(final String name)
@@ -539,39 +451,6 @@ public abstract class Generator
             name);
     }
 
-    protected abstract String componentToString(Component component);
-
-    protected String fieldToString(final Field field)
-    {
-        final String fieldName = formatPropertyName(field.name());
-        switch (field.type())
-        {
-            case STRING:
-            case MULTIPLEVALUESTRING:
-            case MULTIPLESTRINGVALUE:
-            case MULTIPLECHARVALUE:
-            case CURRENCY:
-            case EXCHANGE:
-            case COUNTRY:
-            case LANGUAGE:
-            case UTCTIMEONLY:
-            case UTCDATEONLY:
-            case UTCTIMESTAMP:
-            case LOCALMKTDATE:
-            case MONTHYEAR:
-            case TZTIMEONLY:
-            case TZTIMESTAMP:
-                return stringToString(fieldName);
-
-            case DATA:
-            case XMLDATA:
-                return String.format("Arrays.toString(%s)", fieldName);
-
-            default:
-                return fieldName;
-        }
-    }
-
     protected boolean isCheckSum(final Entry entry)
     {
         return entry != null && isCheckSum(entry.name());
@@ -597,8 +476,6 @@ public abstract class Generator
         return BODY_LENGTH.equals(name);
     }
 
-    protected abstract String stringToString(String fieldName);
-
     protected String indent(final int times, final String suffix)
     {
         final StringBuilder sb = new StringBuilder(times * 4 + suffix.length());
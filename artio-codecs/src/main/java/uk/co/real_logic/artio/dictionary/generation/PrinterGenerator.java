@@ -90,7 +90,7 @@ public class PrinterGenerator
         final Function<Message, String> mapper = (aggregate) -> String.format(
             "            case %s:\n" +
             "            %s.decode(input, offset, length);\n" +
-            "            return %2$s.toString();\n\n",
+            "            return %2$s.appendTo(builder);\n\n",
             aggregate.packedType(),
             decoderFieldName(aggregate));
 
@@ -103,6 +103,15 @@ public class PrinterGenerator
             "        final int length,\n" +
             "        final int messageType)\n" +
             "    {\n" +
+            "        return appendTo(new StringBuilder(), input, offset, length, messageType).toString();\n" +
+            "    }\n\n" +
+            "    public StringBuilder appendTo(\n" +
+            "        final StringBuilder builder,\n" +
+            "        final AsciiBuffer input,\n" +
+            "        final int offset,\n" +
+            "        final int length,\n" +
+            "        final int messageType)\n" +
+            "    {\n" +
             "        switch(messageType)\n" +
             "        {\n" +
             cases +
@@ -188,6 +188,40 @@ public final class DecimalFloat implements Comparable<DecimalFloat>
         return bigDecimal.toPlainString();
     }
 
+    /**
+     * Appends the same plain representation as {@link #toString()} to a builder without allocating.
+     *
+     * @param builder the builder to append to.
+     * @return the builder.
+     */
+    public StringBuilder appendTo(final StringBuilder builder)
+    {
+        final long value = this.value;
+        final int scale = this.scale;
+        final int start = builder.length();
+        builder.append(value);
+
+        if (scale > 0)
+        {
+            final int digitsStart = value < 0 ? start + 1 : start;
+            for (int digits = builder.length() - digitsStart; digits <= scale; digits++)
+            {
+                builder.insert(digitsStart, '0');
+            }
+
+            builder.insert(builder.length() - scale, '.');
+        }
+        else if (value != 0)
+        {
+            for (int i = scale; i < 0; i++)
+            {
+                builder.append('0');
+            }
+        }
+
+        return builder;
+    }
+
     public int compareTo(final DecimalFloat other)
     {
         final long value = this.value;
@@ -256,6 +290,47 @@ public final class DecimalFloat implements Comparable<DecimalFloat>
         return toDouble(value, scale);
     }
 
+    /**
+     * Convert to a fixed point value with a given number of decimal places, eg: 1.25 with a scale of 4 is 12500.
+     *
+     * @param scale the number of decimal places of the result.
+     * @return the value multiplied by ten to the power of scale.
+     * @throws ArithmeticException if the value can't be represented at that scale without losing precision or
+     * overflowing.
+     */
+    public long toScaledLong(final int scale)
+    {
+        final long value = this.value;
+        if (isNaNValue())
+        {
+            throw new ArithmeticException("Cannot scale NaN");
+        }
+
+        if (value == 0)
+        {
+            return 0;
+        }
+
+        final int scaleDifference = scale - this.scale;
+        if (scaleDifference >= 0)
+        {
+            if (scaleDifference > HIGHEST_POWER_OF_TEN)
+            {
+                throw new ArithmeticException("Out of range: value: " + this + ", scale: " + scale);
+            }
+
+            return Math.multiplyExact(value, POWERS_OF_TEN[scaleDifference]);
+        }
+
+        final int divisorPower = -scaleDifference;
+        if (divisorPower > HIGHEST_POWER_OF_TEN || value % POWERS_OF_TEN[divisorPower] != 0)
+        {
+            throw new ArithmeticException("Loses precision: value: " + this + ", scale: " + scale);
+        }
+
+        return value / POWERS_OF_TEN[divisorPower];
+    }
+
     public boolean fromDouble(final double doubleValue)
     {
         if (Double.isNaN(doubleValue))
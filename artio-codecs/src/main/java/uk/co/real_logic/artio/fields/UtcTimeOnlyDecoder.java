@@ -31,6 +31,7 @@ public final class UtcTimeOnlyDecoder
 
     static final int MILLIS_FIELD_LENGTH = 3;
     static final int MICROS_FIELD_LENGTH = 6;
+    static final int NANOS_FIELD_LENGTH = 9;
 
     private final AsciiBuffer buffer = new MutableAsciiBuffer();
 
@@ -20,27 +20,46 @@ import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 import static uk.co.real_logic.artio.fields.CalendricalUtil.*;
 import static uk.co.real_logic.artio.fields.UtcTimeOnlyDecoder.MICROS_FIELD_LENGTH;
 import static uk.co.real_logic.artio.fields.UtcTimeOnlyDecoder.MILLIS_FIELD_LENGTH;
+import static uk.co.real_logic.artio.fields.UtcTimeOnlyDecoder.NANOS_FIELD_LENGTH;
 
+/**
+ * Encodes UTCTimestamp fields.
+ *
+ * An instance of the encoder caches the rendered date and whole second of the last timestamp that it encoded, so
+ * encoding a timestamp that falls within the same second only writes the fractional digits and one within the same
+ * day only writes the time.
+ */
 public final class UtcTimestampEncoder
 {
     public static final long MIN_EPOCH_MILLIS = UtcTimestampDecoder.MIN_EPOCH_MILLIS;
     public static final long MAX_EPOCH_MILLIS = UtcTimestampDecoder.MAX_EPOCH_MILLIS;
     public static final long MIN_EPOCH_MICROS = UtcTimestampDecoder.MIN_EPOCH_MICROS;
     public static final long MAX_EPOCH_MICROS = UtcTimestampDecoder.MAX_EPOCH_MICROS;
+    public static final long MIN_EPOCH_NANOS = Long.MIN_VALUE;
+    public static final long MAX_EPOCH_NANOS = Long.MAX_VALUE;
 
     public static final int LENGTH_WITHOUT_MILLISECONDS = UtcTimestampDecoder.LENGTH_WITHOUT_MILLISECONDS;
     public static final int LENGTH_WITH_MILLISECONDS = UtcTimestampDecoder.LENGTH_WITH_MILLISECONDS;
     public static final int LENGTH_WITH_MICROSECONDS = UtcTimestampDecoder.LENGTH_WITH_MICROSECONDS;
+    public static final int LENGTH_WITH_NANOSECONDS = LENGTH_WITHOUT_MILLISECONDS + 1 + NANOS_FIELD_LENGTH;
 
     private static final int LENGTH_OF_DATE = 8;
     private static final int LENGTH_OF_DATE_AND_DASH = LENGTH_OF_DATE + 1;
 
-    private final boolean usesMillisecondsAsEpochFraction;
-    private final byte[] bytes = new byte[LENGTH_WITH_MICROSECONDS];
+    private final byte[] bytes = new byte[LENGTH_WITH_NANOSECONDS];
     private final MutableAsciiBuffer flyweight = new MutableAsciiBuffer(bytes);
 
-    private long startOfNextDayInFraction;
-    private long beginningOfDayInFraction;
+    private final long minEpochFraction;
+    private final long maxEpochFraction;
+    private final long fractionInSecond;
+    private final long fractionInDay;
+    private final int fractionFieldLength;
+    private final int lengthWithFraction;
+
+    // Initialised such that the first update always renders the full timestamp
+    private long startOfNextDayInFraction = Long.MIN_VALUE;
+    private long beginningOfDayInFraction = Long.MIN_VALUE;
+    private long currentSecond;
 
     public UtcTimestampEncoder()
     {
@@ -56,57 +75,67 @@ public final class UtcTimestampEncoder
      */
     public UtcTimestampEncoder(final boolean usesMillisecondsAsEpochFraction)
     {
-        this.usesMillisecondsAsEpochFraction = usesMillisecondsAsEpochFraction;
+        this(usesMillisecondsAsEpochFraction ? EpochFractionFormat.MILLISECONDS : EpochFractionFormat.MICROSECONDS);
+    }
+
+    /**
+     * Create the encoder.
+     *
+     * @param epochFractionFormat the precision of the timeunit for the <code>epochFraction</code> passed to
+     *                            encode().
+     */
+    public UtcTimestampEncoder(final EpochFractionFormat epochFractionFormat)
+    {
+        switch (epochFractionFormat)
+        {
+            case MILLISECONDS:
+                minEpochFraction = MIN_EPOCH_MILLIS;
+                maxEpochFraction = MAX_EPOCH_MILLIS;
+                fractionInSecond = MILLIS_IN_SECOND;
+                fractionInDay = MILLIS_IN_DAY;
+                fractionFieldLength = MILLIS_FIELD_LENGTH;
+                lengthWithFraction = LENGTH_WITH_MILLISECONDS;
+                break;
+
+            case MICROSECONDS:
+                minEpochFraction = MIN_EPOCH_MICROS;
+                maxEpochFraction = MAX_EPOCH_MICROS;
+                fractionInSecond = MICROS_IN_SECOND;
+                fractionInDay = MICROS_IN_DAY;
+                fractionFieldLength = MICROS_FIELD_LENGTH;
+                lengthWithFraction = LENGTH_WITH_MICROSECONDS;
+                break;
+
+            case NANOSECONDS:
+                minEpochFraction = MIN_EPOCH_NANOS;
+                maxEpochFraction = MAX_EPOCH_NANOS;
+                fractionInSecond = NANOS_IN_SECOND;
+                fractionInDay = NANOS_IN_DAY;
+                fractionFieldLength = NANOS_FIELD_LENGTH;
+                lengthWithFraction = LENGTH_WITH_NANOSECONDS;
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown epochFractionFormat: " + epochFractionFormat);
+        }
+
         flyweight.wrap(bytes);
     }
 
     /**
      * Encode the current time into the buffer as an ascii UTC String
      *
-     * @param epochFraction the current time as the number of milliseconds or microseconds since the start of the
-     *                      UNIX Epoch.
+     * @param epochFraction the current time as the number of milliseconds, microseconds or nanoseconds since the
+     *                      start of the UNIX Epoch.
      * @return the length of the encoded data in the flyweight.
      */
     public int encode(final long epochFraction)
     {
-        if (usesMillisecondsAsEpochFraction)
-        {
-            return encode(epochFraction, flyweight, 0);
-        }
-        else
-        {
-            return encodeMicros(epochFraction, flyweight, 0);
-        }
+        return update(epochFraction);
     }
 
     public int initialise(final long epochFraction)
     {
-        final long minEpochFraction;
-        final long maxEpochFraction;
-        final long fractionInSecond;
-        final long fractionInDay;
-        final int fractionFieldLength;
-        final int lengthWithFraction;
-
-        if (usesMillisecondsAsEpochFraction)
-        {
-            minEpochFraction = MIN_EPOCH_MILLIS;
-            maxEpochFraction = MAX_EPOCH_MILLIS;
-            fractionInSecond = MILLIS_IN_SECOND;
-            fractionInDay = MILLIS_IN_DAY;
-            fractionFieldLength = MILLIS_FIELD_LENGTH;
-            lengthWithFraction = LENGTH_WITH_MILLISECONDS;
-        }
-        else
-        {
-            minEpochFraction = MIN_EPOCH_MICROS;
-            maxEpochFraction = MAX_EPOCH_MICROS;
-            fractionInSecond = MICROS_IN_SECOND;
-            fractionInDay = MICROS_IN_DAY;
-            fractionFieldLength = MICROS_FIELD_LENGTH;
-            lengthWithFraction = LENGTH_WITH_MICROSECONDS;
-        }
-
         validate(epochFraction, minEpochFraction, maxEpochFraction);
 
         final long localSecond = localSecond(epochFraction, fractionInSecond);
@@ -115,6 +144,7 @@ public final class UtcTimestampEncoder
 
         startOfNextDayInFraction = (epochDay + 1) * fractionInDay;
         beginningOfDayInFraction = startOfNextDayInFraction - fractionInDay;
+        currentSecond = localSecond;
 
         encodeDate(epochDay, flyweight, 0);
         flyweight.putChar(LENGTH_OF_DATE, '-');
@@ -126,35 +156,31 @@ public final class UtcTimestampEncoder
 
     public int update(final long epochFraction)
     {
-        if (epochFraction > startOfNextDayInFraction || epochFraction < beginningOfDayInFraction)
+        if (epochFraction >= startOfNextDayInFraction || epochFraction < beginningOfDayInFraction)
         {
             return initialise(epochFraction);
         }
 
-        final long fractionInSecond;
-        final int fractionFieldLength;
-        final int lengthWithFraction;
+        final long localSecond = localSecond(epochFraction, fractionInSecond);
+        final int fractionOfSecond = fractionOfSecond(epochFraction, fractionInSecond);
 
-        if (usesMillisecondsAsEpochFraction)
-        {
-            fractionInSecond = MILLIS_IN_SECOND;
-            fractionFieldLength = MILLIS_FIELD_LENGTH;
-            lengthWithFraction = LENGTH_WITH_MILLISECONDS;
-        }
-        else
+        if (localSecond != currentSecond)
         {
-            fractionInSecond = MICROS_IN_SECOND;
-            fractionFieldLength = MICROS_FIELD_LENGTH;
-            lengthWithFraction = LENGTH_WITH_MICROSECONDS;
+            currentSecond = localSecond;
+            UtcTimeOnlyEncoder.encodeFraction(
+                localSecond, 0, flyweight, LENGTH_OF_DATE_AND_DASH, fractionFieldLength);
         }
 
-        final long localSecond = localSecond(epochFraction, fractionInSecond);
-        final int fractionOfSecond = fractionOfSecond(epochFraction, fractionInSecond);
+        if (fractionOfSecond > 0)
+        {
+            final MutableAsciiBuffer flyweight = this.flyweight;
+            flyweight.putChar(LENGTH_WITHOUT_MILLISECONDS, '.');
+            flyweight.putNaturalPaddedIntAscii(LENGTH_WITHOUT_MILLISECONDS + 1, fractionFieldLength, fractionOfSecond);
 
-        UtcTimeOnlyEncoder.encodeFraction(
-            localSecond, fractionOfSecond, flyweight, LENGTH_OF_DATE_AND_DASH, fractionFieldLength);
+            return lengthWithFraction;
+        }
 
-        return fractionOfSecond > 0 ? lengthWithFraction : LENGTH_WITHOUT_MILLISECONDS;
+        return LENGTH_WITHOUT_MILLISECONDS;
     }
 
     public byte[] buffer()
@@ -194,6 +220,22 @@ public final class UtcTimestampEncoder
             MICROS_FIELD_LENGTH);
     }
 
+    public static int encodeNanos(
+        final long epochNanos,
+        final MutableAsciiBuffer string,
+        final int offset)
+    {
+        return encodeFraction(
+            epochNanos,
+            string,
+            offset,
+            MIN_EPOCH_NANOS,
+            MAX_EPOCH_NANOS,
+            NANOS_IN_SECOND,
+            LENGTH_WITH_NANOSECONDS,
+            NANOS_FIELD_LENGTH);
+    }
+
     private static int encodeFraction(
         final long epochFraction,
         final MutableAsciiBuffer string,
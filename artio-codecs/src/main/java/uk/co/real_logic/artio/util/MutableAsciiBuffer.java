@@ -21,13 +21,21 @@ import uk.co.real_logic.artio.fields.*;
 
 import java.nio.ByteBuffer;
 
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
 
 public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffer
 {
     private static final byte ZERO = '0';
     private static final byte DOT = (byte)'.';
     private static final byte SPACE = ' ';
+    private static final int NO_DOT = -1;
+
+    private static final long HIGH_NIBBLES = 0xF0F0F0F0F0F0F0F0L;
+    private static final long ASCII_ZEROS = 0x3030303030303030L;
+    private static final long ASCII_SIXES = 0x0606060606060606L;
+    private static final long EIGHT_DIGITS_MULTIPLIER = 100_000_000L;
 
     private static final byte Y = (byte)'Y';
     private static final byte N = (byte)'N';
@@ -168,38 +176,17 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
     }
 
     @SuppressWarnings("FinalParameters")
-    public DecimalFloat getFloat(final DecimalFloat number, int offset, int length)
+    public DecimalFloat getFloat(final DecimalFloat number, int offset, final int length)
     {
-        // Throw away trailing spaces or zeros
+        // Throw away trailing spaces
         int end = offset + length;
-        for (int index = end - 1; isSpace(index) && index > offset; index--)
+        while (end - 1 > offset && isSpace(end - 1))
         {
             end--;
         }
 
-        int endDiff = 0;
-        for (int index = end - 1; isZero(index) && index > offset; index--)
-        {
-            endDiff++;
-        }
-
-        boolean isFloatingPoint = false;
-        for (int index = end - endDiff - 1; index > offset; index--)
-        {
-            if (getByte(index) == DOT)
-            {
-                isFloatingPoint = true;
-                break;
-            }
-        }
-
-        if (isFloatingPoint)
-        {
-            end -= endDiff;
-        }
-
         // Throw away leading spaces
-        for (int index = offset; isSpace(index) && index < end; index++)
+        while (offset < end && isSpace(offset))
         {
             offset++;
         }
@@ -211,33 +198,82 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
             offset++;
         }
 
-        // Throw away leading zeros
-        for (int index = offset; isZero(index) && index < end; index++)
+        int dotIndex = NO_DOT;
+        for (int index = end - 1; index >= offset; index--)
         {
-            offset++;
+            if (getByte(index) == DOT)
+            {
+                dotIndex = index;
+                break;
+            }
         }
 
+        long value;
         int scale = 0;
-        long value = 0;
-        for (int index = offset; index < end; index++)
+        if (dotIndex == NO_DOT)
         {
-            final byte byteValue = getByte(index);
-            if (byteValue == DOT)
-            {
-                // number of digits after the dot
-                scale = end - (index + 1);
-            }
-            else
+            value = getDigits(0, offset, end);
+        }
+        else
+        {
+            // Throw away trailing zeros after the dot
+            while (end - 1 > dotIndex && isZero(end - 1))
             {
-                final int digit = getDigit(index, byteValue);
-                value = value * 10 + digit;
+                end--;
             }
+
+            value = getDigits(0, offset, dotIndex);
+            value = getDigits(value, dotIndex + 1, end);
+            scale = end - (dotIndex + 1);
         }
 
         number.set(negative ? -1 * value : value, scale);
         return number;
     }
 
+    // Accumulates the digits in [index, end) onto value. Eight digits at a time are converted using SWAR
+    // (SIMD within a register) arithmetic on a single long, falling back to a digit at a time for the remainder
+    // or when a chunk contains a non-digit, so that the error reports the index of the invalid byte.
+    private long getDigits(final long initialValue, final int offset, final int end)
+    {
+        long value = initialValue;
+        int index = offset;
+        while (end - index >= SIZE_OF_LONG)
+        {
+            final long chunk = getLong(index, LITTLE_ENDIAN);
+            if (!isEightDigits(chunk))
+            {
+                break;
+            }
+
+            value = value * EIGHT_DIGITS_MULTIPLIER + eightDigitsValue(chunk);
+            index += SIZE_OF_LONG;
+        }
+
+        for (; index < end; index++)
+        {
+            value = value * 10 + getDigit(index, getByte(index));
+        }
+
+        return value;
+    }
+
+    private static boolean isEightDigits(final long chunk)
+    {
+        return (chunk & HIGH_NIBBLES) == ASCII_ZEROS && ((chunk + ASCII_SIXES) & HIGH_NIBBLES) == ASCII_ZEROS;
+    }
+
+    // Combines adjacent digits pairwise: 8 x 1 digit lanes -> 4 x 2 digit lanes -> 2 x 4 digit lanes -> 8 digits.
+    // The first digit is in the lowest byte as the chunk was read little endian.
+    private static long eightDigitsValue(final long chunk)
+    {
+        long digits = chunk - ASCII_ZEROS;
+        digits = ((digits * 10) + (digits >>> 8)) & 0x00FF00FF00FF00FFL;
+        digits = ((digits * 100) + (digits >>> 16)) & 0x0000FFFF0000FFFFL;
+        digits = ((digits * 10_000) + (digits >>> 32)) & 0x00000000FFFFFFFFL;
+        return digits;
+    }
+
     private boolean isSpace(final int index)
     {
         return getByte(index) == SPACE;
@@ -327,6 +363,18 @@ public final class MutableAsciiBuffer extends UnsafeBuffer implements AsciiBuffe
         return bytes.length;
     }
 
+    // NB: only valid for ASCII characters.
+    public int putAscii(final int index, final CharSequence value)
+    {
+        final int length = value.length();
+        for (int i = 0; i < length; i++)
+        {
+            putByte(index + i, (byte)value.charAt(i));
+        }
+
+        return length;
+    }
+
     public void putSeparator(final int index)
     {
         putByte(index, SEPARATOR);
@@ -264,6 +264,14 @@ public class DecoderGeneratorTest
         assertValid(decoder);
     }
 
+    @Test
+    public void decodesFloatValuesAsScaledLongs() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(DERIVED_FIELDS_MESSAGE);
+
+        assertEquals(110L, get(decoder, FLOAT_FIELD + "AsScaledLong", 2));
+    }
+
     @Test
     public void decodesEnumValuesUsingAsEnumMethods() throws Exception
     {
@@ -375,6 +383,41 @@ public class DecoderGeneratorTest
         assertEquals(MISSING_INT, getIntField(decoder));
     }
 
+    @Test
+    public void shouldResetFieldsFromPreviousMessageWhenDecodingWithoutReset() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(ENCODED_MESSAGE);
+
+        decode(DERIVED_FIELDS_MESSAGE, decoder);
+
+        assertFalse(hasTestReqId(decoder));
+        assertFalse(hasBooleanField(decoder));
+        assertFalse(hasDataField(decoder));
+        assertValid(decoder);
+    }
+
+    @Test
+    public void shouldNotTreatFieldsFromPreviousMessageAsRepeatedWhenDecodingWithoutReset() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(ENCODED_MESSAGE);
+
+        decode(ENCODED_MESSAGE, decoder);
+
+        assertValid(decoder);
+    }
+
+    @Test
+    public void shouldValidateMissingRequiredFieldsWhenDecodingWithoutReset() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(ENCODED_MESSAGE);
+
+        decode(MISSING_REQUIRED_FIELDS_MESSAGE, decoder);
+
+        assertFalse("Passed validation with missing fields", decoder.validate());
+        assertEquals("Wrong tag id", 116, decoder.invalidTagId());
+        assertEquals("Wrong reject reason", REQUIRED_TAG_MISSING, decoder.rejectReason());
+    }
+
     @Test
     public void shouldGenerateHumanReadableToString() throws Exception
     {
@@ -492,6 +535,28 @@ public class DecoderGeneratorTest
         assertThat(decoder, hasToString(containsString(STRING_GROUP_TWO_ELEMENTS)));
     }
 
+    @Test
+    public void shouldAppendRepeatingGroups() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(REPEATING_GROUP_MESSAGE);
+        final StringBuilder builder = new StringBuilder("prefix:");
+
+        assertSame(builder, decoder.appendTo(builder));
+        assertThat(builder.toString(), startsWith("prefix:{\n  \"MessageName\": \"Heartbeat\",\n"));
+        assertThat(builder.toString(), containsString(STRING_GROUP_TWO_ELEMENTS));
+    }
+
+    @Test
+    public void shouldPutRenderingOntoBuffer() throws Exception
+    {
+        final Decoder decoder = decodeHeartbeat(ENCODED_MESSAGE);
+        final MutableAsciiBuffer buffer = new MutableAsciiBuffer(new byte[8 * 1024]);
+
+        final int length = decoder.appendTo(buffer, 1);
+
+        assertEquals(STRING_ENCODED_MESSAGE_EXAMPLE + ",\n}", buffer.getAscii(1, length));
+    }
+
     @Test
     public void shouldDecodeComponents() throws Exception
     {
@@ -26,6 +26,7 @@ import java.util.Map;
 
 import static org.agrona.generation.CompilerUtil.compileInMemory;
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static uk.co.real_logic.artio.dictionary.ExampleDictionary.*;
 
@@ -72,6 +73,18 @@ public class PrinterGeneratorTest
         assertThat(string, containsString(STRING_ENCODED_MESSAGE_EXAMPLE));
     }
 
+    @Test
+    public void shouldAppendAMessage() throws Exception
+    {
+        final Printer printer = printer();
+        buffer.putAscii(1, ENCODED_MESSAGE);
+        final StringBuilder builder = new StringBuilder();
+
+        printer.appendTo(builder, buffer, 1, ENCODED_MESSAGE.length(), HEARTBEAT_TYPE);
+
+        assertEquals(STRING_ENCODED_MESSAGE_EXAMPLE + ",\n}", builder.toString());
+    }
+
     private Printer printer()
         throws InstantiationException, IllegalAccessException, NoSuchMethodException, InvocationTargetException
     {
@@ -18,6 +18,7 @@ package uk.co.real_logic.artio.fields;
 import org.junit.Test;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 public class DecimalFloatTest
@@ -123,4 +124,27 @@ public class DecimalFloatTest
         assertThat(new DecimalFloat(5000, 0), equalTo(new DecimalFloat(50, -2)));
         assertThat(new DecimalFloat(1234, 2), equalTo(new DecimalFloat(123400, 4)));
     }
+
+    @Test
+    public void convertsToScaledLong()
+    {
+        assertEquals(12500L, new DecimalFloat(125, 2).toScaledLong(4));
+        assertEquals(125L, new DecimalFloat(125, 2).toScaledLong(2));
+        assertEquals(-55L, MINUS_FIVE_POINT_FIVE.toScaledLong(1));
+        assertEquals(500L, FIVE.toScaledLong(2));
+        assertEquals(0L, ZERO.toScaledLong(8));
+        assertEquals(12L, new DecimalFloat(1200, 0).toScaledLong(-2));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void cannotConvertToScaledLongWithLossOfPrecision()
+    {
+        new DecimalFloat(125, 2).toScaledLong(1);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void cannotConvertToScaledLongWhenOverflowing()
+    {
+        new DecimalFloat(999_999_999_999L, 0).toScaledLong(8);
+    }
 }
@@ -50,4 +50,21 @@ public class DecimalFloatToStringTest
 
         assertEquals(Float.valueOf(input), Float.valueOf(price.toString()));
     }
+
+    @Test
+    public void canAppendDecimalFloat()
+    {
+        final DecimalFloat price = new DecimalFloat(value, scale);
+        final StringBuilder builder = new StringBuilder("price=");
+
+        price.appendTo(builder);
+
+        assertEquals("price=" + withoutTrailingZeros(input), builder.toString());
+    }
+
+    // DecimalFloat normalises away any trailing zeros after the decimal point.
+    private static String withoutTrailingZeros(final String input)
+    {
+        return input.contains(".") ? input.replaceAll("\\.?0+$", "") : input;
+    }
 }
@@ -24,7 +24,10 @@ import java.util.stream.Collectors;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
 import static uk.co.real_logic.artio.fields.CalendricalUtil.MICROS_IN_MILLIS;
+import static uk.co.real_logic.artio.fields.CalendricalUtil.MILLIS_IN_SECOND;
+import static uk.co.real_logic.artio.fields.CalendricalUtil.NANOS_IN_MICROS;
 import static uk.co.real_logic.artio.fields.UtcTimestampDecoderValidCasesTest.toEpochMillis;
 
 @RunWith(Parameterized.class)
@@ -33,12 +36,16 @@ public class UtcTimestampEncoderUpdateValidCasesTest
 
     private final String expectedTimestamp;
     private final String expectedTimestampMicros;
+    private final String expectedTimestampNanos;
     private final long epochMillis;
     private final long epochMicros;
+    private final long epochNanos;
     private final long otherEpochMillis;
     private final long otherEpochMicros;
+    private final long otherEpochNanos;
     private final int expectedLength;
     private final int expectedLengthMicros;
+    private final int expectedLengthNanos;
 
     @Parameters(name = "{0}, {1}")
     public static Iterable<Object[]> data()
@@ -66,6 +73,10 @@ public class UtcTimestampEncoderUpdateValidCasesTest
             expectedTimestampMicros = expectedTimestamp;
             epochMicros = epochMillis * MICROS_IN_MILLIS;
             otherEpochMicros = otherEpochMillis * MICROS_IN_MILLIS;
+            expectedLengthNanos = expectedLength;
+            expectedTimestampNanos = expectedTimestamp;
+            epochNanos = epochMicros * NANOS_IN_MICROS;
+            otherEpochNanos = otherEpochMicros * NANOS_IN_MICROS;
         }
         else
         {
@@ -73,6 +84,10 @@ public class UtcTimestampEncoderUpdateValidCasesTest
             expectedTimestampMicros = expectedTimestamp + "001";
             epochMicros = epochMillis * MICROS_IN_MILLIS + 1;
             otherEpochMicros = otherEpochMillis * MICROS_IN_MILLIS + 1;
+            expectedLengthNanos = expectedLength + 6;
+            expectedTimestampNanos = expectedTimestamp + "000001";
+            epochNanos = epochMillis * MICROS_IN_MILLIS * NANOS_IN_MICROS + 1;
+            otherEpochNanos = otherEpochMillis * MICROS_IN_MILLIS * NANOS_IN_MICROS + 1;
         }
     }
 
@@ -100,4 +115,49 @@ public class UtcTimestampEncoderUpdateValidCasesTest
         assertEquals(expectedTimestampMicros, new String(encoder.buffer(), 0, length, US_ASCII));
     }
 
+    @Test
+    public void canUpdateTimestampNanos()
+    {
+        assumeNanosecondRange(epochMillis);
+        assumeNanosecondRange(otherEpochMillis);
+
+        final UtcTimestampEncoder encoder = new UtcTimestampEncoder(EpochFractionFormat.NANOSECONDS);
+        encoder.initialise(otherEpochNanos);
+
+        final int length = encoder.update(epochNanos);
+
+        assertEquals("encoded wrong length", expectedLengthNanos, length);
+        assertEquals(expectedTimestampNanos, new String(encoder.buffer(), 0, length, US_ASCII));
+    }
+
+    @Test
+    public void canUpdateTimestampWithinSameSecond()
+    {
+        final UtcTimestampEncoder encoder = new UtcTimestampEncoder();
+        encoder.initialise(Math.floorDiv(epochMillis, MILLIS_IN_SECOND) * MILLIS_IN_SECOND + 999);
+
+        final int length = encoder.update(epochMillis);
+
+        assertEquals("encoded wrong length", expectedLength, length);
+        assertEquals(expectedTimestamp, new String(encoder.buffer(), 0, length, US_ASCII));
+    }
+
+    @Test
+    public void canUpdateTimestampAfterOtherTimestamp()
+    {
+        final UtcTimestampEncoder encoder = new UtcTimestampEncoder();
+        encoder.initialise(epochMillis);
+        encoder.update(otherEpochMillis);
+
+        final int length = encoder.update(epochMillis);
+
+        assertEquals("encoded wrong length", expectedLength, length);
+        assertEquals(expectedTimestamp, new String(encoder.buffer(), 0, length, US_ASCII));
+    }
+
+    private static void assumeNanosecondRange(final long epochMillis)
+    {
+        assumeTrue(epochMillis > Long.MIN_VALUE / (MICROS_IN_MILLIS * NANOS_IN_MICROS));
+        assumeTrue(epochMillis < Long.MAX_VALUE / (MICROS_IN_MILLIS * NANOS_IN_MICROS));
+    }
 }
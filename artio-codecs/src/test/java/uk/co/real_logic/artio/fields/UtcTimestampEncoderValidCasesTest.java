@@ -24,7 +24,9 @@ import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
 import static uk.co.real_logic.artio.fields.CalendricalUtil.MICROS_IN_MILLIS;
+import static uk.co.real_logic.artio.fields.CalendricalUtil.NANOS_IN_MICROS;
 import static uk.co.real_logic.artio.fields.UtcTimestampDecoderValidCasesTest.toEpochMillis;
 import static uk.co.real_logic.artio.util.CustomMatchers.sequenceEqualsAscii;
 
@@ -34,10 +36,13 @@ public class UtcTimestampEncoderValidCasesTest
 
     private final String expectedTimestamp;
     private final String expectedTimestampMicros;
+    private final String expectedTimestampNanos;
     private final long epochMillis;
     private final long epochMicros;
+    private final long epochNanos;
     private final int expectedLength;
     private final int expectedLengthMicros;
+    private final int expectedLengthNanos;
 
     @Parameters(name = "{0}")
     public static Iterable<String[]> data()
@@ -56,12 +61,18 @@ public class UtcTimestampEncoderValidCasesTest
             expectedLengthMicros = expectedLength;
             expectedTimestampMicros = expectedTimestamp;
             epochMicros = epochMillis * MICROS_IN_MILLIS;
+            expectedLengthNanos = expectedLength;
+            expectedTimestampNanos = expectedTimestamp;
+            epochNanos = epochMicros * NANOS_IN_MICROS;
         }
         else
         {
             expectedLengthMicros = expectedLength + 3;
             expectedTimestampMicros = expectedTimestamp + "001";
             epochMicros = epochMillis * MICROS_IN_MILLIS + 1;
+            expectedLengthNanos = expectedLength + 6;
+            expectedTimestampNanos = expectedTimestamp + "000001";
+            epochNanos = epochMillis * MICROS_IN_MILLIS * NANOS_IN_MICROS + 1;
         }
     }
 
@@ -107,4 +118,34 @@ public class UtcTimestampEncoderValidCasesTest
         assertEquals(new String(encoder.buffer(), 0, length, US_ASCII), expectedTimestampMicros);
     }
 
+    @Test
+    public void canStaticEncodeTimestampWithOffsetNanos()
+    {
+        assumeNanosecondRange();
+
+        final MutableAsciiBuffer string = new MutableAsciiBuffer(new byte[expectedLengthNanos + 2]);
+
+        final int length = UtcTimestampEncoder.encodeNanos(epochNanos, string, 1);
+
+        assertEquals("encoded wrong length", expectedLengthNanos, length);
+        assertThat(string, sequenceEqualsAscii(expectedTimestampNanos, 1, length));
+    }
+
+    @Test
+    public void canInstanceEncodeTimestampNanos()
+    {
+        assumeNanosecondRange();
+
+        final UtcTimestampEncoder encoder = new UtcTimestampEncoder(EpochFractionFormat.NANOSECONDS);
+        final int length = encoder.encode(epochNanos);
+
+        assertEquals("encoded wrong length", expectedLengthNanos, length);
+        assertEquals(new String(encoder.buffer(), 0, length, US_ASCII), expectedTimestampNanos);
+    }
+
+    private void assumeNanosecondRange()
+    {
+        assumeTrue(epochMillis > Long.MIN_VALUE / (MICROS_IN_MILLIS * NANOS_IN_MICROS));
+        assumeTrue(epochMillis < Long.MAX_VALUE / (MICROS_IN_MILLIS * NANOS_IN_MICROS));
+    }
 }
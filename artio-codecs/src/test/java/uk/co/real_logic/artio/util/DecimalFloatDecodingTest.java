@@ -71,6 +71,12 @@ public class DecimalFloatDecodingTest
             {"0.00000001", 1, 8},
             {"6456.123456789", 6456123456789L, 9},
             {"6456.000000001", 6456000000001L, 9},
+
+            {"12345678", 12345678L, 0},
+            {"123456789.87654321", 12345678987654321L, 8},
+            {"-12345678.90123456", -1234567890123456L, 8},
+            {"00000000.12345678", 12345678L, 8},
+            {"1234567890123456.78", 123456789012345678L, 2},
         });
     }
 
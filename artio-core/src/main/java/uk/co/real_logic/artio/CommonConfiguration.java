@@ -92,6 +92,15 @@ public class CommonConfiguration
      * Property name for the file to log debug messages to, default is standard output
      */
     public static final String DEBUG_FILE_PROPERTY = "fix.core.debug.file";
+    /**
+     * Property name for the flag to write debug log records into an in-memory buffer and print them from a
+     * separate thread, rather than printing them synchronously on the thread that logs them
+     */
+    public static final String DEBUG_ASYNC_PROPERTY = "fix.core.debug.async";
+    /**
+     * Property name for the length of the buffer that asynchronous debug log records are written into
+     */
+    public static final String DEBUG_ASYNC_BUFFER_LENGTH_PROPERTY = "fix.core.debug.async.buffer_length";
     /**
      * Property name for the period at which histogram intervals are polled and logged
      */
@@ -159,6 +168,9 @@ public class CommonConfiguration
     }
 
     public static final String DEBUG_FILE = System.getProperty(DEBUG_FILE_PROPERTY);
+    public static final boolean DEBUG_ASYNC = Boolean.getBoolean(DEBUG_ASYNC_PROPERTY);
+    public static final int DEBUG_ASYNC_BUFFER_LENGTH = Integer.getInteger(
+        DEBUG_ASYNC_BUFFER_LENGTH_PROPERTY, CommonConfiguration.DEFAULT_DEBUG_ASYNC_BUFFER_LENGTH);
     public static final boolean TIME_MESSAGES = Boolean.getBoolean(TIME_MESSAGES_PROPERTY);
     public static final boolean FORCE_WRITES = Boolean.getBoolean(FORCE_WRITES_MESSAGES_PROPERTY);
 
@@ -170,6 +182,7 @@ public class CommonConfiguration
     // ------------------------------------------------
 
     public static final int DEFAULT_MONITORING_BUFFER_LENGTH = 4 * 1024 * 1024;
+    public static final int DEFAULT_DEBUG_ASYNC_BUFFER_LENGTH = 8 * 1024 * 1024;
     public static final String DEFAULT_DIRECTORY = optimalTmpDirName() + File.separator + "fix-%s";
     public static final String DEFAULT_MONITORING_FILE = DEFAULT_DIRECTORY + File.separator + "monitoring";
 
@@ -399,6 +412,9 @@ public class CommonConfiguration
     /**
      * Sets the inbound max claim attempts.
      *
+     * Setting this to 0 makes claims non-blocking: a back pressured claim returns immediately rather than idling
+     * the calling thread, and the engine or library retries the work on a later duty cycle.
+     *
      * @param inboundMaxClaimAttempts the inbound max claim attempts
      * @return this
      * @see CommonConfiguration#INBOUND_MAX_CLAIM_ATTEMPTS_PROPERTY
@@ -412,6 +428,9 @@ public class CommonConfiguration
     /**
      * Sets the outbound max claim attempts.
      *
+     * Setting this to 0 makes claims non-blocking: a back pressured claim returns immediately rather than idling
+     * the calling thread, and the engine or library retries the work on a later duty cycle.
+     *
      * @param outboundMaxClaimAttempts the outbound max claim attempts
      * @return this
      * @see CommonConfiguration#OUTBOUND_MAX_CLAIM_ATTEMPTS_PROPERTY
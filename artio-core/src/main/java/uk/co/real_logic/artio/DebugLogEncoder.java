@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.agrona.BitUtil.SIZE_OF_BYTE;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+
+/**
+ * Writes debug log records in a fixed binary layout into a shared ring buffer, to be formatted and printed later by
+ * a {@link DebugLogReader}. One encoder is used per logging thread.
+ *
+ * A record is a header of timestamp, tag, thread name id, format string id and argument count followed by each
+ * argument, which is either a long, a boolean or a run of ASCII bytes. Message bodies are copied straight from the
+ * caller's buffer without being decoded into a {@link String}. Records begun as {@link #DISCARDED_RECORD} are
+ * encoded but never written, which is how records from threads that aren't being printed are filtered out.
+ */
+final class DebugLogEncoder
+{
+    static final int DISCARDED_RECORD = 0;
+    static final int PRINTF_RECORD = 1;
+    static final int PRINTLN_RECORD = 2;
+    static final int SBE_RECORD = 3;
+
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int TAG_OFFSET = TIMESTAMP_OFFSET + SIZE_OF_LONG;
+    static final int THREAD_NAME_OFFSET = TAG_OFFSET + SIZE_OF_INT;
+    static final int FORMAT_OFFSET = THREAD_NAME_OFFSET + SIZE_OF_INT;
+    static final int ARGUMENT_COUNT_OFFSET = FORMAT_OFFSET + SIZE_OF_INT;
+    static final int HEADER_LENGTH = ARGUMENT_COUNT_OFFSET + SIZE_OF_INT;
+
+    static final byte LONG_ARGUMENT = 1;
+    static final byte BOOLEAN_ARGUMENT = 2;
+    static final byte ASCII_ARGUMENT = 3;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(INITIAL_CAPACITY);
+    private final RingBuffer ringBuffer;
+    private final DebugLogStringTable strings;
+    private final AtomicLong droppedRecords;
+
+    private int recordType;
+    private int position;
+    private int argumentCount;
+
+    DebugLogEncoder(final RingBuffer ringBuffer, final DebugLogStringTable strings, final AtomicLong droppedRecords)
+    {
+        this.ringBuffer = ringBuffer;
+        this.strings = strings;
+        this.droppedRecords = droppedRecords;
+    }
+
+    DebugLogEncoder begin(
+        final int recordType,
+        final LogTag tag,
+        final String formatString,
+        final String threadName,
+        final long timestamp)
+    {
+        final ExpandableArrayBuffer buffer = this.buffer;
+        buffer.putLong(TIMESTAMP_OFFSET, timestamp);
+        buffer.putInt(TAG_OFFSET, tag.ordinal());
+        buffer.putInt(THREAD_NAME_OFFSET, strings.id(threadName));
+        buffer.putInt(FORMAT_OFFSET, strings.id(formatString));
+
+        this.recordType = recordType;
+        position = HEADER_LENGTH;
+        argumentCount = 0;
+
+        return this;
+    }
+
+    DebugLogEncoder append(final long value)
+    {
+        buffer.putByte(position, LONG_ARGUMENT);
+        buffer.putLong(position + SIZE_OF_BYTE, value);
+        position += SIZE_OF_BYTE + SIZE_OF_LONG;
+        argumentCount++;
+
+        return this;
+    }
+
+    DebugLogEncoder append(final boolean value)
+    {
+        buffer.putByte(position, BOOLEAN_ARGUMENT);
+        buffer.putByte(position + SIZE_OF_BYTE, (byte)(value ? 1 : 0));
+        position += SIZE_OF_BYTE + SIZE_OF_BYTE;
+        argumentCount++;
+
+        return this;
+    }
+
+    DebugLogEncoder append(final Object value)
+    {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+        {
+            return append(((Number)value).longValue());
+        }
+        else if (value instanceof Boolean)
+        {
+            return append(((Boolean)value).booleanValue());
+        }
+        else if (value instanceof CharSequence)
+        {
+            return append((CharSequence)value);
+        }
+
+        return append((CharSequence)String.valueOf(value));
+    }
+
+    DebugLogEncoder append(final CharSequence value)
+    {
+        final CharSequence chars = value == null ? "null" : value;
+        final int length = chars.length();
+        final int dataOffset = beginAscii(length);
+        for (int i = 0; i < length; i++)
+        {
+            buffer.putByte(dataOffset + i, (byte)chars.charAt(i));
+        }
+
+        return this;
+    }
+
+    DebugLogEncoder append(final DirectBuffer srcBuffer, final int srcOffset, final int length)
+    {
+        buffer.putBytes(beginAscii(length), srcBuffer, srcOffset, length);
+
+        return this;
+    }
+
+    DebugLogEncoder append(final ByteBuffer srcBuffer, final int srcIndex, final int length)
+    {
+        buffer.putBytes(beginAscii(length), srcBuffer, srcIndex, length);
+
+        return this;
+    }
+
+    void commit()
+    {
+        if (recordType == DISCARDED_RECORD)
+        {
+            return;
+        }
+
+        buffer.putInt(ARGUMENT_COUNT_OFFSET, argumentCount);
+
+        final int length = position;
+        if (length > ringBuffer.maxMsgLength() || !ringBuffer.write(recordType, buffer, 0, length))
+        {
+            droppedRecords.incrementAndGet();
+        }
+    }
+
+    private int beginAscii(final int length)
+    {
+        final int position = this.position;
+        buffer.putByte(position, ASCII_ARGUMENT);
+        buffer.putInt(position + SIZE_OF_BYTE, length);
+        this.position = position + SIZE_OF_BYTE + SIZE_OF_INT + length;
+        argumentCount++;
+
+        return position + SIZE_OF_BYTE + SIZE_OF_INT;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import uk.co.real_logic.artio.sbe_util.MessageDumper;
+import uk.co.real_logic.artio.sbe_util.MessageSchemaIr;
+import uk.co.real_logic.sbe.json.JsonPrinter;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.agrona.BitUtil.SIZE_OF_BYTE;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static uk.co.real_logic.artio.DebugLogEncoder.*;
+
+/**
+ * Agent that reads the binary records written by {@link DebugLogEncoder}s and prints them in the same textual format
+ * as the synchronous {@link DebugLogger}. All formatting, and the decoding of SBE messages into JSON, happens on this
+ * agent's thread rather than the thread that logged the record.
+ */
+final class DebugLogReader implements Agent, MessageHandler
+{
+    private static final LogTag[] LOG_TAGS = LogTag.values();
+    private static final int READ_LIMIT = 100;
+
+    private final RingBuffer ringBuffer;
+    private final DebugLogStringTable strings;
+    private final AtomicLong droppedRecords;
+    private final PrintStream output;
+
+    private long reportedDroppedRecords;
+    private JsonPrinter sbePrinter;
+
+    DebugLogReader(
+        final RingBuffer ringBuffer,
+        final DebugLogStringTable strings,
+        final AtomicLong droppedRecords,
+        final PrintStream output)
+    {
+        this.ringBuffer = ringBuffer;
+        this.strings = strings;
+        this.droppedRecords = droppedRecords;
+        this.output = output;
+    }
+
+    public int doWork()
+    {
+        return ringBuffer.read(this, READ_LIMIT) + reportDroppedRecords();
+    }
+
+    public void onClose()
+    {
+        int workCount;
+        do
+        {
+            workCount = doWork();
+        }
+        while (workCount > 0);
+
+        output.flush();
+    }
+
+    public String roleName()
+    {
+        return "DebugLogReader";
+    }
+
+    public void onMessage(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length)
+    {
+        final long timestamp = buffer.getLong(index + TIMESTAMP_OFFSET);
+        final int tagOrdinal = buffer.getInt(index + TAG_OFFSET);
+        final String threadName = strings.string(buffer.getInt(index + THREAD_NAME_OFFSET));
+        final String formatString = strings.string(buffer.getInt(index + FORMAT_OFFSET));
+        final Object[] arguments = new Object[buffer.getInt(index + ARGUMENT_COUNT_OFFSET)];
+
+        int position = index + HEADER_LENGTH;
+        int sbeOffset = 0;
+        int sbeLength = 0;
+        for (int i = 0; i < arguments.length; i++)
+        {
+            final byte type = buffer.getByte(position);
+            position += SIZE_OF_BYTE;
+            switch (type)
+            {
+                case LONG_ARGUMENT:
+                    arguments[i] = buffer.getLong(position);
+                    position += SIZE_OF_LONG;
+                    break;
+
+                case BOOLEAN_ARGUMENT:
+                    arguments[i] = buffer.getByte(position) != 0;
+                    position += SIZE_OF_BYTE;
+                    break;
+
+                case ASCII_ARGUMENT:
+                    final int argumentLength = buffer.getInt(position);
+                    position += SIZE_OF_INT;
+                    sbeOffset = position;
+                    sbeLength = argumentLength;
+                    if (msgTypeId != SBE_RECORD)
+                    {
+                        arguments[i] = buffer.getStringWithoutLengthAscii(position, argumentLength);
+                    }
+                    position += argumentLength;
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown debug log argument type: " + type);
+            }
+        }
+
+        switch (msgTypeId)
+        {
+            case PRINTF_RECORD:
+                final String tagName = tagOrdinal < LOG_TAGS.length ? LOG_TAGS[tagOrdinal].name() : "UNKNOWN";
+                output.printf(timestamp + ":" + threadName + "[" + tagName + "]" + " : " + formatString, arguments);
+                break;
+
+            case PRINTLN_RECORD:
+                output.println(threadName + arguments[0]);
+                break;
+
+            case SBE_RECORD:
+                output.println(threadName + MessageDumper.print(sbePrinter(), buffer, sbeOffset, sbeLength));
+                break;
+
+            default:
+                throw new IllegalStateException("Unknown debug log record type: " + msgTypeId);
+        }
+    }
+
+    private int reportDroppedRecords()
+    {
+        final long droppedRecords = this.droppedRecords.get();
+        if (droppedRecords != reportedDroppedRecords)
+        {
+            output.println("Dropped " + (droppedRecords - reportedDroppedRecords) +
+                " debug log records because the debug log buffer was full");
+            reportedDroppedRecords = droppedRecords;
+            return 1;
+        }
+
+        return 0;
+    }
+
+    private JsonPrinter sbePrinter()
+    {
+        if (sbePrinter == null)
+        {
+            sbePrinter = new JsonPrinter(MessageSchemaIr.SCHEMA_IR);
+        }
+
+        return sbePrinter;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the format strings and thread names referred to by binary debug log records so that a record only needs
+ * to carry an int id for each of them.
+ *
+ * Looking up a string that has already been interned doesn't allocate, and there are only ever a small number of
+ * distinct format strings and thread names, so the table isn't bounded.
+ */
+final class DebugLogStringTable
+{
+    static final int NO_STRING = -1;
+
+    private final ConcurrentHashMap<String, Integer> stringToId = new ConcurrentHashMap<>();
+    private final List<String> idToString = new ArrayList<>();
+
+    int id(final String value)
+    {
+        if (value == null)
+        {
+            return NO_STRING;
+        }
+
+        final Integer id = stringToId.get(value);
+        if (id != null)
+        {
+            return id;
+        }
+
+        return intern(value);
+    }
+
+    synchronized String string(final int id)
+    {
+        return id == NO_STRING ? null : idToString.get(id);
+    }
+
+    private synchronized int intern(final String value)
+    {
+        final Integer existingId = stringToId.get(value);
+        if (existingId != null)
+        {
+            return existingId;
+        }
+
+        final int id = idToString.size();
+        idToString.add(value);
+        stringToId.put(value, id);
+        return id;
+    }
+}
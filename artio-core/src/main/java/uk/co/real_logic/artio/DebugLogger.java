@@ -17,6 +17,11 @@ package uk.co.real_logic.artio;
 
 
 import org.agrona.DirectBuffer;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
 import uk.co.real_logic.artio.sbe_util.MessageDumper;
 import uk.co.real_logic.artio.sbe_util.MessageSchemaIr;
@@ -26,20 +31,29 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
+import static uk.co.real_logic.artio.CommonConfiguration.DEBUG_ASYNC;
+import static uk.co.real_logic.artio.CommonConfiguration.DEBUG_ASYNC_BUFFER_LENGTH;
 import static uk.co.real_logic.artio.CommonConfiguration.DEBUG_PRINT_THREAD;
 import static uk.co.real_logic.artio.CommonConfiguration.DEBUG_TAGS;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.DEBUG_FILE;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.DEBUG_PRINT_MESSAGES;
+import static uk.co.real_logic.artio.DebugLogEncoder.*;
 
 /**
- * A logger purely for debug data. Not optimised for high performance logging, but all logging calls must be removable
- * by the optimiser.
+ * A logger purely for debug data. All logging calls must be removable by the optimiser.
+ *
+ * By default records are formatted and printed synchronously on the calling thread, which isn't suitable for
+ * latency sensitive threads. If {@link CommonConfiguration#DEBUG_ASYNC_PROPERTY} is set then records are instead
+ * written in a binary form into a ring buffer and printed by a separate daemon thread, so that debug logging can be
+ * left enabled in production. Records are dropped, and the number dropped reported, if that thread falls behind.
  */
 public final class DebugLogger
 {
     private static final PrintStream OUTPUT;
+    private static final ThreadLocal<DebugLogEncoder> ENCODERS;
 
     static
     {
@@ -64,6 +78,29 @@ public final class DebugLogger
                 OUTPUT = output;
             }
         }
+
+        ENCODERS = DEBUG_PRINT_MESSAGES && DEBUG_ASYNC ? startAsyncLogging() : null;
+    }
+
+    private static ThreadLocal<DebugLogEncoder> startAsyncLogging()
+    {
+        final DebugLogStringTable strings = new DebugLogStringTable();
+        final AtomicLong droppedRecords = new AtomicLong();
+        final RingBuffer ringBuffer = new ManyToOneRingBuffer(new UnsafeBuffer(
+            ByteBuffer.allocateDirect(DEBUG_ASYNC_BUFFER_LENGTH + RingBufferDescriptor.TRAILER_LENGTH)));
+
+        final DebugLogReader reader = new DebugLogReader(ringBuffer, strings, droppedRecords, OUTPUT);
+        final AgentRunner runner = new AgentRunner(
+            CommonConfiguration.backoffIdleStrategy(), Throwable::printStackTrace, null, reader);
+        AgentRunner.startOnThread(runner, (runnable) ->
+        {
+            final Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(runner::close));
+
+        return ThreadLocal.withInitial(() -> new DebugLogEncoder(ringBuffer, strings, droppedRecords));
     }
 
     public static void log(
@@ -76,7 +113,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            log(tag, formatString, Integer.valueOf(value), buffer, offset, length);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append((long)value).append(buffer, offset, length).commit();
+            }
+            else
+            {
+                log(tag, formatString, Integer.valueOf(value), buffer, offset, length);
+            }
         }
     }
 
@@ -90,9 +134,16 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            final byte[] data = new byte[length];
-            buffer.getBytes(offset, data);
-            printf(tag, formatString, value, new String(data, US_ASCII));
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(value).append(buffer, offset, length).commit();
+            }
+            else
+            {
+                final byte[] data = new byte[length];
+                buffer.getBytes(offset, data);
+                printf(tag, formatString, value, new String(data, US_ASCII));
+            }
         }
     }
 
@@ -104,7 +155,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            println(toStringSbeMessage(buffer, offset, length));
+            if (DEBUG_ASYNC)
+            {
+                encoder(SBE_RECORD, tag, null).append(buffer, offset, length).commit();
+            }
+            else
+            {
+                println(toStringSbeMessage(buffer, offset, length));
+            }
         }
     }
 
@@ -114,7 +172,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            println(sbeObject.toString());
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTLN_RECORD, tag, null).append(sbeObject.toString()).commit();
+            }
+            else
+            {
+                println(sbeObject.toString());
+            }
         }
     }
 
@@ -133,9 +198,16 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            final byte[] data = new byte[length];
-            buffer.getBytes(offset, data);
-            printf(tag, formatString, new String(data, US_ASCII));
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(buffer, offset, length).commit();
+            }
+            else
+            {
+                final byte[] data = new byte[length];
+                buffer.getBytes(offset, data);
+                printf(tag, formatString, new String(data, US_ASCII));
+            }
         }
     }
 
@@ -147,13 +219,22 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            final byte[] data = new byte[length];
-            final int originalPosition = byteBuffer.position();
-            ByteBufferUtil.position(byteBuffer, originalPosition - length);
-            byteBuffer.get(data);
-            ByteBufferUtil.position(byteBuffer, originalPosition);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString)
+                    .append(byteBuffer, byteBuffer.position() - length, length)
+                    .commit();
+            }
+            else
+            {
+                final byte[] data = new byte[length];
+                final int originalPosition = byteBuffer.position();
+                ByteBufferUtil.position(byteBuffer, originalPosition - length);
+                byteBuffer.get(data);
+                ByteBufferUtil.position(byteBuffer, originalPosition);
 
-            printf(tag, formatString, new String(data, US_ASCII));
+                printf(tag, formatString, new String(data, US_ASCII));
+            }
         }
     }
 
@@ -163,7 +244,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            println(message);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTLN_RECORD, tag, null).append(message).commit();
+            }
+            else
+            {
+                println(message);
+            }
         }
     }
 
@@ -174,7 +262,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, value);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(value).commit();
+            }
+            else
+            {
+                printf(tag, formatString, value);
+            }
         }
     }
 
@@ -186,7 +281,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(first).append(second).commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second);
+            }
         }
     }
 
@@ -197,7 +299,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(first).commit();
+            }
+            else
+            {
+                printf(tag, formatString, first);
+            }
         }
     }
 
@@ -209,7 +318,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(first).append(second).commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second);
+            }
         }
     }
 
@@ -221,7 +337,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(first).append(second).commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second);
+            }
         }
     }
 
@@ -233,7 +356,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(first).append(second).commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second);
+            }
         }
     }
 
@@ -246,7 +376,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second, third);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(first).append(second).append(third).commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second, third);
+            }
         }
     }
 
@@ -259,7 +396,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second, third);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(first).append(second).append(third).commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second, third);
+            }
         }
     }
 
@@ -273,7 +417,19 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second, third, fourth);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString)
+                    .append(first)
+                    .append(second)
+                    .append(third)
+                    .append(fourth)
+                    .commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second, third, fourth);
+            }
         }
     }
 
@@ -287,7 +443,19 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second, third, fourth);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString)
+                    .append(first)
+                    .append(second)
+                    .append(third)
+                    .append(fourth)
+                    .commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second, third, fourth);
+            }
         }
     }
 
@@ -313,6 +481,17 @@ public final class DebugLogger
         }
     }
 
+    private static DebugLogEncoder encoder(final int recordType, final LogTag tag, final String formatString)
+    {
+        final String threadName = threadName();
+        return ENCODERS.get().begin(
+            isThreadEnabled(threadName) ? recordType : DISCARDED_RECORD,
+            tag,
+            formatString,
+            threadName,
+            System.currentTimeMillis());
+    }
+
     private static String threadName()
     {
         return Thread.currentThread().getName();
@@ -327,7 +506,14 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second, third);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString).append(first).append(second).append(third).commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second, third);
+            }
         }
     }
 
@@ -342,7 +528,20 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second, third, fourth, fifth);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString)
+                    .append(first)
+                    .append(second)
+                    .append(third)
+                    .append(fourth)
+                    .append(fifth)
+                    .commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second, third, fourth, fifth);
+            }
         }
     }
 
@@ -358,7 +557,21 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second, third, fourth, fifth, sixth);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString)
+                    .append(first)
+                    .append(second)
+                    .append(third)
+                    .append(fourth)
+                    .append(fifth)
+                    .append(sixth)
+                    .commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second, third, fourth, fifth, sixth);
+            }
         }
     }
 
@@ -375,7 +588,22 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second, third, fourth, fifth, sixth, seventh);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString)
+                    .append(first)
+                    .append(second)
+                    .append(third)
+                    .append(fourth)
+                    .append(fifth)
+                    .append(sixth)
+                    .append(seventh)
+                    .commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second, third, fourth, fifth, sixth, seventh);
+            }
         }
     }
 
@@ -390,7 +618,20 @@ public final class DebugLogger
     {
         if (isEnabled(tag))
         {
-            printf(tag, formatString, first, second, third, fourth, fifth);
+            if (DEBUG_ASYNC)
+            {
+                encoder(PRINTF_RECORD, tag, formatString)
+                    .append(first)
+                    .append(second)
+                    .append(third)
+                    .append(fourth)
+                    .append(fifth)
+                    .commit();
+            }
+            else
+            {
+                printf(tag, formatString, first, second, third, fourth, fifth);
+            }
         }
     }
 
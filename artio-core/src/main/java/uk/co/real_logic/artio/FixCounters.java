@@ -17,6 +17,7 @@ package uk.co.real_logic.artio;
 
 import io.aeron.Aeron;
 import io.aeron.Counter;
+import org.agrona.collections.Int2ObjectHashMap;
 import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 
@@ -35,6 +36,19 @@ public class FixCounters implements AutoCloseable
     private static final int INVALID_LIBRARY_ATTEMPTS_TYPE_ID = 10_005;
     private static final int SENT_MSG_SEQ_NO_TYPE_ID = 10_006;
     private static final int RECV_MSG_SEQ_NO_TYPE_ID = 10_007;
+    private static final int DROPPED_DROP_COPY_TYPE_ID = 10_008;
+    private static final int THROTTLED_MESSAGES_TYPE_ID = 10_009;
+    private static final int BYTES_READ_TYPE_ID = 10_010;
+    private static final int MESSAGES_SENT_TYPE_ID = 10_011;
+    private static final int BYTES_SENT_TYPE_ID = 10_012;
+    private static final int RESEND_REQUESTS_RECEIVED_TYPE_ID = 10_013;
+    private static final int RESEND_REQUESTS_SERVED_TYPE_ID = 10_014;
+    private static final int MESSAGES_RESENT_TYPE_ID = 10_015;
+    private static final int GAP_FILLS_SENT_TYPE_ID = 10_016;
+    private static final int REJECTS_RECEIVED_TYPE_ID = 10_017;
+    private static final int REJECTS_SENT_TYPE_ID = 10_018;
+    private static final int SLOW_TIME_TYPE_ID = 10_019;
+    private static final int BACK_PRESSURE_EVENTS_TYPE_ID = 10_020;
 
     private final List<Counter> counters = new ArrayList<>();
     private final AtomicCounter failedInboundPublications;
@@ -91,6 +105,58 @@ public class FixCounters implements AutoCloseable
         return newCounter(RECV_MSG_SEQ_NO_TYPE_ID, "Last Received MsgSeqNo for " + connectionId);
     }
 
+    public AtomicCounter throttledMessages(final long connectionId, final String address)
+    {
+        return newCounter(THROTTLED_MESSAGES_TYPE_ID,
+            "Throttled messages for " + address + " id = " + connectionId);
+    }
+
+    public AtomicCounter droppedDropCopyMessages(final int streamId)
+    {
+        return newCounter(DROPPED_DROP_COPY_TYPE_ID, "Dropped drop copy messages for stream " + streamId);
+    }
+
+    public SessionCounters sessionCounters(final long connectionId, final String address)
+    {
+        final String suffix = " for " + address + " id = " + connectionId;
+        return new SessionCounters(
+            newCounter(BYTES_READ_TYPE_ID, "Bytes read" + suffix),
+            newCounter(MESSAGES_SENT_TYPE_ID, "Messages sent" + suffix),
+            newCounter(BYTES_SENT_TYPE_ID, "Bytes sent" + suffix),
+            newCounter(RESEND_REQUESTS_RECEIVED_TYPE_ID, "Resend requests received" + suffix),
+            newCounter(RESEND_REQUESTS_SERVED_TYPE_ID, "Resend requests served" + suffix),
+            newCounter(MESSAGES_RESENT_TYPE_ID, "Messages resent" + suffix),
+            newCounter(GAP_FILLS_SENT_TYPE_ID, "Gap fills sent" + suffix),
+            newCounter(REJECTS_RECEIVED_TYPE_ID, "Rejects received" + suffix),
+            newCounter(REJECTS_SENT_TYPE_ID, "Rejects sent" + suffix),
+            newCounter(SLOW_TIME_TYPE_ID, "Time slow in ms" + suffix),
+            newCounter(BACK_PRESSURE_EVENTS_TYPE_ID, "Back pressure events" + suffix));
+    }
+
+    /**
+     * Get the type ids and names of the per connection counters whose rates are worth reporting.
+     *
+     * @return a new map from counter type id to the name of the counter.
+     */
+    public static Int2ObjectHashMap<String> sessionCounterTypes()
+    {
+        final Int2ObjectHashMap<String> types = new Int2ObjectHashMap<>();
+        types.put(MESSAGES_READ_TYPE_ID, "Messages read");
+        types.put(BYTES_READ_TYPE_ID, "Bytes read");
+        types.put(MESSAGES_SENT_TYPE_ID, "Messages sent");
+        types.put(BYTES_SENT_TYPE_ID, "Bytes sent");
+        types.put(RESEND_REQUESTS_RECEIVED_TYPE_ID, "Resend requests received");
+        types.put(RESEND_REQUESTS_SERVED_TYPE_ID, "Resend requests served");
+        types.put(MESSAGES_RESENT_TYPE_ID, "Messages resent");
+        types.put(GAP_FILLS_SENT_TYPE_ID, "Gap fills sent");
+        types.put(REJECTS_RECEIVED_TYPE_ID, "Rejects received");
+        types.put(REJECTS_SENT_TYPE_ID, "Rejects sent");
+        types.put(SLOW_TIME_TYPE_ID, "Time slow in ms");
+        types.put(BACK_PRESSURE_EVENTS_TYPE_ID, "Back pressure events");
+        types.put(THROTTLED_MESSAGES_TYPE_ID, "Throttled messages");
+        return types;
+    }
+
     private AtomicCounter newCounter(final int typeId, final String label)
     {
         final Counter counter = aeron.addCounter(typeId, label);
@@ -105,7 +105,12 @@ public class GatewayProcess implements AutoCloseable
 
     protected void initMonitoringAgent(final List<Timer> timers, final CommonConfiguration configuration)
     {
-        final List<Agent> agents = new ArrayList<>();
+        initMonitoringAgent(timers, configuration, new ArrayList<>());
+    }
+
+    protected void initMonitoringAgent(
+        final List<Timer> timers, final CommonConfiguration configuration, final List<Agent> agents)
+    {
         if (TIME_MESSAGES)
         {
             agents.add(new HistogramLogAgent(
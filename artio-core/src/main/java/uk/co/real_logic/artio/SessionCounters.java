@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import uk.co.real_logic.artio.dictionary.generation.Exceptions;
+
+/**
+ * Counters that track the traffic of a single session connected to the engine. They are Aeron counters, so they can
+ * be read by external tooling, and are only written by the Framer thread.
+ *
+ * @see FixCounters#sessionCounters(long, String)
+ */
+public final class SessionCounters implements AutoCloseable
+{
+    private final AtomicCounter bytesRead;
+    private final AtomicCounter messagesSent;
+    private final AtomicCounter bytesSent;
+    private final AtomicCounter resendRequestsReceived;
+    private final AtomicCounter resendRequestsServed;
+    private final AtomicCounter messagesResent;
+    private final AtomicCounter gapFillsSent;
+    private final AtomicCounter rejectsReceived;
+    private final AtomicCounter rejectsSent;
+    private final AtomicCounter slowTimeInMs;
+    private final AtomicCounter backPressureEvents;
+
+    SessionCounters(
+        final AtomicCounter bytesRead,
+        final AtomicCounter messagesSent,
+        final AtomicCounter bytesSent,
+        final AtomicCounter resendRequestsReceived,
+        final AtomicCounter resendRequestsServed,
+        final AtomicCounter messagesResent,
+        final AtomicCounter gapFillsSent,
+        final AtomicCounter rejectsReceived,
+        final AtomicCounter rejectsSent,
+        final AtomicCounter slowTimeInMs,
+        final AtomicCounter backPressureEvents)
+    {
+        this.bytesRead = bytesRead;
+        this.messagesSent = messagesSent;
+        this.bytesSent = bytesSent;
+        this.resendRequestsReceived = resendRequestsReceived;
+        this.resendRequestsServed = resendRequestsServed;
+        this.messagesResent = messagesResent;
+        this.gapFillsSent = gapFillsSent;
+        this.rejectsReceived = rejectsReceived;
+        this.rejectsSent = rejectsSent;
+        this.slowTimeInMs = slowTimeInMs;
+        this.backPressureEvents = backPressureEvents;
+    }
+
+    public AtomicCounter bytesRead()
+    {
+        return bytesRead;
+    }
+
+    public AtomicCounter messagesSent()
+    {
+        return messagesSent;
+    }
+
+    public AtomicCounter bytesSent()
+    {
+        return bytesSent;
+    }
+
+    public AtomicCounter resendRequestsReceived()
+    {
+        return resendRequestsReceived;
+    }
+
+    public AtomicCounter resendRequestsServed()
+    {
+        return resendRequestsServed;
+    }
+
+    public AtomicCounter messagesResent()
+    {
+        return messagesResent;
+    }
+
+    public AtomicCounter gapFillsSent()
+    {
+        return gapFillsSent;
+    }
+
+    public AtomicCounter rejectsReceived()
+    {
+        return rejectsReceived;
+    }
+
+    public AtomicCounter rejectsSent()
+    {
+        return rejectsSent;
+    }
+
+    public AtomicCounter slowTimeInMs()
+    {
+        return slowTimeInMs;
+    }
+
+    public AtomicCounter backPressureEvents()
+    {
+        return backPressureEvents;
+    }
+
+    public void close()
+    {
+        Exceptions.closeAll(
+            bytesRead,
+            messagesSent,
+            bytesSent,
+            resendRequestsReceived,
+            resendRequestsServed,
+            messagesResent,
+            gapFillsSent,
+            rejectsReceived,
+            rejectsSent,
+            slowTimeInMs,
+            backPressureEvents);
+    }
+}
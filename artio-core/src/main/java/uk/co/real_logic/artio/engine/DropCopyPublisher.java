@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.FragmentAssembler;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import uk.co.real_logic.artio.Pressure;
+import uk.co.real_logic.artio.engine.logger.FixMessagePredicate;
+import uk.co.real_logic.artio.engine.logger.Index;
+import uk.co.real_logic.artio.engine.logger.IndexedPositionConsumer;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+
+import static io.aeron.Publication.NOT_CONNECTED;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+
+/**
+ * Re-publishes the fix messages that match a predicate onto a separate drop copy publication, for example to feed
+ * risk or surveillance systems without them having to connect as a library.
+ *
+ * Messages are republished in the same format as the archive, so can be read using a {@link FixMessageDecoder}.
+ *
+ * Drop copy consumers are isolated from the engine: if the drop copy publication is back pressured then messages
+ * are buffered up to a bounded size and any further messages are dropped and counted, rather than holding up the
+ * archiving agent.
+ */
+public class DropCopyPublisher implements Index
+{
+    private static final int LENGTH_OFFSET = 0;
+    private static final int MESSAGE_OFFSET = LENGTH_OFFSET + SIZE_OF_INT;
+
+    private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
+    private final FixMessageDecoder fixMessage = new FixMessageDecoder();
+    private final FragmentAssembler fragmentAssembler = new FragmentAssembler(this::onMessage);
+
+    private final FixMessagePredicate predicate;
+    private final ExclusivePublication publication;
+    private final UnsafeBuffer overflowBuffer;
+    private final AtomicCounter droppedMessages;
+
+    private int overflowReadOffset;
+    private int overflowWriteOffset;
+
+    public DropCopyPublisher(
+        final FixMessagePredicate predicate,
+        final ExclusivePublication publication,
+        final int maxBytesInBuffer,
+        final AtomicCounter droppedMessages)
+    {
+        this.predicate = predicate;
+        this.publication = publication;
+        this.overflowBuffer = new UnsafeBuffer(new byte[maxBytesInBuffer]);
+        this.droppedMessages = droppedMessages;
+    }
+
+    public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        fragmentAssembler.onFragment(buffer, offset, length, header);
+    }
+
+    private void onMessage(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        messageHeader.wrap(buffer, offset);
+
+        if (messageHeader.templateId() == FixMessageDecoder.TEMPLATE_ID)
+        {
+            fixMessage.wrap(
+                buffer,
+                offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                messageHeader.blockLength(),
+                messageHeader.version());
+
+            if (predicate.test(fixMessage))
+            {
+                publish(buffer, offset, length);
+            }
+        }
+    }
+
+    private void publish(final DirectBuffer buffer, final int offset, final int length)
+    {
+        // Preserve ordering with any messages that have already been buffered.
+        if (hasBufferedMessages())
+        {
+            buffer(buffer, offset, length);
+            return;
+        }
+
+        final long position = publication.offer(buffer, offset, length);
+        if (position < 0)
+        {
+            if (shouldRetry(position))
+            {
+                buffer(buffer, offset, length);
+            }
+            else
+            {
+                droppedMessages.increment();
+            }
+        }
+    }
+
+    public int doWork()
+    {
+        final UnsafeBuffer overflowBuffer = this.overflowBuffer;
+        int work = 0;
+
+        while (hasBufferedMessages())
+        {
+            final int length = overflowBuffer.getInt(overflowReadOffset + LENGTH_OFFSET);
+            final long position = publication.offer(overflowBuffer, overflowReadOffset + MESSAGE_OFFSET, length);
+            if (position < 0)
+            {
+                if (shouldRetry(position))
+                {
+                    break;
+                }
+
+                droppedMessages.increment();
+            }
+
+            overflowReadOffset += MESSAGE_OFFSET + length;
+            work++;
+        }
+
+        if (!hasBufferedMessages())
+        {
+            overflowReadOffset = 0;
+            overflowWriteOffset = 0;
+        }
+
+        return work;
+    }
+
+    private void buffer(final DirectBuffer buffer, final int offset, final int length)
+    {
+        final UnsafeBuffer overflowBuffer = this.overflowBuffer;
+        final int requiredLength = MESSAGE_OFFSET + length;
+
+        if (overflowWriteOffset + requiredLength > overflowBuffer.capacity())
+        {
+            compact();
+
+            if (overflowWriteOffset + requiredLength > overflowBuffer.capacity())
+            {
+                droppedMessages.increment();
+                return;
+            }
+        }
+
+        overflowBuffer.putInt(overflowWriteOffset + LENGTH_OFFSET, length);
+        overflowBuffer.putBytes(overflowWriteOffset + MESSAGE_OFFSET, buffer, offset, length);
+        overflowWriteOffset += requiredLength;
+    }
+
+    private void compact()
+    {
+        final int bufferedLength = overflowWriteOffset - overflowReadOffset;
+        if (overflowReadOffset > 0)
+        {
+            overflowBuffer.putBytes(0, overflowBuffer, overflowReadOffset, bufferedLength);
+            overflowReadOffset = 0;
+            overflowWriteOffset = bufferedLength;
+        }
+    }
+
+    private boolean hasBufferedMessages()
+    {
+        return overflowReadOffset < overflowWriteOffset;
+    }
+
+    private static boolean shouldRetry(final long position)
+    {
+        return Pressure.isBackPressured(position) || position == NOT_CONNECTED;
+    }
+
+    int bytesInBuffer()
+    {
+        return overflowWriteOffset - overflowReadOffset;
+    }
+
+    public void close()
+    {
+        CloseHelper.close(publication);
+    }
+
+    public void readLastPosition(final IndexedPositionConsumer consumer)
+    {
+        // Drop copies aren't caught up from the archive on restart.
+    }
+}
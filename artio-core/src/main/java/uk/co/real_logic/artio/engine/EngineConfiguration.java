@@ -22,7 +22,10 @@ import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
 import uk.co.real_logic.artio.CommonConfiguration;
 import uk.co.real_logic.artio.decoder.*;
+import uk.co.real_logic.artio.engine.framer.SessionAllocationStrategy;
 import uk.co.real_logic.artio.engine.framer.TcpChannelSupplier;
+import uk.co.real_logic.artio.engine.logger.FixMessagePredicate;
+import uk.co.real_logic.artio.engine.logger.LoggerUtil;
 import uk.co.real_logic.artio.library.SessionConfiguration;
 import uk.co.real_logic.artio.validation.SessionPersistenceStrategy;
 
@@ -34,7 +37,9 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 
+import static io.aeron.CommonContext.IPC_CHANNEL;
 import static java.lang.Integer.getInteger;
+import static java.lang.Long.getLong;
 import static java.lang.System.getProperty;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.INITIAL_RECORD_OFFSET;
@@ -61,10 +66,38 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      * Property name for the directory to log archive data into
      */
     public static final String LOG_FILE_DIR_PROP = "logging.dir";
+    /**
+     * Property name for a comma separated list of directories to shard the replay index files across
+     */
+    public static final String REPLAY_INDEX_DIRS_PROP = "logging.index.dirs";
+    /**
+     * Property name for the directory to store the sequence number index files in
+     */
+    public static final String SEQUENCE_NUMBER_INDEX_DIR_PROP = "logging.sequence_numbers.dir";
+    /**
+     * Property name for the directory to store the session id file in
+     */
+    public static final String SESSION_ID_DIR_PROP = "logging.session_id.dir";
+    /**
+     * Property name for whether to pre-touch the pages of index files when they are mapped
+     */
+    public static final String PRE_TOUCH_INDEX_FILES_PROP = "logging.index.pre_touch";
+    /**
+     * Property name for the number of spare, pre-touched, replay index files to keep in each replay index directory
+     */
+    public static final String REPLAY_INDEX_FILE_POOL_SIZE_PROP = "logging.index.pool_size";
     /**
      * Property name for size of logging index files
      */
     public static final String REPLAY_INDEX_FILE_SIZE_PROP = "logging.index.size";
+    /**
+     * Property name for the maximum total size of replay index segment files per stream
+     */
+    public static final String REPLAY_INDEX_SEGMENTS_MAX_SIZE_PROP = "logging.index.segments.max_size";
+    /**
+     * Property name for the size of each replay index segment file
+     */
+    public static final String REPLAY_INDEX_SEGMENT_FILE_SIZE_PROP = "logging.index.segment.size";
 
     // Care needs to be taken when setting the fragment limits, and buffer sizes
     // The inbound bytes received and buffer sizes should always be set low enough
@@ -79,6 +112,10 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      * Property name for the max number of messages to read from replayer.
      */
     public static final String REPLAY_FRAGMENT_LIMIT_PROP = "fix.core.replay_fragment_limit";
+    /**
+     * Property name for the number of replay workers that process resend requests in parallel.
+     */
+    public static final String REPLAY_WORKER_COUNT_PROP = "fix.core.replay_worker_count";
     /**
      * Property name for the max number of bytes to read from all TCP Connections.
      */
@@ -104,7 +141,8 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      */
     public static final String SESSION_ID_BUFFER_SIZE_PROP = "fix.core.session_id_file_size";
     /**
-     * Property name for the maximum number of bytes to allow in the quarantine buffer before disconnection
+     * Property name for the maximum number of bytes that each connection buffers for a slow consumer before it is
+     * disconnected
      */
     public static final String SENDER_MAX_BYTES_IN_BUFFER_PROP = "fix.core.sender_max_bytes_in_buffer";
     /**
@@ -112,17 +150,56 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
      */
     public static final String NO_LOGON_DISCONNECT_TIMEOUT_PROP = "fix.core.no_logon_disconnect";
 
+    /**
+     * Property name for the maximum number of bytes that can be buffered for each drop copy publication when it is
+     * back pressured, before further messages are dropped.
+     */
+    public static final String DROP_COPY_MAX_BYTES_IN_BUFFER_PROP = "fix.core.drop_copy_max_bytes_in_buffer";
+
+    /**
+     * Property name for the interval at which the sequence number indices are checkpointed to disk, 0 disables
+     * periodic checkpoints.
+     */
+    public static final String INDEX_CHECKPOINT_INTERVAL_PROP = "fix.core.index_checkpoint_interval";
+
+    /**
+     * Property name for the maximum rate, in messages per second, at which the engine sends messages from libraries
+     * on each connection. Messages over the rate are queued by the engine and the session is reported as slow to its
+     * library. 0 disables throttling.
+     */
+    public static final String THROTTLE_MESSAGES_PER_SECOND_PROP = "fix.core.throttle_messages_per_second";
+
+    /**
+     * Property name for the number of messages that can be sent in a burst on each connection before the throttle
+     * limits them to {@link #THROTTLE_MESSAGES_PER_SECOND_PROP}. 0 means the same as the rate, ie: one second's worth.
+     */
+    public static final String THROTTLE_BURST_PROP = "fix.core.throttle_burst";
+
+    /**
+     * Property name for whether to allocate counters of the traffic on each session.
+     */
+    public static final String SESSION_COUNTERS_PROP = "fix.core.session_counters";
+
+    /**
+     * Property name for the file to which the rates of the session counters are logged.
+     */
+    public static final String SESSION_COUNTERS_RATE_FILE_PROP = "fix.core.session_counters_rate_file";
+
     // ------------------------------------------------
     //          Configuration Defaults
     // ------------------------------------------------
 
     public static final String DEFAULT_LOG_FILE_DIR = "logs";
     public static final int DEFAULT_REPLAY_INDEX_FILE_SIZE = 2 * 1024 * 1024 + INITIAL_RECORD_OFFSET;
+    public static final long DEFAULT_REPLAY_INDEX_SEGMENTS_MAX_SIZE = 0;
+    public static final int DEFAULT_REPLAY_INDEX_SEGMENT_FILE_SIZE = 1024 * 1024;
+    public static final int DEFAULT_REPLAY_INDEX_FILE_POOL_SIZE = 0;
     public static final int DEFAULT_LOGGER_CACHE_NUM_SETS = 8;
     public static final int DEFAULT_LOGGER_CACHE_SET_SIZE = 4;
 
     public static final int DEFAULT_OUTBOUND_LIBRARY_FRAGMENT_LIMIT = 100;
     public static final int DEFAULT_REPLAY_FRAGMENT_LIMIT = 5;
+    public static final int DEFAULT_REPLAY_WORKER_COUNT = 1;
     public static final int DEFAULT_INBOUND_BYTES_RECEIVED_LIMIT = 8 * 1024;
     public static final int DEFAULT_RECEIVER_BUFFER_SIZE = 16 * 1024;
     public static final int DEFAULT_RECEIVER_SOCKET_BUFFER_SIZE = 1024 * 1024;
@@ -131,7 +208,12 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     public static final int DEFAULT_SESSION_ID_BUFFER_SIZE = 4 * 1024 * 1024;
     public static final int DEFAULT_SENDER_MAX_BYTES_IN_BUFFER = 4 * 1024 * 1024;
     public static final int DEFAULT_NO_LOGON_DISCONNECT_TIMEOUT = (int)SECONDS.toMillis(5);
+    public static final int DEFAULT_DROP_COPY_MAX_BYTES_IN_BUFFER = 1024 * 1024;
+    public static final long DEFAULT_INDEX_CHECKPOINT_INTERVAL_IN_MS = SECONDS.toMillis(10);
+    public static final int DEFAULT_THROTTLE_MESSAGES_PER_SECOND = 0;
+    public static final int DEFAULT_THROTTLE_BURST = 0;
     public static final String DEFAULT_SESSION_ID_FILE = "session_id_buffer";
+    public static final String DEFAULT_SESSION_COUNTERS_RATE_FILE = "session_counter_rates";
     public static final String DEFAULT_SEQUENCE_NUMBERS_SENT_FILE = "sequence_numbers_sent";
     public static final String DEFAULT_SEQUENCE_NUMBERS_RECEIVED_FILE = "sequence_numbers_received";
     public static final long DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS = 10_000;
@@ -157,11 +239,27 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     public static final int DEFAULT_OUTBOUND_REPLAY_STREAM = 3;
     public static final int DEFAULT_ARCHIVE_REPLAY_STREAM = 4;
     public static final int DEFAULT_ARCHIVE_SCANNER_STREAM = 5;
+    public static final int DEFAULT_INBOUND_DROP_COPY_STREAM = 6;
+    public static final int DEFAULT_OUTBOUND_DROP_COPY_STREAM = 7;
+    /**
+     * Stride between the archive replay streams of each replay worker, see {@link #replayWorkerArchiveStream(int)}.
+     */
+    public static final int ARCHIVE_REPLAY_WORKER_STREAM_STRIDE = 100;
 
     private String host = null;
     private int port;
     private int replayIndexFileSize = getInteger(REPLAY_INDEX_FILE_SIZE_PROP, DEFAULT_REPLAY_INDEX_FILE_SIZE);
+    private long replayIndexSegmentsMaxSize =
+        getLong(REPLAY_INDEX_SEGMENTS_MAX_SIZE_PROP, DEFAULT_REPLAY_INDEX_SEGMENTS_MAX_SIZE);
+    private int replayIndexSegmentFileSize =
+        getInteger(REPLAY_INDEX_SEGMENT_FILE_SIZE_PROP, DEFAULT_REPLAY_INDEX_SEGMENT_FILE_SIZE);
     private String logFileDir = getProperty(LOG_FILE_DIR_PROP, DEFAULT_LOG_FILE_DIR);
+    private String[] replayIndexDirs = parseDirs(getProperty(REPLAY_INDEX_DIRS_PROP));
+    private String sequenceNumberIndexDir = getProperty(SEQUENCE_NUMBER_INDEX_DIR_PROP);
+    private String sessionIdDir = getProperty(SESSION_ID_DIR_PROP);
+    private boolean preTouchIndexFiles = Boolean.getBoolean(PRE_TOUCH_INDEX_FILES_PROP);
+    private int replayIndexFilePoolSize =
+        getInteger(REPLAY_INDEX_FILE_POOL_SIZE_PROP, DEFAULT_REPLAY_INDEX_FILE_POOL_SIZE);
     private int loggerCacheNumSets = DEFAULT_LOGGER_CACHE_NUM_SETS;
     private int loggerCacheSetSize = DEFAULT_LOGGER_CACHE_SET_SIZE;
     private boolean logInboundMessages = true;
@@ -181,6 +279,8 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         getInteger(OUTBOUND_LIBRARY_FRAGMENT_LIMIT_PROP, DEFAULT_OUTBOUND_LIBRARY_FRAGMENT_LIMIT);
     private int replayFragmentLimit =
         getInteger(REPLAY_FRAGMENT_LIMIT_PROP, DEFAULT_REPLAY_FRAGMENT_LIMIT);
+    private int replayWorkerCount =
+        getInteger(REPLAY_WORKER_COUNT_PROP, DEFAULT_REPLAY_WORKER_COUNT);
     private int inboundBytesReceivedLimit =
         getInteger(INBOUND_BYTES_RECEIVED_LIMIT_PROP, DEFAULT_INBOUND_BYTES_RECEIVED_LIMIT);
     private int receiverBufferSize =
@@ -197,10 +297,20 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         getInteger(SENDER_MAX_BYTES_IN_BUFFER_PROP, DEFAULT_SENDER_MAX_BYTES_IN_BUFFER);
     private int noLogonDisconnectTimeoutInMs =
         getInteger(NO_LOGON_DISCONNECT_TIMEOUT_PROP, DEFAULT_NO_LOGON_DISCONNECT_TIMEOUT);
+    private int dropCopyMaxBytesInBuffer =
+        getInteger(DROP_COPY_MAX_BYTES_IN_BUFFER_PROP, DEFAULT_DROP_COPY_MAX_BYTES_IN_BUFFER);
+    private long indexCheckpointIntervalInMs =
+        getLong(INDEX_CHECKPOINT_INTERVAL_PROP, DEFAULT_INDEX_CHECKPOINT_INTERVAL_IN_MS);
+    private int throttleMessagesPerSecond =
+        getInteger(THROTTLE_MESSAGES_PER_SECOND_PROP, DEFAULT_THROTTLE_MESSAGES_PER_SECOND);
+    private int throttleBurst = getInteger(THROTTLE_BURST_PROP, DEFAULT_THROTTLE_BURST);
+    private boolean sessionCounters = Boolean.getBoolean(SESSION_COUNTERS_PROP);
+    private String sessionCountersRateFile = getProperty(SESSION_COUNTERS_RATE_FILE_PROP);
 
     private String libraryAeronChannel = null;
     private Function<EngineConfiguration, TcpChannelSupplier> channelSupplierFactory = TcpChannelSupplier::new;
     private SessionPersistenceStrategy sessionPersistenceStrategy;
+    private SessionAllocationStrategy sessionAllocationStrategy = SessionAllocationStrategy.gateway();
     private long slowConsumerTimeoutInMs = DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS;
     private EngineScheduler scheduler = new DefaultEngineScheduler();
     private ReplayHandler replayHandler = DEFAULT_REPLAY_HANDLER;
@@ -210,6 +320,10 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
     private int acceptedSessionResendRequestChunkSize = NO_RESEND_REQUEST_CHUNK_SIZE;
     private boolean acceptedSessionSendRedundantResendRequests = DEFAULT_SEND_REDUNDANT_RESEND_REQUESTS;
     private boolean acceptedEnableLastMsgSeqNumProcessed = DEFAULT_ENABLE_LAST_MSG_SEQ_NUM_PROCESSED;
+    private FixMessagePredicate dropCopyPredicate = null;
+    private String dropCopyAeronChannel = IPC_CHANNEL;
+    private int inboundDropCopyStream = DEFAULT_INBOUND_DROP_COPY_STREAM;
+    private int outboundDropCopyStream = DEFAULT_OUTBOUND_DROP_COPY_STREAM;
 
     /**
      * Sets the local address to bind to when the Gateway is used to accept connections.
@@ -282,6 +396,97 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the directories that the per session replay index files, and their segment files, are stored in.
+     * <p>
+     * Each session's files are placed in one of these directories, chosen by its fix session id, so putting the
+     * directories on different disks spreads the index writes of a large number of sessions across them. The number
+     * and order of the directories must be the same every time the engine is started with the same log files,
+     * otherwise the existing index files of a session won't be found.
+     * <p>
+     * Default: the {@link #logFileDir(String)}.
+     *
+     * @param replayIndexDirs the directories to shard the replay index files across.
+     * @return this
+     * @see EngineConfiguration#REPLAY_INDEX_DIRS_PROP
+     */
+    public EngineConfiguration replayIndexDirs(final String... replayIndexDirs)
+    {
+        this.replayIndexDirs = replayIndexDirs;
+        return this;
+    }
+
+    /**
+     * Sets the directory that the sent and received sequence number index files are stored in.
+     * <p>
+     * Default: the {@link #logFileDir(String)}.
+     *
+     * @param sequenceNumberIndexDir the directory to store the sequence number index files in.
+     * @return this
+     * @see EngineConfiguration#SEQUENCE_NUMBER_INDEX_DIR_PROP
+     */
+    public EngineConfiguration sequenceNumberIndexDir(final String sequenceNumberIndexDir)
+    {
+        this.sequenceNumberIndexDir = sequenceNumberIndexDir;
+        return this;
+    }
+
+    /**
+     * Sets the directory that the session id file is stored in.
+     * <p>
+     * Default: the {@link #logFileDir(String)}.
+     *
+     * @param sessionIdDir the directory to store the session id file in.
+     * @return this
+     * @see EngineConfiguration#SESSION_ID_DIR_PROP
+     */
+    public EngineConfiguration sessionIdDir(final String sessionIdDir)
+    {
+        this.sessionIdDir = sessionIdDir;
+        return this;
+    }
+
+    /**
+     * Sets whether every page of the index files is touched when they are mapped.
+     * <p>
+     * This applies to the sequence number index and session id files when the engine starts, and to each session's
+     * replay index file when it is first mapped. It moves the page faults of the first writes to a region of the
+     * files to the point that they are mapped, rather than having them show up as latency on the archiving thread
+     * whilst a session is logging on. See {@link #replayIndexFilePoolSize(int)} for taking the cost of mapping new
+     * replay index files off the archiving thread entirely.
+     * <p>
+     * Default: false.
+     *
+     * @param preTouchIndexFiles true to pre-touch index files when they are mapped.
+     * @return this
+     * @see EngineConfiguration#PRE_TOUCH_INDEX_FILES_PROP
+     */
+    public EngineConfiguration preTouchIndexFiles(final boolean preTouchIndexFiles)
+    {
+        this.preTouchIndexFiles = preTouchIndexFiles;
+        return this;
+    }
+
+    /**
+     * Sets the number of spare replay index files to keep in each replay index directory for each stream.
+     * <p>
+     * Spare files are created, mapped and pre-touched ahead of time, when the engine starts and then in the
+     * archiver's duty cycle. The replay index file of a new session is taken from the pool rather than being created
+     * and faulted in when the session logs on. Spare files are reused across restarts.
+     * <p>
+     * Default: 0, which disables the pool.
+     *
+     * @param replayIndexFilePoolSize the number of spare replay index files to keep in each directory.
+     * @return this
+     * @see EngineConfiguration#REPLAY_INDEX_FILE_POOL_SIZE_PROP
+     * @see EngineConfiguration#replayIndexDirs(String...)
+     */
+    public EngineConfiguration replayIndexFilePoolSize(final int replayIndexFilePoolSize)
+    {
+        this.replayIndexFilePoolSize = replayIndexFilePoolSize;
+        return this;
+    }
+
     /**
      * Sets the size of index files. This is the size in bytes for the replay index file that is used for each session.
      * If you want to size in terms of the last N Fix message fragments that you have received then
@@ -298,6 +503,42 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the maximum total size in bytes of the replay index segment files for each stream.
+     * <p>
+     * When this is greater than 0, records that are about to be overwritten in a session's replay index file
+     * are compacted into per session segment files so that older messages can still be resent. The budget is
+     * shared by all sessions, once it is exceeded the oldest segment files are deleted first. This lets the
+     * {@link #replayIndexFileSize(int)} be kept small for quiet sessions, whilst busy sessions retain resend coverage
+     * in proportion to their traffic.
+     * <p>
+     * Default: 0, which disables replay index segments.
+     *
+     * @param replayIndexSegmentsMaxSize the maximum total size of the replay index segment files for each stream.
+     * @return this
+     * @see EngineConfiguration#REPLAY_INDEX_SEGMENTS_MAX_SIZE_PROP
+     */
+    public EngineConfiguration replayIndexSegmentsMaxSize(final long replayIndexSegmentsMaxSize)
+    {
+        this.replayIndexSegmentsMaxSize = replayIndexSegmentsMaxSize;
+        return this;
+    }
+
+    /**
+     * Sets the size in bytes of each replay index segment file, this is the granularity at which segments are
+     * deleted.
+     *
+     * @param replayIndexSegmentFileSize the size in bytes of each replay index segment file.
+     * @return this
+     * @see EngineConfiguration#REPLAY_INDEX_SEGMENT_FILE_SIZE_PROP
+     * @see EngineConfiguration#DEFAULT_REPLAY_INDEX_SEGMENT_FILE_SIZE
+     */
+    public EngineConfiguration replayIndexSegmentFileSize(final int replayIndexSegmentFileSize)
+    {
+        this.replayIndexSegmentFileSize = replayIndexSegmentFileSize;
+        return this;
+    }
+
     /**
      * Sets the set size of the logger's caches.
      * <p>
@@ -423,6 +664,30 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the number of replay workers that process resend requests in parallel.
+     * <p>
+     * Each worker has its own archive replay subscription and replay publication. Sessions are assigned to a worker
+     * by their session id, so the replays for a session are processed in order, but a burst of resend requests
+     * across many sessions, eg after a reconnect storm, can be replayed concurrently. The first worker runs as part
+     * of the archiving agent, each additional worker runs on its own thread that the engine starts. Schedulers that
+     * don't allow the engine to start those threads, such as the {@link InvokerEngineScheduler} and
+     * {@link LowResourceEngineScheduler}, can only be used with a single worker, see
+     * {@link EngineScheduler#allowsReplayWorkerThreads()}. This has no effect if outbound messages aren't logged.
+     * <p>
+     * Default: 1.
+     *
+     * @param replayWorkerCount the number of replay workers.
+     * @return this
+     * @see EngineConfiguration#REPLAY_WORKER_COUNT_PROP
+     * @see EngineConfiguration#replayWorkerArchiveStream(int)
+     */
+    public EngineConfiguration replayWorkerCount(final int replayWorkerCount)
+    {
+        this.replayWorkerCount = replayWorkerCount;
+        return this;
+    }
+
     /**
      * Sets the bytes limit for receiving inbound messages.
      *
@@ -466,6 +731,22 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Sets the strategy that decides which library owns an accepted session once it has logged on.
+     *
+     * Defaults to {@link SessionAllocationStrategy#gateway()}, which keeps sessions gatewayed in the engine until a
+     * library requests them.
+     *
+     * @param sessionAllocationStrategy the strategy that allocates accepted sessions to libraries.
+     * @return this
+     * @see SessionAllocationStrategy
+     */
+    public EngineConfiguration sessionAllocationStrategy(final SessionAllocationStrategy sessionAllocationStrategy)
+    {
+        this.sessionAllocationStrategy = sessionAllocationStrategy;
+        return this;
+    }
+
     public EngineConfiguration slowConsumerTimeoutInMs(final long slowConsumerTimeoutInMs)
     {
         this.slowConsumerTimeoutInMs = slowConsumerTimeoutInMs;
@@ -577,6 +858,133 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
+    /**
+     * Enables drop copies of the messages that match a predicate. Matching inbound and outbound messages are
+     * republished onto the {@link #inboundDropCopyStream(int)} and {@link #outboundDropCopyStream(int)} of the
+     * {@link #dropCopyAeronChannel(String)} respectively, in the same format as the archive.
+     *
+     * For example {@code sessionOf("SENDER", "TARGET").and(messageTypeOf("8"))} copies the execution reports of a
+     * single session. Drop copies are published from the archiving agent, so require outbound messages to be logged.
+     *
+     * @see uk.co.real_logic.artio.engine.logger.FixMessagePredicates
+     * @param dropCopyPredicate the predicate that selects the messages to copy, or null to disable drop copies.
+     * @return this
+     */
+    public EngineConfiguration dropCopyPredicate(final FixMessagePredicate dropCopyPredicate)
+    {
+        this.dropCopyPredicate = dropCopyPredicate;
+        return this;
+    }
+
+    /**
+     * Sets the aeron channel that drop copies are published on.
+     *
+     * @param dropCopyAeronChannel the aeron channel that drop copies are published on.
+     * @return this
+     */
+    public EngineConfiguration dropCopyAeronChannel(final String dropCopyAeronChannel)
+    {
+        this.dropCopyAeronChannel = dropCopyAeronChannel;
+        return this;
+    }
+
+    public EngineConfiguration inboundDropCopyStream(final int inboundDropCopyStream)
+    {
+        this.inboundDropCopyStream = inboundDropCopyStream;
+        return this;
+    }
+
+    public EngineConfiguration outboundDropCopyStream(final int outboundDropCopyStream)
+    {
+        this.outboundDropCopyStream = outboundDropCopyStream;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of bytes that are buffered for each drop copy publication whilst it is back
+     * pressured. Once this is exceeded messages are dropped rather than blocking the engine.
+     *
+     * @see EngineConfiguration#DROP_COPY_MAX_BYTES_IN_BUFFER_PROP
+     * @param dropCopyMaxBytesInBuffer the maximum number of bytes that are buffered for each drop copy publication.
+     * @return this
+     */
+    public EngineConfiguration dropCopyMaxBytesInBuffer(final int dropCopyMaxBytesInBuffer)
+    {
+        this.dropCopyMaxBytesInBuffer = dropCopyMaxBytesInBuffer;
+        return this;
+    }
+
+    /**
+     * Sets the interval at which the sequence number indices are checkpointed to disk. After a crash the engine
+     * catches its indices up by replaying the archive from their last checkpoint, so this bounds the restart time.
+     *
+     * @see EngineConfiguration#INDEX_CHECKPOINT_INTERVAL_PROP
+     * @param indexCheckpointIntervalInMs the checkpoint interval in milliseconds, or 0 to disable checkpoints.
+     * @return this
+     */
+    public EngineConfiguration indexCheckpointIntervalInMs(final long indexCheckpointIntervalInMs)
+    {
+        this.indexCheckpointIntervalInMs = indexCheckpointIntervalInMs;
+        return this;
+    }
+
+    /**
+     * Limits the rate at which messages from libraries are sent on each connection, in order to stay within the
+     * rate limits that a counterparty imposes. Messages over the rate are queued by the engine rather than being
+     * written to the connection.
+     *
+     * @see EngineConfiguration#THROTTLE_MESSAGES_PER_SECOND_PROP
+     * @see EngineConfiguration#THROTTLE_BURST_PROP
+     * @param messagesPerSecond the maximum sustained rate of messages on each connection, or 0 to disable throttling.
+     * @param burst the number of messages that can be sent in a burst, or 0 for the same as messagesPerSecond.
+     * @return this
+     */
+    public EngineConfiguration throttle(final int messagesPerSecond, final int burst)
+    {
+        this.throttleMessagesPerSecond = messagesPerSecond;
+        this.throttleBurst = burst;
+        return this;
+    }
+
+    /**
+     * Sets whether each session connected to the engine has Aeron counters of its traffic: bytes read, messages and
+     * bytes sent, resend requests received and served, messages resent, gap fills, rejects received and sent, time
+     * spent as a slow consumer and back pressure events when publishing its inbound messages.
+     * <p>
+     * The counters can be read by any tool that reads Aeron counters. The rates of the counters are also
+     * periodically logged as histograms, see {@link #sessionCountersRateFile(String)}. Each session uses eleven
+     * counters, so the Aeron counters buffer may need to be enlarged for engines with many sessions.
+     * <p>
+     * Default: false.
+     *
+     * @param sessionCounters true to allocate counters for each session.
+     * @return this
+     * @see EngineConfiguration#SESSION_COUNTERS_PROP
+     */
+    public EngineConfiguration sessionCounters(final boolean sessionCounters)
+    {
+        this.sessionCounters = sessionCounters;
+        return this;
+    }
+
+    /**
+     * Sets the file to which histograms of the rates of the session counters are logged, every
+     * {@link #histogramPollPeriodInMs()}. Each histogram covers all the counters of one type, eg bytes sent, and can
+     * be read with the {@link uk.co.real_logic.artio.timing.HistogramLogReader}.
+     * <p>
+     * Default: {@link #DEFAULT_SESSION_COUNTERS_RATE_FILE} in the {@link #logFileDir()}.
+     *
+     * @param sessionCountersRateFile the file to which the rates of the session counters are logged.
+     * @return this
+     * @see EngineConfiguration#SESSION_COUNTERS_RATE_FILE_PROP
+     * @see EngineConfiguration#sessionCounters(boolean)
+     */
+    public EngineConfiguration sessionCountersRateFile(final String sessionCountersRateFile)
+    {
+        this.sessionCountersRateFile = sessionCountersRateFile;
+        return this;
+    }
+
     public int receiverBufferSize()
     {
         return receiverBufferSize;
@@ -607,11 +1015,46 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return logFileDir;
     }
 
+    public String[] replayIndexDirs()
+    {
+        return replayIndexDirs;
+    }
+
+    public String sequenceNumberIndexDir()
+    {
+        return sequenceNumberIndexDir;
+    }
+
+    public String sessionIdDir()
+    {
+        return sessionIdDir;
+    }
+
+    public boolean preTouchIndexFiles()
+    {
+        return preTouchIndexFiles;
+    }
+
+    public int replayIndexFilePoolSize()
+    {
+        return replayIndexFilePoolSize;
+    }
+
     public int replayIndexFileSize()
     {
         return replayIndexFileSize;
     }
 
+    public long replayIndexSegmentsMaxSize()
+    {
+        return replayIndexSegmentsMaxSize;
+    }
+
+    public int replayIndexSegmentFileSize()
+    {
+        return replayIndexSegmentFileSize;
+    }
+
     public int loggerCacheSetSize()
     {
         return loggerCacheSetSize;
@@ -667,6 +1110,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return replayFragmentLimit;
     }
 
+    public int replayWorkerCount()
+    {
+        return replayWorkerCount;
+    }
+
     public int inboundBytesReceivedLimit()
     {
         return inboundBytesReceivedLimit;
@@ -717,6 +1165,11 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return sessionPersistenceStrategy;
     }
 
+    public SessionAllocationStrategy sessionAllocationStrategy()
+    {
+        return sessionAllocationStrategy;
+    }
+
     public EngineScheduler scheduler()
     {
         return scheduler;
@@ -786,6 +1239,19 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return archiveReplayStream;
     }
 
+    /**
+     * Gets the stream that a replay worker receives its replays from the archive on. The first worker uses
+     * {@link #archiveReplayStream()} and each subsequent worker is offset by
+     * {@link #ARCHIVE_REPLAY_WORKER_STREAM_STRIDE}, so that a worker is never sent another worker's replays.
+     *
+     * @param workerIndex the index of the replay worker, from 0.
+     * @return the archive replay stream of the replay worker.
+     */
+    public int replayWorkerArchiveStream(final int workerIndex)
+    {
+        return archiveReplayStream + workerIndex * ARCHIVE_REPLAY_WORKER_STREAM_STRIDE;
+    }
+
     public boolean acceptedSessionClosedResendInterval()
     {
         return acceptedSessionClosedResendInterval;
@@ -806,6 +1272,56 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return acceptedEnableLastMsgSeqNumProcessed;
     }
 
+    public FixMessagePredicate dropCopyPredicate()
+    {
+        return dropCopyPredicate;
+    }
+
+    public String dropCopyAeronChannel()
+    {
+        return dropCopyAeronChannel;
+    }
+
+    public int inboundDropCopyStream()
+    {
+        return inboundDropCopyStream;
+    }
+
+    public int outboundDropCopyStream()
+    {
+        return outboundDropCopyStream;
+    }
+
+    public int dropCopyMaxBytesInBuffer()
+    {
+        return dropCopyMaxBytesInBuffer;
+    }
+
+    public long indexCheckpointIntervalInMs()
+    {
+        return indexCheckpointIntervalInMs;
+    }
+
+    public int throttleMessagesPerSecond()
+    {
+        return throttleMessagesPerSecond;
+    }
+
+    public int throttleBurst()
+    {
+        return throttleBurst == 0 ? throttleMessagesPerSecond : throttleBurst;
+    }
+
+    public boolean sessionCounters()
+    {
+        return sessionCounters;
+    }
+
+    public String sessionCountersRateFile()
+    {
+        return sessionCountersRateFile;
+    }
+
     public EngineConfiguration conclude()
     {
         super.conclude("engine");
@@ -824,9 +1340,45 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
                 sessionBufferSize()));
         }
 
+        if (replayWorkerCount() < 1)
+        {
+            throw new IllegalArgumentException(String.format(
+                "replayWorkerCount must be at least 1, but was %d", replayWorkerCount()));
+        }
+
+        if (replayWorkerCount() > 1 && logOutboundMessages() && !scheduler().allowsReplayWorkerThreads())
+        {
+            throw new IllegalArgumentException(String.format(
+                "replayWorkerCount(%d) needs a thread for each additional replay worker, " +
+                "but the %s doesn't allow the engine to start them",
+                replayWorkerCount(),
+                scheduler().getClass().getSimpleName()));
+        }
+
+        if (replayIndexDirs() == null || replayIndexDirs().length == 0)
+        {
+            replayIndexDirs = new String[]{ logFileDir() };
+        }
+
+        if (sequenceNumberIndexDir() == null)
+        {
+            sequenceNumberIndexDir = logFileDir();
+        }
+
+        if (sessionIdDir() == null)
+        {
+            sessionIdDir = logFileDir();
+        }
+
+        if (sessionCountersRateFile() == null)
+        {
+            sessionCountersRateFile = logFileDir() + File.separator + DEFAULT_SESSION_COUNTERS_RATE_FILE;
+        }
+
         if (sentSequenceNumberIndex() == null)
         {
-            sentSequenceNumberIndex = mapFile(DEFAULT_SEQUENCE_NUMBERS_SENT_FILE, sequenceNumberIndexSize);
+            sentSequenceNumberIndex = mapFile(
+                sequenceNumberIndexDir(), DEFAULT_SEQUENCE_NUMBERS_SENT_FILE, sequenceNumberIndexSize);
         }
 
         if (sentSequenceNumberBuffer() == null)
@@ -836,7 +1388,8 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
 
         if (receivedSequenceNumberIndex() == null)
         {
-            receivedSequenceNumberIndex = mapFile(DEFAULT_SEQUENCE_NUMBERS_RECEIVED_FILE, sequenceNumberIndexSize);
+            receivedSequenceNumberIndex = mapFile(
+                sequenceNumberIndexDir(), DEFAULT_SEQUENCE_NUMBERS_RECEIVED_FILE, sequenceNumberIndexSize);
         }
 
         if (receivedSequenceNumberBuffer() == null)
@@ -846,7 +1399,7 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
 
         if (sessionIdBuffer() == null)
         {
-            sessionIdBuffer = mapFile(DEFAULT_SESSION_ID_FILE, sessionIdBufferSize);
+            sessionIdBuffer = mapFile(sessionIdDir(), DEFAULT_SESSION_ID_FILE, sessionIdBufferSize);
         }
 
         if (sessionPersistenceStrategy() == null)
@@ -857,9 +1410,20 @@ public final class EngineConfiguration extends CommonConfiguration implements Au
         return this;
     }
 
-    private MappedFile mapFile(final String file, final int size)
+    private MappedFile mapFile(final String dir, final String file, final int size)
+    {
+        final MappedFile mappedFile = MappedFile.map(dir + File.separator + file, size);
+        if (preTouchIndexFiles())
+        {
+            LoggerUtil.preTouch(mappedFile.buffer());
+        }
+
+        return mappedFile;
+    }
+
+    private static String[] parseDirs(final String dirs)
     {
-        return MappedFile.map(logFileDir() + File.separator + file, size);
+        return dirs == null ? null : dirs.split(",");
     }
 
     public String libraryAeronChannel()
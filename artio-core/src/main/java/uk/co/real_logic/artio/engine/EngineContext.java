@@ -23,6 +23,7 @@ import io.aeron.archive.client.AeronArchive;
 import io.aeron.logbuffer.BufferClaim;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
 import org.agrona.concurrent.CompositeAgent;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.SystemEpochClock;
@@ -36,8 +37,8 @@ import uk.co.real_logic.artio.protocol.Streams;
 
 import java.util.ArrayList;
 import java.util.List;
-
-import static java.util.Arrays.asList;
+import static org.agrona.concurrent.AgentRunner.startOnThread;
+import static uk.co.real_logic.artio.CommonConfiguration.backoffIdleStrategy;
 import static uk.co.real_logic.artio.dictionary.generation.Exceptions.suppressingClose;
 
 public class EngineContext implements AutoCloseable
@@ -50,7 +51,7 @@ public class EngineContext implements AutoCloseable
     private final SenderSequenceNumbers senderSequenceNumbers;
     private final AeronArchive aeronArchive;
     private final RecordingCoordinator recordingCoordinator;
-    private final ExclusivePublication replayPublication;
+    private final ExclusivePublication[] replayPublications;
     private final SequenceNumberIndexWriter sentSequenceNumberIndex;
     private final SequenceNumberIndexWriter receivedSequenceNumberIndex;
     private final CompletionPosition inboundCompletionPosition = new CompletionPosition();
@@ -64,11 +65,14 @@ public class EngineContext implements AutoCloseable
     private Indexer inboundIndexer;
     private Indexer outboundIndexer;
     private Agent archivingAgent;
+    // Replay workers other than the first, which is part of the archivingAgent, each run on their own thread
+    private final List<Replayer> replayWorkers = new ArrayList<>();
+    private final List<AgentRunner> replayWorkerRunners = new ArrayList<>();
 
     EngineContext(
         final EngineConfiguration configuration,
         final ErrorHandler errorHandler,
-        final ExclusivePublication replayPublication,
+        final ExclusivePublication[] replayPublications,
         final FixCounters fixCounters,
         final Aeron aeron,
         final AeronArchive aeronArchive,
@@ -79,11 +83,12 @@ public class EngineContext implements AutoCloseable
         this.fixCounters = fixCounters;
         this.aeron = aeron;
         this.clock = configuration.clock();
-        this.replayPublication = replayPublication;
+        this.replayPublications = replayPublications;
         this.aeronArchive = aeronArchive;
         this.recordingCoordinator = recordingCoordinator;
 
-        senderSequenceNumbers = new SenderSequenceNumbers(configuration.framerIdleStrategy());
+        senderSequenceNumbers = new SenderSequenceNumbers(
+            configuration.framerIdleStrategy(), replayPublications.length);
 
         try
         {
@@ -92,13 +97,17 @@ public class EngineContext implements AutoCloseable
                 configuration.sentSequenceNumberIndex(),
                 errorHandler,
                 configuration.outboundLibraryStream(),
-                recordingCoordinator.outboundRecordingIdLookup());
+                recordingCoordinator.outboundRecordingIdLookup(),
+                new SystemEpochClock(),
+                configuration.indexCheckpointIntervalInMs());
             receivedSequenceNumberIndex = new SequenceNumberIndexWriter(
                 configuration.receivedSequenceNumberBuffer(),
                 configuration.receivedSequenceNumberIndex(),
                 errorHandler,
                 configuration.inboundLibraryStream(),
-                recordingCoordinator.inboundRecordingIdLookup());
+                recordingCoordinator.inboundRecordingIdLookup(),
+                new SystemEpochClock(),
+                configuration.indexCheckpointIntervalInMs());
 
             newStreams();
             newArchivingAgent();
@@ -147,43 +156,76 @@ public class EngineContext implements AutoCloseable
     {
         return new ReplayIndex(
             logFileDir,
+            configuration.replayIndexDirs(),
             streamId,
             configuration.replayIndexFileSize(),
             cacheNumSets,
             cacheSetSize,
-            LoggerUtil::map,
+            newReplayIndexBufferFactory(streamId),
             ReplayIndexDescriptor.replayPositionBuffer(logFileDir, streamId),
             errorHandler,
-            recordingIdLookup);
+            recordingIdLookup,
+            configuration.replayIndexSegmentsMaxSize(),
+            configuration.replayIndexSegmentFileSize());
+    }
+
+    private BufferFactory newReplayIndexBufferFactory(final int streamId)
+    {
+        final boolean preTouch = configuration.preTouchIndexFiles();
+        if (configuration.replayIndexFilePoolSize() > 0)
+        {
+            return new ReplayIndexFilePool(
+                configuration.replayIndexDirs(),
+                streamId,
+                configuration.replayIndexFileSize(),
+                configuration.replayIndexFilePoolSize(),
+                preTouch,
+                errorHandler);
+        }
+        else if (preTouch)
+        {
+            return (file, size) -> LoggerUtil.preTouch(LoggerUtil.map(file, size));
+        }
+
+        return LoggerUtil::map;
     }
 
     private ReplayQuery newReplayQuery(final IdleStrategy idleStrategy, final int streamId)
     {
-        final String logFileDir = configuration.logFileDir();
+        return newReplayQuery(idleStrategy, streamId, configuration.archiveReplayStream());
+    }
+
+    private ReplayQuery newReplayQuery(
+        final IdleStrategy idleStrategy, final int streamId, final int archiveReplayStream)
+    {
         final int cacheSetSize = configuration.loggerCacheSetSize();
         final int cacheNumSets = configuration.loggerCacheNumSets();
-        final int archiveReplayStream = configuration.archiveReplayStream();
+        final ExistingBufferFactory indexBufferFactory = configuration.preTouchIndexFiles() ?
+            file -> LoggerUtil.mapExistingFile(file).load() : LoggerUtil::mapExistingFile;
 
         return new ReplayQuery(
-            logFileDir,
+            configuration.replayIndexDirs(),
             cacheNumSets,
             cacheSetSize,
-            LoggerUtil::mapExistingFile,
+            indexBufferFactory,
             streamId,
             idleStrategy,
             aeronArchive,
             errorHandler,
-            archiveReplayStream);
+            archiveReplayStream,
+            configuration.replayIndexSegmentsMaxSize() > 0);
     }
 
-    private Replayer newReplayer(
-        final ExclusivePublication replayPublication)
+    private Replayer newReplayer(final int workerIndex, final IdleStrategy idleStrategy)
     {
         return new Replayer(
-            newReplayQuery(configuration.archiverIdleStrategy(), configuration.outboundLibraryStream()),
-            replayPublication,
+            newReplayQuery(
+                idleStrategy,
+                configuration.outboundLibraryStream(),
+                configuration.replayWorkerArchiveStream(workerIndex)),
+            replayPublications[workerIndex],
             new BufferClaim(),
-            configuration.archiverIdleStrategy(),
+            idleStrategy,
             errorHandler,
             configuration.outboundMaxClaimAttempts(),
             inboundLibraryStreams.subscription("replayer"),
@@ -191,7 +233,9 @@ public class EngineContext implements AutoCloseable
             new SystemEpochClock(),
             configuration.gapfillOnReplayMessageTypes(),
             configuration.replayHandler(),
-            senderSequenceNumbers);
+            senderSequenceNumbers,
+            workerIndex,
+            replayPublications.length);
     }
 
     private void newIndexers()
@@ -207,14 +251,16 @@ public class EngineContext implements AutoCloseable
             configuration.inboundLibraryStream(),
             recordingCoordinator.inboundRecordingIdLookup());
 
+        final List<Index> inboundIndices = new ArrayList<>();
+        inboundIndices.add(inboundReplayIndex);
+        inboundIndices.add(receivedSequenceNumberIndex);
+        addDropCopyPublisher(inboundIndices, configuration.inboundDropCopyStream());
+
         inboundIndexer = new Indexer(
-            asList(inboundReplayIndex, receivedSequenceNumberIndex),
+            inboundIndices,
             inboundLibraryStreams.subscription("inboundIndexer"),
             configuration.agentNamePrefix(),
-            inboundCompletionPosition,
-            aeronArchive,
-            errorHandler,
-            configuration.archiveReplayStream());
+            inboundCompletionPosition);
 
         final List<Index> outboundIndices = new ArrayList<>();
         outboundIndices.add(newReplayIndex(
@@ -225,15 +271,35 @@ public class EngineContext implements AutoCloseable
             recordingCoordinator.outboundRecordingIdLookup()));
         outboundIndices.add(sentSequenceNumberIndex);
         outboundIndices.add(new PositionSender(inboundPublication()));
+        addDropCopyPublisher(outboundIndices, configuration.outboundDropCopyStream());
 
         outboundIndexer = new Indexer(
             outboundIndices,
             outboundLibraryStreams.subscription("outboundIndexer"),
             configuration.agentNamePrefix(),
-            outboundLibraryCompletionPosition,
-            aeronArchive,
-            errorHandler,
-            configuration.archiveReplayStream());
+            outboundLibraryCompletionPosition);
+
+        new IndexCatchup(aeronArchive, errorHandler, configuration.archiveReplayStream())
+            .add(inboundIndices)
+            .add(outboundIndices)
+            .run();
+    }
+
+    private void addDropCopyPublisher(final List<Index> indices, final int streamId)
+    {
+        final FixMessagePredicate dropCopyPredicate = configuration.dropCopyPredicate();
+        if (dropCopyPredicate != null)
+        {
+            final ExclusivePublication publication = aeron.addExclusivePublication(
+                configuration.dropCopyAeronChannel(), streamId);
+            StreamInformation.print("dropCopyPublication", publication, configuration);
+
+            indices.add(new DropCopyPublisher(
+                dropCopyPredicate,
+                publication,
+                configuration.dropCopyMaxBytesInBuffer(),
+                fixCounters.droppedDropCopyMessages(streamId)));
+        }
     }
 
     private void newArchivingAgent()
@@ -242,7 +308,11 @@ public class EngineContext implements AutoCloseable
         {
             newIndexers();
 
-            final Replayer replayer = newReplayer(replayPublication);
+            final Replayer replayer = newReplayer(0, configuration.archiverIdleStrategy());
+            for (int i = 1; i < replayPublications.length; i++)
+            {
+                replayWorkers.add(newReplayer(i, backoffIdleStrategy()));
+            }
 
             final List<Agent> agents = new ArrayList<>();
             agents.add(inboundIndexer);
@@ -254,7 +324,7 @@ public class EngineContext implements AutoCloseable
         else
         {
             final GatewayPublication replayGatewayPublication = new GatewayPublication(
-                replayPublication,
+                replayPublications[0],
                 fixCounters.failedReplayPublications(),
                 configuration.archiverIdleStrategy(),
                 clock,
@@ -324,6 +394,16 @@ public class EngineContext implements AutoCloseable
         return archivingAgent;
     }
 
+    void startReplayWorkers()
+    {
+        for (final Replayer replayWorker : replayWorkers)
+        {
+            final AgentRunner runner = new AgentRunner(backoffIdleStrategy(), errorHandler, null, replayWorker);
+            replayWorkerRunners.add(runner);
+            startOnThread(runner);
+        }
+    }
+
     public SenderSequenceNumbers senderSequenceNumbers()
     {
         return senderSequenceNumbers;
@@ -331,6 +411,9 @@ public class EngineContext implements AutoCloseable
 
     public void close()
     {
+        replayWorkerRunners.forEach(EngineScheduler::awaitRunnerStart);
+
+        Exceptions.closeAll(replayWorkerRunners);
         Exceptions.closeAll(
             sentSequenceNumberIndex, receivedSequenceNumberIndex);
     }
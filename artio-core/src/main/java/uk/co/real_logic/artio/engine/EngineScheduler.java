@@ -58,6 +58,19 @@ public interface EngineScheduler extends AutoCloseable
      */
     void configure(Aeron.Context aeronContext);
 
+    /**
+     * Whether the engine may start threads of its own, outside of this scheduler, to run the replay workers beyond
+     * the first when {@link EngineConfiguration#replayWorkerCount(int)} is greater than 1. Schedulers that run the
+     * engine on the application's threads or on a fixed number of threads should return false, and engines that
+     * use them are then rejected if they're configured with more than one replay worker.
+     *
+     * @return true if the engine may start replay worker threads, false otherwise.
+     */
+    default boolean allowsReplayWorkerThreads()
+    {
+        return true;
+    }
+
     static void fail()
     {
         throw new IllegalStateException("Cannot re-use scheduler for multiple launch attempts");
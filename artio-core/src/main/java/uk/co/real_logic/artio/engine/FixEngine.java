@@ -19,17 +19,22 @@ import io.aeron.ExclusivePublication;
 import io.aeron.Image;
 import io.aeron.Subscription;
 import io.aeron.archive.client.AeronArchive;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.AgentInvoker;
 import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SystemEpochClock;
 import uk.co.real_logic.artio.FixCounters;
 import uk.co.real_logic.artio.GatewayProcess;
 import uk.co.real_logic.artio.Reply;
 import uk.co.real_logic.artio.StreamInformation;
 import uk.co.real_logic.artio.engine.framer.FramerContext;
 import uk.co.real_logic.artio.engine.framer.LibraryInfo;
+import uk.co.real_logic.artio.timing.CounterRateAgent;
 import uk.co.real_logic.artio.timing.EngineTimers;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import static io.aeron.CommonContext.IPC_CHANNEL;
@@ -165,17 +170,17 @@ public final class FixEngine extends GatewayProcess
                 configuration,
                 configuration.archiverIdleStrategy());
 
-            final ExclusivePublication replayPublication = replayPublication();
+            final ExclusivePublication[] replayPublications = replayPublications();
             engineContext = new EngineContext(
                 configuration,
                 errorHandler,
-                replayPublication,
+                replayPublications,
                 fixCounters,
                 aeron,
                 aeronArchive,
                 recordingCoordinator);
-            initFramer(configuration, fixCounters, replayPublication.sessionId());
-            initMonitoringAgent(timers.all(), configuration);
+            initFramer(configuration, fixCounters, replayPublications);
+            initMonitoringAgent(timers.all(), configuration, engineMonitoringAgents());
             recordingCoordinator.awaitReady();
         }
         catch (final Exception e)
@@ -191,35 +196,74 @@ public final class FixEngine extends GatewayProcess
         }
     }
 
-    private ExclusivePublication replayPublication()
+    // Agents that only report on the engine, such as the session counter rate report, rather than do its work.
+    private List<Agent> engineMonitoringAgents()
     {
-        final ExclusivePublication publication = aeron.addExclusivePublication(
-            IPC_CHANNEL, configuration.outboundReplayStream());
-        StreamInformation.print("replayPublication", publication, configuration);
-        return publication;
+        final List<Agent> agents = new ArrayList<>();
+        if (configuration.sessionCounters())
+        {
+            final File rateFile = new File(configuration.sessionCountersRateFile()).getAbsoluteFile();
+            IoUtil.ensureDirectoryExists(rateFile.getParentFile(), rateFile.getParent());
+
+            agents.add(new CounterRateAgent(
+                aeron.countersReader(),
+                FixCounters.sessionCounterTypes(),
+                rateFile.getPath(),
+                configuration.histogramPollPeriodInMs(),
+                errorHandler,
+                new SystemEpochClock(),
+                null,
+                configuration.agentNamePrefix()));
+        }
+        return agents;
+    }
+
+    // One publication for each replay worker, all on the same stream but distinguished by their session id.
+    private ExclusivePublication[] replayPublications()
+    {
+        final int replayWorkerCount = configuration.logOutboundMessages() ? configuration.replayWorkerCount() : 1;
+        final ExclusivePublication[] publications = new ExclusivePublication[replayWorkerCount];
+        for (int i = 0; i < replayWorkerCount; i++)
+        {
+            final ExclusivePublication publication = aeron.addExclusivePublication(
+                IPC_CHANNEL, configuration.outboundReplayStream());
+            StreamInformation.print("replayPublication", publication, configuration);
+            publications[i] = publication;
+        }
+        return publications;
     }
 
     private void initFramer(
-        final EngineConfiguration configuration, final FixCounters fixCounters, final int replaySessionId)
+        final EngineConfiguration configuration,
+        final FixCounters fixCounters,
+        final ExclusivePublication[] replayPublications)
     {
         framerContext = new FramerContext(
             configuration,
             fixCounters,
             engineContext,
             errorHandler,
-            replayImage("replay", replaySessionId),
-            replayImage("slow-replay", replaySessionId),
+            replayImages("replay", replayPublications),
             timers,
-            aeron.conductorAgentInvoker(),
             recordingCoordinator);
     }
 
-    private Image replayImage(final String name, final int replaySessionId)
+    private Image[] replayImages(final String name, final ExclusivePublication[] replayPublications)
     {
         final Subscription subscription = aeron.addSubscription(
             IPC_CHANNEL, configuration.outboundReplayStream());
         StreamInformation.print(name, subscription, configuration);
 
+        final Image[] images = new Image[replayPublications.length];
+        for (int i = 0; i < images.length; i++)
+        {
+            images[i] = replayImage(subscription, replayPublications[i].sessionId());
+        }
+        return images;
+    }
+
+    private Image replayImage(final Subscription subscription, final int replaySessionId)
+    {
         // Await replay publication
         while (true)
         {
@@ -255,6 +299,7 @@ public final class FixEngine extends GatewayProcess
             monitoringAgent,
             conductorAgent(),
             recordingCoordinator);
+        engineContext.startReplayWorkers();
 
         return this;
     }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import io.aeron.Aeron;
+import org.agrona.CloseHelper;
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentInvoker;
+import org.agrona.concurrent.CompositeAgent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A scheduler that doesn't start any threads, all engine agents are run on whichever thread calls
+ * {@link #invoke()}.
+ *
+ * This allows an application that co-locates the engine and a single {@link uk.co.real_logic.artio.library.FixLibrary}
+ * in one process to drive both from the same thread, for example by calling {@link #invoke()} and
+ * {@link uk.co.real_logic.artio.library.FixLibrary#poll(int)} in a single duty cycle. The Aeron client conductor is
+ * also switched into invoking mode and run as part of {@link #invoke()}, so no client conductor thread is started
+ * either. Combine with an IPC library channel and an embedded media driver for the lowest latency between the
+ * engine and library.
+ */
+public class InvokerEngineScheduler implements EngineScheduler
+{
+    private AgentInvoker invoker;
+
+    public void launch(
+        final EngineConfiguration configuration,
+        final ErrorHandler errorHandler,
+        final Agent framer,
+        final Agent indexingAgent,
+        final Agent monitoringAgent,
+        final Agent conductorAgent,
+        final RecordingCoordinator recordingCoordinator)
+    {
+        if (invoker != null)
+        {
+            EngineScheduler.fail();
+        }
+
+        final List<Agent> agents = new ArrayList<>();
+        Collections.addAll(agents,
+            monitoringAgent,
+            framer,
+            indexingAgent,
+            new RecordingCoordinatorAgent(recordingCoordinator),
+            conductorAgent);
+
+        agents.removeIf(Objects::isNull);
+
+        invoker = new AgentInvoker(errorHandler, null, new CompositeAgent(agents));
+        invoker.start();
+    }
+
+    /**
+     * Run a single duty cycle of all the engine's agents. Must be called from a single thread.
+     *
+     * @return the amount of work done.
+     */
+    public int invoke()
+    {
+        return invoker.invoke();
+    }
+
+    public void close()
+    {
+        CloseHelper.close(invoker);
+    }
+
+    public void configure(final Aeron.Context aeronContext)
+    {
+        aeronContext.useConductorAgentInvoker(true);
+    }
+
+    public boolean allowsReplayWorkerThreads()
+    {
+        return false;
+    }
+}
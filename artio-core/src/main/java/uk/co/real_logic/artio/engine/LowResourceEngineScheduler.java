@@ -37,7 +37,6 @@ import static org.agrona.concurrent.AgentRunner.startOnThread;
 public class LowResourceEngineScheduler implements EngineScheduler
 {
     private AgentRunner runner;
-    private RecordingCoordinator recordingCoordinator;
 
     public LowResourceEngineScheduler()
     {
@@ -52,8 +51,6 @@ public class LowResourceEngineScheduler implements EngineScheduler
         final Agent conductorAgent,
         final RecordingCoordinator recordingCoordinator)
     {
-        this.recordingCoordinator = recordingCoordinator;
-
         if (runner != null)
         {
             EngineScheduler.fail();
@@ -61,7 +58,11 @@ public class LowResourceEngineScheduler implements EngineScheduler
 
         final List<Agent> agents = new ArrayList<>();
         Collections.addAll(agents,
-            monitoringAgent, framer, indexingAgent, new RecordingCoordinatorAgent(), conductorAgent);
+            monitoringAgent,
+            framer,
+            indexingAgent,
+            new RecordingCoordinatorAgent(recordingCoordinator),
+            conductorAgent);
 
         agents.removeIf(Objects::isNull);
 
@@ -85,28 +86,8 @@ public class LowResourceEngineScheduler implements EngineScheduler
         aeronContext.useConductorAgentInvoker(true);
     }
 
-    /**
-     * Adapt a recording coordinator to the Agent interface to enable it to be shutdown in order.
-     */
-    private class RecordingCoordinatorAgent implements Agent
+    public boolean allowsReplayWorkerThreads()
     {
-        @Override
-        public int doWork()
-        {
-            // Deliberately empty
-            return 0;
-        }
-
-        @Override
-        public String roleName()
-        {
-            return "RecordingCoordinator";
-        }
-
-        @Override
-        public void onClose()
-        {
-            recordingCoordinator.close();
-        }
+        return false;
     }
 }
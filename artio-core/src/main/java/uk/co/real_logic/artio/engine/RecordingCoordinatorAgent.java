@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.concurrent.Agent;
+
+/**
+ * Adapt a recording coordinator to the Agent interface to enable it to be shutdown in order.
+ */
+class RecordingCoordinatorAgent implements Agent
+{
+    private final RecordingCoordinator recordingCoordinator;
+
+    RecordingCoordinatorAgent(final RecordingCoordinator recordingCoordinator)
+    {
+        this.recordingCoordinator = recordingCoordinator;
+    }
+
+    @Override
+    public int doWork()
+    {
+        // Deliberately empty
+        return 0;
+    }
+
+    @Override
+    public String roleName()
+    {
+        return "RecordingCoordinator";
+    }
+
+    @Override
+    public void onClose()
+    {
+        recordingCoordinator.close();
+    }
+}
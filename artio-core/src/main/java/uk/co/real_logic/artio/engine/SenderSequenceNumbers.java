@@ -23,6 +23,9 @@ import java.util.function.Consumer;
 
 /**
  * For publishing the last sent sequence number to the replay system.
+ *
+ * There may be several readers, one for each replay worker, each of which is notified of new and closed senders
+ * through its own queue and keeps its own lookup table.
  */
 public class SenderSequenceNumbers
 {
@@ -33,19 +36,21 @@ public class SenderSequenceNumbers
     // Framer state
     private final IdleStrategy framerIdleStrategy;
 
-    // Written on Framer, Read on Indexer
-    private final OneToOneConcurrentArrayQueue<SenderSequenceNumber> queue
-        = new OneToOneConcurrentArrayQueue<>(CAPACITY);
-
-    // Indexer State
-    private final Long2ObjectHashMap<SenderSequenceNumber> connectionIdToSequencePosition
-        = new Long2ObjectHashMap<>();
-    private final Consumer<SenderSequenceNumber> onSenderSequenceNumberFunc
-        = this::onSenderSequenceNumber;
+    private final Reader[] readers;
 
     public SenderSequenceNumbers(final IdleStrategy framerIdleStrategy)
+    {
+        this(framerIdleStrategy, 1);
+    }
+
+    public SenderSequenceNumbers(final IdleStrategy framerIdleStrategy, final int readerCount)
     {
         this.framerIdleStrategy = framerIdleStrategy;
+        readers = new Reader[readerCount];
+        for (int i = 0; i < readerCount; i++)
+        {
+            readers[i] = new Reader();
+        }
     }
 
     // Called on Framer Thread
@@ -65,9 +70,12 @@ public class SenderSequenceNumbers
     // We receive the object to either add or remove it.
     private void enqueue(final SenderSequenceNumber senderSequenceNumber)
     {
-        while (!queue.offer(senderSequenceNumber))
+        for (final Reader reader : readers)
         {
-            framerIdleStrategy.idle();
+            while (!reader.queue.offer(senderSequenceNumber))
+            {
+                framerIdleStrategy.idle();
+            }
         }
         framerIdleStrategy.reset();
     }
@@ -75,28 +83,62 @@ public class SenderSequenceNumbers
     // Called on Indexer Thread
     public int poll()
     {
-        return queue.drain(onSenderSequenceNumberFunc, CAPACITY);
+        return poll(0);
+    }
+
+    // Called on the thread of the given reader
+    public int poll(final int reader)
+    {
+        return readers[reader].poll();
     }
 
     // Called on Indexer Thread
     public int lastSentSequenceNumber(final long connectionId)
     {
-        final SenderSequenceNumber senderSequenceNumber = connectionIdToSequencePosition.get(connectionId);
-        if (senderSequenceNumber == null)
-        {
-            return UNKNOWN_SESSION;
-        }
+        return lastSentSequenceNumber(0, connectionId);
+    }
 
-        return senderSequenceNumber.lastSentSequenceNumber();
+    // Called on the thread of the given reader
+    public int lastSentSequenceNumber(final int reader, final long connectionId)
+    {
+        return readers[reader].lastSentSequenceNumber(connectionId);
     }
 
-    // Called on Indexer Thread
-    private void onSenderSequenceNumber(final SenderSequenceNumber senderSequenceNumber)
+    private static final class Reader
     {
-        final long connectionId = senderSequenceNumber.connectionId();
-        if (connectionIdToSequencePosition.remove(connectionId) == null)
+        // Written on Framer, Read on Indexer
+        private final OneToOneConcurrentArrayQueue<SenderSequenceNumber> queue
+            = new OneToOneConcurrentArrayQueue<>(CAPACITY);
+
+        // Indexer State
+        private final Long2ObjectHashMap<SenderSequenceNumber> connectionIdToSequencePosition
+            = new Long2ObjectHashMap<>();
+        private final Consumer<SenderSequenceNumber> onSenderSequenceNumberFunc
+            = this::onSenderSequenceNumber;
+
+        int poll()
+        {
+            return queue.drain(onSenderSequenceNumberFunc, CAPACITY);
+        }
+
+        int lastSentSequenceNumber(final long connectionId)
+        {
+            final SenderSequenceNumber senderSequenceNumber = connectionIdToSequencePosition.get(connectionId);
+            if (senderSequenceNumber == null)
+            {
+                return UNKNOWN_SESSION;
+            }
+
+            return senderSequenceNumber.lastSentSequenceNumber();
+        }
+
+        private void onSenderSequenceNumber(final SenderSequenceNumber senderSequenceNumber)
         {
-            connectionIdToSequencePosition.put(connectionId, senderSequenceNumber);
+            final long connectionId = senderSequenceNumber.connectionId();
+            if (connectionIdToSequencePosition.remove(connectionId) == null)
+            {
+                connectionIdToSequencePosition.put(connectionId, senderSequenceNumber);
+            }
         }
     }
 }
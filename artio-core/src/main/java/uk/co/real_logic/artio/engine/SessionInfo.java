@@ -63,4 +63,11 @@ public interface SessionInfo
      * @return number of bytes outstanding in the quarantine buffer to send.
      */
     long bytesInBuffer();
+
+    /**
+     * Returns the number of messages that have been read from this session's connection.
+     *
+     * @return the number of messages that have been read from this session's connection.
+     */
+    long messagesRead();
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.collections.Hashing;
+import uk.co.real_logic.artio.engine.SessionInfo;
+import uk.co.real_logic.artio.session.CompositeKey;
+
+import java.util.List;
+
+/**
+ * Rendezvous hashing of the comp ids: each library is scored by hashing the session's comp ids together with its
+ * library id and the highest score wins. Removing a library only moves the sessions that it would have owned, and
+ * adding one only takes its share from the others.
+ */
+class ConsistentHashSessionAllocationStrategy implements SessionAllocationStrategy
+{
+    public int allocate(final SessionInfo session, final List<LibraryInfo> libraries)
+    {
+        final int keyHash = keyHash(session.sessionKey());
+
+        int bestLibraryId = 0;
+        int bestScore = Integer.MIN_VALUE;
+        boolean found = false;
+
+        for (int i = 0, size = libraries.size(); i < size; i++)
+        {
+            final int libraryId = libraries.get(i).libraryId();
+            final int score = score(keyHash, libraryId);
+            if (!found || score > bestScore || (score == bestScore && libraryId < bestLibraryId))
+            {
+                bestLibraryId = libraryId;
+                bestScore = score;
+                found = true;
+            }
+        }
+
+        return bestLibraryId;
+    }
+
+    private static int score(final int keyHash, final int libraryId)
+    {
+        return Hashing.hash(((long)keyHash << 32) | (libraryId & 0xFFFF_FFFFL));
+    }
+
+    private static int keyHash(final CompositeKey key)
+    {
+        return 31 * key.localCompId().hashCode() + key.remoteCompId().hashCode();
+    }
+}
@@ -17,9 +17,11 @@ package uk.co.real_logic.artio.engine.framer;
 
 import org.agrona.ErrorHandler;
 import uk.co.real_logic.artio.FixCounters;
+import uk.co.real_logic.artio.SessionCounters;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
 import uk.co.real_logic.artio.engine.SenderSequenceNumbers;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.timing.Timer;
 
 class EndPointFactory
 {
@@ -30,8 +32,7 @@ class EndPointFactory
     private final ErrorHandler errorHandler;
     private final GatewaySessions gatewaySessions;
     private final SenderSequenceNumbers senderSequenceNumbers;
-
-    private SlowPeeker replaySlowPeeker;
+    private final Timer inboundTimer;
 
     EndPointFactory(
         final EngineConfiguration configuration,
@@ -40,7 +41,8 @@ class EndPointFactory
         final FixCounters fixCounters,
         final ErrorHandler errorHandler,
         final GatewaySessions gatewaySessions,
-        final SenderSequenceNumbers senderSequenceNumbers)
+        final SenderSequenceNumbers senderSequenceNumbers,
+        final Timer inboundTimer)
     {
         this.configuration = configuration;
         this.sessionContexts = sessionContexts;
@@ -49,6 +51,14 @@ class EndPointFactory
         this.errorHandler = errorHandler;
         this.gatewaySessions = gatewaySessions;
         this.senderSequenceNumbers = senderSequenceNumbers;
+        this.inboundTimer = inboundTimer;
+    }
+
+    // Returns null if the engine isn't configured with session counters
+    SessionCounters sessionCounters(final TcpChannel channel, final long connectionId)
+    {
+        return configuration.sessionCounters() ?
+            fixCounters.sessionCounters(connectionId, channel.remoteAddress()) : null;
     }
 
     ReceiverEndPoint receiverEndPoint(
@@ -57,7 +67,8 @@ class EndPointFactory
         final long sessionId,
         final int sequenceIndex,
         final int libraryId,
-        final Framer framer)
+        final Framer framer,
+        final SessionCounters sessionCounters)
     {
         return new ReceiverEndPoint(
             channel,
@@ -71,23 +82,31 @@ class EndPointFactory
             framer,
             errorHandler,
             libraryId,
-            gatewaySessions
-        );
+            gatewaySessions,
+            configuration.clock(),
+            inboundTimer,
+            sessionCounters);
     }
 
     SenderEndPoint senderEndPoint(
         final TcpChannel channel,
         final long connectionId,
         final int libraryId,
-        final BlockablePosition libraryBlockablePosition,
-        final Framer framer)
+        final Framer framer,
+        final SessionCounters sessionCounters)
     {
         final String remoteAddress = channel.remoteAddress();
+        final long timeInMs = System.currentTimeMillis();
+        final int throttleMessagesPerSecond = configuration.throttleMessagesPerSecond();
+        final MessageThrottle throttle = throttleMessagesPerSecond > 0 ? new MessageThrottle(
+            throttleMessagesPerSecond,
+            configuration.throttleBurst(),
+            fixCounters.throttledMessages(connectionId, remoteAddress),
+            timeInMs) : null;
+
         return new SenderEndPoint(
             connectionId,
             libraryId,
-            libraryBlockablePosition,
-            replaySlowPeeker,
             channel,
             fixCounters.bytesInBuffer(connectionId, remoteAddress),
             fixCounters.invalidLibraryAttempts(connectionId, remoteAddress),
@@ -95,12 +114,9 @@ class EndPointFactory
             framer,
             configuration.senderMaxBytesInBuffer(),
             configuration.slowConsumerTimeoutInMs(),
-            System.currentTimeMillis(),
-            senderSequenceNumbers.onNewSender(connectionId));
-    }
-
-    void replaySlowPeeker(final SlowPeeker replaySlowPeeker)
-    {
-        this.replaySlowPeeker = replaySlowPeeker;
+            timeInMs,
+            senderSequenceNumbers.onNewSender(connectionId),
+            throttle,
+            sessionCounters);
     }
 }
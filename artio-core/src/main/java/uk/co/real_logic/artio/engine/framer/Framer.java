@@ -28,18 +28,17 @@ import org.agrona.collections.Int2ObjectHashMap;
 import org.agrona.collections.Long2LongHashMap;
 import org.agrona.collections.Long2LongHashMap.KeyIterator;
 import org.agrona.concurrent.Agent;
-import org.agrona.concurrent.AgentInvoker;
 import org.agrona.concurrent.EpochClock;
 import org.agrona.concurrent.QueuedPipe;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.LivenessDetector;
 import uk.co.real_logic.artio.Pressure;
+import uk.co.real_logic.artio.SessionCounters;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.engine.CompletionPosition;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
 import uk.co.real_logic.artio.engine.PositionSender;
 import uk.co.real_logic.artio.engine.RecordingCoordinator;
-import uk.co.real_logic.artio.engine.framer.SubscriptionSlowPeeker.LibrarySlowPeeker;
 import uk.co.real_logic.artio.engine.framer.TcpChannelSupplier.NewChannelHandler;
 import uk.co.real_logic.artio.engine.logger.ReplayQuery;
 import uk.co.real_logic.artio.engine.logger.SequenceNumberIndexReader;
@@ -67,7 +66,6 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.agrona.collections.CollectionUtil.removeIf;
 import static uk.co.real_logic.artio.GatewayProcess.NO_CORRELATION_ID;
 import static uk.co.real_logic.artio.LogTag.*;
-import static uk.co.real_logic.artio.Pressure.isBackPressured;
 import static uk.co.real_logic.artio.engine.FixEngine.ENGINE_LIBRARY_ID;
 import static uk.co.real_logic.artio.engine.SessionInfo.UNK_SESSION;
 import static uk.co.real_logic.artio.engine.framer.Continuation.COMPLETE;
@@ -96,6 +94,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     private final Consumer<AdminCommand> onAdminCommand = command -> command.execute(this);
     private final NewChannelHandler onNewConnectionFunc = this::onNewConnection;
     private final Predicate<LiveLibraryInfo> retryAcquireLibrarySessionsFunc = this::retryAcquireLibrarySessions;
+    private final List<LibraryInfo> allocatableLibraries = new ArrayList<>();
 
     private final TcpChannelSupplier channelSupplier;
     private final EpochClock clock;
@@ -103,20 +102,15 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     private final Timer sendTimer;
 
     private final ControlledFragmentHandler librarySubscriber;
-    private final ControlledFragmentHandler replaySubscriber;
-    private final ControlledFragmentHandler replaySlowSubscriber;
+    private final ControlledFragmentHandler[] replaySubscribers;
 
     private final ReceiverEndPoints receiverEndPoints = new ReceiverEndPoints();
-    private final ControlledFragmentAssembler senderEndPointAssembler;
     private final SenderEndPoints senderEndPoints;
 
     private final EngineConfiguration configuration;
     private final EndPointFactory endPointFactory;
     private final Subscription librarySubscription;
-    private final SubscriptionSlowPeeker librarySlowPeeker;
-    private final Image replayImage;
-    private final SlowPeeker replaySlowPeeker;
-    private final BlockablePosition engineBlockablePosition;
+    private final Image[] replayImages;
     private final GatewayPublication inboundPublication;
     private final String agentNamePrefix;
     private final CompletionPosition inboundCompletionPosition;
@@ -131,6 +125,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     private final int outboundLibraryFragmentLimit;
     private final int replayFragmentLimit;
     private final GatewaySessions gatewaySessions;
+    private final SessionAllocationStrategy sessionAllocationStrategy;
     private final Consumer<GatewaySession> onSessionlogon = this::onSessionLogon;
     /**
      * Null if inbound messages are not logged
@@ -141,7 +136,6 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
     // Both connection id to library id maps
     private final Long2LongHashMap resendSlowStatus = new Long2LongHashMap(-1);
     private final Long2LongHashMap resendNotSlowStatus = new Long2LongHashMap(-1);
-    private final AgentInvoker conductorAgentInvoker;
     private final RecordingCoordinator recordingCoordinator;
     private final PositionSender nonLoggingPositionSender;
 
@@ -154,9 +148,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final EngineConfiguration configuration,
         final EndPointFactory endPointFactory,
         final Subscription librarySubscription,
-        final Subscription slowSubscription,
-        final Image replayImage,
-        final Image replaySlowImage,
+        final Image[] replayImages,
         final ReplayQuery inboundMessages,
         final GatewayPublication outboundPublication,
         final GatewayPublication inboundPublication,
@@ -171,7 +163,6 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final CompletionPosition inboundCompletionPosition,
         final CompletionPosition outboundLibraryCompletionPosition,
         final FinalImagePositions finalImagePositions,
-        final AgentInvoker conductorAgentInvoker,
         final RecordingCoordinator recordingCoordinator)
     {
         this.clock = clock;
@@ -180,7 +171,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         this.configuration = configuration;
         this.endPointFactory = endPointFactory;
         this.librarySubscription = librarySubscription;
-        this.replayImage = replayImage;
+        this.replayImages = replayImages;
         this.gatewaySessions = gatewaySessions;
         this.inboundMessages = inboundMessages;
         this.errorHandler = errorHandler;
@@ -190,9 +181,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         this.inboundCompletionPosition = inboundCompletionPosition;
         this.outboundLibraryCompletionPosition = outboundLibraryCompletionPosition;
         this.senderEndPoints = new SenderEndPoints(errorHandler);
-        this.conductorAgentInvoker = conductorAgentInvoker;
         this.recordingCoordinator = recordingCoordinator;
-        this.senderEndPointAssembler = new ControlledFragmentAssembler(senderEndPoints, 0, true);
         this.sessionIdStrategy = sessionIdStrategy;
         this.sessionContexts = sessionContexts;
         this.adminCommands = adminCommands;
@@ -200,17 +189,11 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         this.receivedSequenceNumberIndex = receivedSequenceNumberIndex;
         this.finalImagePositions = finalImagePositions;
 
-        this.librarySlowPeeker = new SubscriptionSlowPeeker(slowSubscription, librarySubscription);
-
+        this.sessionAllocationStrategy = configuration.sessionAllocationStrategy();
         this.outboundLibraryFragmentLimit = configuration.outboundLibraryFragmentLimit();
         this.replayFragmentLimit = configuration.replayFragmentLimit();
         this.inboundBytesReceivedLimit = configuration.inboundBytesReceivedLimit();
 
-        this.replaySlowPeeker = new SlowPeeker(replaySlowImage, replayImage);
-        endPointFactory.replaySlowPeeker(replaySlowPeeker);
-
-
-        engineBlockablePosition = getOutboundSlowPeeker(outboundPublication);
         librarySubscriber = new ControlledFragmentAssembler(
             ProtocolSubscription.of(this, new EngineProtocolSubscription(this)),
             0,
@@ -220,7 +203,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
         // We lookup replayed message by session id, since the connection id may have changed
         // if it's a persistent session.
-        replaySubscriber = new ImageControlledFragmentAssembler(ProtocolSubscription.of(new ProtocolHandler()
+        final ControlledFragmentHandler replayProtocolSubscription = ProtocolSubscription.of(new ProtocolHandler()
         {
             public Action onMessage(
                 final DirectBuffer buffer,
@@ -236,7 +219,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 final int sequenceNumber,
                 final long position)
             {
-                return senderEndPoints.onReplayMessage(connectionId, buffer, offset, length, position);
+                return senderEndPoints.onReplayMessage(connectionId, messageType, buffer, offset, length);
             }
 
             public Action onDisconnect(final int libraryId, final long connectionId, final DisconnectReason reason)
@@ -245,55 +228,16 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 return Action.CONTINUE;
             }
         },
-        new ReplayProtocolSubscription(senderEndPoints::onReplayComplete)),
-        0,
-        true);
+            new ReplayProtocolSubscription(senderEndPoints::onReplayComplete));
 
-        replaySlowSubscriber = new ControlledFragmentAssembler(ProtocolSubscription.of(new ProtocolHandler()
+        // Each replay worker has its own image, which needs its own assembler.
+        replaySubscribers = new ControlledFragmentHandler[replayImages.length];
+        for (int i = 0; i < replayImages.length; i++)
         {
-            public Action onMessage(
-                final DirectBuffer buffer,
-                final int offset,
-                final int length,
-                final int libraryId,
-                final long connectionId,
-                final long sessionId,
-                final int sequenceIndex,
-                final int messageType,
-                final long timestamp,
-                final MessageStatus status,
-                final int sequenceNumber,
-                final long position)
-            {
-                return senderEndPoints.onSlowReplayMessage(connectionId, buffer, offset, length, position);
-            }
-
-            public Action onDisconnect(final int libraryId, final long connectionId, final DisconnectReason reason)
-            {
-                // Should never be replayed.
-                return Action.CONTINUE;
-            }
-        },
-        new ReplayProtocolSubscription(senderEndPoints::onReplayComplete)));
-
-        channelSupplier = configuration.channelSupplier();
-    }
-
-    private LibrarySlowPeeker getOutboundSlowPeeker(final GatewayPublication outboundPublication)
-    {
-        final int outboundSessionId = outboundPublication.id();
-        LibrarySlowPeeker outboundSlowPeeker;
-        while ((outboundSlowPeeker = this.librarySlowPeeker.addLibrary(outboundSessionId)) == null)
-        {
-            if (conductorAgentInvoker != null)
-            {
-                conductorAgentInvoker.invoke();
-            }
-
-            Thread.yield();
+            replaySubscribers[i] = new ImageControlledFragmentAssembler(replayProtocolSubscription, 0, true);
         }
 
-        return outboundSlowPeeker;
+        channelSupplier = configuration.channelSupplier();
     }
 
     public int doWork() throws Exception
@@ -304,6 +248,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             sendOutboundMessages() +
             sendReplayMessages() +
             pollEndPoints() +
+            senderEndPoints.poll(timeInMs) +
             pollNewConnections(timeInMs) +
             pollLibraries(timeInMs) +
             gatewaySessions.pollSessions(timeInMs) +
@@ -344,14 +289,20 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
     private int sendReplayMessages()
     {
-        return replayImage.controlledPoll(replaySubscriber, replayFragmentLimit) +
-            replaySlowPeeker.peek(replaySlowSubscriber);
+        final Image[] replayImages = this.replayImages;
+        final ControlledFragmentHandler[] replaySubscribers = this.replaySubscribers;
+
+        int messagesRead = 0;
+        for (int i = 0, length = replayImages.length; i < length; i++)
+        {
+            messagesRead += replayImages[i].controlledPoll(replaySubscribers[i], replayFragmentLimit);
+        }
+        return messagesRead;
     }
 
     private int sendOutboundMessages()
     {
-        int messagesRead = librarySubscription.controlledPoll(librarySubscriber, outboundLibraryFragmentLimit);
-        messagesRead += librarySlowPeeker.peek(senderEndPointAssembler);
+        final int messagesRead = librarySubscription.controlledPoll(librarySubscriber, outboundLibraryFragmentLimit);
 
         if (nonLoggingPositionSender != null)
         {
@@ -374,7 +325,6 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 DebugLogger.log(LIBRARY_MANAGEMENT, "Timing out connection to library %s%n", library.libraryId());
 
                 iterator.remove();
-                library.releaseSlowPeeker();
                 tryAcquireLibrarySessions(library);
                 saveLibraryTimeout(library);
             }
@@ -454,8 +404,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 sentSequenceNumber,
                 receivedSequenceNumber,
                 session.username(),
-                session.password(),
-                engineBlockablePosition);
+                session.password());
 
             schedule(() -> saveManageSession(
                 ENGINE_LIBRARY_ID,
@@ -514,18 +463,12 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
             UNK_SESSION,
             UNK_SESSION,
             null,
-            null,
-            engineBlockablePosition);
+            null);
 
         final String address = channel.remoteAddress();
         // In this case the save connect is simply logged for posterities sake
-        // So in the back-pressure we should just drop it
-        final long position = inboundPublication.saveConnect(connectionId, address);
-        if (isBackPressured(position))
-        {
-            errorHandler.onError(new IllegalStateException(
-                "Failed to log connect from " + address + " due to backpressure"));
-        }
+        // So retry it later rather than holding up the framer if back-pressured
+        schedule(() -> inboundPublication.saveConnect(connectionId, address));
     }
 
     public Action onInitiateConnection(
@@ -847,7 +790,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
 
         sessionContexts.onSentFollowerMessage(sessionId, sequenceIndex, messageType, buffer, offset, length);
 
-        senderEndPoints.onMessage(libraryId, connectionId, buffer, offset, length, sequenceNumber, position);
+        senderEndPoints.onMessage(libraryId, connectionId, messageType, buffer, offset, length, sequenceNumber);
 
         if (nonLoggingPositionSender != null)
         {
@@ -871,18 +814,19 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final boolean sendRedundantResendRequests,
         final boolean enableLastMsgSeqNumProcessed)
     {
+        final SessionCounters sessionCounters = endPointFactory.sessionCounters(channel, connectionId);
         final ReceiverEndPoint receiverEndPoint = endPointFactory.receiverEndPoint(
             channel,
             connectionId,
             context.sessionId(),
             context.sequenceIndex(),
             libraryId,
-            this);
+            this,
+            sessionCounters);
         receiverEndPoints.add(receiverEndPoint);
 
-        final BlockablePosition libraryBlockablePosition = getLibraryBlockablePosition(libraryId);
         final SenderEndPoint senderEndPoint = endPointFactory.senderEndPoint(
-            channel, connectionId, libraryId, libraryBlockablePosition, this);
+            channel, connectionId, libraryId, this, sessionCounters);
         senderEndPoints.add(senderEndPoint);
 
         final GatewaySession gatewaySession = new GatewaySession(
@@ -904,18 +848,6 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         return gatewaySession;
     }
 
-    private BlockablePosition getLibraryBlockablePosition(final int libraryId)
-    {
-        if (libraryId == ENGINE_LIBRARY_ID)
-        {
-            return engineBlockablePosition;
-        }
-        else
-        {
-            return idToLibrary.get(libraryId).librarySlowPeeker();
-        }
-    }
-
     public Action onRequestDisconnect(final int libraryId, final long connectionId, final DisconnectReason reason)
     {
         return onDisconnect(libraryId, connectionId, reason);
@@ -975,14 +907,8 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final List<Continuation> unitsOfWork = new ArrayList<>();
         unitsOfWork.add(() ->
         {
-            final LibrarySlowPeeker librarySlowPeeker = this.librarySlowPeeker.addLibrary(aeronSessionId);
-            if (librarySlowPeeker == null)
-            {
-                return BACK_PRESSURED;
-            }
-
             final LiveLibraryInfo library = new LiveLibraryInfo(
-                libraryId, libraryName, livenessDetector, aeronSessionId, librarySlowPeeker);
+                libraryId, libraryName, livenessDetector, aeronSessionId);
             idToLibrary.put(libraryId, library);
 
             DebugLogger.log(LIBRARY_MANAGEMENT, "Library %s - %s connected %n", libraryId, libraryName);
@@ -1073,8 +999,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 lastSentSequenceNumber,
                 lastReceivedSequenceNumber,
                 username,
-                password,
-                engineBlockablePosition);
+                password);
 
             schedule(() -> saveManageSession(
                 ENGINE_LIBRARY_ID,
@@ -1128,7 +1053,7 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         final int lastSentSeqNum = session.lastSentMsgSeqNum();
         final int lastRecvSeqNum = session.lastReceivedMsgSeqNum();
 
-        gatewaySession.handoverManagementTo(libraryId, libraryInfo.librarySlowPeeker());
+        gatewaySession.handoverManagementTo(libraryId);
         libraryInfo.addSession(gatewaySession);
 
         DebugLogger.log(LIBRARY_MANAGEMENT, "Handing control for session %s to library %s%n", sessionId, libraryId);
@@ -1323,6 +1248,13 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
                 return 0;
             }
 
+            final LiveLibraryInfo library = allocateLibrary(gatewaySession);
+            if (library != null)
+            {
+                allocateSession(gatewaySession, library);
+                return COMPLETE;
+            }
+
             final CompositeKey key = gatewaySession.sessionKey();
             return saveManageSession(
                 ENGINE_LIBRARY_ID,
@@ -1336,6 +1268,88 @@ class Framer implements Agent, EngineEndPointHandler, ProtocolHandler
         });
     }
 
+    private LiveLibraryInfo allocateLibrary(final GatewaySession gatewaySession)
+    {
+        if (gatewaySession.connectionType() != ACCEPTOR || idToLibrary.isEmpty())
+        {
+            return null;
+        }
+
+        final List<LibraryInfo> libraries = allocatableLibraries;
+        for (final LiveLibraryInfo library : idToLibrary.values())
+        {
+            if (library.isConnected())
+            {
+                libraries.add(library);
+            }
+        }
+
+        try
+        {
+            if (libraries.isEmpty())
+            {
+                return null;
+            }
+
+            final int libraryId = sessionAllocationStrategy.allocate(gatewaySession, libraries);
+            return libraryId == ENGINE_LIBRARY_ID ? null : idToLibrary.get(libraryId);
+        }
+        catch (final Throwable throwable)
+        {
+            errorHandler.onError(throwable);
+            return null;
+        }
+        finally
+        {
+            libraries.clear();
+        }
+    }
+
+    // Hands the session over in the same way as onRequestSession, but without a reply since the library didn't ask.
+    private void allocateSession(final GatewaySession gatewaySession, final LiveLibraryInfo library)
+    {
+        final int libraryId = library.libraryId();
+        final long sessionId = gatewaySession.sessionId();
+        final long connectionId = gatewaySession.connectionId();
+        final Session session = gatewaySession.session();
+        final int lastSentSeqNum = session.lastSentMsgSeqNum();
+        final int lastRecvSeqNum = session.lastReceivedMsgSeqNum();
+        final int aeronSessionId = outboundPublication.id();
+        final long requiredPosition = outboundPublication.position();
+
+        gatewaySessions.releaseBySessionId(sessionId);
+        gatewaySession.handoverManagementTo(libraryId);
+        library.addSession(gatewaySession);
+
+        DebugLogger.log(LIBRARY_MANAGEMENT, "Allocating session %s to library %s%n", sessionId, libraryId);
+
+        final List<Continuation> continuations = new ArrayList<>();
+        if (requiredPosition > 0 && configuration.logOutboundMessages())
+        {
+            continuations.add(() ->
+                sentIndexedPosition(aeronSessionId, requiredPosition) ? COMPLETE : BACK_PRESSURED);
+        }
+
+        continuations.add(() -> saveManageSession(
+            libraryId,
+            gatewaySession,
+            lastSentSeqNum,
+            lastRecvSeqNum,
+            SessionStatus.SESSION_HANDOVER,
+            gatewaySession.sessionKey(),
+            connectionId,
+            session,
+            NO_CORRELATION_ID));
+
+        continuations.add(() ->
+        {
+            gatewaySession.play();
+            return COMPLETE;
+        });
+
+        schedule(new UnitOfWork(continuations));
+    }
+
     void onQueryLibraries(final QueryLibrariesCommand command)
     {
         final List<LibraryInfo> libraries = new ArrayList<>(idToLibrary.values());
@@ -60,10 +60,8 @@ public class FramerContext
         final FixCounters fixCounters,
         final EngineContext engineContext,
         final ErrorHandler errorHandler,
-        final Image replayImage,
-        final Image slowReplayImage,
+        final Image[] replayImages,
         final EngineTimers timers,
-        final AgentInvoker conductorAgentInvoker,
         final RecordingCoordinator recordingCoordinator)
     {
         final SessionIdStrategy sessionIdStrategy = configuration.sessionIdStrategy();
@@ -105,7 +103,8 @@ public class FramerContext
             fixCounters,
             errorHandler,
             gatewaySessions,
-            engineContext.senderSequenceNumbers());
+            engineContext.senderSequenceNumbers(),
+            timers.inboundTimer());
 
         final FinalImagePositions finalImagePositions = new FinalImagePositions();
 
@@ -117,10 +116,7 @@ public class FramerContext
             endPointFactory,
             engineContext.outboundLibrarySubscription(
                 "outboundLibrarySubscription", finalImagePositions),
-            engineContext.outboundLibrarySubscription(
-                "outboundSlowSubscription", null),
-            replayImage,
-            slowReplayImage,
+            replayImages,
             engineContext.inboundReplayQuery(),
             outboundPublication,
             inboundPublication,
@@ -135,7 +131,6 @@ public class FramerContext
             engineContext.inboundCompletionPosition(),
             engineContext.outboundLibraryCompletionPosition(),
             finalImagePositions,
-            conductorAgentInvoker,
             recordingCoordinator);
     }
 
@@ -107,23 +107,20 @@ class GatewaySession implements SessionInfo
 
     void manage(
         final SessionParser sessionParser,
-        final InternalSession session,
-        final BlockablePosition blockablePosition)
+        final InternalSession session)
     {
         this.sessionParser = sessionParser;
         this.session = session;
         this.session.logonListener(logonListener);
         receiverEndPoint.libraryId(ENGINE_LIBRARY_ID);
-        senderEndPoint.libraryId(ENGINE_LIBRARY_ID, blockablePosition);
+        senderEndPoint.libraryId(ENGINE_LIBRARY_ID);
     }
 
-    void handoverManagementTo(
-        final int libraryId,
-        final BlockablePosition blockablePosition)
+    void handoverManagementTo(final int libraryId)
     {
         receiverEndPoint.libraryId(libraryId);
         receiverEndPoint.pause();
-        senderEndPoint.libraryId(libraryId, blockablePosition);
+        senderEndPoint.libraryId(libraryId);
         sessionParser = null;
         session.logonListener(null);
         context.updateAndSaveFrom(session);
@@ -272,6 +269,11 @@ class GatewaySession implements SessionInfo
         return senderEndPoint.bytesInBuffer();
     }
 
+    public long messagesRead()
+    {
+        return receiverEndPoint.messagesRead();
+    }
+
     void close()
     {
         session.close();
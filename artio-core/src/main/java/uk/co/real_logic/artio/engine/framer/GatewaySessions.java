@@ -55,7 +55,6 @@ class GatewaySessions
     private final FixCounters fixCounters;
     private final AuthenticationStrategy authenticationStrategy;
     private final MessageValidationStrategy validationStrategy;
-    private final int sessionBufferSize;
     private final long sendingTimeWindowInMs;
     private final long reasonableTransmissionTimeInMs;
     private final boolean logAllMessages;
@@ -64,6 +63,11 @@ class GatewaySessions
     private final SequenceNumberIndexReader sentSequenceNumberIndex;
     private final SequenceNumberIndexReader receivedSequenceNumberIndex;
 
+    // Shared by all the sessions managed by the gateway, as they're all used on the Framer thread
+    private final MutableAsciiBuffer sessionBuffer;
+    private final SessionProxy.Encoders sessionEncoders = new SessionProxy.Encoders();
+    private final SessionParser.Decoders sessionDecoders = new SessionParser.Decoders();
+
     private ErrorHandler errorHandler;
 
     GatewaySessions(
@@ -91,7 +95,7 @@ class GatewaySessions
         this.fixCounters = fixCounters;
         this.authenticationStrategy = authenticationStrategy;
         this.validationStrategy = validationStrategy;
-        this.sessionBufferSize = sessionBufferSize;
+        this.sessionBuffer = new MutableAsciiBuffer(new byte[sessionBufferSize]);
         this.sendingTimeWindowInMs = sendingTimeWindowInMs;
         this.reasonableTransmissionTimeInMs = reasonableTransmissionTimeInMs;
         this.logAllMessages = logAllMessages;
@@ -110,22 +114,21 @@ class GatewaySessions
         final int lastSentSequenceNumber,
         final int lastReceivedSequenceNumber,
         final String username,
-        final String password,
-        final BlockablePosition engineBlockablePosition)
+        final String password)
     {
         final long connectionId = gatewaySession.connectionId();
         final AtomicCounter receivedMsgSeqNo = fixCounters.receivedMsgSeqNo(connectionId);
         final AtomicCounter sentMsgSeqNo = fixCounters.sentMsgSeqNo(connectionId);
-        final MutableAsciiBuffer asciiBuffer = new MutableAsciiBuffer(new byte[sessionBufferSize]);
 
         final SessionProxy proxy = new SessionProxy(
-            asciiBuffer,
+            sessionBuffer,
             outboundPublication,
             sessionIdStrategy,
             customisationStrategy,
             clock,
             connectionId,
-            FixEngine.ENGINE_LIBRARY_ID);
+            FixEngine.ENGINE_LIBRARY_ID,
+            sessionEncoders);
 
         final InternalSession session = new InternalSession(
             heartbeatIntervalInS,
@@ -143,7 +146,7 @@ class GatewaySessions
             // This gets set by the receiver end point once the logon message has been received.
             0,
             reasonableTransmissionTimeInMs,
-            asciiBuffer,
+            sessionBuffer,
             gatewaySession.enableLastMsgSeqNumProcessed());
 
         session.awaitingResend(awaitingResend);
@@ -154,10 +157,11 @@ class GatewaySessions
         final SessionParser sessionParser = new SessionParser(
             session,
             sessionIdStrategy, validationStrategy,
-            errorHandler);
+            errorHandler,
+            sessionDecoders);
 
         sessions.add(gatewaySession);
-        gatewaySession.manage(sessionParser, session, engineBlockablePosition);
+        gatewaySession.manage(sessionParser, session);
 
         final CompositeKey sessionKey = gatewaySession.sessionKey();
         DebugLogger.log(FIX_CONNECTION, "Gateway Acquired Session %d%n", connectionId);
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import uk.co.real_logic.artio.engine.SessionInfo;
+
+import java.util.List;
+
+/**
+ * Allocates to the library whose sessions have read the fewest messages in total, breaking ties by the number of
+ * sessions and then by the lowest library id.
+ *
+ * The messages read counters are per connection and cumulative, so a long lived busy counterparty weighs more than a
+ * quiet or recently connected one.
+ */
+class LeastLoadedSessionAllocationStrategy implements SessionAllocationStrategy
+{
+    public int allocate(final SessionInfo session, final List<LibraryInfo> libraries)
+    {
+        int bestLibraryId = 0;
+        long bestMessagesRead = Long.MAX_VALUE;
+        int bestSessionCount = Integer.MAX_VALUE;
+
+        for (int i = 0, size = libraries.size(); i < size; i++)
+        {
+            final LibraryInfo library = libraries.get(i);
+            final int libraryId = library.libraryId();
+            final List<SessionInfo> sessions = library.sessions();
+            final int sessionCount = sessions.size();
+
+            long messagesRead = 0;
+            for (int j = 0; j < sessionCount; j++)
+            {
+                messagesRead += sessions.get(j).messagesRead();
+            }
+
+            if (messagesRead < bestMessagesRead ||
+                (messagesRead == bestMessagesRead &&
+                (sessionCount < bestSessionCount || (sessionCount == bestSessionCount && libraryId < bestLibraryId))))
+            {
+                bestLibraryId = libraryId;
+                bestMessagesRead = messagesRead;
+                bestSessionCount = sessionCount;
+            }
+        }
+
+        return bestLibraryId;
+    }
+}
@@ -18,7 +18,6 @@ package uk.co.real_logic.artio.engine.framer;
 import org.agrona.collections.Long2ObjectHashMap;
 import uk.co.real_logic.artio.LivenessDetector;
 import uk.co.real_logic.artio.engine.SessionInfo;
-import uk.co.real_logic.artio.engine.framer.SubscriptionSlowPeeker.LibrarySlowPeeker;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -31,7 +30,6 @@ final class LiveLibraryInfo implements LibraryInfo
     private final String libraryName;
     private final LivenessDetector livenessDetector;
     private final int aeronSessionId;
-    private final LibrarySlowPeeker librarySlowPeeker;
     private final List<GatewaySession> allSessions = new CopyOnWriteArrayList<>();
     private final List<SessionInfo> unmodifiableAllSessions = unmodifiableList(allSessions);
     private final Long2ObjectHashMap<ConnectingSession> correlationIdToConnectingSession = new Long2ObjectHashMap<>();
@@ -42,14 +40,12 @@ final class LiveLibraryInfo implements LibraryInfo
         final int libraryId,
         final String libraryName,
         final LivenessDetector livenessDetector,
-        final int aeronSessionId,
-        final LibrarySlowPeeker librarySlowPeeker)
+        final int aeronSessionId)
     {
         this.libraryId = libraryId;
         this.libraryName = libraryName;
         this.livenessDetector = livenessDetector;
         this.aeronSessionId = aeronSessionId;
-        this.librarySlowPeeker = librarySlowPeeker;
     }
 
     public int libraryId()
@@ -120,11 +116,6 @@ final class LiveLibraryInfo implements LibraryInfo
         return acquireAtPosition;
     }
 
-    LibrarySlowPeeker librarySlowPeeker()
-    {
-        return librarySlowPeeker;
-    }
-
     public boolean equals(final Object o)
     {
         if (this == o)
@@ -146,11 +137,6 @@ final class LiveLibraryInfo implements LibraryInfo
         return libraryId;
     }
 
-    void releaseSlowPeeker()
-    {
-        librarySlowPeeker.removeLibrary();
-    }
-
     void connectionStartsConnecting(final long correlationId, final ConnectingSession connectingSession)
     {
         correlationIdToConnectingSession.put(correlationId, connectingSession);
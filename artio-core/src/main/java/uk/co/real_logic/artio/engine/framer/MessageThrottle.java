@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+
+import static org.agrona.BitUtil.SIZE_OF_INT;
+
+/**
+ * Token bucket that limits the rate at which messages are sent on a connection, with an off-heap FIFO of the
+ * messages that have been held back by it.
+ *
+ * Tokens are accounted in thousandths of a message so that rates that aren't a multiple of 1000 messages per second
+ * still refill smoothly with a millisecond clock.
+ */
+class MessageThrottle
+{
+    interface MessageHandler
+    {
+        // Returns true to carry on draining messages, false to stop.
+        boolean onMessage(
+            int messageType, DirectBuffer buffer, int offset, int length, int sequenceNumber, long timeInMs);
+    }
+
+    private static final long MILLI_TOKENS_PER_MESSAGE = 1000;
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final int LENGTH_OFFSET = 0;
+    private static final int SEQUENCE_NUMBER_OFFSET = LENGTH_OFFSET + SIZE_OF_INT;
+    private static final int MESSAGE_TYPE_OFFSET = SEQUENCE_NUMBER_OFFSET + SIZE_OF_INT;
+    private static final int HEADER_LENGTH = MESSAGE_TYPE_OFFSET + SIZE_OF_INT;
+
+    private final long messagesPerSecond;
+    private final long maxMilliTokens;
+    private final AtomicCounter throttledMessages;
+
+    private long milliTokens;
+    private long lastRefillTimeInMs;
+
+    private ExpandableDirectByteBuffer buffer;
+    private int readOffset;
+    private int writeOffset;
+    private int queuedMessageBytes;
+
+    MessageThrottle(
+        final int messagesPerSecond,
+        final int burst,
+        final AtomicCounter throttledMessages,
+        final long timeInMs)
+    {
+        this.messagesPerSecond = messagesPerSecond;
+        this.maxMilliTokens = Math.max(1, burst) * MILLI_TOKENS_PER_MESSAGE;
+        this.throttledMessages = throttledMessages;
+
+        milliTokens = maxMilliTokens;
+        lastRefillTimeInMs = timeInMs;
+    }
+
+    /**
+     * Attempt to send a message without queueing it. Only succeeds if no earlier messages are queued.
+     *
+     * @param timeInMs the current time.
+     * @return true if the message can be sent now, false if it should be queued.
+     */
+    boolean tryAcquire(final long timeInMs)
+    {
+        return isEmpty() && acquire(timeInMs);
+    }
+
+    void enqueue(
+        final int messageType,
+        final DirectBuffer srcBuffer,
+        final int srcOffset,
+        final int length,
+        final int sequenceNumber)
+    {
+        final int frameLength = HEADER_LENGTH + length;
+        if (buffer == null)
+        {
+            buffer = new ExpandableDirectByteBuffer(Math.max(INITIAL_CAPACITY, frameLength));
+        }
+        else if (readOffset > 0 && writeOffset + frameLength > buffer.capacity())
+        {
+            compact();
+        }
+
+        final ExpandableDirectByteBuffer buffer = this.buffer;
+        final int writeOffset = this.writeOffset;
+        buffer.putInt(writeOffset + LENGTH_OFFSET, length);
+        buffer.putInt(writeOffset + SEQUENCE_NUMBER_OFFSET, sequenceNumber);
+        buffer.putInt(writeOffset + MESSAGE_TYPE_OFFSET, messageType);
+        buffer.putBytes(writeOffset + HEADER_LENGTH, srcBuffer, srcOffset, length);
+        this.writeOffset = writeOffset + frameLength;
+        queuedMessageBytes += length;
+
+        throttledMessages.increment();
+    }
+
+    /**
+     * Hand queued messages to the handler, in order, for as long as the rate permits.
+     *
+     * @param timeInMs the current time.
+     * @param handler the handler that sends the messages.
+     * @return the number of messages handed to the handler.
+     */
+    int drain(final long timeInMs, final MessageHandler handler)
+    {
+        int messages = 0;
+        while (!isEmpty() && acquire(timeInMs))
+        {
+            final ExpandableDirectByteBuffer buffer = this.buffer;
+            final int readOffset = this.readOffset;
+            final int length = buffer.getInt(readOffset + LENGTH_OFFSET);
+            final int sequenceNumber = buffer.getInt(readOffset + SEQUENCE_NUMBER_OFFSET);
+            final int messageType = buffer.getInt(readOffset + MESSAGE_TYPE_OFFSET);
+            this.readOffset = readOffset + HEADER_LENGTH + length;
+            queuedMessageBytes -= length;
+
+            messages++;
+            if (!handler.onMessage(
+                messageType, buffer, readOffset + HEADER_LENGTH, length, sequenceNumber, timeInMs))
+            {
+                break;
+            }
+        }
+
+        if (isEmpty())
+        {
+            readOffset = 0;
+            writeOffset = 0;
+        }
+
+        return messages;
+    }
+
+    void close()
+    {
+        throttledMessages.close();
+    }
+
+    // Only counts the bytes of the queued messages themselves, not the framing that the queue adds
+    int size()
+    {
+        return queuedMessageBytes;
+    }
+
+    boolean isEmpty()
+    {
+        return readOffset == writeOffset;
+    }
+
+    private boolean acquire(final long timeInMs)
+    {
+        final long elapsedInMs = timeInMs - lastRefillTimeInMs;
+        if (elapsedInMs > 0)
+        {
+            milliTokens = Math.min(maxMilliTokens, milliTokens + elapsedInMs * messagesPerSecond);
+            lastRefillTimeInMs = timeInMs;
+        }
+
+        if (milliTokens >= MILLI_TOKENS_PER_MESSAGE)
+        {
+            milliTokens -= MILLI_TOKENS_PER_MESSAGE;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void compact()
+    {
+        final int size = writeOffset - readOffset;
+        buffer.putBytes(0, buffer, readOffset, size);
+        readOffset = 0;
+        writeOffset = size;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import uk.co.real_logic.artio.engine.ByteBufferUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Off-heap FIFO of bytes that are waiting to be written to a {@link TcpChannel}.
+ *
+ * The backing buffer is only allocated once something is first appended, and grows on demand, so connections that
+ * never fall behind don't pay for it. Bounding the number of bytes held is the responsibility of the caller.
+ */
+class OverflowBuffer
+{
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+
+    private ExpandableDirectByteBuffer buffer;
+    private int readOffset;
+    private int writeOffset;
+
+    void append(final DirectBuffer srcBuffer, final int srcOffset, final int length)
+    {
+        if (buffer == null)
+        {
+            buffer = new ExpandableDirectByteBuffer(Math.max(INITIAL_CAPACITY, length));
+        }
+        else if (readOffset > 0 && writeOffset + length > buffer.capacity())
+        {
+            compact();
+        }
+
+        buffer.putBytes(writeOffset, srcBuffer, srcOffset, length);
+        writeOffset += length;
+    }
+
+    void appendTo(final OverflowBuffer destination)
+    {
+        if (!isEmpty())
+        {
+            destination.append(buffer, readOffset, size());
+            clear();
+        }
+    }
+
+    int writeTo(final TcpChannel channel) throws IOException
+    {
+        if (isEmpty())
+        {
+            return 0;
+        }
+
+        final ByteBuffer byteBuffer = buffer.byteBuffer();
+        ByteBufferUtil.limit(byteBuffer, writeOffset);
+        ByteBufferUtil.position(byteBuffer, readOffset);
+
+        final int written = channel.write(byteBuffer);
+        readOffset += written;
+
+        if (isEmpty())
+        {
+            clear();
+        }
+
+        return written;
+    }
+
+    int size()
+    {
+        return writeOffset - readOffset;
+    }
+
+    boolean isEmpty()
+    {
+        return readOffset == writeOffset;
+    }
+
+    void clear()
+    {
+        readOffset = 0;
+        writeOffset = 0;
+    }
+
+    private void compact()
+    {
+        final int size = size();
+        buffer.putBytes(0, buffer, readOffset, size);
+        readOffset = 0;
+        writeOffset = size;
+    }
+}
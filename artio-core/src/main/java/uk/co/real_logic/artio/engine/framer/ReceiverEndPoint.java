@@ -17,14 +17,19 @@ package uk.co.real_logic.artio.engine.framer;
 
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.status.AtomicCounter;
+import uk.co.real_logic.artio.Clock;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.Pressure;
+import uk.co.real_logic.artio.SessionCounters;
 import uk.co.real_logic.artio.decoder.LogonDecoder;
+import uk.co.real_logic.artio.decoder.RejectDecoder;
+import uk.co.real_logic.artio.decoder.ResendRequestDecoder;
 import uk.co.real_logic.artio.dictionary.StandardFixConstants;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
 import uk.co.real_logic.artio.messages.DisconnectReason;
 import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.timing.Timer;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import java.io.IOException;
@@ -50,6 +55,9 @@ import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
  * The receiver end point frames the TCP FIX messages into Aeron fragments.
  * It also handles backpressure coming from the Aeron stream and applies it to
  * its own TCP connections.
+ * <p>
+ * If the engine is configured with session counters then the bytes, resend requests and rejects received and the
+ * times that the inbound publication applied back pressure are counted.
  */
 class ReceiverEndPoint
 {
@@ -81,6 +89,10 @@ class ReceiverEndPoint
     private final MutableAsciiBuffer buffer;
     private final ByteBuffer byteBuffer;
     private final GatewaySessions gatewaySessions;
+    private final Clock clock;
+    private final Timer inboundTimer;
+    // null if the engine isn't configured with session counters
+    private final SessionCounters sessionCounters;
 
     private int libraryId;
     private GatewaySession gatewaySession;
@@ -90,6 +102,8 @@ class ReceiverEndPoint
     private boolean hasDisconnected = false;
     private SelectionKey selectionKey;
     private boolean isPaused = false;
+    // Time that the most recent data was read off the socket, carried as the timestamp of messages framed from it.
+    private long readTimestamp;
 
     private AuthenticationResult backpressuredAuthenticationResult;
     private int backpressuredAuthenticationOffset;
@@ -107,7 +121,10 @@ class ReceiverEndPoint
         final Framer framer,
         final ErrorHandler errorHandler,
         final int libraryId,
-        final GatewaySessions gatewaySessions)
+        final GatewaySessions gatewaySessions,
+        final Clock clock,
+        final Timer inboundTimer,
+        final SessionCounters sessionCounters)
     {
         Objects.requireNonNull(publication, "publication");
         Objects.requireNonNull(sessionContexts, "sessionContexts");
@@ -124,6 +141,9 @@ class ReceiverEndPoint
         this.errorHandler = errorHandler;
         this.libraryId = libraryId;
         this.gatewaySessions = gatewaySessions;
+        this.clock = clock;
+        this.inboundTimer = inboundTimer;
+        this.sessionCounters = sessionCounters;
 
         byteBuffer = ByteBuffer.allocateDirect(bufferSize);
         buffer = new MutableAsciiBuffer(byteBuffer);
@@ -202,6 +222,7 @@ class ReceiverEndPoint
         {
             if (dataRead > 0)
             {
+                readTimestamp = clock.time();
                 DebugLogger.log(FIX_MESSAGE, "Read     %s%n", buffer, 0, dataRead);
             }
             usedBufferData += dataRead;
@@ -429,6 +450,7 @@ class ReceiverEndPoint
         final boolean backPressured = Pressure.isBackPressured(position);
         if (backPressured)
         {
+            onBackPressured();
             moveRemainingDataToBufferStart(offset);
         }
 
@@ -446,20 +468,49 @@ class ReceiverEndPoint
             sequenceIndex,
             connectionId,
             OK,
-            0);
+            0,
+            readTimestamp);
 
         if (Pressure.isBackPressured(position))
         {
+            onBackPressured();
             moveRemainingDataToBufferStart(offset);
             return false;
         }
         else
         {
+            if (sessionCounters != null)
+            {
+                countMessage(messageType, length);
+            }
+            inboundTimer.recordSince(readTimestamp);
             gatewaySession.onMessage(buffer, offset, length, messageType, sessionId);
             return true;
         }
     }
 
+    private void countMessage(final int messageType, final int length)
+    {
+        final SessionCounters sessionCounters = this.sessionCounters;
+        sessionCounters.bytesRead().getAndAddOrdered(length);
+        if (messageType == ResendRequestDecoder.MESSAGE_TYPE)
+        {
+            sessionCounters.resendRequestsReceived().incrementOrdered();
+        }
+        else if (messageType == RejectDecoder.MESSAGE_TYPE)
+        {
+            sessionCounters.rejectsReceived().incrementOrdered();
+        }
+    }
+
+    private void onBackPressured()
+    {
+        if (sessionCounters != null)
+        {
+            sessionCounters.backPressureEvents().incrementOrdered();
+        }
+    }
+
     private boolean validateBodyLength(final int startOfChecksumTag)
     {
         return isStartOfChecksum(startOfChecksumTag);
@@ -527,7 +578,8 @@ class ReceiverEndPoint
             sequenceIndex,
             connectionId,
             INVALID_BODYLENGTH,
-            0);
+            0,
+            readTimestamp);
 
         return stashIfBackPressured(offset, position);
     }
@@ -543,7 +595,8 @@ class ReceiverEndPoint
             sequenceIndex,
             connectionId,
             INVALID,
-            0);
+            0,
+            readTimestamp);
 
         final boolean backPressured = stashIfBackPressured(offset, position);
 
@@ -569,7 +622,8 @@ class ReceiverEndPoint
             sequenceIndex,
             connectionId,
             INVALID_CHECKSUM,
-            0);
+            0,
+            readTimestamp);
 
         return stashIfBackPressured(offset, position);
     }
@@ -636,6 +690,11 @@ class ReceiverEndPoint
         return hasDisconnected;
     }
 
+    long messagesRead()
+    {
+        return messagesRead.get();
+    }
+
     public void register(final Selector selector) throws IOException
     {
         selectionKey = channel.register(selector, OP_READ, this);
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import uk.co.real_logic.artio.engine.SessionInfo;
+
+import java.util.List;
+
+/**
+ * Allocates to the library with the lowest id above the last library allocated to, wrapping around to the lowest
+ * id. This doesn't depend upon the order in which libraries are passed in and copes with libraries connecting and
+ * disconnecting between allocations.
+ */
+class RoundRobinSessionAllocationStrategy implements SessionAllocationStrategy
+{
+    private int lastLibraryId = Integer.MIN_VALUE;
+
+    public int allocate(final SessionInfo session, final List<LibraryInfo> libraries)
+    {
+        int nextLibraryId = Integer.MAX_VALUE;
+        int lowestLibraryId = Integer.MAX_VALUE;
+        boolean hasNext = false;
+
+        for (int i = 0, size = libraries.size(); i < size; i++)
+        {
+            final int libraryId = libraries.get(i).libraryId();
+            lowestLibraryId = Math.min(lowestLibraryId, libraryId);
+            if (libraryId > lastLibraryId && libraryId <= nextLibraryId)
+            {
+                nextLibraryId = libraryId;
+                hasNext = true;
+            }
+        }
+
+        lastLibraryId = hasNext ? nextLibraryId : lowestLibraryId;
+        return lastLibraryId;
+    }
+}
@@ -16,14 +16,15 @@
 package uk.co.real_logic.artio.engine.framer;
 
 import io.aeron.logbuffer.ControlledFragmentHandler.Action;
-import io.aeron.protocol.DataHeaderFlyweight;
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.status.AtomicCounter;
 import uk.co.real_logic.artio.DebugLogger;
+import uk.co.real_logic.artio.SessionCounters;
+import uk.co.real_logic.artio.decoder.RejectDecoder;
+import uk.co.real_logic.artio.decoder.SequenceResetDecoder;
 import uk.co.real_logic.artio.engine.ByteBufferUtil;
 import uk.co.real_logic.artio.engine.SenderSequenceNumber;
-import uk.co.real_logic.artio.engine.logger.ArchiveDescriptor;
 import uk.co.real_logic.artio.messages.DisconnectReason;
 
 import java.io.IOException;
@@ -34,8 +35,24 @@ import static uk.co.real_logic.artio.LogTag.FIX_MESSAGE;
 import static uk.co.real_logic.artio.engine.FixEngine.ENGINE_LIBRARY_ID;
 import static uk.co.real_logic.artio.messages.DisconnectReason.EXCEPTION;
 import static uk.co.real_logic.artio.messages.DisconnectReason.SLOW_CONSUMER;
-import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 
+/**
+ * Writes outbound and replayed messages to a TCP connection.
+ *
+ * When the counterparty can't keep up the bytes that couldn't be written are copied into a per connection overflow
+ * buffer and retried on subsequent duty cycles, so a slow consumer never holds back the streams that are shared
+ * between connections. A connection is disconnected as a slow consumer if it buffers more than
+ * {@code maxBytesInBuffer} or makes no progress for {@code slowConsumerTimeoutInMs}.
+ *
+ * If the engine is configured with a throttle then messages from libraries that exceed the permitted rate are queued
+ * by a {@link MessageThrottle} and sent as the rate allows on subsequent duty cycles. Whilst a connection is either
+ * throttled or buffering its library is told that the session is slow.
+ *
+ * If the engine is configured with session counters then the messages and bytes sent, replays and time spent slow
+ * are counted. Bytes are counted as they're written to the TCP connection. Messages from libraries are counted once
+ * they've been let through the throttle and either written or queued behind bytes that are already waiting to be
+ * written, so a message that is throttled or held back by a replay isn't counted until it is released.
+ */
 class SenderEndPoint
 {
     private final long connectionId;
@@ -46,20 +63,34 @@ class SenderEndPoint
     private final Framer framer;
     private final int maxBytesInBuffer;
     private final long slowConsumerTimeoutInMs;
-    private final StreamTracker outboundTracker;
-    private final StreamTracker replayTracker;
     private final SenderSequenceNumber senderSequenceNumber;
+    // null if the engine isn't configured with a throttle
+    private final MessageThrottle throttle;
+    private final MessageThrottle.MessageHandler sendPermittedMessage = this::onPermittedMessage;
+    // null if the engine isn't configured with session counters
+    private final SessionCounters sessionCounters;
+    // Bytes that have been accepted for this connection but not yet written, in the order they're to be written.
+    private final OverflowBuffer overflowBuffer = new OverflowBuffer();
+    // Messages from the library that are held back until an in progress replay completes.
+    private final OverflowBuffer pausedBuffer = new OverflowBuffer();
 
     private int libraryId;
     private long sessionId;
     private long sendingTimeoutTimeInMs;
     private boolean replayPaused;
+    // Sequence number of the last message held back in the pausedBuffer, recorded once the replay completes
+    private int lastPausedSequenceNumber;
+    // Messages and rejects held back in the pausedBuffer, counted once the replay completes
+    private int pausedMessages;
+    private int pausedRejects;
+    private boolean hasSentSlowStatus;
+    private long slowSinceTimeInMs;
+    // Set once the endpoint has been removed or closed, after which nothing more is written to its channel
+    private boolean removed;
 
     SenderEndPoint(
         final long connectionId,
         final int libraryId,
-        final BlockablePosition outboundBlockablePosition,
-        final BlockablePosition replayBlockablePosition,
         final TcpChannel channel,
         final AtomicCounter bytesInBuffer,
         final AtomicCounter invalidLibraryAttempts,
@@ -68,7 +99,9 @@ class SenderEndPoint
         final int maxBytesInBuffer,
         final long slowConsumerTimeoutInMs,
         final long timeInMs,
-        final SenderSequenceNumber senderSequenceNumber)
+        final SenderSequenceNumber senderSequenceNumber,
+        final MessageThrottle throttle,
+        final SessionCounters sessionCounters)
     {
         this.connectionId = connectionId;
         this.libraryId = libraryId;
@@ -80,19 +113,19 @@ class SenderEndPoint
         this.maxBytesInBuffer = maxBytesInBuffer;
         this.slowConsumerTimeoutInMs = slowConsumerTimeoutInMs;
         this.senderSequenceNumber = senderSequenceNumber;
+        this.throttle = throttle;
+        this.sessionCounters = sessionCounters;
 
-        outboundTracker = new StreamTracker(outboundBlockablePosition);
-        replayTracker = new StreamTracker(replayBlockablePosition);
         sendingTimeoutTimeInMs = timeInMs + slowConsumerTimeoutInMs;
     }
 
     void onOutboundMessage(
         final int libraryId,
+        final int messageType,
         final DirectBuffer directBuffer,
         final int offset,
         final int bodyLength,
         final int sequenceNumber,
-        final long position,
         final long timeInMs)
     {
         if (isWrongLibraryId(libraryId))
@@ -101,64 +134,203 @@ class SenderEndPoint
             return;
         }
 
-        if (replayPaused)
+        if (throttle != null && !throttle.tryAcquire(timeInMs))
         {
-            dropFurtherBehind(bodyLength);
+            if (checkBytesInBuffer(bodyLength))
+            {
+                throttle.enqueue(messageType, directBuffer, offset, bodyLength, sequenceNumber);
+                becomeSlowConsumer(timeInMs);
+            }
 
             return;
         }
 
-        attemptFramedMessage(directBuffer, offset, bodyLength, timeInMs, position, outboundTracker);
+        onPermittedMessage(messageType, directBuffer, offset, bodyLength, sequenceNumber, timeInMs);
+    }
+
+    // Returns false once the endpoint has been removed, so that no further messages are sent to it.
+    private boolean onPermittedMessage(
+        final int messageType,
+        final DirectBuffer directBuffer,
+        final int offset,
+        final int bodyLength,
+        final int sequenceNumber,
+        final long timeInMs)
+    {
+        if (removed)
+        {
+            return false;
+        }
+
+        final boolean isReject = messageType == RejectDecoder.MESSAGE_TYPE;
+        if (replayPaused)
+        {
+            bufferMessage(pausedBuffer, directBuffer, offset, bodyLength);
+            lastPausedSequenceNumber = sequenceNumber;
+            pausedMessages++;
+            if (isReject)
+            {
+                pausedRejects++;
+            }
+
+            return !removed;
+        }
+
+        sendMessage(directBuffer, offset, bodyLength, timeInMs);
 
         senderSequenceNumber.onNewMessage(sequenceNumber);
+
+        if (removed)
+        {
+            return false;
+        }
+
+        if (sessionCounters != null)
+        {
+            sessionCounters.messagesSent().incrementOrdered();
+            if (isReject)
+            {
+                sessionCounters.rejectsSent().incrementOrdered();
+            }
+        }
+
+        return true;
     }
 
     Action onReplayMessage(
+        final int messageType,
         final DirectBuffer directBuffer,
         final int offset,
         final int bodyLength,
-        final long timeInMs,
-        final long position)
+        final long timeInMs)
     {
-        if (!isSlowConsumer())
+        replayPaused = true;
+
+        if (sessionCounters != null)
         {
-            replayPaused = true;
+            if (messageType == SequenceResetDecoder.MESSAGE_TYPE)
+            {
+                sessionCounters.gapFillsSent().incrementOrdered();
+            }
+            else
+            {
+                sessionCounters.messagesResent().incrementOrdered();
+            }
         }
 
-        attemptFramedMessage(directBuffer, offset, bodyLength, timeInMs, position, replayTracker);
+        sendMessage(directBuffer, offset, bodyLength, timeInMs);
 
         return CONTINUE;
     }
 
-    Action onSlowReplayMessage(
-        final DirectBuffer buffer,
-        final int offset,
-        final int bodyLength,
-        final long timeInMs,
-        final long position)
+    Action onReplayComplete(final long timeInMs)
     {
-        if (!outboundTracker.partiallySentMessage)
+        replayPaused = false;
+
+        if (sessionCounters != null)
         {
-            replayPaused = true;
+            sessionCounters.resendRequestsServed().incrementOrdered();
         }
 
-        final int offsetAfterHeader = offset - FRAME_SIZE;
-        final int length = bodyLength + FRAME_SIZE;
+        if (removed || pausedBuffer.isEmpty())
+        {
+            return CONTINUE;
+        }
+
+        senderSequenceNumber.onNewMessage(lastPausedSequenceNumber);
+
+        if (isSlowConsumer())
+        {
+            pausedBuffer.appendTo(overflowBuffer);
+            countPausedMessages();
+            return CONTINUE;
+        }
 
-        return attemptSlowMessage(buffer, offsetAfterHeader, length, position, bodyLength, timeInMs, replayTracker);
+        try
+        {
+            final int written = pausedBuffer.writeTo(channel);
+            onBytesWritten(timeInMs, written);
+
+            if (!pausedBuffer.isEmpty())
+            {
+                pausedBuffer.appendTo(overflowBuffer);
+                becomeSlowConsumer(timeInMs);
+            }
+
+            updateBytesInBuffer();
+            countPausedMessages();
+        }
+        catch (final IOException ex)
+        {
+            onError(ex);
+        }
+
+        return CONTINUE;
+    }
+
+    private void countPausedMessages()
+    {
+        if (sessionCounters != null)
+        {
+            sessionCounters.messagesSent().getAndAddOrdered(pausedMessages);
+            if (pausedRejects > 0)
+            {
+                sessionCounters.rejectsSent().getAndAddOrdered(pausedRejects);
+            }
+        }
+        pausedMessages = 0;
+        pausedRejects = 0;
+    }
+
+    int poll(final long timeInMs)
+    {
+        int workCount = 0;
+        if (isThrottled())
+        {
+            workCount += throttle.drain(timeInMs, sendPermittedMessage);
+            if (removed)
+            {
+                return workCount;
+            }
+            updateBytesInBuffer();
+        }
+
+        if (isSlowConsumer())
+        {
+            try
+            {
+                final int written = overflowBuffer.writeTo(channel);
+                onBytesWritten(timeInMs, written);
+                updateBytesInBuffer();
+
+                if (written > 0)
+                {
+                    workCount++;
+                }
+            }
+            catch (final IOException ex)
+            {
+                onError(ex);
+
+                return workCount + 1;
+            }
+        }
+
+        becomeNormalConsumerIfDrained(timeInMs);
+
+        return workCount;
     }
 
-    private void attemptFramedMessage(
+    private void sendMessage(
         final DirectBuffer directBuffer,
         final int offset,
         final int bodyLength,
-        final long timeInMs,
-        final long position,
-        final StreamTracker tracker)
+        final long timeInMs)
     {
         if (isSlowConsumer())
         {
-            dropFurtherBehind(bodyLength);
+            // Preserve ordering with the bytes that are already waiting to be written.
+            bufferMessage(overflowBuffer, directBuffer, offset, bodyLength);
 
             return;
         }
@@ -169,11 +341,12 @@ class SenderEndPoint
 
             if (written != bodyLength)
             {
-                becomeSlowConsumer(written, bodyLength, position, tracker);
-            }
-            else
-            {
-                tracker.sentPosition = position;
+                bufferMessage(overflowBuffer, directBuffer, offset + written, bodyLength - written);
+
+                if (isSlowConsumer())
+                {
+                    becomeSlowConsumer(timeInMs);
+                }
             }
         }
         catch (final IOException ex)
@@ -182,15 +355,39 @@ class SenderEndPoint
         }
     }
 
-    private void dropFurtherBehind(final int bodyLength)
+    private void bufferMessage(
+        final OverflowBuffer buffer, final DirectBuffer directBuffer, final int offset, final int length)
+    {
+        if (checkBytesInBuffer(length))
+        {
+            buffer.append(directBuffer, offset, length);
+        }
+    }
+
+    // Returns false, and disconnects, if buffering another length bytes would exceed the limit.
+    private boolean checkBytesInBuffer(final int length)
     {
-        final long bytesInBuffer = bytesInBufferWeak() + bodyLength;
+        final long bytesInBuffer = bufferedBytes() + length;
+        this.bytesInBuffer.setOrdered(bytesInBuffer);
+
         if (bytesInBuffer > maxBytesInBuffer)
         {
             removeEndpoint(SLOW_CONSUMER);
+
+            return false;
         }
 
-        this.bytesInBuffer.setOrdered(bytesInBuffer);
+        return true;
+    }
+
+    private void updateBytesInBuffer()
+    {
+        bytesInBuffer.setOrdered(bufferedBytes());
+    }
+
+    private long bufferedBytes()
+    {
+        return overflowBuffer.size() + pausedBuffer.size() + (throttle == null ? 0 : throttle.size());
     }
 
     private int writeFramedMessage(
@@ -206,16 +403,20 @@ class SenderEndPoint
 
         final int written = channel.write(buffer);
         DebugLogger.log(FIX_MESSAGE, "Written  %s%n", buffer, written);
-        updateSendingTimeoutTimeInMs(timeInMs, written);
+        onBytesWritten(timeInMs, written);
 
         return written;
     }
 
-    private void updateSendingTimeoutTimeInMs(final long timeInMs, final int written)
+    private void onBytesWritten(final long timeInMs, final int written)
     {
         if (written > 0)
         {
             sendingTimeoutTimeInMs = timeInMs + slowConsumerTimeoutInMs;
+            if (sessionCounters != null)
+            {
+                sessionCounters.bytesSent().getAndAddOrdered(written);
+            }
         }
     }
 
@@ -226,19 +427,27 @@ class SenderEndPoint
         removeEndpoint(EXCEPTION);
     }
 
-    private void becomeSlowConsumer(
-        final int written, final int bodyLength, final long position, final StreamTracker tracker)
+    private void becomeSlowConsumer(final long timeInMs)
     {
-        final int remainingBytes = bodyLength - written;
-        bytesInBuffer.setOrdered(remainingBytes);
-        sendSlowStatus(true);
-        tracker.sentPosition = position - remainingBytes;
-        tracker.partiallySentMessage = true;
+        if (!hasSentSlowStatus)
+        {
+            hasSentSlowStatus = true;
+            slowSinceTimeInMs = timeInMs;
+            sendSlowStatus(true);
+        }
     }
 
-    private void becomeNormalConsumer()
+    private void becomeNormalConsumerIfDrained(final long timeInMs)
     {
-        sendSlowStatus(false);
+        if (hasSentSlowStatus && !isSlowConsumer() && !isThrottled())
+        {
+            hasSentSlowStatus = false;
+            if (sessionCounters != null)
+            {
+                sessionCounters.slowTimeInMs().getAndAddOrdered(timeInMs - slowSinceTimeInMs);
+            }
+            sendSlowStatus(false);
+        }
     }
 
     private void sendSlowStatus(final boolean hasBecomeSlow)
@@ -248,6 +457,7 @@ class SenderEndPoint
 
     private void removeEndpoint(final DisconnectReason reason)
     {
+        removed = true;
         framer.onDisconnect(libraryId, connectionId, reason);
     }
 
@@ -256,10 +466,9 @@ class SenderEndPoint
         return connectionId;
     }
 
-    public void libraryId(final int libraryId, final BlockablePosition blockablePosition)
+    public void libraryId(final int libraryId)
     {
         this.libraryId = libraryId;
-        this.outboundTracker.blockablePosition = blockablePosition;
     }
 
     public int libraryId()
@@ -269,137 +478,17 @@ class SenderEndPoint
 
     public void close()
     {
+        removed = true;
         bytesInBuffer.close();
         invalidLibraryAttempts.close();
-    }
-
-    Action onSlowOutboundMessage(
-        final DirectBuffer directBuffer,
-        final int offsetAfterHeader,
-        final int length,
-        final long position,
-        final int bodyLength,
-        final int libraryId,
-        final long timeInMs)
-    {
-        if (isWrongLibraryId(libraryId))
-        {
-            invalidLibraryAttempts.increment();
-            return CONTINUE;
-        }
-
-        if (replayPaused)
-        {
-            return blockPosition(position, length, outboundTracker);
-        }
-
-        return attemptSlowMessage(
-            directBuffer, offsetAfterHeader, length, position, bodyLength, timeInMs, outboundTracker);
-    }
-
-    private Action attemptSlowMessage(
-        final DirectBuffer directBuffer,
-        final int offsetAfterHeader,
-        final int length,
-        final long position,
-        final int bodyLength,
-        final long timeInMs,
-        final StreamTracker tracker)
-    {
-        if (!isSlowConsumer())
-        {
-            return CONTINUE;
-        }
-
-        // Skip all messages beyond the skip position, since this endpoint has been blocked but others
-        // Scanning forward.
-        final long skipPosition = tracker.skipPosition;
-        if (position > skipPosition)
-        {
-            return CONTINUE;
-        }
-
-        // Skip messages where the end point has become a slow consumer, but
-        // the slow consumer stream hasn't polled up to update with the regular stream
-        final long sentPosition = tracker.sentPosition;
-        if (position <= sentPosition)
-        {
-            return CONTINUE;
-        }
-
-        if (partiallySentOtherStream(tracker))
+        if (throttle != null)
         {
-            return blockPosition(position, length, tracker);
+            throttle.close();
         }
-
-        try
+        if (sessionCounters != null)
         {
-            final long startOfMessage = position - length;
-            final int remainingLength;
-            final int bytesPreviouslySent;
-
-            // You've complete the stream and there's another message in between.
-            if (sentPosition < startOfMessage)
-            {
-                remainingLength = bodyLength;
-                bytesPreviouslySent = 0;
-            }
-            else
-            {
-                remainingLength = (int)(position - sentPosition);
-                bytesPreviouslySent = bodyLength - remainingLength;
-            }
-
-            final int dataOffset = offsetAfterHeader + FRAME_SIZE + bytesPreviouslySent;
-            final ByteBuffer buffer = directBuffer.byteBuffer();
-
-            ByteBufferUtil.limit(buffer, dataOffset + remainingLength);
-            ByteBufferUtil.position(buffer, dataOffset);
-
-            final int written = channel.write(buffer);
-            bytesInBuffer.getAndAddOrdered(-written);
-
-            updateSendingTimeoutTimeInMs(timeInMs, written);
-
-            if (bodyLength > (written + bytesPreviouslySent))
-            {
-                tracker.moveSentPosition(written);
-                return blockPosition(position, length, tracker);
-            }
-            else
-            {
-                tracker.sentPosition = position;
-                tracker.partiallySentMessage = false;
-                tracker.skipPosition = Long.MAX_VALUE;
-
-                if (!isSlowConsumer())
-                {
-                    becomeNormalConsumer();
-                }
-            }
-        }
-        catch (final IOException ex)
-        {
-            onError(ex);
+            sessionCounters.close();
         }
-
-        return CONTINUE;
-    }
-
-    private Action blockPosition(final long position, final int length, final StreamTracker tracker)
-    {
-        final int alignedLength = ArchiveDescriptor.alignTerm(length);
-        final long startPosition = position - (alignedLength + DataHeaderFlyweight.HEADER_LENGTH);
-        tracker.blockablePosition.blockPosition(startPosition);
-        tracker.skipPosition = position;
-        return Action.CONTINUE;
-    }
-
-    private boolean partiallySentOtherStream(final StreamTracker tracker)
-    {
-        return tracker == outboundTracker ?
-            replayTracker.partiallySentMessage :
-            outboundTracker.partiallySentMessage;
     }
 
     private boolean isWrongLibraryId(final int libraryId)
@@ -413,17 +502,17 @@ class SenderEndPoint
     // Only access on Framer thread
     private boolean isSlowConsumer()
     {
-        return bytesInBufferWeak() > 0;
+        return !overflowBuffer.isEmpty();
     }
 
-    long bytesInBuffer()
+    private boolean isThrottled()
     {
-        return bytesInBuffer.get();
+        return throttle != null && !throttle.isEmpty();
     }
 
-    private long bytesInBufferWeak()
+    long bytesInBuffer()
     {
-        return bytesInBuffer.getWeak();
+        return bytesInBuffer.get();
     }
 
     void sessionId(final long sessionId)
@@ -454,37 +543,8 @@ class SenderEndPoint
         return false;
     }
 
-    Action onReplayComplete()
-    {
-        if (!replayTracker.partiallySentMessage)
-        {
-            replayPaused = false;
-        }
-
-        return CONTINUE;
-    }
-
-    // Struct for tracking the slow state of the replay and outbound streams
-    static class StreamTracker
-    {
-        private long sentPosition;
-        private long skipPosition = Long.MAX_VALUE;
-        private boolean partiallySentMessage = false;
-        private BlockablePosition blockablePosition;
-
-        StreamTracker(final BlockablePosition blockablePosition)
-        {
-            this.blockablePosition = blockablePosition;
-        }
-
-        void moveSentPosition(final int delta)
-        {
-            sentPosition += delta;
-        }
-    }
-
     boolean replayPaused()
     {
         return replayPaused;
     }
-}
\ No newline at end of file
+}
@@ -15,25 +15,18 @@
  */
 package uk.co.real_logic.artio.engine.framer;
 
-import io.aeron.logbuffer.ControlledFragmentHandler;
-import io.aeron.logbuffer.Header;
+import io.aeron.logbuffer.ControlledFragmentHandler.Action;
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.collections.Long2ObjectHashMap;
 import uk.co.real_logic.artio.engine.FixEngine;
-import uk.co.real_logic.artio.messages.FixMessageDecoder;
-import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 
 import java.util.function.LongToIntFunction;
 
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 
-class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
+class SenderEndPoints implements AutoCloseable
 {
-    private static final int HEADER_LENGTH = MessageHeaderDecoder.ENCODED_LENGTH;
-
-    private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
-    private final FixMessageDecoder fixMessage = new FixMessageDecoder();
     private final Long2ObjectHashMap<SenderEndPoint> connectionIdToSenderEndpoint = new Long2ObjectHashMap<>();
     private final ErrorHandler errorHandler;
     private final LongToIntFunction libraryLookup = this::libraryLookup;
@@ -75,42 +68,26 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
     void onMessage(
         final int libraryId,
         final long connectionId,
+        final int messageType,
         final DirectBuffer buffer,
         final int offset,
         final int length,
-        final int sequenceNumber,
-        final long position)
+        final int sequenceNumber)
     {
         final SenderEndPoint endPoint = connectionIdToSenderEndpoint.get(connectionId);
         if (endPoint != null)
         {
-            endPoint.onOutboundMessage(libraryId, buffer, offset, length, sequenceNumber, position, timeInMs);
+            endPoint.onOutboundMessage(libraryId, messageType, buffer, offset, length, sequenceNumber, timeInMs);
         }
     }
 
     Action onReplayMessage(
-        final long connectionId, final DirectBuffer buffer, final int offset, final int length, final long position)
-    {
-        final SenderEndPoint endPoint = connectionIdToSenderEndpoint.get(connectionId);
-        if (endPoint != null)
-        {
-            return endPoint.onReplayMessage(buffer, offset, length, timeInMs, position);
-        }
-        else
-        {
-            logReplayError(connectionId, buffer, offset, length);
-
-            return CONTINUE;
-        }
-    }
-
-    Action onSlowReplayMessage(
-        final long connectionId, final DirectBuffer buffer, final int offset, final int length, final long position)
+        final long connectionId, final int messageType, final DirectBuffer buffer, final int offset, final int length)
     {
         final SenderEndPoint endPoint = connectionIdToSenderEndpoint.get(connectionId);
         if (endPoint != null)
         {
-            return endPoint.onSlowReplayMessage(buffer, offset, length, timeInMs, position);
+            return endPoint.onReplayMessage(messageType, buffer, offset, length, timeInMs);
         }
         else
         {
@@ -128,46 +105,12 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
             buffer.getStringWithoutLengthUtf8(offset, length))));
     }
 
-    @SuppressWarnings("FinalParameters")
-    public Action onFragment(final DirectBuffer buffer, int offset, final int length, final Header header)
-    {
-        return onSlowConsumerMessageFragment(buffer, offset, length, header.position());
-    }
-
-    @SuppressWarnings("FinalParameters")
-    private Action onSlowConsumerMessageFragment(
-        final DirectBuffer buffer,
-        int offset,
-        final int length,
-        final long position)
-    {
-        messageHeader.wrap(buffer, offset);
-
-        if (messageHeader.templateId() == FixMessageDecoder.TEMPLATE_ID)
-        {
-            offset += HEADER_LENGTH;
-            fixMessage.wrap(buffer, offset, messageHeader.blockLength(), messageHeader.version());
-            final long connectionId = fixMessage.connection();
-
-            final SenderEndPoint senderEndPoint = connectionIdToSenderEndpoint.get(connectionId);
-            if (senderEndPoint != null)
-            {
-                final int bodyLength = fixMessage.bodyLength();
-                final int libraryId = fixMessage.libraryId();
-                return senderEndPoint.onSlowOutboundMessage(
-                    buffer, offset, length - HEADER_LENGTH, position, bodyLength, libraryId, timeInMs);
-            }
-        }
-
-        return CONTINUE;
-    }
-
     Action onReplayComplete(final long connectionId)
     {
         final SenderEndPoint senderEndPoint = connectionIdToSenderEndpoint.get(connectionId);
         if (senderEndPoint != null)
         {
-            return senderEndPoint.onReplayComplete();
+            return senderEndPoint.onReplayComplete(timeInMs);
         }
         return CONTINUE;
     }
@@ -184,6 +127,17 @@ class SenderEndPoints implements AutoCloseable, ControlledFragmentHandler
         this.timeInMs = timeInMs;
     }
 
+    int poll(final long timeInMs)
+    {
+        int count = 0;
+        for (final SenderEndPoint senderEndPoint : connectionIdToSenderEndpoint.values())
+        {
+            count += senderEndPoint.poll(timeInMs);
+        }
+
+        return count;
+    }
+
     int checkTimeouts(final long timeInMs)
     {
         int count = 0;
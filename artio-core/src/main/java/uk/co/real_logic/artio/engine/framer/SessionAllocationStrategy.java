@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import uk.co.real_logic.artio.engine.SessionInfo;
+
+import java.util.List;
+
+import static uk.co.real_logic.artio.engine.FixEngine.ENGINE_LIBRARY_ID;
+
+/**
+ * Decides which library, if any, owns an accepted session as soon as it has logged on.
+ *
+ * By default accepted sessions stay gatewayed in the engine until a library requests them. When several
+ * {@link uk.co.real_logic.artio.library.FixLibrary} instances are used to spread load, a strategy can hand each
+ * new session straight to one of them instead. Sessions can still be moved afterwards using the usual release and
+ * request session handoff.
+ *
+ * The strategy is invoked on the Framer thread.
+ */
+@FunctionalInterface
+public interface SessionAllocationStrategy
+{
+    /**
+     * Keep every accepted session gatewayed in the engine until a library requests it.
+     *
+     * @return a strategy that never allocates sessions to a library.
+     */
+    static SessionAllocationStrategy gateway()
+    {
+        return (session, libraries) -> ENGINE_LIBRARY_ID;
+    }
+
+    /**
+     * Allocate accepted sessions to connected libraries in turn, in order of library id.
+     *
+     * @return a new round robin strategy.
+     */
+    static SessionAllocationStrategy roundRobin()
+    {
+        return new RoundRobinSessionAllocationStrategy();
+    }
+
+    /**
+     * Allocate accepted sessions to the library whose current sessions have read the fewest messages, as recorded
+     * by the messages read counters.
+     *
+     * @return a new least loaded strategy.
+     */
+    static SessionAllocationStrategy leastLoaded()
+    {
+        return new LeastLoadedSessionAllocationStrategy();
+    }
+
+    /**
+     * Allocate accepted sessions by a consistent hash of their local and remote comp ids, so that a counterparty
+     * always lands on the same library while the set of connected libraries is unchanged, and only the sessions of
+     * a library that connects or disconnects move when it does.
+     *
+     * @return a new consistent hash strategy.
+     */
+    static SessionAllocationStrategy consistentHash()
+    {
+        return new ConsistentHashSessionAllocationStrategy();
+    }
+
+    /**
+     * Choose the library that should own a session that has just logged on.
+     *
+     * @param session the session that has logged on, its session key is always present.
+     * @param libraries the currently connected libraries, never empty.
+     * @return the id of the library that should own the session, or
+     * {@link uk.co.real_logic.artio.engine.FixEngine#ENGINE_LIBRARY_ID} to keep the session gatewayed.
+     */
+    int allocate(SessionInfo session, List<LibraryInfo> libraries);
+}
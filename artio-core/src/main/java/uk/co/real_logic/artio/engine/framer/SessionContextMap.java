@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.collections.Hashing;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from the encoded form of a {@link uk.co.real_logic.artio.session.CompositeKey}, as written
+ * to the session id file by {@link uk.co.real_logic.artio.session.SessionIdStrategy#save}, to its
+ * {@link SessionContext}.
+ *
+ * Keys are copied off-heap into a single key store so that neither lookups nor insertions allocate once the
+ * map has grown to its working size. Entries are never removed individually, only cleared.
+ */
+class SessionContextMap
+{
+    private static final int MISSING = -1;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INITIAL_KEY_STORE_CAPACITY = 4096;
+
+    private final ExpandableDirectByteBuffer keyStore = new ExpandableDirectByteBuffer(INITIAL_KEY_STORE_CAPACITY);
+
+    private int keyStoreLimit;
+    private int size;
+    private int resizeThreshold;
+    private int[] hashes;
+    private int[] keyOffsets;
+    private int[] keyLengths;
+    private SessionContext[] values;
+
+    SessionContextMap()
+    {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    SessionContext get(final DirectBuffer buffer, final int offset, final int length)
+    {
+        final int index = indexOf(buffer, offset, length, hash(buffer, offset, length));
+        return index == MISSING ? null : values[index];
+    }
+
+    void put(final DirectBuffer buffer, final int offset, final int length, final SessionContext value)
+    {
+        final int hash = hash(buffer, offset, length);
+        final int existingIndex = indexOf(buffer, offset, length, hash);
+        if (existingIndex != MISSING)
+        {
+            values[existingIndex] = value;
+            return;
+        }
+
+        final int keyOffset = keyStoreLimit;
+        keyStore.putBytes(keyOffset, buffer, offset, length);
+        keyStoreLimit += length;
+
+        insert(hash, keyOffset, length, value);
+
+        if (++size > resizeThreshold)
+        {
+            rehash(values.length << 1);
+        }
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    void clear()
+    {
+        Arrays.fill(values, null);
+        keyStoreLimit = 0;
+        size = 0;
+    }
+
+    private int indexOf(final DirectBuffer buffer, final int offset, final int length, final int hash)
+    {
+        final SessionContext[] values = this.values;
+        final int mask = values.length - 1;
+        int index = hash & mask;
+
+        while (values[index] != null)
+        {
+            if (hashes[index] == hash && keyLengths[index] == length &&
+                keyEquals(keyOffsets[index], buffer, offset, length))
+            {
+                return index;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return MISSING;
+    }
+
+    private void insert(final int hash, final int keyOffset, final int keyLength, final SessionContext value)
+    {
+        final SessionContext[] values = this.values;
+        final int mask = values.length - 1;
+        int index = hash & mask;
+
+        while (values[index] != null)
+        {
+            index = (index + 1) & mask;
+        }
+
+        hashes[index] = hash;
+        keyOffsets[index] = keyOffset;
+        keyLengths[index] = keyLength;
+        values[index] = value;
+    }
+
+    private boolean keyEquals(final int keyOffset, final DirectBuffer buffer, final int offset, final int length)
+    {
+        final ExpandableDirectByteBuffer keyStore = this.keyStore;
+
+        int i = 0;
+        for (final int longLimit = length & ~(BitUtil.SIZE_OF_LONG - 1); i < longLimit; i += BitUtil.SIZE_OF_LONG)
+        {
+            if (keyStore.getLong(keyOffset + i) != buffer.getLong(offset + i))
+            {
+                return false;
+            }
+        }
+
+        for (; i < length; i++)
+        {
+            if (keyStore.getByte(keyOffset + i) != buffer.getByte(offset + i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void rehash(final int newCapacity)
+    {
+        final int[] oldHashes = hashes;
+        final int[] oldKeyOffsets = keyOffsets;
+        final int[] oldKeyLengths = keyLengths;
+        final SessionContext[] oldValues = values;
+
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldValues.length; i++)
+        {
+            final SessionContext value = oldValues[i];
+            if (value != null)
+            {
+                insert(oldHashes[i], oldKeyOffsets[i], oldKeyLengths[i], value);
+            }
+        }
+    }
+
+    private void allocate(final int capacity)
+    {
+        hashes = new int[capacity];
+        keyOffsets = new int[capacity];
+        keyLengths = new int[capacity];
+        values = new SessionContext[capacity];
+        resizeThreshold = (int)(capacity * Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    private static int hash(final DirectBuffer buffer, final int offset, final int length)
+    {
+        int hash = 1;
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + buffer.getByte(offset + i);
+        }
+
+        return Hashing.hash(hash);
+    }
+}
@@ -17,6 +17,7 @@ package uk.co.real_logic.artio.engine.framer;
 
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
+import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.collections.LongHashSet;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
@@ -40,7 +41,6 @@ import java.io.File;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 import java.util.zip.CRC32;
 
 import static uk.co.real_logic.artio.engine.SectorFramer.*;
@@ -53,6 +53,9 @@ import static uk.co.real_logic.artio.storage.messages.SessionIdEncoder.BLOCK_LEN
  * The session ids table is saved into a file. Records are written out using the {@link SessionIdEncoder}
  * and aren't allowed to span sectors. Each sector has a CRC32 checksum and each checksum is updated after writing
  * each session id record.
+ * <p>
+ * Sessions are looked up by the same encoding of their {@link CompositeKey} that is saved into the file, and
+ * indexed by their session id, so neither logons nor sequence resets need to scan all known sessions.
  */
 public class SessionContexts
 {
@@ -79,10 +82,12 @@ public class SessionContexts
     private final int actingBlockLength = sessionIdEncoder.sbeBlockLength();
     private final int actingVersion = sessionIdEncoder.sbeSchemaVersion();
 
-    private final Function<CompositeKey, SessionContext> onNewLogonFunc = this::onNewLogon;
     private final LongHashSet currentlyAuthenticatedSessionIds = new LongHashSet();
     private final LongHashSet recordedSessions = new LongHashSet();
-    private final Map<CompositeKey, SessionContext> compositeToContext = new HashMap<>();
+    private final SessionContextMap compositeToContext = new SessionContextMap();
+    private final Long2ObjectHashMap<SessionContext> sessionIdToContext = new Long2ObjectHashMap<>();
+    // Sessions whose composite key is too large to be encoded, and so can't be saved or looked up by its encoding
+    private final Map<CompositeKey, SessionContext> unsavedCompositeToContext = new HashMap<>();
 
     private final CRC32 crc32 = new CRC32();
     private final SectorFramer sectorFramer;
@@ -150,8 +155,10 @@ public class SessionContexts
                 return;
             }
 
-            compositeToContext.put(compositeKey,
-                new SessionContext(sessionId, sequenceIndex, logonTime, this, filePosition));
+            final SessionContext sessionContext =
+                new SessionContext(sessionId, sequenceIndex, logonTime, this, filePosition);
+            compositeToContext.put(buffer, filePosition + BLOCK_LENGTH, compositeKeyLength, sessionContext);
+            sessionIdToContext.put(sessionId, sessionContext);
             recordedSessions.add(sessionId);
             counter = Math.max(counter, sessionId + 1);
 
@@ -213,7 +220,11 @@ public class SessionContexts
 
     public SessionContext onLogon(final CompositeKey compositeKey)
     {
-        final SessionContext sessionContext = compositeToContext.computeIfAbsent(compositeKey, onNewLogonFunc);
+        SessionContext sessionContext = lookup(compositeKey);
+        if (sessionContext == null)
+        {
+            sessionContext = onNewLogon(compositeKey);
+        }
 
         if (!currentlyAuthenticatedSessionIds.add(sessionContext.sessionId()))
         {
@@ -229,6 +240,18 @@ public class SessionContexts
         return assignSessionId(compositeKey, sessionId, SessionContext.UNKNOWN_SEQUENCE_INDEX);
     }
 
+    private SessionContext lookup(final CompositeKey compositeKey)
+    {
+        final int compositeKeyLength = idStrategy.save(compositeKey, compositeKeyBuffer, 0);
+        if (compositeKeyLength == INSUFFICIENT_SPACE)
+        {
+            return unsavedCompositeToContext.get(compositeKey);
+        }
+
+        return compositeToContext.get(compositeKeyBuffer, 0, compositeKeyLength);
+    }
+
+    // Saves the session into the file and indexes it.
     private SessionContext assignSessionId(
         final CompositeKey compositeKey,
         final long sessionId,
@@ -242,7 +265,13 @@ public class SessionContexts
                 "Unable to save record session id %d for %s, because the buffer is too small",
                 sessionId,
                 compositeKey)));
-            return new SessionContext(sessionId, sequenceIndex, Session.NO_LOGON_TIME, this, OUT_OF_SPACE);
+
+            final SessionContext sessionContext = new SessionContext(
+                sessionId, sequenceIndex, Session.NO_LOGON_TIME, this, OUT_OF_SPACE);
+            unsavedCompositeToContext.put(compositeKey, sessionContext);
+            sessionIdToContext.put(sessionId, sessionContext);
+
+            return sessionContext;
         }
         else
         {
@@ -273,17 +302,22 @@ public class SessionContexts
                 }
             }
 
-            return new SessionContext(sessionId, sequenceIndex, Session.NO_LOGON_TIME, this, keyPosition);
+            final SessionContext sessionContext = new SessionContext(
+                sessionId, sequenceIndex, Session.NO_LOGON_TIME, this, keyPosition);
+            compositeToContext.put(compositeKeyBuffer, 0, compositeKeyLength, sessionContext);
+            sessionIdToContext.put(sessionId, sessionContext);
+
+            return sessionContext;
         }
     }
 
     void sequenceReset(final long sessionId)
     {
-        compositeToContext
-            .values()
-            .stream()
-            .filter(context -> context.sessionId() == sessionId)
-            .forEach(SessionContext::onSequenceReset);
+        final SessionContext sessionContext = sessionIdToContext.get(sessionId);
+        if (sessionContext != null)
+        {
+            sessionContext.onSequenceReset();
+        }
     }
 
     // TODO: optimisation, more efficient checksumming, only checksum new data
@@ -315,6 +349,8 @@ public class SessionContexts
         counter = LOWEST_VALID_SESSION_ID;
         currentlyAuthenticatedSessionIds.clear();
         compositeToContext.clear();
+        sessionIdToContext.clear();
+        unsavedCompositeToContext.clear();
 
         if (backupLocation != null)
         {
@@ -354,8 +390,7 @@ public class SessionContexts
             header.targetSubIDAsString(),
             header.targetLocationIDAsString());
 
-        final SessionContext sessionContext = assignSessionId(compositeKey, sessionId, sequenceIndex);
-        compositeToContext.put(compositeKey, sessionContext);
+        assignSessionId(compositeKey, sessionId, sequenceIndex);
     }
 
     void updateSavedData(final int filePosition, final int sequenceIndex, final long logonTime)
@@ -374,7 +409,7 @@ public class SessionContexts
 
     long lookupSessionId(final CompositeKey compositeKey)
     {
-        final SessionContext sessionContext = compositeToContext.get(compositeKey);
+        final SessionContext sessionContext = lookup(compositeKey);
         if (sessionContext == null)
         {
             return Session.UNKNOWN;
@@ -389,6 +424,6 @@ public class SessionContexts
 
     boolean isKnownSessionId(final long sessionId)
     {
-        return compositeToContext.values().stream().anyMatch(context -> context.sessionId() == sessionId);
+        return sessionIdToContext.containsKey(sessionId);
     }
 }
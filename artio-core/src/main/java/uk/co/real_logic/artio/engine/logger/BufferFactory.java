@@ -21,4 +21,22 @@ import java.nio.ByteBuffer;
 public interface BufferFactory
 {
     ByteBuffer map(File file, int size);
+
+    /**
+     * Optional method to perform some periodic work, eg preparing files ahead of them being mapped.
+     *
+     * @return amount of work done.
+     */
+    default int doWork()
+    {
+        return 0;
+    }
+
+    /**
+     * Optional method to release any resources held by the factory itself, the buffers that it has mapped are
+     * owned by the caller.
+     */
+    default void close()
+    {
+    }
 }
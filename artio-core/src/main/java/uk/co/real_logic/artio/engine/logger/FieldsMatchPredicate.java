@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.nio.ByteOrder;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR;
+import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
+
+/**
+ * Predicate that matches field values directly against the bytes of the archived message body,
+ * without copying the body or decoding it. Each message is scanned once, the scan stops at the first
+ * value mismatch or as soon as all the fields have been matched, and no objects are allocated per message.
+ *
+ * The first occurrence of a tag within the message is the one that is compared.
+ */
+final class FieldsMatchPredicate implements FixMessagePredicate
+{
+    static final int MAX_FIELDS = Long.SIZE;
+
+    private static final int MISSING_FIELD = -1;
+
+    private final MutableAsciiBuffer buffer = new MutableAsciiBuffer();
+    private final int[] tags;
+    private final byte[][] values;
+    private final long allFieldsMatched;
+
+    FieldsMatchPredicate(final int[] tags, final String[] values)
+    {
+        final int fieldCount = tags.length;
+        if (fieldCount != values.length)
+        {
+            throw new IllegalArgumentException(String.format(
+                "Number of tags (%d) doesn't match the number of values (%d)", fieldCount, values.length));
+        }
+
+        if (fieldCount == 0 || fieldCount > MAX_FIELDS)
+        {
+            throw new IllegalArgumentException(String.format(
+                "Must match between 1 and %d fields, but was %d", MAX_FIELDS, fieldCount));
+        }
+
+        this.tags = tags.clone();
+        this.values = new byte[fieldCount][];
+        for (int i = 0; i < fieldCount; i++)
+        {
+            final int tag = tags[i];
+            if (tag <= 0)
+            {
+                throw new IllegalArgumentException("Invalid tag: " + tag);
+            }
+
+            for (int j = 0; j < i; j++)
+            {
+                if (tags[j] == tag)
+                {
+                    throw new IllegalArgumentException("Duplicate tag: " + tag);
+                }
+            }
+
+            this.values[i] = values[i].getBytes(US_ASCII);
+        }
+
+        allFieldsMatched = fieldCount == MAX_FIELDS ? -1L : (1L << fieldCount) - 1;
+    }
+
+    public boolean test(final FixMessageDecoder message)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        buffer.wrap(message.buffer());
+
+        // The body is the only variable length field, so its position doesn't depend upon the decoder's limit.
+        final int bodyHeaderOffset = message.offset() + FixMessagePredicates.actingBlockLength(message);
+        final int bodyLength = buffer.getShort(bodyHeaderOffset, ByteOrder.LITTLE_ENDIAN) & 0xFFFF;
+        final int bodyOffset = bodyHeaderOffset + FixMessageDecoder.bodyHeaderLength();
+        final int end = bodyOffset + bodyLength;
+
+        long matchedFields = 0;
+        int index = bodyOffset;
+        while (index < end)
+        {
+            int tag = 0;
+            byte character;
+            while (index < end && (character = buffer.getByte(index)) != '=')
+            {
+                tag = tag * 10 + (character - '0');
+                index++;
+            }
+
+            final int valueOffset = index + 1;
+            int separatorIndex = buffer.scan(valueOffset, end - 1, SEPARATOR);
+            if (separatorIndex == UNKNOWN_INDEX)
+            {
+                separatorIndex = end;
+            }
+
+            final int fieldIndex = fieldIndex(tag);
+            if (fieldIndex != MISSING_FIELD)
+            {
+                final long fieldBit = 1L << fieldIndex;
+                if ((matchedFields & fieldBit) == 0)
+                {
+                    if (!valueMatches(valueOffset, separatorIndex - valueOffset, values[fieldIndex]))
+                    {
+                        return false;
+                    }
+
+                    matchedFields |= fieldBit;
+                    if (matchedFields == allFieldsMatched)
+                    {
+                        return true;
+                    }
+                }
+            }
+
+            index = separatorIndex + 1;
+        }
+
+        return false;
+    }
+
+    private int fieldIndex(final int tag)
+    {
+        final int[] tags = this.tags;
+        for (int i = 0, size = tags.length; i < size; i++)
+        {
+            if (tags[i] == tag)
+            {
+                return i;
+            }
+        }
+
+        return MISSING_FIELD;
+    }
+
+    private boolean valueMatches(final int offset, final int length, final byte[] expected)
+    {
+        if (length != expected.length)
+        {
+            return false;
+        }
+
+        final MutableAsciiBuffer buffer = this.buffer;
+        for (int i = 0; i < length; i++)
+        {
+            if (buffer.getByte(offset + i) != expected[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
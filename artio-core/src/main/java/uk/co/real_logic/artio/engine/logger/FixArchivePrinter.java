@@ -17,14 +17,21 @@ package uk.co.real_logic.artio.engine.logger;
 
 import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
+import org.agrona.collections.IntArrayList;
 import uk.co.real_logic.artio.CommonConfiguration;
-import uk.co.real_logic.artio.decoder.HeaderDecoder;
 import uk.co.real_logic.artio.messages.FixMessageDecoder;
 
-import java.util.function.Predicate;
+import java.util.ArrayList;
+import java.util.List;
 
 import static java.lang.Long.parseLong;
 import static uk.co.real_logic.artio.CommonConfiguration.DEFAULT_OUTBOUND_LIBRARY_STREAM;
+import static uk.co.real_logic.artio.Constants.SENDER_COMP_ID;
+import static uk.co.real_logic.artio.Constants.SENDER_LOCATION_ID;
+import static uk.co.real_logic.artio.Constants.SENDER_SUB_ID;
+import static uk.co.real_logic.artio.Constants.TARGET_COMP_ID;
+import static uk.co.real_logic.artio.Constants.TARGET_LOCATION_ID;
+import static uk.co.real_logic.artio.Constants.TARGET_SUB_ID;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_ARCHIVE_SCANNER_STREAM;
 import static uk.co.real_logic.artio.engine.logger.FixMessagePredicates.*;
 
@@ -45,7 +52,8 @@ public final class FixArchivePrinter
         FixMessagePredicate predicate = FixMessagePredicates.alwaysTrue();
         boolean follow = false;
 
-        Predicate<HeaderDecoder> headerPredicate = null;
+        final IntArrayList headerTags = new IntArrayList();
+        final List<String> headerValues = new ArrayList<>();
 
         for (final String arg : args)
         {
@@ -85,27 +93,27 @@ public final class FixArchivePrinter
                     break;
 
                 case "sender-comp-id":
-                    headerPredicate = safeAnd(headerPredicate, senderCompIdOf(optionValue));
+                    headerField(headerTags, headerValues, SENDER_COMP_ID, optionValue);
                     break;
 
                 case "target-comp-id":
-                    headerPredicate = safeAnd(headerPredicate, targetCompIdOf(optionValue));
+                    headerField(headerTags, headerValues, TARGET_COMP_ID, optionValue);
                     break;
 
                 case "sender-sub-id":
-                    headerPredicate = safeAnd(headerPredicate, senderSubIdOf(optionValue));
+                    headerField(headerTags, headerValues, SENDER_SUB_ID, optionValue);
                     break;
 
                 case "target-sub-id":
-                    headerPredicate = safeAnd(headerPredicate, targetSubIdOf(optionValue));
+                    headerField(headerTags, headerValues, TARGET_SUB_ID, optionValue);
                     break;
 
                 case "sender-location-id":
-                    headerPredicate = safeAnd(headerPredicate, senderLocationIdOf(optionValue));
+                    headerField(headerTags, headerValues, SENDER_LOCATION_ID, optionValue);
                     break;
 
                 case "target-location-id":
-                    headerPredicate = safeAnd(headerPredicate, targetLocationIdOf(optionValue));
+                    headerField(headerTags, headerValues, TARGET_LOCATION_ID, optionValue);
                     break;
 
                 case "query-stream-id":
@@ -129,8 +137,19 @@ public final class FixArchivePrinter
         requiredArgument(aeronDirectoryName, "aeron-dir-name");
         requiredArgument(aeronChannel, "aeron-channel");
 
-        scanArchive(aeronDirectoryName, aeronChannel, queryStreamId, predicate, follow, headerPredicate,
-            archiveScannerStreamId);
+        if (!headerTags.isEmpty())
+        {
+            predicate = fieldsOf(headerTags.toIntArray(), headerValues.toArray(new String[0])).and(predicate);
+        }
+
+        scanArchive(aeronDirectoryName, aeronChannel, queryStreamId, predicate, follow, archiveScannerStreamId);
+    }
+
+    private static void headerField(
+        final IntArrayList headerTags, final List<String> headerValues, final int tag, final String value)
+    {
+        headerTags.addInt(tag);
+        headerValues.add(value);
     }
 
     private static void requiredArgument(final int eqIndex)
@@ -147,17 +166,10 @@ public final class FixArchivePrinter
         final String aeronDirectoryName,
         final String aeronChannel,
         final int queryStreamId,
-        final FixMessagePredicate otherPredicate,
+        final FixMessagePredicate predicate,
         final boolean follow,
-        final Predicate<HeaderDecoder> headerPredicate,
         final int archiveScannerStreamId)
     {
-        FixMessagePredicate predicate = otherPredicate;
-        if (headerPredicate != null)
-        {
-            predicate = whereHeader(headerPredicate).and(predicate);
-        }
-
         final FixArchiveScanner.Context context = new FixArchiveScanner.Context()
             .aeronDirectoryName(aeronDirectoryName)
             .idleStrategy(CommonConfiguration.backoffIdleStrategy());
@@ -253,11 +265,6 @@ public final class FixArchivePrinter
         System.out.printf("  --%-20s [%s] - %s%n", name, required ? "required" : "optional", description);
     }
 
-    private static <T> Predicate<T> safeAnd(final Predicate<T> left, final Predicate<T> right)
-    {
-        return left == null ? right : left.and(right);
-    }
-
     private static void print(
         final FixMessageDecoder message,
         final DirectBuffer buffer,
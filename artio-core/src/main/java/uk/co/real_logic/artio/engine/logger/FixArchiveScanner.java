@@ -41,6 +41,7 @@ import static java.util.Comparator.comparingLong;
  * @see FixMessageConsumer
  * @see FixMessagePredicate
  * @see FixMessagePredicates
+ * @see FixArchiveTail
  */
 public class FixArchiveScanner implements AutoCloseable
 {
@@ -0,0 +1,491 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.FragmentAssembler;
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.EpochClock;
+import org.agrona.concurrent.SystemEpochClock;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static io.aeron.CommonContext.IPC_CHANNEL;
+import static io.aeron.archive.client.AeronArchive.NULL_LENGTH;
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * A resumable, non-blocking tail of the fix messages in the archive. Messages are read from the archived
+ * recordings of a stream in the order that they were recorded, and once the tail has caught up it follows the
+ * recording that is still in progress.
+ *
+ * Unlike {@link FixArchiveScanner} this doesn't own a thread or an idle strategy: call {@link #poll(int)} from
+ * your own duty cycle. Backpressure is applied through Aeron's flow control on the archive replay, so a slow
+ * consumer simply falls behind the live recording rather than holding anything up.
+ *
+ * The {@link #recordingId()} and {@link #position()} can be stored as a checkpoint and passed to
+ * {@link Context#resumeFrom(long, long)} in order to resume the tail after a restart.
+ *
+ * NB: requests to the archive in order to find recordings and start replays are synchronous, these only happen
+ * when the tail moves between recordings and are rate limited by {@link Context#recordingLookupIntervalInMs(long)}.
+ *
+ * This object isn't thread-safe.
+ */
+public class FixArchiveTail implements AutoCloseable
+{
+    public static final long NO_RECORDING = -1;
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    public static final long DEFAULT_RECORDING_LOOKUP_INTERVAL_IN_MS = 1000;
+
+    private static final long NO_REPLAY = -1;
+
+    private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
+    private final FixMessageDecoder fixMessage = new FixMessageDecoder();
+    private final FragmentAssembler fragmentAssembler = new FragmentAssembler(new LogEntryHandler());
+    private final ArrayDeque<ArchiveLocation> pendingLocations = new ArrayDeque<>();
+
+    private final AeronArchive aeronArchive;
+    private final String aeronChannel;
+    private final int queryStreamId;
+    private final int tailStreamId;
+    private final long fromTimestamp;
+    private final long recordingLookupIntervalInMs;
+    private final EpochClock epochClock;
+    private final FixMessageConsumer handler;
+    private final Subscription replaySubscription;
+
+    private long recordingId;
+    private long position;
+    private long nextRecordingLookupTimeInMs;
+
+    private long replaySessionId = NO_REPLAY;
+    private long replayStopPosition;
+    private Image image;
+
+    public static class Context
+    {
+        private AeronArchive aeronArchive;
+        private String aeronChannel;
+        private int queryStreamId;
+        private int tailStreamId;
+        private long recordingId = NO_RECORDING;
+        private long position = NULL_POSITION;
+        private long fromTimestamp = NO_TIMESTAMP;
+        private long recordingLookupIntervalInMs = DEFAULT_RECORDING_LOOKUP_INTERVAL_IN_MS;
+        private EpochClock epochClock = new SystemEpochClock();
+
+        public Context()
+        {
+        }
+
+        /**
+         * Sets the archive client used to lookup and replay recordings, this isn't closed by the tail.
+         *
+         * @param aeronArchive the archive client used to lookup and replay recordings.
+         * @return this
+         */
+        public Context aeronArchive(final AeronArchive aeronArchive)
+        {
+            this.aeronArchive = aeronArchive;
+            return this;
+        }
+
+        public AeronArchive aeronArchive()
+        {
+            return aeronArchive;
+        }
+
+        /**
+         * Sets the aeron channel that was used by the engine, eg: {@code EngineConfiguration.libraryAeronChannel()}.
+         *
+         * @param aeronChannel the aeron channel that was used by the engine.
+         * @return this
+         */
+        public Context aeronChannel(final String aeronChannel)
+        {
+            this.aeronChannel = aeronChannel;
+            return this;
+        }
+
+        public String aeronChannel()
+        {
+            return aeronChannel;
+        }
+
+        /**
+         * Sets the stream id of the recordings to tail, eg: {@code EngineConfiguration.outboundLibraryStream()}.
+         *
+         * @param queryStreamId the stream id of the recordings to tail.
+         * @return this
+         */
+        public Context queryStreamId(final int queryStreamId)
+        {
+            this.queryStreamId = queryStreamId;
+            return this;
+        }
+
+        public int queryStreamId()
+        {
+            return queryStreamId;
+        }
+
+        /**
+         * Sets the IPC stream id that recordings are replayed onto, this should be unique to this tail.
+         *
+         * @param tailStreamId the IPC stream id that recordings are replayed onto.
+         * @return this
+         */
+        public Context tailStreamId(final int tailStreamId)
+        {
+            this.tailStreamId = tailStreamId;
+            return this;
+        }
+
+        public int tailStreamId()
+        {
+            return tailStreamId;
+        }
+
+        /**
+         * Resume the tail from a checkpoint, previously read from {@link FixArchiveTail#recordingId()} and
+         * {@link FixArchiveTail#position()}. If no checkpoint is provided then the tail starts from the
+         * beginning of the archive.
+         *
+         * @param recordingId the recording to resume from.
+         * @param position the position within the recording to resume from.
+         * @return this
+         */
+        public Context resumeFrom(final long recordingId, final long position)
+        {
+            this.recordingId = recordingId;
+            this.position = position;
+            return this;
+        }
+
+        public long recordingId()
+        {
+            return recordingId;
+        }
+
+        public long position()
+        {
+            return position;
+        }
+
+        /**
+         * Only pass messages with a timestamp that is &gt;= this value to the handler.
+         *
+         * Timestamps filtered in precision of CommonConfiguration.clock().
+         *
+         * @param fromTimestamp the timestamp to start tailing from.
+         * @return this
+         */
+        public Context fromTimestamp(final long fromTimestamp)
+        {
+            this.fromTimestamp = fromTimestamp;
+            return this;
+        }
+
+        public long fromTimestamp()
+        {
+            return fromTimestamp;
+        }
+
+        /**
+         * Sets the minimum interval between looking up new recordings from the archive once the tail has
+         * reached the end of the recordings that it knows about.
+         *
+         * @param recordingLookupIntervalInMs the minimum interval between recording lookups.
+         * @return this
+         */
+        public Context recordingLookupIntervalInMs(final long recordingLookupIntervalInMs)
+        {
+            this.recordingLookupIntervalInMs = recordingLookupIntervalInMs;
+            return this;
+        }
+
+        public long recordingLookupIntervalInMs()
+        {
+            return recordingLookupIntervalInMs;
+        }
+
+        public Context epochClock(final EpochClock epochClock)
+        {
+            this.epochClock = epochClock;
+            return this;
+        }
+
+        public EpochClock epochClock()
+        {
+            return epochClock;
+        }
+    }
+
+    public FixArchiveTail(final Context context, final FixMessageConsumer handler)
+    {
+        Objects.requireNonNull(context.aeronArchive(), "aeronArchive");
+        Objects.requireNonNull(context.aeronChannel(), "aeronChannel");
+        Objects.requireNonNull(handler, "handler");
+
+        this.aeronArchive = context.aeronArchive();
+        this.aeronChannel = context.aeronChannel();
+        this.queryStreamId = context.queryStreamId();
+        this.tailStreamId = context.tailStreamId();
+        this.fromTimestamp = context.fromTimestamp();
+        this.recordingLookupIntervalInMs = context.recordingLookupIntervalInMs();
+        this.epochClock = context.epochClock();
+        this.handler = handler;
+        this.recordingId = context.recordingId();
+        this.position = context.position();
+
+        replaySubscription = aeronArchive.context().aeron().addSubscription(IPC_CHANNEL, tailStreamId);
+    }
+
+    /**
+     * Poll the archive for messages, passing them to the handler. This never blocks waiting for messages.
+     *
+     * @param fragmentLimit the maximum number of fragments to read.
+     * @return the amount of work done.
+     */
+    public int poll(final int fragmentLimit)
+    {
+        if (replaySessionId == NO_REPLAY)
+        {
+            return startNextReplay();
+        }
+
+        final Image image = this.image;
+        if (image == null)
+        {
+            this.image = replaySubscription.imageBySessionId((int)replaySessionId);
+            return 0;
+        }
+
+        final int fragmentsRead = image.poll(fragmentAssembler, fragmentLimit);
+        if (fragmentsRead == 0 && replayComplete(image))
+        {
+            onReplayComplete(image);
+        }
+
+        return fragmentsRead;
+    }
+
+    /**
+     * Get the id of the recording that the tail is currently reading.
+     *
+     * @return the id of the recording that the tail is currently reading, or {@link #NO_RECORDING} if it hasn't
+     *         started reading a recording.
+     */
+    public long recordingId()
+    {
+        return recordingId;
+    }
+
+    /**
+     * Get the position within the {@link #recordingId()} up to which messages have been passed to the handler.
+     *
+     * @return the position within the {@link #recordingId()} up to which messages have been passed to the handler.
+     */
+    public long position()
+    {
+        return position;
+    }
+
+    /**
+     * Check whether the tail is currently replaying a recording that is still being archived.
+     *
+     * @return true if the tail is following a recording that is still being archived.
+     */
+    public boolean isLive()
+    {
+        return replaySessionId != NO_REPLAY && replayStopPosition == NULL_POSITION;
+    }
+
+    public void close()
+    {
+        stopReplay();
+        CloseHelper.close(replaySubscription);
+    }
+
+    private int startNextReplay()
+    {
+        if (pendingLocations.isEmpty())
+        {
+            final long timeInMs = epochClock.time();
+            if (timeInMs < nextRecordingLookupTimeInMs)
+            {
+                return 0;
+            }
+
+            nextRecordingLookupTimeInMs = timeInMs + recordingLookupIntervalInMs;
+            lookupArchiveLocations();
+        }
+
+        final ArchiveLocation location = pendingLocations.pollFirst();
+        if (location == null)
+        {
+            return 0;
+        }
+
+        final long startPosition;
+        if (location.recordingId == recordingId && position != NULL_POSITION)
+        {
+            startPosition = position;
+        }
+        else
+        {
+            startPosition = location.startPosition;
+        }
+
+        final boolean stillArchiving = location.stopPosition == NULL_POSITION;
+        if (!stillArchiving && startPosition >= location.stopPosition)
+        {
+            // Already read this recording.
+            recordingId = location.recordingId;
+            position = location.stopPosition;
+            return 1;
+        }
+
+        replayStopPosition = location.stopPosition;
+        final long length = stillArchiving ? NULL_LENGTH : location.stopPosition - startPosition;
+        replaySessionId = aeronArchive.startReplay(
+            location.recordingId, startPosition, length, IPC_CHANNEL, tailStreamId);
+        recordingId = location.recordingId;
+        position = startPosition;
+
+        return 1;
+    }
+
+    private boolean replayComplete(final Image image)
+    {
+        if (replayStopPosition != NULL_POSITION && image.position() >= replayStopPosition)
+        {
+            return true;
+        }
+
+        return image.isEndOfStream() || image.isClosed();
+    }
+
+    private void onReplayComplete(final Image image)
+    {
+        if (replayStopPosition != NULL_POSITION && image.position() >= replayStopPosition)
+        {
+            position = replayStopPosition;
+        }
+        else
+        {
+            // The replay ended early or the live recording has stopped, look the recordings up again in order to
+            // resume from the last delivered position.
+            pendingLocations.clear();
+        }
+
+        replaySessionId = NO_REPLAY;
+        this.image = null;
+    }
+
+    private void stopReplay()
+    {
+        if (replaySessionId != NO_REPLAY && (image == null || !replayComplete(image)))
+        {
+            aeronArchive.stopReplay(replaySessionId);
+        }
+
+        replaySessionId = NO_REPLAY;
+        image = null;
+    }
+
+    private void lookupArchiveLocations()
+    {
+        final List<ArchiveLocation> archiveLocations = new ArrayList<>();
+        final long fromRecordingId = Math.max(0, recordingId);
+        aeronArchive.listRecordingsForUri(
+            fromRecordingId,
+            Integer.MAX_VALUE,
+            aeronChannel,
+            queryStreamId,
+            (controlSessionId,
+            correlationId,
+            recordingId,
+            startTimestamp,
+            stopTimestamp,
+            startPosition,
+            stopPosition,
+            initialTermId,
+            segmentFileLength,
+            termBufferLength,
+            mtuLength,
+            sessionId,
+            streamId,
+            strippedChannel,
+            originalChannel,
+            sourceIdentity) -> archiveLocations.add(new ArchiveLocation(recordingId, startPosition, stopPosition)));
+
+        archiveLocations.sort(comparingLong(ArchiveLocation::recordingId));
+        pendingLocations.addAll(archiveLocations);
+    }
+
+    private final class LogEntryHandler implements FragmentHandler
+    {
+        @SuppressWarnings("FinalParameters")
+        public void onFragment(final DirectBuffer buffer, int offset, final int length, final Header header)
+        {
+            messageHeader.wrap(buffer, offset);
+            if (messageHeader.templateId() == FixMessageDecoder.TEMPLATE_ID)
+            {
+                offset += MessageHeaderDecoder.ENCODED_LENGTH;
+
+                fixMessage.wrap(buffer, offset, messageHeader.blockLength(), messageHeader.version());
+
+                if (fromTimestamp == NO_TIMESTAMP || fixMessage.timestamp() >= fromTimestamp)
+                {
+                    handler.onMessage(fixMessage, buffer, offset, length, header);
+                }
+            }
+
+            position = header.position();
+        }
+    }
+
+    private static final class ArchiveLocation
+    {
+        private final long recordingId;
+        private final long startPosition;
+        private final long stopPosition;
+
+        private ArchiveLocation(final long recordingId, final long startPosition, final long stopPosition)
+        {
+            this.recordingId = recordingId;
+            this.startPosition = startPosition;
+            this.stopPosition = stopPosition;
+        }
+
+        private long recordingId()
+        {
+            return recordingId;
+        }
+    }
+}
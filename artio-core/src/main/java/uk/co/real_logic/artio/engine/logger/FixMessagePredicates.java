@@ -15,11 +15,12 @@
  */
 package uk.co.real_logic.artio.engine.logger;
 
-import org.agrona.ExpandableArrayBuffer;
 import org.agrona.collections.IntHashSet;
 import uk.co.real_logic.artio.decoder.HeaderDecoder;
 import uk.co.real_logic.artio.dictionary.generation.CodecUtil;
 import uk.co.real_logic.artio.dictionary.generation.GenerationUtil;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.util.AsciiBuffer;
 import uk.co.real_logic.artio.util.BufferAsciiSequence;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
@@ -31,6 +32,9 @@ import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static uk.co.real_logic.artio.Constants.SENDER_COMP_ID;
+import static uk.co.real_logic.artio.Constants.TARGET_COMP_ID;
+
 /**
  * Filters to be used in conjunction with {@link FixArchiveScanner}.
  */
@@ -52,8 +56,8 @@ public final class FixMessagePredicates
     {
         return (message, buffer, offset, length, header) ->
         {
-            final int actingVersion = message.sbeSchemaVersion();
-            final int actingBlockLength = message.sbeBlockLength();
+            final int actingVersion = actingVersion(message);
+            final int actingBlockLength = actingBlockLength(message);
 
             if (predicate.test(message))
             {
@@ -151,7 +155,39 @@ public final class FixMessagePredicates
         final String senderCompId,
         final String targetCompId)
     {
-        return whereHeader(senderCompIdOf(senderCompId).and(targetCompIdOf(targetCompId)));
+        return fieldsOf(new int[]{ SENDER_COMP_ID, TARGET_COMP_ID }, new String[]{ senderCompId, targetCompId });
+    }
+
+    /**
+     * Filter messages by the value of a single field, comparing it directly against the bytes of the
+     * archived message. This doesn't allocate or decode the message when testing it.
+     *
+     * @param tag the tag of the field to be matched, eg: 49 for SenderCompID.
+     * @param value the value that the field must have.
+     * @return the resulting predicate.
+     * @see #fieldsOf(int[], String[])
+     */
+    public static FixMessagePredicate fieldOf(final int tag, final String value)
+    {
+        return fieldsOf(new int[]{ tag }, new String[]{ value });
+    }
+
+    /**
+     * Filter messages by the values of a set of fields, comparing them directly against the bytes of the
+     * archived message. All fields are checked in a single scan over the message that stops at the first
+     * value that doesn't match or once every field has been found, nothing is allocated per message.
+     *
+     * Only the first occurrence of each tag within a message is compared, so this is most suitable for header
+     * fields. Messages where any of the fields are missing don't pass the filter.
+     *
+     * @param tags the tags of the fields to be matched, up to 64 distinct tags can be provided.
+     * @param values the values that each corresponding field must have.
+     * @return the resulting predicate.
+     * @throws IllegalArgumentException if the tags and values are different lengths, or the tags aren't distinct.
+     */
+    public static FixMessagePredicate fieldsOf(final int[] tags, final String[] values)
+    {
+        return new FieldsMatchPredicate(tags, values);
     }
 
     public static Predicate<HeaderDecoder> senderCompIdOf(final String senderCompId)
@@ -198,19 +234,22 @@ public final class FixMessagePredicates
         };
     }
 
+    /**
+     * Filter messages by decoding their header and testing it. Prefer {@link #fieldsOf(int[], String[])}
+     * when filtering on the values of header fields as it avoids decoding the header.
+     *
+     * @param matches the predicate to test the decoded header with.
+     * @return the resulting predicate.
+     */
     public static FixMessagePredicate whereHeader(
         final Predicate<HeaderDecoder> matches)
     {
         final HeaderDecoder header = new HeaderDecoder();
-        final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(1024);
         final AsciiBuffer asciiBuffer = new MutableAsciiBuffer();
         return message ->
         {
-            final int length = message.bodyLength();
-            buffer.checkLimit(length);
-            message.getBody(buffer, 0, length);
-            asciiBuffer.wrap(buffer);
-            header.decode(asciiBuffer, 0, length);
+            asciiBuffer.wrap(message.buffer());
+            header.decode(asciiBuffer, bodyOffset(message), message.bodyLength());
             return matches.test(header);
         };
     }
@@ -228,18 +267,37 @@ public final class FixMessagePredicates
 
     public static FixMessagePredicate bodyMatches(final Pattern pattern)
     {
-        final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(1024);
         final BufferAsciiSequence sequence = new BufferAsciiSequence();
         return message ->
         {
-            final int length = message.bodyLength();
-            buffer.checkLimit(length);
-            message.getBody(buffer, 0, length);
-            sequence.wrap(buffer, 0, length);
+            sequence.wrap(message.buffer(), bodyOffset(message), message.bodyLength());
             return pattern.matcher(sequence).matches();
         };
     }
 
+    // The body is the only variable length field, so its position doesn't depend upon the decoder's limit.
+    private static int bodyOffset(final FixMessageDecoder message)
+    {
+        return message.offset() + actingBlockLength(message) + FixMessageDecoder.bodyHeaderLength();
+    }
+
+    // Archived messages are always preceded by their MessageHeader, which records the block length and version
+    // they were encoded with. These can differ from the decoder's own schema if the archive was written by
+    // another version of Artio.
+    static int actingBlockLength(final FixMessageDecoder message)
+    {
+        return message.buffer().getShort(
+            message.offset() - MessageHeaderDecoder.ENCODED_LENGTH + MessageHeaderDecoder.blockLengthEncodingOffset(),
+            MessageHeaderDecoder.BYTE_ORDER) & 0xFFFF;
+    }
+
+    static int actingVersion(final FixMessageDecoder message)
+    {
+        return message.buffer().getShort(
+            message.offset() - MessageHeaderDecoder.ENCODED_LENGTH + MessageHeaderDecoder.versionEncodingOffset(),
+            MessageHeaderDecoder.BYTE_ORDER) & 0xFFFF;
+    }
+
     public static FixMessagePredicate alwaysTrue()
     {
         return message -> true;
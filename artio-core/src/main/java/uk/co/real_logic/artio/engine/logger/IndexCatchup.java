@@ -0,0 +1,249 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.client.ArchiveException;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.ErrorHandler;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.AgentInvoker;
+import org.agrona.concurrent.IdleStrategy;
+import uk.co.real_logic.artio.CommonConfiguration;
+import uk.co.real_logic.artio.DebugLogger;
+import uk.co.real_logic.artio.LogTag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.aeron.CommonContext.IPC_CHANNEL;
+
+/**
+ * Catches indices up with the archive on startup, for example after a crash when the archive has recorded
+ * messages that weren't indexed.
+ *
+ * Each recording that needs catching up is replayed once, from the earliest position that any index has reached,
+ * and fanned out to every index that hasn't yet indexed each fragment. Recordings are replayed concurrently, so
+ * the inbound and outbound streams are caught up at the same time.
+ */
+public class IndexCatchup
+{
+    private static final int LIMIT = 20;
+    private static final int MAX_CONCURRENT_REPLAYS = 8;
+
+    private final Long2ObjectHashMap<RecordingCatchup> recordingIdToCatchup = new Long2ObjectHashMap<>();
+    private final AeronArchive aeronArchive;
+    private final ErrorHandler errorHandler;
+    private final int archiveReplayStream;
+
+    public IndexCatchup(final AeronArchive aeronArchive, final ErrorHandler errorHandler, final int archiveReplayStream)
+    {
+        this.aeronArchive = aeronArchive;
+        this.errorHandler = errorHandler;
+        this.archiveReplayStream = archiveReplayStream;
+    }
+
+    /**
+     * Add indices to catch up.
+     *
+     * @param indices the indices to catch up.
+     * @return this
+     */
+    public IndexCatchup add(final List<Index> indices)
+    {
+        for (int i = 0, size = indices.size(); i < size; i++)
+        {
+            final Index index = indices.get(i);
+            index.readLastPosition((aeronSessionId, recordingId, indexStoppedPosition) ->
+            {
+                final RecordingCatchup catchup = recordingIdToCatchup.computeIfAbsent(
+                    recordingId, RecordingCatchup::new);
+                catchup.add(index, indexStoppedPosition);
+            });
+        }
+
+        return this;
+    }
+
+    /**
+     * Replay the archive into the indices, blocking until they have caught up.
+     */
+    public void run()
+    {
+        final List<RecordingCatchup> pending = new ArrayList<>();
+        recordingIdToCatchup.values().forEach((catchup) ->
+        {
+            if (catchup.lookupStopPosition())
+            {
+                pending.add(catchup);
+            }
+        });
+        recordingIdToCatchup.clear();
+
+        if (pending.isEmpty())
+        {
+            return;
+        }
+
+        final IdleStrategy idleStrategy = CommonConfiguration.backoffIdleStrategy();
+        final AgentInvoker aeronInvoker = aeronArchive.context().aeron().conductorAgentInvoker();
+        final List<RecordingCatchup> active = new ArrayList<>();
+
+        try (Subscription subscription = aeronArchive.context().aeron().addSubscription(
+            IPC_CHANNEL, archiveReplayStream))
+        {
+            while (!pending.isEmpty() || !active.isEmpty())
+            {
+                while (active.size() < MAX_CONCURRENT_REPLAYS && !pending.isEmpty())
+                {
+                    final RecordingCatchup catchup = pending.remove(pending.size() - 1);
+                    if (catchup.startReplay())
+                    {
+                        active.add(catchup);
+                    }
+                }
+
+                int workCount = 0;
+                for (int i = active.size() - 1; i >= 0; i--)
+                {
+                    final RecordingCatchup catchup = active.get(i);
+                    workCount += catchup.poll(subscription);
+                    if (catchup.isComplete())
+                    {
+                        active.remove(i);
+                    }
+                }
+
+                if (workCount == 0)
+                {
+                    aeronArchive.checkForErrorResponse();
+                    if (aeronInvoker != null)
+                    {
+                        aeronInvoker.invoke();
+                    }
+                }
+
+                idleStrategy.idle(workCount);
+            }
+        }
+    }
+
+    private final class RecordingCatchup implements FragmentHandler
+    {
+        private final List<Index> indices = new ArrayList<>();
+        private final List<Long> indexStoppedPositions = new ArrayList<>();
+        private final long recordingId;
+
+        private long[] indexedPositions;
+        private long startPosition = Long.MAX_VALUE;
+        private long stopPosition;
+        private int replaySessionId;
+        private Image image;
+
+        private RecordingCatchup(final long recordingId)
+        {
+            this.recordingId = recordingId;
+        }
+
+        private void add(final Index index, final long indexStoppedPosition)
+        {
+            indices.add(index);
+            indexStoppedPositions.add(indexStoppedPosition);
+            startPosition = Math.min(startPosition, indexStoppedPosition);
+        }
+
+        private boolean lookupStopPosition()
+        {
+            try
+            {
+                stopPosition = aeronArchive.getStopPosition(recordingId);
+            }
+            catch (final ArchiveException ex)
+            {
+                errorHandler.onError(ex);
+                return false;
+            }
+
+            final int size = indices.size();
+            indexedPositions = new long[size];
+            for (int i = 0; i < size; i++)
+            {
+                indexedPositions[i] = indexStoppedPositions.get(i);
+                if (stopPosition > indexedPositions[i])
+                {
+                    DebugLogger.log(
+                        LogTag.INDEX,
+                        "Catchup [%s]: recordingId = %d, recordingStopped @ %d, indexStopped @ %d",
+                        indices.get(i).getName(),
+                        recordingId,
+                        stopPosition,
+                        indexedPositions[i]);
+                }
+            }
+
+            return stopPosition > startPosition;
+        }
+
+        private boolean startReplay()
+        {
+            try
+            {
+                replaySessionId = (int)aeronArchive.startReplay(
+                    recordingId, startPosition, stopPosition - startPosition, IPC_CHANNEL, archiveReplayStream);
+                return true;
+            }
+            catch (final ArchiveException ex)
+            {
+                errorHandler.onError(ex);
+                return false;
+            }
+        }
+
+        private int poll(final Subscription subscription)
+        {
+            if (image == null)
+            {
+                image = subscription.imageBySessionId(replaySessionId);
+                return 0;
+            }
+
+            return image.poll(this, LIMIT);
+        }
+
+        private boolean isComplete()
+        {
+            return image != null && (image.position() >= stopPosition || image.isClosed());
+        }
+
+        public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+        {
+            final long position = header.position();
+            final List<Index> indices = this.indices;
+            final long[] indexedPositions = this.indexedPositions;
+            for (int i = 0, size = indices.size(); i < size; i++)
+            {
+                if (position > indexedPositions[i])
+                {
+                    indices.get(i).onFragment(buffer, offset, length, header);
+                }
+            }
+        }
+    }
+}
@@ -15,19 +15,12 @@
  */
 package uk.co.real_logic.artio.engine.logger;
 
-import io.aeron.Image;
 import io.aeron.Subscription;
-import io.aeron.archive.client.AeronArchive;
-import io.aeron.archive.client.ArchiveException;
 import io.aeron.logbuffer.ControlledFragmentHandler;
 import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
-import org.agrona.ErrorHandler;
 import org.agrona.collections.CollectionUtil;
 import org.agrona.concurrent.Agent;
-import org.agrona.concurrent.AgentInvoker;
-import org.agrona.concurrent.IdleStrategy;
-import uk.co.real_logic.artio.CommonConfiguration;
 import uk.co.real_logic.artio.DebugLogger;
 import uk.co.real_logic.artio.LogTag;
 import uk.co.real_logic.artio.dictionary.generation.Exceptions;
@@ -35,11 +28,12 @@ import uk.co.real_logic.artio.engine.CompletionPosition;
 
 import java.util.List;
 
-import static io.aeron.CommonContext.IPC_CHANNEL;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 
 /**
  * Incrementally builds indexes by polling a subscription.
+ *
+ * @see IndexCatchup for catching indexes up with the archive on startup.
  */
 @SuppressWarnings("ForLoopReplaceableByForEach")
 public class Indexer implements Agent, ControlledFragmentHandler
@@ -50,23 +44,17 @@ public class Indexer implements Agent, ControlledFragmentHandler
     private final Subscription subscription;
     private final String agentNamePrefix;
     private final CompletionPosition completionPosition;
-    private final int archiveReplayStream;
 
     public Indexer(
         final List<Index> indices,
         final Subscription subscription,
         final String agentNamePrefix,
-        final CompletionPosition completionPosition,
-        final AeronArchive aeronArchive,
-        final ErrorHandler errorHandler,
-        final int archiveReplayStream)
+        final CompletionPosition completionPosition)
     {
         this.indices = indices;
         this.subscription = subscription;
         this.agentNamePrefix = agentNamePrefix;
         this.completionPosition = completionPosition;
-        this.archiveReplayStream = archiveReplayStream;
-        catchIndexUp(aeronArchive, errorHandler);
     }
 
     public int doWork()
@@ -74,72 +62,6 @@ public class Indexer implements Agent, ControlledFragmentHandler
         return subscription.controlledPoll(this, LIMIT) + CollectionUtil.sum(indices, Index::doWork);
     }
 
-    private void catchIndexUp(final AeronArchive aeronArchive, final ErrorHandler errorHandler)
-    {
-        final IdleStrategy idleStrategy = CommonConfiguration.backoffIdleStrategy();
-        final AgentInvoker aeronInvoker = aeronArchive.context().aeron().conductorAgentInvoker();
-
-        for (int i = 0, size = indices.size(); i < size; i++)
-        {
-            final Index index = indices.get(i);
-
-            index.readLastPosition((aeronSessionId, recordingId, indexStoppedPosition) ->
-            {
-                try
-                {
-                    final long recordingStoppedPosition = aeronArchive.getStopPosition(recordingId);
-                    if (recordingStoppedPosition > indexStoppedPosition)
-                    {
-                        DebugLogger.log(
-                            LogTag.INDEX,
-                            "Catchup [%s]: recordingId = %d, recordingStopped @ %d, indexStopped @ %d",
-                            index.getName(),
-                            recordingId,
-                            recordingStoppedPosition,
-                            indexStoppedPosition);
-
-                        final long length = recordingStoppedPosition - indexStoppedPosition;
-                        try (Subscription subscription = aeronArchive.replay(
-                            recordingId, indexStoppedPosition, length, IPC_CHANNEL, archiveReplayStream))
-                        {
-                            // Only do 1 replay at a time
-                            while (subscription.imageCount() != 1)
-                            {
-                                idle(idleStrategy, aeronInvoker);
-                                aeronArchive.checkForErrorResponse();
-                            }
-                            idleStrategy.reset();
-
-                            final Image replayImage = subscription.imageAtIndex(0);
-
-                            while (replayImage.position() < recordingStoppedPosition)
-                            {
-                                replayImage.poll(index, LIMIT);
-
-                                idle(idleStrategy, aeronInvoker);
-                            }
-                            idleStrategy.reset();
-                        }
-                    }
-                }
-                catch (final ArchiveException ex)
-                {
-                    errorHandler.onError(ex);
-                }
-            });
-        }
-    }
-
-    private void idle(final IdleStrategy idleStrategy, final AgentInvoker aeronInvoker)
-    {
-        if (aeronInvoker != null)
-        {
-            aeronInvoker.invoke();
-        }
-
-        idleStrategy.idle();
-    }
-
     public Action onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
     {
         final int streamId = header.streamId();
@@ -18,6 +18,7 @@ package uk.co.real_logic.artio.engine.logger;
 import org.agrona.ErrorHandler;
 import org.agrona.IoUtil;
 import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
 import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
 
@@ -25,6 +26,8 @@ import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+
 public final class LoggerUtil
 {
     public static ByteBuffer map(final File file, final int size)
@@ -52,6 +55,30 @@ public final class LoggerUtil
         return IoUtil.mapExistingFile(file, file.getName());
     }
 
+    /**
+     * Touch every page of a mapped buffer so that later accesses don't take page faults. Each page is written with a
+     * compare and set of zero for zero, so the contents of the buffer are left unchanged and the pages are mapped
+     * writable as well as readable.
+     *
+     * @param buffer the buffer to touch.
+     * @param <T> the type of the buffer.
+     * @return the buffer.
+     */
+    public static <T extends ByteBuffer> T preTouch(final T buffer)
+    {
+        preTouch(new UnsafeBuffer(buffer));
+        return buffer;
+    }
+
+    public static void preTouch(final AtomicBuffer buffer)
+    {
+        final int capacity = buffer.capacity();
+        for (int offset = 0; offset + SIZE_OF_LONG <= capacity; offset += IoUtil.BLOCK_SIZE)
+        {
+            buffer.compareAndSetLong(offset, 0L, 0L);
+        }
+    }
+
     // Returns true if the buffer has been initialised this time round, false if it was already initialised.
     public static boolean initialiseBuffer(
         final AtomicBuffer buffer,
@@ -17,6 +17,7 @@ package uk.co.real_logic.artio.engine.logger;
 
 import io.aeron.logbuffer.Header;
 import org.agrona.BitUtil;
+import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.IoUtil;
@@ -39,6 +40,7 @@ import java.util.function.LongFunction;
 import static io.aeron.logbuffer.FrameDescriptor.*;
 import static org.agrona.UnsafeAccess.UNSAFE;
 import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.*;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexSegmentDescriptor.RECORDS_PER_BLOCK;
 import static uk.co.real_logic.artio.messages.MessageStatus.OK;
 
 /**
@@ -46,6 +48,9 @@ import static uk.co.real_logic.artio.messages.MessageStatus.OK;
  *
  * Written Positions are stored in a separate file at {@link ReplayIndexDescriptor#replayPositionPath(String, int)}.
  *
+ * If replay index segments are enabled then records are compacted into segment files, see
+ * {@link ReplayIndexSegments}, before the ring buffer laps them so that they can still be replayed.
+ *
  * Buffer Consists of:
  *
  * MessageHeader
@@ -67,12 +72,13 @@ public class ReplayIndex implements Index
 
     private final Long2ObjectCache<SessionIndex> fixSessionIdToIndex;
 
-    private final String logFileDir;
+    private final String[] replayIndexDirs;
     private final int requiredStreamId;
     private final int indexFileSize;
     private final BufferFactory bufferFactory;
     private final AtomicBuffer positionBuffer;
     private final RecordingIdLookup recordingIdLookup;
+    private final ReplayIndexSegments segments;
 
     public ReplayIndex(
         final String logFileDir,
@@ -85,7 +91,96 @@ public class ReplayIndex implements Index
         final ErrorHandler errorHandler,
         final RecordingIdLookup recordingIdLookup)
     {
-        this.logFileDir = logFileDir;
+        this(
+            logFileDir,
+            requiredStreamId,
+            indexFileSize,
+            cacheNumSets,
+            cacheSetSize,
+            bufferFactory,
+            positionBuffer,
+            errorHandler,
+            recordingIdLookup,
+            0,
+            0);
+    }
+
+    /**
+     * Create a replay index.
+     *
+     * @param logFileDir the directory to store the index files in.
+     * @param requiredStreamId the stream id of the messages to index.
+     * @param indexFileSize the size of each session's ring buffer index file.
+     * @param cacheNumSets the number of sets in the cache of open session index files.
+     * @param cacheSetSize the size of each set in the cache of open session index files.
+     * @param bufferFactory the factory used to map session index files.
+     * @param positionBuffer the buffer to store the indexed positions in.
+     * @param errorHandler the handler for errors.
+     * @param recordingIdLookup lookup of the recording id of archived streams.
+     * @param segmentsMaxTotalSize the maximum total size in bytes of all segment files for this stream,
+     *                             0 disables compacting records into segments.
+     * @param segmentFileSize the maximum size in bytes of each segment file.
+     */
+    public ReplayIndex(
+        final String logFileDir,
+        final int requiredStreamId,
+        final int indexFileSize,
+        final int cacheNumSets,
+        final int cacheSetSize,
+        final BufferFactory bufferFactory,
+        final AtomicBuffer positionBuffer,
+        final ErrorHandler errorHandler,
+        final RecordingIdLookup recordingIdLookup,
+        final long segmentsMaxTotalSize,
+        final int segmentFileSize)
+    {
+        this(
+            logFileDir,
+            new String[]{ logFileDir },
+            requiredStreamId,
+            indexFileSize,
+            cacheNumSets,
+            cacheSetSize,
+            bufferFactory,
+            positionBuffer,
+            errorHandler,
+            recordingIdLookup,
+            segmentsMaxTotalSize,
+            segmentFileSize);
+    }
+
+    /**
+     * Create a replay index whose per session files are sharded across several directories.
+     *
+     * @param logFileDir the directory to store the replay positions file in.
+     * @param replayIndexDirs the directories to shard the session index and segment files across.
+     * @param requiredStreamId the stream id of the messages to index.
+     * @param indexFileSize the size of each session's ring buffer index file.
+     * @param cacheNumSets the number of sets in the cache of open session index files.
+     * @param cacheSetSize the size of each set in the cache of open session index files.
+     * @param bufferFactory the factory used to map session index files.
+     * @param positionBuffer the buffer to store the indexed positions in.
+     * @param errorHandler the handler for errors.
+     * @param recordingIdLookup lookup of the recording id of archived streams.
+     * @param segmentsMaxTotalSize the maximum total size in bytes of all segment files for this stream,
+     *                             0 disables compacting records into segments.
+     * @param segmentFileSize the maximum size in bytes of each segment file.
+     */
+    public ReplayIndex(
+        final String logFileDir,
+        final String[] replayIndexDirs,
+        final int requiredStreamId,
+        final int indexFileSize,
+        final int cacheNumSets,
+        final int cacheSetSize,
+        final BufferFactory bufferFactory,
+        final AtomicBuffer positionBuffer,
+        final ErrorHandler errorHandler,
+        final RecordingIdLookup recordingIdLookup,
+        final long segmentsMaxTotalSize,
+        final int segmentFileSize)
+    {
+        this.replayIndexDirs = replayIndexDirs;
         this.requiredStreamId = requiredStreamId;
         this.indexFileSize = indexFileSize;
         this.bufferFactory = bufferFactory;
@@ -98,6 +193,8 @@ public class ReplayIndex implements Index
         positionWriter = new IndexedPositionWriter(
             positionBuffer, errorHandler, 0, replayPositionPath);
         positionReader = new IndexedPositionReader(positionBuffer);
+        segments = segmentsMaxTotalSize > 0 ? new ReplayIndexSegments(
+            replayIndexDirs, requiredStreamId, segmentsMaxTotalSize, segmentFileSize, errorHandler) : null;
     }
 
     private long continuedFixSessionId;
@@ -163,10 +260,17 @@ public class ReplayIndex implements Index
         }
     }
 
+    public int doWork()
+    {
+        return bufferFactory.doWork();
+    }
+
     public void close()
     {
         positionWriter.close();
         fixSessionIdToIndex.clear();
+        CloseHelper.close(segments);
+        bufferFactory.close();
         IoUtil.unmap(positionBuffer.byteBuffer());
     }
 
@@ -180,10 +284,12 @@ public class ReplayIndex implements Index
         private final ByteBuffer wrappedBuffer;
         private final AtomicBuffer buffer;
         private final int recordCapacity;
+        private final int evictionLength;
+        private final ReplayIndexSegments.SessionSegments sessionSegments;
 
         SessionIndex(final long fixSessionId)
         {
-            final File logFile = replayIndexFile(logFileDir, fixSessionId, requiredStreamId);
+            final File logFile = replayIndexFile(replayIndexDirs, fixSessionId, requiredStreamId);
             final boolean exists = logFile.exists();
             this.wrappedBuffer = bufferFactory.map(logFile, indexFileSize);
             this.buffer = new UnsafeBuffer(wrappedBuffer);
@@ -205,6 +311,9 @@ public class ReplayIndex implements Index
                 beginChangeOrdered(buffer, resetPosition);
                 endChangeOrdered(buffer, resetPosition);
             }
+
+            evictionLength = Math.min(RECORDS_PER_BLOCK * RECORD_LENGTH, recordCapacity);
+            sessionSegments = segments != null ? segments.sessionSegments(fixSessionId) : null;
         }
 
         void onRecord(
@@ -216,6 +325,12 @@ public class ReplayIndex implements Index
         {
             final long beginChangePosition = beginChange(buffer);
             final long changePosition = beginChangePosition + RECORD_LENGTH;
+
+            if (sessionSegments != null)
+            {
+                evictLappedRecords(beginChangePosition);
+            }
+
             final int aeronSessionId = header.sessionId();
             final long recordingId = recordingIdLookup.getRecordingId(aeronSessionId);
             final long beginPosition = endPosition - length;
@@ -239,8 +354,25 @@ public class ReplayIndex implements Index
             endChangeOrdered(buffer, changePosition);
         }
 
+        // Compact the next block of records that the writer is about to lap before they get overwritten.
+        private void evictLappedRecords(final long beginChangePosition)
+        {
+            final long lappedPosition = beginChangePosition - recordCapacity;
+            if (lappedPosition >= sessionSegments.evictedUpTo())
+            {
+                sessionSegments.evict(
+                    buffer,
+                    recordCapacity,
+                    replayIndexRecord.sbeBlockLength(),
+                    replayIndexRecord.sbeSchemaVersion(),
+                    lappedPosition,
+                    lappedPosition + evictionLength);
+            }
+        }
+
         public void close()
         {
+            CloseHelper.close(sessionSegments);
             IoUtil.unmap(wrappedBuffer);
         }
     }
@@ -47,6 +47,23 @@ public final class ReplayIndexDescriptor
         return new File(String.format(logFileDir + File.separator + "replay-index-%d-%d", fixSessionId, streamId));
     }
 
+    static File replayIndexFile(final String[] replayIndexDirs, final long fixSessionId, final int streamId)
+    {
+        return replayIndexFile(replayIndexDir(replayIndexDirs, fixSessionId), fixSessionId, streamId);
+    }
+
+    /**
+     * Picks the directory that a session's replay index files are sharded into.
+     *
+     * @param replayIndexDirs the directories that the replay index files are sharded across.
+     * @param fixSessionId the session whose files are being located.
+     * @return the directory that the session's replay index files are stored in.
+     */
+    static String replayIndexDir(final String[] replayIndexDirs, final long fixSessionId)
+    {
+        return replayIndexDirs[(int)Math.floorMod(fixSessionId, (long)replayIndexDirs.length)];
+    }
+
     public static UnsafeBuffer replayPositionBuffer(final String logFileDir, final int streamId)
     {
         final String pathname = replayPositionPath(logFileDir, streamId);
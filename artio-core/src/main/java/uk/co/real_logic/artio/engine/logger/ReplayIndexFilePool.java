@@ -0,0 +1,255 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Arrays.asList;
+
+/**
+ * A {@link BufferFactory} for the replay index files of a stream that keeps a pool of spare files in each replay
+ * index directory which have already been created, mapped and pre-touched. When the index file of a new session is
+ * mapped a spare file from the same directory is renamed to it and its existing mapping is handed out, so the first
+ * records indexed for a session don't take page faults on the archiving thread. Each pool is topped back up a file
+ * at a time from {@link #doWork()}.
+ *
+ * Spare files that are left over when the engine closes are picked up again the next time that it starts.
+ *
+ * Not thread safe, owned by the thread that writes to the {@link ReplayIndex}.
+ */
+public class ReplayIndexFilePool implements BufferFactory
+{
+    private static final String SPARE_FILE_PREFIX = "replay-index-spare-";
+
+    private final Map<File, SparePool> dirToPool = new HashMap<>();
+    private final List<SparePool> pools = new ArrayList<>();
+    private final String spareFilePrefix;
+    private final int indexFileSize;
+    private final int poolSize;
+    private final boolean preTouch;
+    private final ErrorHandler errorHandler;
+
+    /**
+     * Create a pool of replay index files, the pool is filled before this returns.
+     *
+     * @param replayIndexDirs the directories that the replay index files are sharded across.
+     * @param streamId the stream id of the replay index that the files are for.
+     * @param indexFileSize the size of each session's ring buffer index file.
+     * @param poolSize the number of spare files to keep in each directory.
+     * @param preTouch true if files that are mapped without coming from the pool should also be pre-touched.
+     * @param errorHandler the handler for errors.
+     */
+    public ReplayIndexFilePool(
+        final String[] replayIndexDirs,
+        final int streamId,
+        final int indexFileSize,
+        final int poolSize,
+        final boolean preTouch,
+        final ErrorHandler errorHandler)
+    {
+        this.spareFilePrefix = SPARE_FILE_PREFIX + streamId + "-";
+        this.indexFileSize = indexFileSize;
+        this.poolSize = poolSize;
+        this.preTouch = preTouch;
+        this.errorHandler = errorHandler;
+
+        for (final String replayIndexDir : new LinkedHashSet<>(asList(replayIndexDirs)))
+        {
+            final SparePool pool = new SparePool(new File(replayIndexDir));
+            pools.add(pool);
+            dirToPool.put(pool.dir, pool);
+
+            pool.loadExistingSpareFiles();
+            pool.fill();
+        }
+    }
+
+    public ByteBuffer map(final File file, final int size)
+    {
+        if (size == indexFileSize && !file.exists())
+        {
+            final SparePool pool = dirToPool.get(file.getParentFile());
+            if (pool != null)
+            {
+                final ByteBuffer buffer = pool.take(file);
+                if (buffer != null)
+                {
+                    return buffer;
+                }
+            }
+        }
+
+        final ByteBuffer buffer = LoggerUtil.map(file, size);
+        return preTouch ? LoggerUtil.preTouch(buffer) : buffer;
+    }
+
+    public int doWork()
+    {
+        int work = 0;
+        for (final SparePool pool : pools)
+        {
+            if (pool.replenish())
+            {
+                work++;
+            }
+        }
+
+        return work;
+    }
+
+    public void close()
+    {
+        pools.forEach(SparePool::close);
+    }
+
+    int spareFileCount(final String replayIndexDir)
+    {
+        return dirToPool.get(new File(replayIndexDir)).spareFiles.size();
+    }
+
+    private final class SparePool
+    {
+        private final ArrayDeque<SpareFile> spareFiles = new ArrayDeque<>();
+        private final File dir;
+
+        private long nextSpareId;
+        private boolean failed;
+
+        SparePool(final File dir)
+        {
+            this.dir = dir;
+        }
+
+        void loadExistingSpareFiles()
+        {
+            final String[] fileNames = dir.list((parent, name) -> name.startsWith(spareFilePrefix));
+            if (fileNames == null)
+            {
+                return;
+            }
+
+            for (final String fileName : fileNames)
+            {
+                final File file = new File(dir, fileName);
+                try
+                {
+                    final long spareId = Long.parseLong(fileName.substring(spareFilePrefix.length()));
+                    nextSpareId = Math.max(nextSpareId, spareId + 1);
+
+                    if (file.length() == indexFileSize && spareFiles.size() < poolSize)
+                    {
+                        spareFiles.addLast(new SpareFile(file, LoggerUtil.preTouch(LoggerUtil.mapExistingFile(file))));
+                    }
+                    else
+                    {
+                        IoUtil.deleteIfExists(file);
+                    }
+                }
+                catch (final NumberFormatException ignore)
+                {
+                    // Not a spare file that was created by this pool.
+                }
+            }
+        }
+
+        void fill()
+        {
+            for (int i = spareFiles.size(); i < poolSize; i++)
+            {
+                if (!replenish())
+                {
+                    return;
+                }
+            }
+        }
+
+        boolean replenish()
+        {
+            if (failed || spareFiles.size() >= poolSize)
+            {
+                return false;
+            }
+
+            final File file = new File(dir, spareFilePrefix + nextSpareId++);
+            try
+            {
+                final MappedByteBuffer buffer = LoggerUtil.mapNewFile(file, indexFileSize);
+                spareFiles.addLast(new SpareFile(file, LoggerUtil.preTouch(buffer)));
+                return true;
+            }
+            catch (final Exception ex)
+            {
+                // Don't keep retrying every duty cycle, sessions fall back to mapping their own files.
+                failed = true;
+                errorHandler.onError(ex);
+                return false;
+            }
+        }
+
+        ByteBuffer take(final File file)
+        {
+            final SpareFile spareFile = spareFiles.pollFirst();
+            if (spareFile == null)
+            {
+                return null;
+            }
+
+            try
+            {
+                Files.move(spareFile.file.toPath(), file.toPath(), ATOMIC_MOVE);
+                return spareFile.buffer;
+            }
+            catch (final IOException ex)
+            {
+                errorHandler.onError(ex);
+                IoUtil.unmap(spareFile.buffer);
+                return null;
+            }
+        }
+
+        void close()
+        {
+            spareFiles.forEach(spareFile -> IoUtil.unmap(spareFile.buffer));
+            spareFiles.clear();
+        }
+    }
+
+    private static final class SpareFile
+    {
+        private final File file;
+        private final MappedByteBuffer buffer;
+
+        SpareFile(final File file, final MappedByteBuffer buffer)
+        {
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+
+import java.io.File;
+import java.nio.ByteOrder;
+
+/**
+ * Replay index segments store the records that have been evicted from a session's replay index ring buffer, so
+ * that they can continue to be replayed after the ring buffer has lapped them.
+ *
+ * Each segment file belongs to a single session and stream and consists of a sequence of blocks. Segment files
+ * are given a globally increasing segment id so that the oldest segments can be deleted first.
+ *
+ * Block Consists of:
+ *
+ * Block Length (including this header, written last)
+ * Record Count
+ * Ring Begin Position - the position within the ring buffer of the first record in the block
+ * Ring End Position - the position within the ring buffer after the last record in the block
+ * Min Sequence Index and Sequence Number of the records in the block
+ * Max Sequence Index and Sequence Number of the records in the block
+ * Multiple delta encoded records
+ *
+ * Each record is a series of zig-zag encoded variable length integers: sequence number delta, sequence index delta,
+ * recording id delta, position delta and length. Deltas are relative to the previous record in the block.
+ */
+final class ReplayIndexSegmentDescriptor
+{
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int RECORDS_PER_BLOCK = 64;
+
+    private static final int BLOCK_LENGTH_OFFSET = 0;
+    private static final int RECORD_COUNT_OFFSET = BLOCK_LENGTH_OFFSET + BitUtil.SIZE_OF_INT;
+    private static final int RING_BEGIN_POSITION_OFFSET = RECORD_COUNT_OFFSET + BitUtil.SIZE_OF_INT;
+    private static final int RING_END_POSITION_OFFSET = RING_BEGIN_POSITION_OFFSET + BitUtil.SIZE_OF_LONG;
+    private static final int MIN_SEQUENCE_INDEX_OFFSET = RING_END_POSITION_OFFSET + BitUtil.SIZE_OF_LONG;
+    private static final int MIN_SEQUENCE_NUMBER_OFFSET = MIN_SEQUENCE_INDEX_OFFSET + BitUtil.SIZE_OF_INT;
+    private static final int MAX_SEQUENCE_INDEX_OFFSET = MIN_SEQUENCE_NUMBER_OFFSET + BitUtil.SIZE_OF_INT;
+    private static final int MAX_SEQUENCE_NUMBER_OFFSET = MAX_SEQUENCE_INDEX_OFFSET + BitUtil.SIZE_OF_INT;
+
+    static final int BLOCK_HEADER_LENGTH = MAX_SEQUENCE_NUMBER_OFFSET + BitUtil.SIZE_OF_INT;
+
+    private static final int MAX_VAR_INT_LENGTH = 5;
+    private static final int MAX_VAR_LONG_LENGTH = 10;
+    private static final int MAX_RECORD_LENGTH = 3 * MAX_VAR_INT_LENGTH + 2 * MAX_VAR_LONG_LENGTH;
+
+    static final int MAX_BLOCK_LENGTH = BLOCK_HEADER_LENGTH + RECORDS_PER_BLOCK * MAX_RECORD_LENGTH;
+
+    private static final String SEGMENT_FILE_PREFIX = "replay-index-segment-";
+
+    private ReplayIndexSegmentDescriptor()
+    {
+    }
+
+    static File segmentFile(final String logFileDir, final long fixSessionId, final int streamId, final long segmentId)
+    {
+        return new File(logFileDir, segmentFilePrefix(fixSessionId, streamId) + segmentId);
+    }
+
+    static File segmentFile(
+        final String[] replayIndexDirs, final long fixSessionId, final int streamId, final long segmentId)
+    {
+        return segmentFile(
+            ReplayIndexDescriptor.replayIndexDir(replayIndexDirs, fixSessionId), fixSessionId, streamId, segmentId);
+    }
+
+    static String segmentFilePrefix(final long fixSessionId, final int streamId)
+    {
+        return SEGMENT_FILE_PREFIX + fixSessionId + "-" + streamId + "-";
+    }
+
+    static boolean isSegmentFileOfStream(final String fileName, final int streamId)
+    {
+        return fileName.startsWith(SEGMENT_FILE_PREFIX) && streamId == parseStreamId(fileName);
+    }
+
+    static long parseFixSessionId(final String fileName)
+    {
+        final int start = SEGMENT_FILE_PREFIX.length();
+        return Long.parseLong(fileName.substring(start, fileName.indexOf('-', start)));
+    }
+
+    static int parseStreamId(final String fileName)
+    {
+        final int end = fileName.lastIndexOf('-');
+        return Integer.parseInt(fileName.substring(fileName.lastIndexOf('-', end - 1) + 1, end));
+    }
+
+    static long parseSegmentId(final String fileName)
+    {
+        return Long.parseLong(fileName.substring(fileName.lastIndexOf('-') + 1));
+    }
+
+    static int blockLength(final DirectBuffer buffer)
+    {
+        return buffer.getInt(BLOCK_LENGTH_OFFSET, BYTE_ORDER);
+    }
+
+    static void blockLength(final MutableDirectBuffer buffer, final int blockLength)
+    {
+        buffer.putInt(BLOCK_LENGTH_OFFSET, blockLength, BYTE_ORDER);
+    }
+
+    static int recordCount(final DirectBuffer buffer)
+    {
+        return buffer.getInt(RECORD_COUNT_OFFSET, BYTE_ORDER);
+    }
+
+    static long ringBeginPosition(final DirectBuffer buffer)
+    {
+        return buffer.getLong(RING_BEGIN_POSITION_OFFSET, BYTE_ORDER);
+    }
+
+    static long ringEndPosition(final DirectBuffer buffer)
+    {
+        return buffer.getLong(RING_END_POSITION_OFFSET, BYTE_ORDER);
+    }
+
+    static int minSequenceIndex(final DirectBuffer buffer)
+    {
+        return buffer.getInt(MIN_SEQUENCE_INDEX_OFFSET, BYTE_ORDER);
+    }
+
+    static int minSequenceNumber(final DirectBuffer buffer)
+    {
+        return buffer.getInt(MIN_SEQUENCE_NUMBER_OFFSET, BYTE_ORDER);
+    }
+
+    static int maxSequenceIndex(final DirectBuffer buffer)
+    {
+        return buffer.getInt(MAX_SEQUENCE_INDEX_OFFSET, BYTE_ORDER);
+    }
+
+    static int maxSequenceNumber(final DirectBuffer buffer)
+    {
+        return buffer.getInt(MAX_SEQUENCE_NUMBER_OFFSET, BYTE_ORDER);
+    }
+
+    static void putBlockHeader(
+        final MutableDirectBuffer buffer,
+        final int recordCount,
+        final long ringBeginPosition,
+        final long ringEndPosition,
+        final int minSequenceIndex,
+        final int minSequenceNumber,
+        final int maxSequenceIndex,
+        final int maxSequenceNumber)
+    {
+        // NB: the block length is written separately once the rest of the block is on disk.
+        buffer.putInt(BLOCK_LENGTH_OFFSET, 0, BYTE_ORDER);
+        buffer.putInt(RECORD_COUNT_OFFSET, recordCount, BYTE_ORDER);
+        buffer.putLong(RING_BEGIN_POSITION_OFFSET, ringBeginPosition, BYTE_ORDER);
+        buffer.putLong(RING_END_POSITION_OFFSET, ringEndPosition, BYTE_ORDER);
+        buffer.putInt(MIN_SEQUENCE_INDEX_OFFSET, minSequenceIndex, BYTE_ORDER);
+        buffer.putInt(MIN_SEQUENCE_NUMBER_OFFSET, minSequenceNumber, BYTE_ORDER);
+        buffer.putInt(MAX_SEQUENCE_INDEX_OFFSET, maxSequenceIndex, BYTE_ORDER);
+        buffer.putInt(MAX_SEQUENCE_NUMBER_OFFSET, maxSequenceNumber, BYTE_ORDER);
+    }
+
+    // Returns the offset after the written value
+    static int putVarLong(final MutableDirectBuffer buffer, final int offset, final long value)
+    {
+        long zigZagged = (value << 1) ^ (value >> 63);
+        int index = offset;
+        while ((zigZagged & ~0x7FL) != 0)
+        {
+            buffer.putByte(index++, (byte)((zigZagged & 0x7F) | 0x80));
+            zigZagged >>>= 7;
+        }
+        buffer.putByte(index++, (byte)zigZagged);
+
+        return index;
+    }
+
+    static int varLongLength(final DirectBuffer buffer, final int offset)
+    {
+        int index = offset;
+        while ((buffer.getByte(index) & 0x80) != 0)
+        {
+            index++;
+        }
+
+        return index + 1 - offset;
+    }
+
+    static long getVarLong(final DirectBuffer buffer, final int offset)
+    {
+        long zigZagged = 0;
+        int shift = 0;
+        int index = offset;
+        byte value;
+        do
+        {
+            value = buffer.getByte(index++);
+            zigZagged |= (long)(value & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((value & 0x80) != 0);
+
+        return (zigZagged >>> 1) ^ -(zigZagged & 1);
+    }
+
+    static int compare(
+        final int sequenceIndex, final int sequenceNumber, final int otherSequenceIndex, final int otherSequenceNumber)
+    {
+        final int indexComparison = Integer.compare(sequenceIndex, otherSequenceIndex);
+        return indexComparison != 0 ? indexComparison : Integer.compare(sequenceNumber, otherSequenceNumber);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexSegmentDescriptor.*;
+
+/**
+ * Reads the records of a session that have been compacted into replay index segments by
+ * {@link ReplayIndexSegments}. Blocks whose sequence number range doesn't overlap the query are skipped
+ * without being decoded.
+ *
+ * Not thread safe, but can be used concurrently with the writer of the segments.
+ */
+class ReplayIndexSegmentReader
+{
+    @FunctionalInterface
+    interface RecordHandler
+    {
+        void onRecord(long position, int sequenceNumber, int sequenceIndex, long recordingId, int length);
+    }
+
+    private final ByteBuffer blockByteBuffer = ByteBuffer.allocateDirect(MAX_BLOCK_LENGTH).order(BYTE_ORDER);
+    private final UnsafeBuffer blockBuffer = new UnsafeBuffer(blockByteBuffer);
+
+    private final String[] replayIndexDirs;
+    private final int streamId;
+    private final ErrorHandler errorHandler;
+
+    ReplayIndexSegmentReader(final String[] replayIndexDirs, final int streamId, final ErrorHandler errorHandler)
+    {
+        this.replayIndexDirs = replayIndexDirs;
+        this.streamId = streamId;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Read the records for a session from its segments in the order that they were indexed.
+     *
+     * @param fixSessionId the FIX session id of the stream to query.
+     * @param beginSequenceNumber sequence number to begin at (inclusive).
+     * @param beginSequenceIndex the sequence index to begin at (inclusive).
+     * @param endSequenceNumber sequence number to end at (inclusive).
+     * @param endSequenceIndex the sequence index to end at (inclusive).
+     * @param upToMostRecentMessage true if the end sequence number and index should be ignored.
+     * @param handler the handler to pass records within the range to.
+     * @return the position within the ring buffer that the segments have been evicted up to, 0 if there are none.
+     */
+    long query(
+        final long fixSessionId,
+        final int beginSequenceNumber,
+        final int beginSequenceIndex,
+        final int endSequenceNumber,
+        final int endSequenceIndex,
+        final boolean upToMostRecentMessage,
+        final RecordHandler handler)
+    {
+        final String prefix = segmentFilePrefix(fixSessionId, streamId);
+        final File dir = new File(ReplayIndexDescriptor.replayIndexDir(replayIndexDirs, fixSessionId));
+        final String[] fileNames = dir.list((parent, name) -> name.startsWith(prefix));
+        if (fileNames == null || fileNames.length == 0)
+        {
+            return 0;
+        }
+
+        final long[] segmentIds = new long[fileNames.length];
+        for (int i = 0; i < fileNames.length; i++)
+        {
+            segmentIds[i] = parseSegmentId(fileNames[i]);
+        }
+        Arrays.sort(segmentIds);
+
+        long evictedUpTo = 0;
+        for (final long segmentId : segmentIds)
+        {
+            final File file = segmentFile(dir.getPath(), fixSessionId, streamId, segmentId);
+            try (FileChannel channel = FileChannel.open(file.toPath(), READ))
+            {
+                evictedUpTo = Math.max(evictedUpTo, readSegment(
+                    channel,
+                    beginSequenceNumber,
+                    beginSequenceIndex,
+                    endSequenceNumber,
+                    endSequenceIndex,
+                    upToMostRecentMessage,
+                    handler));
+            }
+            catch (final NoSuchFileException e)
+            {
+                // Deleted by the writer in order to stay within its size budget.
+            }
+            catch (final IOException e)
+            {
+                errorHandler.onError(e);
+            }
+        }
+
+        return evictedUpTo;
+    }
+
+    private long readSegment(
+        final FileChannel channel,
+        final int beginSequenceNumber,
+        final int beginSequenceIndex,
+        final int endSequenceNumber,
+        final int endSequenceIndex,
+        final boolean upToMostRecentMessage,
+        final RecordHandler handler) throws IOException
+    {
+        final UnsafeBuffer blockBuffer = this.blockBuffer;
+        final long fileSize = channel.size();
+
+        long evictedUpTo = 0;
+        long readPosition = 0;
+        while (readPosition + BLOCK_HEADER_LENGTH <= fileSize)
+        {
+            if (!read(channel, readPosition, BLOCK_HEADER_LENGTH))
+            {
+                break;
+            }
+
+            final int blockLength = blockLength(blockBuffer);
+            if (blockLength < BLOCK_HEADER_LENGTH || blockLength > MAX_BLOCK_LENGTH ||
+                readPosition + blockLength > fileSize)
+            {
+                // Block is still being written.
+                break;
+            }
+
+            evictedUpTo = ringEndPosition(blockBuffer);
+
+            final boolean afterEnd = !upToMostRecentMessage && compare(
+                minSequenceIndex(blockBuffer), minSequenceNumber(blockBuffer),
+                endSequenceIndex, endSequenceNumber) > 0;
+            final boolean beforeBegin = compare(
+                maxSequenceIndex(blockBuffer), maxSequenceNumber(blockBuffer),
+                beginSequenceIndex, beginSequenceNumber) < 0;
+
+            if (!afterEnd && !beforeBegin && read(channel, readPosition, blockLength))
+            {
+                readBlock(
+                    beginSequenceNumber,
+                    beginSequenceIndex,
+                    endSequenceNumber,
+                    endSequenceIndex,
+                    upToMostRecentMessage,
+                    handler);
+            }
+
+            readPosition += blockLength;
+        }
+
+        return evictedUpTo;
+    }
+
+    private void readBlock(
+        final int beginSequenceNumber,
+        final int beginSequenceIndex,
+        final int endSequenceNumber,
+        final int endSequenceIndex,
+        final boolean upToMostRecentMessage,
+        final RecordHandler handler)
+    {
+        final UnsafeBuffer blockBuffer = this.blockBuffer;
+        final int recordCount = recordCount(blockBuffer);
+
+        int sequenceNumber = 0;
+        int sequenceIndex = 0;
+        long recordingId = 0;
+        long position = 0;
+
+        int offset = BLOCK_HEADER_LENGTH;
+        for (int i = 0; i < recordCount; i++)
+        {
+            sequenceNumber += (int)getVarLong(blockBuffer, offset);
+            offset += varLongLength(blockBuffer, offset);
+            sequenceIndex += (int)getVarLong(blockBuffer, offset);
+            offset += varLongLength(blockBuffer, offset);
+            recordingId += getVarLong(blockBuffer, offset);
+            offset += varLongLength(blockBuffer, offset);
+            position += getVarLong(blockBuffer, offset);
+            offset += varLongLength(blockBuffer, offset);
+            final int length = (int)getVarLong(blockBuffer, offset);
+            offset += varLongLength(blockBuffer, offset);
+
+            final boolean afterEnd = !upToMostRecentMessage &&
+                compare(sequenceIndex, sequenceNumber, endSequenceIndex, endSequenceNumber) > 0;
+            final boolean withinQueryRange =
+                compare(sequenceIndex, sequenceNumber, beginSequenceIndex, beginSequenceNumber) >= 0;
+            if (withinQueryRange && !afterEnd)
+            {
+                handler.onRecord(position, sequenceNumber, sequenceIndex, recordingId, length);
+            }
+        }
+    }
+
+    private boolean read(final FileChannel channel, final long position, final int length) throws IOException
+    {
+        final ByteBuffer blockByteBuffer = this.blockByteBuffer;
+        blockByteBuffer.clear().limit(length);
+        while (blockByteBuffer.hasRemaining())
+        {
+            if (channel.read(blockByteBuffer, position + blockByteBuffer.position()) < 0)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
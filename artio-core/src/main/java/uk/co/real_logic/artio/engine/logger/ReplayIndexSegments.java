@@ -0,0 +1,420 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.CloseHelper;
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import uk.co.real_logic.artio.storage.messages.ReplayIndexRecordDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.RECORD_LENGTH;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.offset;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexSegmentDescriptor.*;
+
+/**
+ * Compacts records that are about to be overwritten in the replay index ring buffers of a given stream into
+ * per session segment files, see {@link ReplayIndexSegmentDescriptor} for the format.
+ *
+ * The total size of the segment files for the stream is bounded by a global budget rather than a per session one,
+ * once it is exceeded the oldest segment files, whichever session they belong to, are deleted.
+ *
+ * Not thread safe, owned by the thread that writes to the {@link ReplayIndex}.
+ */
+class ReplayIndexSegments implements AutoCloseable
+{
+    private final ArrayDeque<SegmentFile> segmentFiles = new ArrayDeque<>();
+    private final Long2ObjectHashMap<SegmentFile> latestSegmentFileBySession = new Long2ObjectHashMap<>();
+    private final ByteBuffer blockByteBuffer = ByteBuffer.allocateDirect(MAX_BLOCK_LENGTH).order(BYTE_ORDER);
+    private final UnsafeBuffer blockBuffer = new UnsafeBuffer(blockByteBuffer);
+    private final ByteBuffer blockLengthByteBuffer = ByteBuffer.allocateDirect(BLOCK_HEADER_LENGTH).order(BYTE_ORDER);
+    private final UnsafeBuffer blockLengthBuffer = new UnsafeBuffer(blockLengthByteBuffer);
+    private final ReplayIndexRecordDecoder indexRecord = new ReplayIndexRecordDecoder();
+
+    private final String[] replayIndexDirs;
+    private final int streamId;
+    private final long maxTotalSize;
+    private final int segmentFileSize;
+    private final ErrorHandler errorHandler;
+
+    private long totalSize;
+    private long nextSegmentId;
+
+    ReplayIndexSegments(
+        final String[] replayIndexDirs,
+        final int streamId,
+        final long maxTotalSize,
+        final int segmentFileSize,
+        final ErrorHandler errorHandler)
+    {
+        this.replayIndexDirs = replayIndexDirs;
+        this.streamId = streamId;
+        this.maxTotalSize = maxTotalSize;
+        this.segmentFileSize = segmentFileSize;
+        this.errorHandler = errorHandler;
+
+        if (segmentFileSize < MAX_BLOCK_LENGTH)
+        {
+            throw new IllegalArgumentException(
+                "Segment file size must be at least " + MAX_BLOCK_LENGTH + ", but was " + segmentFileSize);
+        }
+
+        loadExistingSegmentFiles();
+    }
+
+    private void loadExistingSegmentFiles()
+    {
+        final List<SegmentFile> existingFiles = new ArrayList<>();
+        for (final String replayIndexDir : new LinkedHashSet<>(Arrays.asList(replayIndexDirs)))
+        {
+            final File dir = new File(replayIndexDir);
+            final String[] fileNames = dir.list((parent, name) -> isSegmentFileOfStream(name, streamId));
+            if (fileNames == null)
+            {
+                continue;
+            }
+
+            for (final String fileName : fileNames)
+            {
+                final File file = new File(dir, fileName);
+                existingFiles.add(new SegmentFile(
+                    parseFixSessionId(fileName), parseSegmentId(fileName), file, file.length()));
+            }
+        }
+        existingFiles.sort(Comparator.comparingLong(segmentFile -> segmentFile.segmentId));
+
+        for (final SegmentFile segmentFile : existingFiles)
+        {
+            segmentFiles.addLast(segmentFile);
+            latestSegmentFileBySession.put(segmentFile.fixSessionId, segmentFile);
+            totalSize += segmentFile.size;
+            nextSegmentId = segmentFile.segmentId + 1;
+        }
+    }
+
+    SessionSegments sessionSegments(final long fixSessionId)
+    {
+        return new SessionSegments(fixSessionId);
+    }
+
+    long totalSize()
+    {
+        return totalSize;
+    }
+
+    public void close()
+    {
+        segmentFiles.clear();
+        latestSegmentFileBySession.clear();
+    }
+
+    private void enforceMaxTotalSize(final SegmentFile currentSegmentFile)
+    {
+        while (totalSize > maxTotalSize)
+        {
+            final SegmentFile oldest = segmentFiles.peekFirst();
+            if (oldest == null || oldest == currentSegmentFile)
+            {
+                return;
+            }
+
+            segmentFiles.pollFirst();
+            totalSize -= oldest.size;
+            oldest.deleted = true;
+            if (latestSegmentFileBySession.get(oldest.fixSessionId) == oldest)
+            {
+                latestSegmentFileBySession.remove(oldest.fixSessionId);
+            }
+
+            if (!oldest.file.delete() && oldest.file.exists())
+            {
+                errorHandler.onError(new IllegalStateException("Unable to delete replay index segment " + oldest.file));
+            }
+        }
+    }
+
+    private static final class SegmentFile
+    {
+        private final long fixSessionId;
+        private final long segmentId;
+        private final File file;
+        private long size;
+        private boolean deleted;
+
+        private SegmentFile(final long fixSessionId, final long segmentId, final File file, final long size)
+        {
+            this.fixSessionId = fixSessionId;
+            this.segmentId = segmentId;
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The segments of a single session, which are appended to as records are evicted from its ring buffer.
+     */
+    final class SessionSegments implements AutoCloseable
+    {
+        private final long fixSessionId;
+
+        private SegmentFile segmentFile;
+        private FileChannel channel;
+        private long writePosition;
+        private long evictedUpTo;
+
+        private SessionSegments(final long fixSessionId)
+        {
+            this.fixSessionId = fixSessionId;
+
+            final SegmentFile latestSegmentFile = latestSegmentFileBySession.get(fixSessionId);
+            if (latestSegmentFile != null)
+            {
+                try
+                {
+                    open(latestSegmentFile);
+                    scanToEndOfBlocks();
+                }
+                catch (final IOException e)
+                {
+                    errorHandler.onError(e);
+                    closeChannel();
+                }
+            }
+        }
+
+        /**
+         * The position within the ring buffer up to which records have been evicted into segments.
+         *
+         * @return the position within the ring buffer up to which records have been evicted into segments.
+         */
+        long evictedUpTo()
+        {
+            return evictedUpTo;
+        }
+
+        /**
+         * Evict a block of records from the ring buffer into a new segment block.
+         *
+         * @param ringBuffer the ring buffer of the replay index.
+         * @param recordCapacity the capacity of the ring buffer available for records.
+         * @param actingBlockLength the block length of the records in the ring buffer.
+         * @param actingVersion the version of the records in the ring buffer.
+         * @param ringBeginPosition the ring position of the first record to evict.
+         * @param ringEndPosition the ring position after the last record to evict.
+         */
+        void evict(
+            final AtomicBuffer ringBuffer,
+            final int recordCapacity,
+            final int actingBlockLength,
+            final int actingVersion,
+            final long ringBeginPosition,
+            final long ringEndPosition)
+        {
+            final UnsafeBuffer blockBuffer = ReplayIndexSegments.this.blockBuffer;
+            final ReplayIndexRecordDecoder indexRecord = ReplayIndexSegments.this.indexRecord;
+
+            int recordCount = 0;
+            int minSequenceIndex = Integer.MAX_VALUE;
+            int minSequenceNumber = Integer.MAX_VALUE;
+            int maxSequenceIndex = Integer.MIN_VALUE;
+            int maxSequenceNumber = Integer.MIN_VALUE;
+            int lastSequenceNumber = 0;
+            int lastSequenceIndex = 0;
+            long lastRecordingId = 0;
+            long lastPosition = 0;
+
+            int offset = BLOCK_HEADER_LENGTH;
+            for (long ringPosition = ringBeginPosition; ringPosition < ringEndPosition; ringPosition += RECORD_LENGTH)
+            {
+                indexRecord.wrap(
+                    ringBuffer, offset(ringPosition, recordCapacity), actingBlockLength, actingVersion);
+                final int length = indexRecord.length();
+                if (length == 0)
+                {
+                    // Empty slot, eg: skipped over when the index was restarted.
+                    continue;
+                }
+
+                final int sequenceNumber = indexRecord.sequenceNumber();
+                final int sequenceIndex = indexRecord.sequenceIndex();
+                final long recordingId = indexRecord.recordingId();
+                final long position = indexRecord.position();
+
+                offset = putVarLong(blockBuffer, offset, sequenceNumber - lastSequenceNumber);
+                offset = putVarLong(blockBuffer, offset, sequenceIndex - lastSequenceIndex);
+                offset = putVarLong(blockBuffer, offset, recordingId - lastRecordingId);
+                offset = putVarLong(blockBuffer, offset, position - lastPosition);
+                offset = putVarLong(blockBuffer, offset, length);
+
+                if (compare(sequenceIndex, sequenceNumber, minSequenceIndex, minSequenceNumber) < 0)
+                {
+                    minSequenceIndex = sequenceIndex;
+                    minSequenceNumber = sequenceNumber;
+                }
+
+                if (compare(sequenceIndex, sequenceNumber, maxSequenceIndex, maxSequenceNumber) > 0)
+                {
+                    maxSequenceIndex = sequenceIndex;
+                    maxSequenceNumber = sequenceNumber;
+                }
+
+                lastSequenceNumber = sequenceNumber;
+                lastSequenceIndex = sequenceIndex;
+                lastRecordingId = recordingId;
+                lastPosition = position;
+                recordCount++;
+            }
+
+            if (recordCount > 0)
+            {
+                putBlockHeader(
+                    blockBuffer,
+                    recordCount,
+                    ringBeginPosition,
+                    ringEndPosition,
+                    minSequenceIndex,
+                    minSequenceNumber,
+                    maxSequenceIndex,
+                    maxSequenceNumber);
+
+                try
+                {
+                    writeBlock(offset);
+                }
+                catch (final IOException e)
+                {
+                    errorHandler.onError(e);
+                    closeChannel();
+                }
+            }
+
+            evictedUpTo = ringEndPosition;
+        }
+
+        private void writeBlock(final int blockLength) throws IOException
+        {
+            if (channel == null || segmentFile.deleted || writePosition + blockLength > segmentFileSize)
+            {
+                rollSegmentFile();
+            }
+
+            final ByteBuffer blockByteBuffer = ReplayIndexSegments.this.blockByteBuffer;
+            blockByteBuffer.clear().limit(blockLength);
+            writeFully(blockByteBuffer, writePosition);
+
+            // Only publish the block to readers once its contents have been written.
+            blockLength(blockLengthBuffer, blockLength);
+            final ByteBuffer blockLengthByteBuffer = ReplayIndexSegments.this.blockLengthByteBuffer;
+            blockLengthByteBuffer.clear().limit(SIZE_OF_INT);
+            writeFully(blockLengthByteBuffer, writePosition);
+
+            writePosition += blockLength;
+            final long addedSize = Math.max(0, writePosition - segmentFile.size);
+            segmentFile.size += addedSize;
+            totalSize += addedSize;
+
+            enforceMaxTotalSize(segmentFile);
+        }
+
+        private void writeFully(final ByteBuffer byteBuffer, final long position) throws IOException
+        {
+            long filePosition = position;
+            while (byteBuffer.hasRemaining())
+            {
+                filePosition += channel.write(byteBuffer, filePosition);
+            }
+        }
+
+        private void rollSegmentFile() throws IOException
+        {
+            closeChannel();
+
+            final long segmentId = nextSegmentId++;
+            final File file = segmentFile(replayIndexDirs, fixSessionId, streamId, segmentId);
+            final SegmentFile newSegmentFile = new SegmentFile(fixSessionId, segmentId, file, 0);
+            segmentFiles.addLast(newSegmentFile);
+            latestSegmentFileBySession.put(fixSessionId, newSegmentFile);
+
+            open(newSegmentFile);
+        }
+
+        private void open(final SegmentFile segmentFile) throws IOException
+        {
+            final File parentDir = segmentFile.file.getParentFile();
+            IoUtil.ensureDirectoryExists(parentDir, parentDir.getAbsolutePath());
+
+            this.segmentFile = segmentFile;
+            this.channel = FileChannel.open(segmentFile.file.toPath(), CREATE, READ, WRITE);
+            this.writePosition = 0;
+        }
+
+        // Find the end of the last complete block, any partially written block after it gets overwritten.
+        private void scanToEndOfBlocks() throws IOException
+        {
+            final ByteBuffer headerByteBuffer = ReplayIndexSegments.this.blockLengthByteBuffer;
+            final UnsafeBuffer headerBuffer = blockLengthBuffer;
+            final long fileSize = channel.size();
+            while (writePosition + BLOCK_HEADER_LENGTH <= fileSize)
+            {
+                headerByteBuffer.clear();
+                while (headerByteBuffer.hasRemaining())
+                {
+                    if (channel.read(headerByteBuffer, writePosition + headerByteBuffer.position()) < 0)
+                    {
+                        return;
+                    }
+                }
+
+                final int blockLength = blockLength(headerBuffer);
+                if (blockLength < BLOCK_HEADER_LENGTH || writePosition + blockLength > fileSize)
+                {
+                    return;
+                }
+
+                evictedUpTo = ringEndPosition(headerBuffer);
+                writePosition += blockLength;
+            }
+        }
+
+        private void closeChannel()
+        {
+            CloseHelper.close(channel);
+            channel = null;
+        }
+
+        public void close()
+        {
+            closeChannel();
+        }
+    }
+}
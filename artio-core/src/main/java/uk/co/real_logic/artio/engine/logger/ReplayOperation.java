@@ -59,6 +59,7 @@ public class ReplayOperation
     private int aeronSessionId;
     private Image image;
     private int fragmentsToPoll = Integer.MAX_VALUE;
+    private boolean started;
 
     ReplayOperation(
         final ControlledFragmentHandler handler,
@@ -110,6 +111,7 @@ public class ReplayOperation
             else
             {
                 ranges.remove(0);
+                started = true;
             }
 
             try
@@ -167,6 +169,16 @@ public class ReplayOperation
         return replayedMessages;
     }
 
+    /**
+     * Check whether any archive replay has been started by this operation.
+     *
+     * @return true if an archive replay has been started, false if no messages can have been replayed yet.
+     */
+    boolean hasStarted()
+    {
+        return started;
+    }
+
     private boolean archivingNotComplete(final long endPosition, final long recordingId)
     {
         final int counterId = RecordingPos.findCounterIdByRecording(countersReader, recordingId);
@@ -44,6 +44,9 @@ import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
 /**
  * Queries an index of a composite key of session id and sequence number.
  *
+ * If replay index segments are enabled then records that have been compacted out of the ring buffer are read from
+ * their segments before the ring buffer is queried.
+ *
  * This object isn't thread-safe, but the underlying replay index is a single-writer, multiple-reader threadsafe index.
  */
 public class ReplayQuery implements AutoCloseable
@@ -53,13 +56,14 @@ public class ReplayQuery implements AutoCloseable
 
     private final LongFunction<SessionQuery> newSessionQuery = SessionQuery::new;
     private final Long2ObjectCache<SessionQuery> fixSessionToIndex;
-    private final String logFileDir;
+    private final String[] replayIndexDirs;
     private final ExistingBufferFactory indexBufferFactory;
     private final int requiredStreamId;
     private final IdleStrategy idleStrategy;
     private final AeronArchive aeronArchive;
     private final ErrorHandler errorHandler;
     private final int archiveReplayStream;
+    private final ReplayIndexSegmentReader segmentReader;
 
     private Subscription replaySubscription;
 
@@ -74,7 +78,57 @@ public class ReplayQuery implements AutoCloseable
         final ErrorHandler errorHandler,
         final int archiveReplayStream)
     {
-        this.logFileDir = logFileDir;
+        this(
+            logFileDir,
+            cacheNumSets,
+            cacheSetSize,
+            indexBufferFactory,
+            requiredStreamId,
+            idleStrategy,
+            aeronArchive,
+            errorHandler,
+            archiveReplayStream,
+            false);
+    }
+
+    public ReplayQuery(
+        final String logFileDir,
+        final int cacheNumSets,
+        final int cacheSetSize,
+        final ExistingBufferFactory indexBufferFactory,
+        final int requiredStreamId,
+        final IdleStrategy idleStrategy,
+        final AeronArchive aeronArchive,
+        final ErrorHandler errorHandler,
+        final int archiveReplayStream,
+        final boolean segmentsEnabled)
+    {
+        this(
+            new String[]{ logFileDir },
+            cacheNumSets,
+            cacheSetSize,
+            indexBufferFactory,
+            requiredStreamId,
+            idleStrategy,
+            aeronArchive,
+            errorHandler,
+            archiveReplayStream,
+            segmentsEnabled);
+    }
+
+    public ReplayQuery(
+        final String[] replayIndexDirs,
+        final int cacheNumSets,
+        final int cacheSetSize,
+        final ExistingBufferFactory indexBufferFactory,
+        final int requiredStreamId,
+        final IdleStrategy idleStrategy,
+        final AeronArchive aeronArchive,
+        final ErrorHandler errorHandler,
+        final int archiveReplayStream,
+        final boolean segmentsEnabled)
+    {
+        this.replayIndexDirs = replayIndexDirs;
         this.indexBufferFactory = indexBufferFactory;
         this.requiredStreamId = requiredStreamId;
         this.idleStrategy = idleStrategy;
@@ -82,6 +136,8 @@ public class ReplayQuery implements AutoCloseable
         this.errorHandler = errorHandler;
         this.archiveReplayStream = archiveReplayStream;
 
+        segmentReader = segmentsEnabled ?
+            new ReplayIndexSegmentReader(replayIndexDirs, requiredStreamId, errorHandler) : null;
         fixSessionToIndex = new Long2ObjectCache<>(cacheNumSets, cacheSetSize, SessionQuery::close);
     }
 
@@ -113,16 +169,23 @@ public class ReplayQuery implements AutoCloseable
         fixSessionToIndex.clear();
     }
 
-    private final class SessionQuery implements AutoCloseable
+    private final class SessionQuery implements AutoCloseable, ReplayIndexSegmentReader.RecordHandler
     {
+        private final long sessionId;
         private final ByteBuffer wrappedBuffer;
         private final UnsafeBuffer buffer;
         private final int capacity;
         private final Predicate<FixMessageDecoder> msgPredicate;
 
+        // NB: this is a List as we are looking up recordings in the correct order to replay them.
+        private List<RecordingRange> ranges;
+        private RecordingRange currentRange;
+        private int lastSequenceNumber;
+
         SessionQuery(final long sessionId)
         {
-            wrappedBuffer = indexBufferFactory.map(replayIndexFile(logFileDir, sessionId, requiredStreamId));
+            this.sessionId = sessionId;
+            wrappedBuffer = indexBufferFactory.map(replayIndexFile(replayIndexDirs, sessionId, requiredStreamId));
             buffer = new UnsafeBuffer(wrappedBuffer);
             capacity = recordCapacity(buffer.capacity());
             msgPredicate = decoder -> decoder.session() == sessionId;
@@ -142,14 +205,32 @@ public class ReplayQuery implements AutoCloseable
             final boolean upToMostRecentMessage = endSequenceNumber == MOST_RECENT_MESSAGE;
 
             // LOOKUP THE RANGE FROM THE INDEX
-            // NB: this is a List as we are looking up recordings in the correct order to replay them.
-            final List<RecordingRange> ranges = new ArrayList<>();
-            RecordingRange currentRange = null;
+            ranges = new ArrayList<>();
+            currentRange = null;
+            lastSequenceNumber = -1;
+
+            long segmentsEvictedUpTo = 0;
+            if (segmentReader != null)
+            {
+                segmentsEvictedUpTo = segmentReader.query(
+                    sessionId,
+                    beginSequenceNumber,
+                    beginSequenceIndex,
+                    endSequenceNumber,
+                    endSequenceIndex,
+                    upToMostRecentMessage,
+                    this);
+            }
 
             long iteratorPosition = getIteratorPosition();
             long stopIteratingPosition = iteratorPosition + capacity;
+            if (segmentsEvictedUpTo > 0)
+            {
+                // Records before this position in the ring buffer have already been read from the segments.
+                iteratorPosition = Math.min(
+                    Math.max(iteratorPosition, segmentsEvictedUpTo + capacity), stopIteratingPosition);
+            }
 
-            int lastSequenceNumber = -1;
             while (iteratorPosition != stopIteratingPosition)
             {
                 final long changePosition = endChangeVolatile(buffer);
@@ -187,15 +268,7 @@ public class ReplayQuery implements AutoCloseable
                         (sequenceIndex == beginSequenceIndex && sequenceNumber >= beginSequenceNumber);
                     if (withinQueryRange)
                     {
-                        currentRange = addRange(
-                            ranges,
-                            currentRange,
-                            lastSequenceNumber,
-                            beginPosition,
-                            sequenceNumber,
-                            recordingId,
-                            readLength);
-                        lastSequenceNumber = sequenceNumber;
+                        onRecord(beginPosition, sequenceNumber, sequenceIndex, recordingId, readLength);
                         iteratorPosition += RECORD_LENGTH;
                     }
                     else // before start of query
@@ -214,9 +287,31 @@ public class ReplayQuery implements AutoCloseable
                 ranges.add(currentRange);
             }
 
+            final List<RecordingRange> ranges = this.ranges;
+            this.ranges = null;
+            this.currentRange = null;
+
             return newReplayOperation(handler, ranges);
         }
 
+        public void onRecord(
+            final long beginPosition,
+            final int sequenceNumber,
+            final int sequenceIndex,
+            final long recordingId,
+            final int readLength)
+        {
+            currentRange = addRange(
+                ranges,
+                currentRange,
+                lastSequenceNumber,
+                beginPosition,
+                sequenceNumber,
+                recordingId,
+                readLength);
+            lastSequenceNumber = sequenceNumber;
+        }
+
         private long skipToStart(final int beginSequenceNumber, final long iteratorPosition, final int sequenceNumber)
         {
             if (sequenceNumber < beginSequenceNumber)
@@ -52,6 +52,10 @@ import static uk.co.real_logic.artio.messages.MessageStatus.OK;
  * This agent subscribes to the stream of incoming fix data messages. It parses
  * Resend Request messages and searches the log, using the replay index to find
  * relevant messages to resend.
+ *
+ * Resend requests can be handled by several replayers running in parallel, each being a replay worker with its own
+ * replay query and publication. Each session is assigned to a single worker by its session id, so the replays of a
+ * given session are always processed in order.
  */
 public class Replayer implements ProtocolHandler, Agent
 {
@@ -80,6 +84,9 @@ public class Replayer implements ProtocolHandler, Agent
     private final EpochClock clock;
     private final ReplayHandler replayHandler;
     private final SenderSequenceNumbers senderSequenceNumbers;
+    private final ReplayerSession.Codecs codecs = new ReplayerSession.Codecs();
+    private final int workerIndex;
+    private final int workerCount;
 
     public Replayer(
         final ReplayQuery replayQuery,
@@ -94,6 +101,39 @@ public class Replayer implements ProtocolHandler, Agent
         final Set<String> gapfillOnReplayMessageTypes,
         final ReplayHandler replayHandler,
         final SenderSequenceNumbers senderSequenceNumbers)
+    {
+        this(
+            replayQuery,
+            publication,
+            bufferClaim,
+            idleStrategy,
+            errorHandler,
+            maxClaimAttempts,
+            subscription,
+            agentNamePrefix,
+            clock,
+            gapfillOnReplayMessageTypes,
+            replayHandler,
+            senderSequenceNumbers,
+            0,
+            1);
+    }
+
+    public Replayer(
+        final ReplayQuery replayQuery,
+        final ExclusivePublication publication,
+        final BufferClaim bufferClaim,
+        final IdleStrategy idleStrategy,
+        final ErrorHandler errorHandler,
+        final int maxClaimAttempts,
+        final Subscription subscription,
+        final String agentNamePrefix,
+        final EpochClock clock,
+        final Set<String> gapfillOnReplayMessageTypes,
+        final ReplayHandler replayHandler,
+        final SenderSequenceNumbers senderSequenceNumbers,
+        final int workerIndex,
+        final int workerCount)
     {
         this.replayQuery = replayQuery;
         this.publication = publication;
@@ -106,6 +146,8 @@ public class Replayer implements ProtocolHandler, Agent
         this.clock = clock;
         this.replayHandler = replayHandler;
         this.senderSequenceNumbers = senderSequenceNumbers;
+        this.workerIndex = workerIndex;
+        this.workerCount = workerCount;
 
         gapFillMessageTypes = new IntHashSet();
         gapfillOnReplayMessageTypes.forEach(messageTypeAsString ->
@@ -126,7 +168,7 @@ public class Replayer implements ProtocolHandler, Agent
         final int sequenceNumber,
         final long position)
     {
-        if (messageType == ResendRequestDecoder.MESSAGE_TYPE && status == OK)
+        if (messageType == ResendRequestDecoder.MESSAGE_TYPE && status == OK && isAssigned(sessionId))
         {
             final int limit = Math.min(length, srcBuffer.capacity() - srcOffset);
 
@@ -151,6 +193,12 @@ public class Replayer implements ProtocolHandler, Agent
                 return CONTINUE;
             }
 
+            if (mergeIntoPendingReplay(
+                connectionId, sessionId, sequenceIndex, beginSeqNo, endSeqNo, replayUpToMostRecent))
+            {
+                return COMMIT;
+            }
+
             final ReplayerSession replayerSession = new ReplayerSession(
                 bufferClaim,
                 idleStrategy,
@@ -158,6 +206,8 @@ public class Replayer implements ProtocolHandler, Agent
                 maxClaimAttempts,
                 gapFillMessageTypes,
                 senderSequenceNumbers,
+                workerIndex,
+                codecs,
                 publication,
                 clock,
                 beginSeqNo,
@@ -181,6 +231,33 @@ public class Replayer implements ProtocolHandler, Agent
         return CONTINUE;
     }
 
+    private boolean isAssigned(final long sessionId)
+    {
+        return Math.floorMod(sessionId, (long)workerCount) == workerIndex;
+    }
+
+    // Overlapping resend requests, eg during a reconnect storm, share a replay rather than each replaying the archive.
+    private boolean mergeIntoPendingReplay(
+        final long connectionId,
+        final long sessionId,
+        final int sequenceIndex,
+        final int beginSeqNo,
+        final int endSeqNo,
+        final boolean replayUpToMostRecent)
+    {
+        final ArrayList<ReplayerSession> replayerSessions = this.replayerSessions;
+        for (int i = 0, size = replayerSessions.size(); i < size; i++)
+        {
+            if (replayerSessions.get(i).tryMerge(
+                connectionId, sessionId, sequenceIndex, beginSeqNo, endSeqNo, replayUpToMostRecent))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public Action onDisconnect(final int libraryId, final long connectionId, final DisconnectReason reason)
     {
         return CONTINUE;
@@ -188,7 +265,7 @@ public class Replayer implements ProtocolHandler, Agent
 
     public int doWork()
     {
-        int work = senderSequenceNumbers.poll();
+        int work = senderSequenceNumbers.poll(workerIndex);
         work += pollReplayerSessions();
         return work + subscription.controlledPoll(protocolSubscription, POLL_LIMIT);
     }
@@ -217,6 +294,6 @@ public class Replayer implements ProtocolHandler, Agent
 
     public String roleName()
     {
-        return agentNamePrefix + "Replayer";
+        return workerCount == 1 ? agentNamePrefix + "Replayer" : agentNamePrefix + "Replayer-" + workerIndex;
     }
 }
@@ -40,6 +40,7 @@ import static io.aeron.logbuffer.ControlledFragmentHandler.Action.ABORT;
 import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static uk.co.real_logic.artio.engine.FixEngine.ENGINE_LIBRARY_ID;
 import static uk.co.real_logic.artio.engine.logger.Replayer.MESSAGE_FRAME_BLOCK_LENGTH;
+import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
 
 class ReplayerSession implements ControlledFragmentHandler
 {
@@ -52,14 +53,20 @@ class ReplayerSession implements ControlledFragmentHandler
         SEND_COMPLETE_MESSAGE
     }
 
-    // Safe to share between multiple instances due to single threaded nature of the replayer
-    private static final FixMessageEncoder FIX_MESSAGE_ENCODER = new FixMessageEncoder();
-    private static final MessageHeaderDecoder MESSAGE_HEADER = new MessageHeaderDecoder();
-    private static final FixMessageDecoder FIX_MESSAGE = new FixMessageDecoder();
-    private static final HeaderDecoder FIX_HEADER = new HeaderDecoder();
-    private static final MessageHeaderEncoder MESSAGE_HEADER_ENCODER = new MessageHeaderEncoder();
-    private static final AsciiBuffer ASCII_BUFFER = new MutableAsciiBuffer();
-    private static final ReplayCompleteEncoder REPLAY_COMPLETE_ENCODER = new ReplayCompleteEncoder();
+    /**
+     * Codecs that are shared between all the sessions of a single {@link Replayer}. This is safe due to the single
+     * threaded nature of each replayer, but they can't be shared between replay workers.
+     */
+    static final class Codecs
+    {
+        private final FixMessageEncoder fixMessageEncoder = new FixMessageEncoder();
+        private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
+        private final FixMessageDecoder fixMessage = new FixMessageDecoder();
+        private final HeaderDecoder fixHeader = new HeaderDecoder();
+        private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
+        private final AsciiBuffer asciiBuffer = new MutableAsciiBuffer();
+        private final ReplayCompleteEncoder replayCompleteEncoder = new ReplayCompleteEncoder();
+    }
 
     private final GapFillEncoder gapFillEncoder = new GapFillEncoder();
 
@@ -71,6 +78,8 @@ class ReplayerSession implements ControlledFragmentHandler
     private final int maxClaimAttempts;
     private final IntHashSet gapFillMessageTypes;
     private final SenderSequenceNumbers senderSequenceNumbers;
+    private final int senderSequenceNumbersReader;
+    private final Codecs codecs;
     private final ExclusivePublication publication;
     private final ReplayQuery replayQuery;
     private final ErrorHandler errorHandler;
@@ -96,6 +105,8 @@ class ReplayerSession implements ControlledFragmentHandler
         final int maxClaimAttempts,
         final IntHashSet gapFillMessageTypes,
         final SenderSequenceNumbers senderSequenceNumbers,
+        final int senderSequenceNumbersReader,
+        final Codecs codecs,
         final ExclusivePublication publication, final EpochClock clock, final int beginSeqNo,
         final int endSeqNo,
         final boolean upToMostRecent,
@@ -113,6 +124,8 @@ class ReplayerSession implements ControlledFragmentHandler
         this.maxClaimAttempts = maxClaimAttempts;
         this.gapFillMessageTypes = gapFillMessageTypes;
         this.senderSequenceNumbers = senderSequenceNumbers;
+        this.senderSequenceNumbersReader = senderSequenceNumbersReader;
+        this.codecs = codecs;
         this.publication = publication;
         this.beginSeqNo = beginSeqNo;
         this.endSeqNo = endSeqNo;
@@ -143,7 +156,7 @@ class ReplayerSession implements ControlledFragmentHandler
     private void onPreCommit(final MutableDirectBuffer buffer, final int offset)
     {
         final int frameOffset = offset + MessageHeaderEncoder.ENCODED_LENGTH;
-        FIX_MESSAGE_ENCODER
+        codecs.fixMessageEncoder
             .wrap(buffer, frameOffset)
             .connection(connectionId);
     }
@@ -170,36 +183,87 @@ class ReplayerSession implements ControlledFragmentHandler
             sequenceIndex);
     }
 
+    /**
+     * Extend this replay to also cover another resend request from the same session. This is only possible if the
+     * requested range overlaps or is adjacent to the range of this replay and no messages have been replayed yet.
+     * The combined range is then queried again, so messages in the overlap are only resent once and runs of admin
+     * messages across the whole range are covered by a single gap fill.
+     *
+     * @param connectionId the connection that the resend request was received on.
+     * @param sessionId the FIX session id of the resend request.
+     * @param sequenceIndex the sequence index of the resend request.
+     * @param beginSeqNo the first sequence number requested.
+     * @param endSeqNo the last sequence number requested.
+     * @param upToMostRecent true if all messages after the begin sequence number were requested.
+     * @return true if the request has been merged into this replay, false if it needs a replay of its own.
+     */
+    boolean tryMerge(
+        final long connectionId,
+        final long sessionId,
+        final int sequenceIndex,
+        final int beginSeqNo,
+        final int endSeqNo,
+        final boolean upToMostRecent)
+    {
+        if (state != State.REPLAYING || replayOperation.hasStarted() ||
+            this.connectionId != connectionId || this.sessionId != sessionId || this.sequenceIndex != sequenceIndex)
+        {
+            return false;
+        }
+
+        final long thisEndSeqNo = this.upToMostRecent ? Integer.MAX_VALUE : this.endSeqNo;
+        final long otherEndSeqNo = upToMostRecent ? Integer.MAX_VALUE : endSeqNo;
+        if (beginSeqNo > thisEndSeqNo + 1 || this.beginSeqNo > otherEndSeqNo + 1)
+        {
+            return false;
+        }
+
+        this.beginSeqNo = Math.min(this.beginSeqNo, beginSeqNo);
+        this.upToMostRecent |= upToMostRecent;
+        this.endSeqNo = this.upToMostRecent ? MOST_RECENT_MESSAGE : Math.max(this.endSeqNo, endSeqNo);
+        lastSeqNo = this.beginSeqNo - 1;
+
+        query();
+
+        return true;
+    }
+
     // Callback for the ReplayQuery:
     public Action onFragment(
         final DirectBuffer srcBuffer, final int srcOffset, final int srcLength, final Header header)
     {
-        MESSAGE_HEADER.wrap(srcBuffer, srcOffset);
-        final int actingBlockLength = MESSAGE_HEADER.blockLength();
+        final Codecs codecs = this.codecs;
+        final MessageHeaderDecoder messageHeader = codecs.messageHeader;
+        final FixMessageDecoder fixMessage = codecs.fixMessage;
+        final HeaderDecoder fixHeader = codecs.fixHeader;
+        final AsciiBuffer asciiBuffer = codecs.asciiBuffer;
+
+        messageHeader.wrap(srcBuffer, srcOffset);
+        final int actingBlockLength = messageHeader.blockLength();
         final int offset = srcOffset + MessageHeaderDecoder.ENCODED_LENGTH;
 
-        FIX_MESSAGE.wrap(
+        fixMessage.wrap(
             srcBuffer,
             offset,
             actingBlockLength,
-            MESSAGE_HEADER.version());
+            messageHeader.version());
 
         final int messageOffset = srcOffset + MESSAGE_FRAME_BLOCK_LENGTH;
         final int messageLength = srcLength - MESSAGE_FRAME_BLOCK_LENGTH;
 
-        ASCII_BUFFER.wrap(srcBuffer);
-        FIX_HEADER.reset();
-        FIX_HEADER.decode(ASCII_BUFFER, messageOffset, messageLength);
-        final int msgSeqNum = FIX_HEADER.msgSeqNum();
-        final int messageType = FIX_MESSAGE.messageType();
+        asciiBuffer.wrap(srcBuffer);
+        fixHeader.reset();
+        fixHeader.decode(asciiBuffer, messageOffset, messageLength);
+        final int msgSeqNum = fixHeader.msgSeqNum();
+        final int messageType = fixMessage.messageType();
 
         replayHandler.onReplayedMessage(
-            ASCII_BUFFER,
+            asciiBuffer,
             messageOffset,
             messageLength,
-            FIX_MESSAGE.libraryId(),
-            FIX_MESSAGE.session(),
-            FIX_MESSAGE.sequenceIndex(),
+            fixMessage.libraryId(),
+            fixMessage.session(),
+            fixMessage.sequenceIndex(),
             messageType);
 
         if (gapFillMessageTypes.contains(messageType))
@@ -245,8 +309,8 @@ class ReplayerSession implements ControlledFragmentHandler
             final int destOffset = bufferClaim.offset();
             final MutableDirectBuffer destBuffer = bufferClaim.buffer();
 
-            FIX_MESSAGE_ENCODER
-                .wrapAndApplyHeader(destBuffer, destOffset, MESSAGE_HEADER_ENCODER)
+            codecs.fixMessageEncoder
+                .wrapAndApplyHeader(destBuffer, destOffset, codecs.messageHeaderEncoder)
                 .libraryId(ENGINE_LIBRARY_ID)
                 .messageType(SequenceResetDecoder.MESSAGE_TYPE)
                 .session(this.sessionId)
@@ -364,10 +428,10 @@ class ReplayerSession implements ControlledFragmentHandler
     {
         if (claimBuffer(MessageHeaderEncoder.ENCODED_LENGTH + ReplayCompleteEncoder.BLOCK_LENGTH))
         {
-            REPLAY_COMPLETE_ENCODER.wrapAndApplyHeader(
+            codecs.replayCompleteEncoder.wrapAndApplyHeader(
                 bufferClaim.buffer(),
                 bufferClaim.offset(),
-                MESSAGE_HEADER_ENCODER)
+                codecs.messageHeaderEncoder)
                 .connection(connectionId);
 
             bufferClaim.commit();
@@ -382,7 +446,7 @@ class ReplayerSession implements ControlledFragmentHandler
 
     private int newSeqNo(final long connectionId)
     {
-        return senderSequenceNumbers.lastSentSequenceNumber(connectionId) + 1;
+        return senderSequenceNumbers.lastSentSequenceNumber(senderSequenceNumbersReader, connectionId) + 1;
     }
 
 }
@@ -22,6 +22,7 @@ import org.agrona.DirectBuffer;
 import org.agrona.ErrorHandler;
 import org.agrona.collections.Long2LongHashMap;
 import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.EpochClock;
 import uk.co.real_logic.artio.decoder.HeaderDecoder;
 import uk.co.real_logic.artio.engine.ChecksumFramer;
 import uk.co.real_logic.artio.engine.MappedFile;
@@ -41,6 +42,10 @@ import static uk.co.real_logic.artio.storage.messages.LastKnownSequenceNumberEnc
 /**
  * Writes updates into an in-memory buffer. This buffer is then flushed down to disk. A passing place
  * file is used to ensure that there's a recoverable option if it fails.
+ *
+ * The buffer is flushed when the indexed stream rolls over a term, on close and, if a checkpoint interval is
+ * configured, periodically. This bounds how much of the archive needs to be replayed in order to catch the
+ * index up after a crash.
  */
 public class SequenceNumberIndexWriter implements Index
 {
@@ -48,6 +53,7 @@ public class SequenceNumberIndexWriter implements Index
 
     private static final long MISSING_RECORD = -1L;
     private static final long UNINITIALISED = -1;
+    private static final long NO_CHECKPOINTS = 0;
     static final int SEQUENCE_NUMBER_OFFSET = 8;
 
     private final MessageHeaderDecoder messageHeader = new MessageHeaderDecoder();
@@ -73,10 +79,14 @@ public class SequenceNumberIndexWriter implements Index
     private final int streamId;
     private final int indexedPositionsOffset;
     private final IndexedPositionWriter positions;
+    private final EpochClock clock;
+    private final long checkpointIntervalInMs;
 
     private MappedFile writableFile;
     private MappedFile indexFile;
     private long nextRollPosition = UNINITIALISED;
+    private long nextCheckpointTimeInMs;
+    private boolean hasUnsavedUpdates;
 
     public SequenceNumberIndexWriter(
         final AtomicBuffer inMemoryBuffer,
@@ -84,8 +94,22 @@ public class SequenceNumberIndexWriter implements Index
         final ErrorHandler errorHandler,
         final int streamId,
         final RecordingIdLookup recordingIdLookup)
+    {
+        this(inMemoryBuffer, indexFile, errorHandler, streamId, recordingIdLookup, null, NO_CHECKPOINTS);
+    }
+
+    public SequenceNumberIndexWriter(
+        final AtomicBuffer inMemoryBuffer,
+        final MappedFile indexFile,
+        final ErrorHandler errorHandler,
+        final int streamId,
+        final RecordingIdLookup recordingIdLookup,
+        final EpochClock clock,
+        final long checkpointIntervalInMs)
     {
         this.inMemoryBuffer = inMemoryBuffer;
+        this.clock = clock;
+        this.checkpointIntervalInMs = checkpointIntervalInMs;
         this.indexFile = indexFile;
         this.errorHandler = errorHandler;
         this.streamId = streamId;
@@ -186,6 +210,25 @@ public class SequenceNumberIndexWriter implements Index
 
         final long recordingId = recordingIdLookup.getRecordingId(aeronSessionId);
         positions.indexedUpTo(aeronSessionId, recordingId, endPosition);
+        hasUnsavedUpdates = true;
+    }
+
+    public int doWork()
+    {
+        if (checkpointIntervalInMs == NO_CHECKPOINTS || !hasUnsavedUpdates)
+        {
+            return 0;
+        }
+
+        final long timeInMs = clock.time();
+        if (timeInMs < nextCheckpointTimeInMs)
+        {
+            return 0;
+        }
+
+        nextCheckpointTimeInMs = timeInMs + checkpointIntervalInMs;
+        updateFile();
+        return 1;
     }
 
     void resetSequenceNumbers()
@@ -211,6 +254,7 @@ public class SequenceNumberIndexWriter implements Index
 
     private void updateFile()
     {
+        hasUnsavedUpdates = false;
         checksumFramer.updateChecksums();
         positions.updateChecksums();
         saveFile();
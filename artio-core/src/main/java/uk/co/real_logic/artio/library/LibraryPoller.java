@@ -117,6 +117,12 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
     private final FixLibrary fixLibrary;
     private final Runnable onDisconnectFunc = this::onDisconnect;
 
+    // Shared by all the sessions of this library, as they're all used on its thread
+    private final MutableAsciiBuffer sessionBuffer;
+    private final SessionProxy.Encoders sessionEncoders = new SessionProxy.Encoders();
+    private final SessionParser.Decoders sessionDecoders = new SessionParser.Decoders();
+    private final EpochClock sessionProxyClock = new SystemEpochClock();
+
     /**
      * Correlation Id is initialised to a random number to reduce the chance of correlation id collision.
      */
@@ -160,6 +166,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
         this.sentPositionHandler = configuration.sentPositionHandler();
         this.clock = clock;
         this.enginesAreClustered = configuration.libraryAeronChannels().size() > 1;
+        this.sessionBuffer = new MutableAsciiBuffer(new byte[configuration.sessionBufferSize()]);
     }
 
     boolean isConnected()
@@ -1022,7 +1029,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
     {
         final MessageValidationStrategy validationStrategy = configuration.messageValidationStrategy();
         final SessionParser parser = new SessionParser(
-            session, sessionIdStrategy, validationStrategy, null);
+            session, sessionIdStrategy, validationStrategy, null, sessionDecoders);
         final SessionSubscriber subscriber = new SessionSubscriber(
             parser,
             session,
@@ -1047,9 +1054,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
         final int defaultInterval = configuration.defaultHeartbeatIntervalInS();
         final GatewayPublication publication = transport.outboundPublication();
 
-        final int sessionBufferSize = configuration.sessionBufferSize();
-        final MutableAsciiBuffer asciiBuffer = new MutableAsciiBuffer(new byte[sessionBufferSize]);
-        final SessionProxy sessionProxy = sessionProxy(connectionId, asciiBuffer);
+        final SessionProxy sessionProxy = sessionProxy(connectionId);
         final int initialReceivedSequenceNumber = initiatorNewSequenceNumber(
             sessionConfiguration, SessionConfiguration::initialReceivedSequenceNumber, lastReceivedSequenceNumber);
         final int initialSentSequenceNumber = initiatorNewSequenceNumber(
@@ -1071,7 +1076,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
             state,
             sessionConfiguration != null && sessionConfiguration.resetSeqNum(),
             configuration.reasonableTransmissionTimeInMs(),
-            asciiBuffer,
+            sessionBuffer,
             enableLastMsgSeqNumProcessed);
 
         session.lastReceivedMsgSeqNum(initialReceivedSequenceNumber - 1);
@@ -1116,8 +1121,6 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
         final long sendingTimeWindow = configuration.sendingTimeWindowInMs();
         final AtomicCounter receivedMsgSeqNo = fixCounters.receivedMsgSeqNo(connectionId);
         final AtomicCounter sentMsgSeqNo = fixCounters.sentMsgSeqNo(connectionId);
-        final int sessionBufferSize = configuration.sessionBufferSize();
-        final MutableAsciiBuffer asciiBuffer = new MutableAsciiBuffer(new byte[sessionBufferSize]);
         final int split = address.lastIndexOf(':');
         final int start = address.startsWith("/") ? 1 : 0;
         final String host = address.substring(start, split);
@@ -1127,7 +1130,7 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
             heartbeatIntervalInS,
             connectionId,
             clock,
-            sessionProxy(connectionId, asciiBuffer),
+            sessionProxy(connectionId),
             publication,
             sessionIdStrategy,
             sendingTimeWindow,
@@ -1138,22 +1141,23 @@ final class LibraryPoller implements LibraryEndPointHandler, ProtocolHandler, Au
             sequenceIndex,
             state,
             configuration.reasonableTransmissionTimeInMs(),
-            asciiBuffer,
+            sessionBuffer,
             enableLastMsgSeqNumProcessed);
         session.address(host, port);
         return session;
     }
 
-    private SessionProxy sessionProxy(final long connectionId, final MutableAsciiBuffer asciiBuffer)
+    private SessionProxy sessionProxy(final long connectionId)
     {
         return new SessionProxy(
-            asciiBuffer,
+            sessionBuffer,
             transport.outboundPublication(),
             sessionIdStrategy,
             configuration.sessionCustomisationStrategy(),
-            new SystemEpochClock(),
+            sessionProxyClock,
             connectionId,
-            libraryId);
+            libraryId,
+            sessionEncoders);
     }
 
     private void checkState()
@@ -61,7 +61,8 @@ public interface SessionHandler
 
     /**
      * Invoked if a session has been detected as being, or no longer being demarcated as a slow
-     * session.
+     * session. A session is also slow whilst the engine is holding back its messages because they exceed the
+     * engine's configured throttle rate.
      *  @param libraryId the id of library which the session used to owned by.
      * @param session the session that has become slow.
      * @param hasBecomeSlow true iff the session has been detected as slow, false if it is no longer slow.
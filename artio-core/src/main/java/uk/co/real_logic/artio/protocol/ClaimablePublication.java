@@ -56,27 +56,42 @@ class ClaimablePublication implements AutoCloseable
         return claim(framedLength, bufferClaim);
     }
 
+    /**
+     * Claim a slot in the publication, retrying up to the max claim attempts if the publication is back pressured.
+     * With a max claim attempts of 0 this never idles, so the caller should retry any back pressured work later.
+     *
+     * @param framedLength the length to claim.
+     * @param bufferClaim the buffer claim to wrap the claimed slot.
+     * @return the new position of the publication if successful, or a back pressured or not connected status.
+     */
     public long claim(final int framedLength, final BufferClaim bufferClaim)
     {
-        long position;
-        long i = 0;
-        do
+        long position = dataPublication.tryClaim(framedLength, bufferClaim);
+        if (position > 0L)
         {
-            position = dataPublication.tryClaim(framedLength, bufferClaim);
+            return position;
+        }
 
-            if (position > 0L)
+        long attempts = 0;
+        while (true)
+        {
+            fails.increment();
+
+            if (attempts >= maxClaimAttempts || position == CLOSED || position == MAX_POSITION_EXCEEDED)
             {
-                return position;
+                break;
             }
-            else
+
+            idleStrategy.idle();
+            attempts++;
+
+            position = dataPublication.tryClaim(framedLength, bufferClaim);
+            if (position > 0L)
             {
-                idleStrategy.idle();
+                idleStrategy.reset();
+                return position;
             }
-
-            fails.increment();
-            i++;
         }
-        while (i <= maxClaimAttempts);
 
         idleStrategy.reset();
 
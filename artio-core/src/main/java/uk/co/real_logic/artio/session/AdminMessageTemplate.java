@@ -0,0 +1,300 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import uk.co.real_logic.artio.builder.Encoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static uk.co.real_logic.artio.util.AsciiBuffer.SEPARATOR;
+import static uk.co.real_logic.artio.util.AsciiBuffer.UNKNOWN_INDEX;
+
+/**
+ * A session level message rendered once for a single session, so that {@link SessionProxy} can send frequent admin
+ * messages without re-encoding their header each time.
+ *
+ * The template is rendered from the message's encoder after the session's header fields have been set up. Sending
+ * a message copies the constant parts of the template and only writes the MsgSeqNum, SendingTime, any body fields
+ * that vary between messages, the BodyLength and the CheckSum. Varying body fields are always the last fields of the
+ * body, and the checksum of the constant parts is computed when the template is rendered.
+ */
+final class AdminMessageTemplate
+{
+    private static final byte[] BODY_LENGTH_FIELD = "\0019=".getBytes(US_ASCII);
+    private static final byte[] MSG_SEQ_NUM_FIELD = "\00134=".getBytes(US_ASCII);
+    private static final byte[] SENDING_TIME_FIELD = "\00152=".getBytes(US_ASCII);
+    private static final byte[] CHECKSUM_FIELD = "10=".getBytes(US_ASCII);
+    private static final int CHECKSUM_FIELD_LENGTH = CHECKSUM_FIELD.length + 4;
+    private static final int MAX_BODY_LENGTH_DIGITS = 10;
+
+    // null if the message has no body fields that vary between messages
+    private final byte[] firstVaryingField;
+
+    private byte[] template;
+    private int beginStringLength;
+    private int beforeMsgSeqNumOffset;
+    private int beforeMsgSeqNumLength;
+    private int beforeSendingTimeOffset;
+    private int beforeSendingTimeLength;
+    private int afterSendingTimeOffset;
+    private int afterSendingTimeLength;
+    private int constantChecksum;
+
+    private MutableAsciiBuffer buffer;
+    private int bodyStart;
+    private int varyingFieldsStart;
+    private int varyingChecksum;
+
+    /**
+     * Creates a template.
+     *
+     * @param firstVaryingFieldHeader the tag and '=' of the first body field that varies between messages, or null
+     *                                if there isn't one.
+     */
+    AdminMessageTemplate(final byte[] firstVaryingFieldHeader)
+    {
+        if (firstVaryingFieldHeader == null)
+        {
+            firstVaryingField = null;
+        }
+        else
+        {
+            firstVaryingField = new byte[firstVaryingFieldHeader.length + 1];
+            firstVaryingField[0] = SEPARATOR;
+            System.arraycopy(firstVaryingFieldHeader, 0, firstVaryingField, 1, firstVaryingFieldHeader.length);
+        }
+    }
+
+    /**
+     * Renders the template from a message that has just been encoded, with any varying body fields set to any value.
+     *
+     * @param buffer the buffer the message was encoded into.
+     * @param encodeResult the result of encoding the message.
+     * @return true if the template was rendered, false if the message couldn't be split into a template, in which case
+     *         messages should be sent through their encoder.
+     */
+    boolean render(final MutableAsciiBuffer buffer, final long encodeResult)
+    {
+        template = null;
+
+        final int offset = Encoder.offset(encodeResult);
+        final int end = offset + Encoder.length(encodeResult);
+        final int checksumStart = end - CHECKSUM_FIELD_LENGTH;
+
+        final int bodyLengthField = indexOf(buffer, offset, checksumStart, BODY_LENGTH_FIELD);
+        if (bodyLengthField == UNKNOWN_INDEX)
+        {
+            return false;
+        }
+        final int bodyLengthStart = bodyLengthField + BODY_LENGTH_FIELD.length;
+        final int bodyStart = buffer.scan(bodyLengthStart, checksumStart, SEPARATOR) + 1;
+
+        final int msgSeqNumField = indexOf(buffer, bodyStart - 1, checksumStart, MSG_SEQ_NUM_FIELD);
+        if (msgSeqNumField == UNKNOWN_INDEX)
+        {
+            return false;
+        }
+        final int msgSeqNumStart = msgSeqNumField + MSG_SEQ_NUM_FIELD.length;
+        final int msgSeqNumEnd = buffer.scan(msgSeqNumStart, checksumStart, SEPARATOR);
+
+        final int sendingTimeField = indexOf(buffer, msgSeqNumEnd, checksumStart, SENDING_TIME_FIELD);
+        if (sendingTimeField == UNKNOWN_INDEX)
+        {
+            return false;
+        }
+        final int sendingTimeStart = sendingTimeField + SENDING_TIME_FIELD.length;
+        final int sendingTimeEnd = buffer.scan(sendingTimeStart, checksumStart, SEPARATOR);
+
+        int constantEnd = checksumStart;
+        if (firstVaryingField != null)
+        {
+            final int varyingField = indexOf(buffer, sendingTimeEnd, checksumStart, firstVaryingField);
+            if (varyingField == UNKNOWN_INDEX)
+            {
+                return false;
+            }
+            constantEnd = varyingField + 1;
+        }
+
+        if (indexOf(buffer, checksumStart, end, CHECKSUM_FIELD) != checksumStart)
+        {
+            return false;
+        }
+
+        final byte[] template = new byte[constantEnd - offset];
+        buffer.getBytes(offset, template);
+
+        beginStringLength = bodyLengthStart - offset;
+        beforeMsgSeqNumOffset = bodyStart - offset;
+        beforeMsgSeqNumLength = msgSeqNumStart - bodyStart;
+        beforeSendingTimeOffset = msgSeqNumEnd - offset;
+        beforeSendingTimeLength = sendingTimeStart - msgSeqNumEnd;
+        afterSendingTimeOffset = sendingTimeEnd - offset;
+        afterSendingTimeLength = constantEnd - sendingTimeEnd;
+        constantChecksum = buffer.computeChecksum(offset, bodyLengthStart) + SEPARATOR +
+            buffer.computeChecksum(bodyStart, msgSeqNumStart) +
+            buffer.computeChecksum(msgSeqNumEnd, sendingTimeStart) +
+            buffer.computeChecksum(sendingTimeEnd, constantEnd);
+        this.template = template;
+
+        return true;
+    }
+
+    boolean isRendered()
+    {
+        return template != null;
+    }
+
+    /**
+     * Writes the constant parts of the message along with its MsgSeqNum and SendingTime. Any varying body fields
+     * should then be put at the returned position, before calling {@link #finishMessage(int)}.
+     *
+     * @param buffer the buffer to write the message into.
+     * @param offset the offset within the buffer to write the message at.
+     * @param msgSeqNum the MsgSeqNum of the message.
+     * @param sendingTime the encoded SendingTime of the message.
+     * @param sendingTimeLength the length of the encoded SendingTime.
+     * @return the position after the constant parts of the message.
+     */
+    int beginMessage(
+        final MutableAsciiBuffer buffer,
+        final int offset,
+        final int msgSeqNum,
+        final byte[] sendingTime,
+        final int sendingTimeLength)
+    {
+        final byte[] template = this.template;
+        final int bodyStart = offset + beginStringLength + MAX_BODY_LENGTH_DIGITS + 1;
+        int position = bodyStart;
+
+        buffer.putBytes(position, template, beforeMsgSeqNumOffset, beforeMsgSeqNumLength);
+        position += beforeMsgSeqNumLength;
+        final int msgSeqNumStart = position;
+        position += buffer.putIntAscii(position, msgSeqNum);
+        int varyingChecksum = buffer.computeChecksum(msgSeqNumStart, position);
+
+        buffer.putBytes(position, template, beforeSendingTimeOffset, beforeSendingTimeLength);
+        position += beforeSendingTimeLength;
+        final int sendingTimeStart = position;
+        buffer.putBytes(position, sendingTime, 0, sendingTimeLength);
+        position += sendingTimeLength;
+        varyingChecksum += buffer.computeChecksum(sendingTimeStart, position);
+
+        buffer.putBytes(position, template, afterSendingTimeOffset, afterSendingTimeLength);
+        position += afterSendingTimeLength;
+
+        this.buffer = buffer;
+        this.bodyStart = bodyStart;
+        this.varyingFieldsStart = position;
+        this.varyingChecksum = varyingChecksum;
+
+        return position;
+    }
+
+    int putField(final int position, final byte[] fieldHeader, final int value)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        int end = position;
+        buffer.putBytes(end, fieldHeader);
+        end += fieldHeader.length;
+        end += buffer.putIntAscii(end, value);
+        buffer.putSeparator(end);
+
+        return end + 1;
+    }
+
+    int putField(final int position, final byte[] fieldHeader, final char[] value, final int length)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        int end = position;
+        buffer.putBytes(end, fieldHeader);
+        end += fieldHeader.length;
+        for (int i = 0; i < length; i++)
+        {
+            buffer.putByte(end + i, (byte)value[i]);
+        }
+        end += length;
+        buffer.putSeparator(end);
+
+        return end + 1;
+    }
+
+    int putField(final int position, final byte[] fieldHeader, final CharSequence value)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        int end = position;
+        buffer.putBytes(end, fieldHeader);
+        end += fieldHeader.length;
+        end += buffer.putAscii(end, value);
+        buffer.putSeparator(end);
+
+        return end + 1;
+    }
+
+    /**
+     * Writes the BodyLength, BeginString and CheckSum of the message.
+     *
+     * @param position the position after the last body field of the message.
+     * @return the offset and length of the message, in the same form as {@link Encoder#encode}.
+     */
+    long finishMessage(final int position)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+        final int bodyStart = this.bodyStart;
+
+        buffer.putSeparator(bodyStart - 1);
+        final int bodyLengthStart = buffer.putNaturalIntAsciiFromEnd(position - bodyStart, bodyStart - 1);
+        final int messageStart = bodyLengthStart - beginStringLength;
+        buffer.putBytes(messageStart, template, 0, beginStringLength);
+
+        final int checksum = (constantChecksum + varyingChecksum +
+            buffer.computeChecksum(bodyLengthStart, bodyStart - 1) +
+            buffer.computeChecksum(varyingFieldsStart, position)) % 256;
+
+        int end = position;
+        buffer.putBytes(end, CHECKSUM_FIELD);
+        end += CHECKSUM_FIELD.length;
+        buffer.putNaturalPaddedIntAscii(end, 3, checksum);
+        end += 3;
+        buffer.putSeparator(end);
+        end++;
+
+        this.buffer = null;
+
+        return Encoder.result(end - messageStart, messageStart);
+    }
+
+    private static int indexOf(
+        final MutableAsciiBuffer buffer, final int startInclusive, final int endExclusive, final byte[] value)
+    {
+        final int last = endExclusive - value.length;
+        for (int index = startInclusive; index <= last; index++)
+        {
+            int i = 0;
+            while (i < value.length && buffer.getByte(index + i) == value[i])
+            {
+                i++;
+            }
+
+            if (i == value.length)
+            {
+                return index;
+            }
+        }
+
+        return UNKNOWN_INDEX;
+    }
+}
@@ -56,7 +56,8 @@ import static uk.co.real_logic.artio.session.SessionProxy.NO_LAST_MSG_SEQ_NUM_PR
 /**
  * Stores information about the current state of a session - no matter whether outbound or inbound.
  * <p>
- * Should only be accessed on a single thread.
+ * Should only be accessed on a single thread, the thread that polls the library or engine that owns the session, as
+ * the buffer that messages are encoded into is shared with its other sessions.
  *
  * <h1>State Transitions</h1>
  * <p>
@@ -88,6 +88,8 @@ public interface SessionIdStrategy
     /**
      * Saves the given composite key to a buffer.
      *
+     * The engine looks sessions up by their saved form, so keys that are equal must save identical bytes.
+     *
      * @param compositeKey the key to save
      * @param buffer the buffer to save it to
      * @param offset the offset within the buffer to start saving at
@@ -43,19 +43,7 @@ public class SessionParser
 {
     private static final boolean HAS_USER_NAME_AND_PASSWORD = detectUsernameAndPassword();
 
-    private final AsciiBuffer asciiBuffer = new MutableAsciiBuffer();
-    private final UtcTimestampDecoder timestampDecoder = new UtcTimestampDecoder();
-    private final LogonDecoder logon = new LogonDecoder();
-    private final LogoutDecoder logout = new LogoutDecoder();
-    private final RejectDecoder reject = new RejectDecoder();
-    private final TestRequestDecoder testRequest = new TestRequestDecoder();
-    private final HeaderDecoder header = new HeaderDecoder();
-    private final SequenceResetDecoder sequenceReset = new SequenceResetDecoder();
-    private final HeartbeatDecoder heartbeat = new HeartbeatDecoder();
-
-    // TODO: optimisation candidate to just move to copying bytes.
-    private byte[] msgTypeBuffer = new byte[2];
-
+    private final Decoders decoders;
     private final Session session;
     private final SessionIdStrategy sessionIdStrategy;
     private final MessageValidationStrategy validationStrategy;
@@ -67,6 +55,17 @@ public class SessionParser
         final MessageValidationStrategy validationStrategy,
         final ErrorHandler errorHandler) // nullable
     {
+        this(session, sessionIdStrategy, validationStrategy, errorHandler, new Decoders());
+    }
+
+    public SessionParser(
+        final Session session,
+        final SessionIdStrategy sessionIdStrategy,
+        final MessageValidationStrategy validationStrategy,
+        final ErrorHandler errorHandler, // nullable
+        final Decoders decoders)
+    {
+        this.decoders = decoders;
         this.session = session;
         this.sessionIdStrategy = sessionIdStrategy;
         this.validationStrategy = validationStrategy;
@@ -97,7 +96,7 @@ public class SessionParser
         final int messageType,
         final long sessionId)
     {
-        asciiBuffer.wrap(buffer);
+        decoders.asciiBuffer.wrap(buffer);
 
         Action action = null;
 
@@ -138,10 +137,10 @@ public class SessionParser
 
     private Action onHeartbeat(final int offset, final int length)
     {
-        final HeartbeatDecoder heartbeat = this.heartbeat;
+        final HeartbeatDecoder heartbeat = decoders.heartbeat;
 
         heartbeat.reset();
-        heartbeat.decode(asciiBuffer, offset, length);
+        heartbeat.decode(decoders.asciiBuffer, offset, length);
         final HeaderDecoder header = heartbeat.header();
         if (CODEC_VALIDATION_ENABLED && (!heartbeat.validate() || !validateHeader(header)))
         {
@@ -180,15 +179,15 @@ public class SessionParser
     private long decodeTimestamp(final byte[] sendingTime)
     {
         return CODEC_VALIDATION_ENABLED ?
-            timestampDecoder.decode(sendingTime, sendingTime.length) :
+            decoders.timestampDecoder.decode(sendingTime, sendingTime.length) :
             MISSING_LONG;
     }
 
     private Action onAnyOtherMessage(final int offset, final int length)
     {
-        final HeaderDecoder header = this.header;
+        final HeaderDecoder header = decoders.header;
         header.reset();
-        header.decode(asciiBuffer, offset, length);
+        header.decode(decoders.asciiBuffer, offset, length);
 
         final char[] msgType = header.msgType();
         final int msgTypeLength = header.msgTypeLength();
@@ -230,10 +229,10 @@ public class SessionParser
 
     private Action onSequenceReset(final int offset, final int length)
     {
-        final SequenceResetDecoder sequenceReset = this.sequenceReset;
+        final SequenceResetDecoder sequenceReset = decoders.sequenceReset;
 
         sequenceReset.reset();
-        sequenceReset.decode(asciiBuffer, offset, length);
+        sequenceReset.decode(decoders.asciiBuffer, offset, length);
         final HeaderDecoder header = sequenceReset.header();
         if (CODEC_VALIDATION_ENABLED && (!sequenceReset.validate() || !validateHeader(header)))
         {
@@ -254,10 +253,10 @@ public class SessionParser
 
     private Action onTestRequest(final int offset, final int length)
     {
-        final TestRequestDecoder testRequest = this.testRequest;
+        final TestRequestDecoder testRequest = decoders.testRequest;
 
         testRequest.reset();
-        testRequest.decode(asciiBuffer, offset, length);
+        testRequest.decode(decoders.asciiBuffer, offset, length);
         final HeaderDecoder header = testRequest.header();
         if (CODEC_VALIDATION_ENABLED && (!testRequest.validate() || !validateHeader(header)))
         {
@@ -282,10 +281,10 @@ public class SessionParser
 
     private Action onReject(final int offset, final int length)
     {
-        final RejectDecoder reject = this.reject;
+        final RejectDecoder reject = decoders.reject;
 
         reject.reset();
-        reject.decode(asciiBuffer, offset, length);
+        reject.decode(decoders.asciiBuffer, offset, length);
         final HeaderDecoder header = reject.header();
         if (CODEC_VALIDATION_ENABLED && (!reject.validate() || !validateHeader(header)))
         {
@@ -307,10 +306,10 @@ public class SessionParser
 
     private Action onLogout(final int offset, final int length)
     {
-        final LogoutDecoder logout = this.logout;
+        final LogoutDecoder logout = decoders.logout;
 
         logout.reset();
-        logout.decode(asciiBuffer, offset, length);
+        logout.decode(decoders.asciiBuffer, offset, length);
         final HeaderDecoder header = logout.header();
         if (CODEC_VALIDATION_ENABLED && (!logout.validate() || !validateHeader(header)))
         {
@@ -331,11 +330,11 @@ public class SessionParser
 
     private Action onLogon(final int offset, final int length)
     {
-        final LogonDecoder logon = this.logon;
+        final LogonDecoder logon = decoders.logon;
         final Session session = this.session;
 
         logon.reset();
-        logon.decode(asciiBuffer, offset, length);
+        logon.decode(decoders.asciiBuffer, offset, length);
         final HeaderDecoder header = logon.header();
         final char[] beginString = header.beginString();
         final int beginStringLength = header.beginStringLength();
@@ -494,4 +493,21 @@ public class SessionParser
     {
         session.sequenceIndex(sequenceIndex);
     }
+
+    /**
+     * The decoders used to parse session messages. A parser is finished with them once it has handled a message, so
+     * they can be shared by the parsers of every session that is polled on the same thread.
+     */
+    public static final class Decoders
+    {
+        private final AsciiBuffer asciiBuffer = new MutableAsciiBuffer();
+        private final UtcTimestampDecoder timestampDecoder = new UtcTimestampDecoder();
+        private final LogonDecoder logon = new LogonDecoder();
+        private final LogoutDecoder logout = new LogoutDecoder();
+        private final RejectDecoder reject = new RejectDecoder();
+        private final TestRequestDecoder testRequest = new TestRequestDecoder();
+        private final HeaderDecoder header = new HeaderDecoder();
+        private final SequenceResetDecoder sequenceReset = new SequenceResetDecoder();
+        private final HeartbeatDecoder heartbeat = new HeartbeatDecoder();
+    }
 }
@@ -25,10 +25,7 @@ import uk.co.real_logic.artio.protocol.GatewayPublication;
 import uk.co.real_logic.artio.util.AsciiFormatter;
 import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
-import java.util.List;
-
 import static java.nio.charset.StandardCharsets.US_ASCII;
-import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static uk.co.real_logic.artio.dictionary.generation.CodecUtil.MISSING_INT;
 import static uk.co.real_logic.artio.fields.RejectReason.VALUE_IS_INCORRECT;
@@ -36,7 +33,14 @@ import static uk.co.real_logic.artio.messages.MessageStatus.OK;
 import static uk.co.real_logic.artio.session.Session.LIBRARY_DISCONNECTED;
 
 /**
- * Encapsulates sending messages relating to sessions
+ * Encapsulates sending messages relating to sessions.
+ *
+ * Heartbeats, test requests, sequence resets and resend requests are sent from templates that are rendered once the
+ * session has been set up, so only their MsgSeqNum, SendingTime, varying body fields and checksum are written for
+ * each message. Messages that set LastMsgSeqNumProcessed, and all other messages, are encoded in full.
+ * <p>
+ * The encoders, and the buffer that messages are encoded into, can be shared by the proxies of every session that is
+ * used on the same thread, so the header fields of the session are set up again whenever a message is encoded.
  */
 public class SessionProxy
 {
@@ -49,6 +53,13 @@ public class SessionProxy
     private static final byte[][] NOT_LOGGED_ON_SESSION_REJECT_REASONS = new byte[REJECT_COUNT][];
     private static final byte[][] LOGGED_ON_SESSION_REJECT_REASONS = new byte[REJECT_COUNT][];
 
+    private static final byte[] TEST_REQ_ID_FIELD = "112=".getBytes(US_ASCII);
+    private static final byte[] NEW_SEQ_NO_FIELD = "36=".getBytes(US_ASCII);
+    private static final byte[] BEGIN_SEQ_NO_FIELD = "7=".getBytes(US_ASCII);
+    private static final byte[] END_SEQ_NO_FIELD = "16=".getBytes(US_ASCII);
+    private static final String TEMPLATE_TEST_REQ_ID = "0";
+    private static final int TEMPLATE_SEQ_NUM = 1;
+
     static
     {
         final RejectReason[] reasons = RejectReason.values();
@@ -74,18 +85,19 @@ public class SessionProxy
         }
     }
 
-    private final UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
-    private final LogonEncoder logon = new LogonEncoder();
-    private final ResendRequestEncoder resendRequest = new ResendRequestEncoder();
-    private final LogoutEncoder logout = new LogoutEncoder();
-    private final HeartbeatEncoder heartbeat = new HeartbeatEncoder();
-    private final RejectEncoder reject = new RejectEncoder();
-    private final TestRequestEncoder testRequest = new TestRequestEncoder();
-    private final SequenceResetEncoder sequenceReset = new SequenceResetEncoder();
-    private final List<HeaderEncoder> headers = asList(
-        logon.header(), resendRequest.header(), logout.header(), heartbeat.header(), reject.header(),
-        testRequest.header(), sequenceReset.header());
-
+    private final AdminMessageTemplate heartbeatTemplate = new AdminMessageTemplate(null);
+    private final AdminMessageTemplate testRequestTemplate = new AdminMessageTemplate(TEST_REQ_ID_FIELD);
+    private final AdminMessageTemplate sequenceResetTemplate = new AdminMessageTemplate(NEW_SEQ_NO_FIELD);
+    private final AdminMessageTemplate resendRequestTemplate = new AdminMessageTemplate(BEGIN_SEQ_NO_FIELD);
+
+    private final UtcTimestampEncoder timestampEncoder;
+    private final LogonEncoder logon;
+    private final ResendRequestEncoder resendRequest;
+    private final LogoutEncoder logout;
+    private final HeartbeatEncoder heartbeat;
+    private final RejectEncoder reject;
+    private final TestRequestEncoder testRequest;
+    private final SequenceResetEncoder sequenceReset;
     private final AsciiFormatter lowSequenceNumber;
     private final MutableAsciiBuffer buffer;
     private final GatewayPublication gatewayPublication;
@@ -95,6 +107,7 @@ public class SessionProxy
     private final long connectionId;
     private final int libraryId;
     private long sessionId;
+    private CompositeKey sessionKey;
     private boolean libraryConnected = true;
     private boolean seqNumResetRequested = false;
 
@@ -106,6 +119,27 @@ public class SessionProxy
         final EpochClock clock,
         final long connectionId,
         final int libraryId)
+    {
+        this(
+            buffer,
+            gatewayPublication,
+            sessionIdStrategy,
+            customisationStrategy,
+            clock,
+            connectionId,
+            libraryId,
+            new Encoders());
+    }
+
+    public SessionProxy(
+        final MutableAsciiBuffer buffer,
+        final GatewayPublication gatewayPublication,
+        final SessionIdStrategy sessionIdStrategy,
+        final SessionCustomisationStrategy customisationStrategy,
+        final EpochClock clock,
+        final long connectionId,
+        final int libraryId,
+        final Encoders encoders)
     {
         this.gatewayPublication = gatewayPublication;
         this.sessionIdStrategy = sessionIdStrategy;
@@ -114,8 +148,15 @@ public class SessionProxy
         this.connectionId = connectionId;
         this.libraryId = libraryId;
         this.buffer = buffer;
-        lowSequenceNumber = new AsciiFormatter("MsgSeqNum too low, expecting %s but received %s");
-        timestampEncoder.initialise(clock.time());
+        timestampEncoder = encoders.timestampEncoder;
+        logon = encoders.logon;
+        resendRequest = encoders.resendRequest;
+        logout = encoders.logout;
+        heartbeat = encoders.heartbeat;
+        reject = encoders.reject;
+        testRequest = encoders.testRequest;
+        sequenceReset = encoders.sequenceReset;
+        lowSequenceNumber = encoders.lowSequenceNumber;
     }
 
     void setupSession(final long sessionId, final CompositeKey sessionKey)
@@ -123,10 +164,34 @@ public class SessionProxy
         requireNonNull(sessionKey, "sessionKey");
 
         this.sessionId = sessionId;
-        for (final HeaderEncoder header : headers)
-        {
-            sessionIdStrategy.setupSession(sessionKey, header);
-        }
+        this.sessionKey = sessionKey;
+
+        renderTemplates();
+    }
+
+    private void renderTemplates()
+    {
+        heartbeat.resetMessage();
+        setupHeader(heartbeat.header(), TEMPLATE_SEQ_NUM, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+        heartbeatTemplate.render(buffer, heartbeat.encode(buffer, 0));
+
+        testRequest.resetMessage();
+        setupHeader(testRequest.header(), TEMPLATE_SEQ_NUM, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+        testRequest.testReqID(TEMPLATE_TEST_REQ_ID);
+        testRequestTemplate.render(buffer, testRequest.encode(buffer, 0));
+        testRequest.resetMessage();
+
+        sequenceReset.resetMessage();
+        setupHeader(sequenceReset.header(), TEMPLATE_SEQ_NUM, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+        sequenceReset.newSeqNo(TEMPLATE_SEQ_NUM);
+        sequenceResetTemplate.render(buffer, sequenceReset.encode(buffer, 0));
+        sequenceReset.resetMessage();
+
+        resendRequest.resetMessage();
+        setupHeader(resendRequest.header(), TEMPLATE_SEQ_NUM, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+        resendRequest.beginSeqNo(TEMPLATE_SEQ_NUM).endSeqNo(TEMPLATE_SEQ_NUM);
+        resendRequestTemplate.render(buffer, resendRequest.encode(buffer, 0));
+        resendRequest.resetMessage();
     }
 
     long resendRequest(
@@ -136,6 +201,16 @@ public class SessionProxy
         final int sequenceIndex,
         final int lastMsgSeqNumProcessed)
     {
+        final AdminMessageTemplate template = resendRequestTemplate;
+        if (canUseTemplate(template, lastMsgSeqNumProcessed))
+        {
+            int position = beginMessage(template, msgSeqNo);
+            position = template.putField(position, BEGIN_SEQ_NO_FIELD, beginSeqNo);
+            position = template.putField(position, END_SEQ_NO_FIELD, endSeqNo);
+            return send(template.finishMessage(position), ResendRequestDecoder.MESSAGE_TYPE, sequenceIndex, msgSeqNo);
+        }
+
+        resendRequest.resetMessage();
         final HeaderEncoder header = resendRequest.header();
         setupHeader(header, msgSeqNo, lastMsgSeqNumProcessed);
         resendRequest.beginSeqNo(beginSeqNo)
@@ -158,6 +233,7 @@ public class SessionProxy
         final int sequenceIndex,
         final int lastMsgSeqNumProcessed)
     {
+        logon.resetMessage();
         final HeaderEncoder header = logon.header();
         setupHeader(header, msgSeqNo, lastMsgSeqNumProcessed);
 
@@ -211,6 +287,7 @@ public class SessionProxy
         final int sequenceIndex,
         final int lastMsgSeqNumProcessed)
     {
+        logout.resetMessage();
         final HeaderEncoder header = logout.header();
         setupHeader(header, msgSeqNo, lastMsgSeqNumProcessed);
 
@@ -235,11 +312,15 @@ public class SessionProxy
             .with(expectedSeqNo)
             .with(receivedSeqNo);
 
-        final long position = logout(
-            msgSeqNo, lowSequenceNumber.value(), lowSequenceNumber.length(), sequenceIndex, lastMsgSeqNumProcessed);
-        lowSequenceNumber.clear();
-
-        return position;
+        try
+        {
+            return logout(
+                msgSeqNo, lowSequenceNumber.value(), lowSequenceNumber.length(), sequenceIndex, lastMsgSeqNumProcessed);
+        }
+        finally
+        {
+            lowSequenceNumber.clear();
+        }
     }
 
     long incorrectBeginStringLogout(
@@ -280,6 +361,18 @@ public class SessionProxy
         final int sequenceIndex,
         final int lastMsgSeqNumProcessed)
     {
+        final AdminMessageTemplate template = heartbeatTemplate;
+        if (canUseTemplate(template, lastMsgSeqNumProcessed))
+        {
+            int position = beginMessage(template, msgSeqNo);
+            if (testReqId != null)
+            {
+                position = template.putField(position, TEST_REQ_ID_FIELD, testReqId, testReqIdLength);
+            }
+            return send(template.finishMessage(position), HeartbeatDecoder.MESSAGE_TYPE, sequenceIndex, msgSeqNo);
+        }
+
+        heartbeat.resetMessage();
         final HeaderEncoder header = heartbeat.header();
         setupHeader(header, msgSeqNo, lastMsgSeqNumProcessed);
 
@@ -287,10 +380,6 @@ public class SessionProxy
         {
             heartbeat.testReqID(testReqId, testReqIdLength);
         }
-        else
-        {
-            heartbeat.resetTestReqID();
-        }
 
         final long result = heartbeat.encode(buffer, 0);
         return send(result, HeartbeatDecoder.MESSAGE_TYPE, sequenceIndex, heartbeat, msgSeqNo);
@@ -306,14 +395,11 @@ public class SessionProxy
         final int sequenceIndex,
         final int lastMsgSeqNumProcessed)
     {
+        reject.resetMessage();
         if (refTagId != MISSING_INT)
         {
             reject.refTagID(refTagId);
         }
-        else
-        {
-            reject.resetRefTagID();
-        }
 
         reject.refMsgType(refMsgType, refMsgTypeLength);
         reject.text(LOGGED_ON_SESSION_REJECT_REASONS[rejectReason]);
@@ -331,6 +417,14 @@ public class SessionProxy
     public long testRequest(
         final int msgSeqNo, final CharSequence testReqID, final int sequenceIndex, final int lastMsgSeqNumProcessed)
     {
+        final AdminMessageTemplate template = testRequestTemplate;
+        if (canUseTemplate(template, lastMsgSeqNumProcessed))
+        {
+            final int position = template.putField(beginMessage(template, msgSeqNo), TEST_REQ_ID_FIELD, testReqID);
+            return send(template.finishMessage(position), TestRequestDecoder.MESSAGE_TYPE, sequenceIndex, msgSeqNo);
+        }
+
+        testRequest.resetMessage();
         final HeaderEncoder header = testRequest.header();
         setupHeader(header, msgSeqNo, lastMsgSeqNumProcessed);
 
@@ -343,6 +437,14 @@ public class SessionProxy
     public long sequenceReset(
         final int msgSeqNo, final int newSeqNo, final int sequenceIndex, final int lastMsgSeqNumProcessed)
     {
+        final AdminMessageTemplate template = sequenceResetTemplate;
+        if (canUseTemplate(template, lastMsgSeqNumProcessed))
+        {
+            final int position = template.putField(beginMessage(template, msgSeqNo), NEW_SEQ_NO_FIELD, newSeqNo);
+            return send(template.finishMessage(position), SequenceResetDecoder.MESSAGE_TYPE, sequenceIndex, msgSeqNo);
+        }
+
+        sequenceReset.resetMessage();
         final HeaderEncoder header = sequenceReset.header();
         setupHeader(header, msgSeqNo, lastMsgSeqNumProcessed);
 
@@ -354,6 +456,12 @@ public class SessionProxy
 
     private void setupHeader(final HeaderEncoder header, final int msgSeqNo, final int lastMsgSeqNumProcessed)
     {
+        header.reset();
+        if (sessionKey != null)
+        {
+            sessionIdStrategy.setupSession(sessionKey, header);
+        }
+
         final UtcTimestampEncoder timestampEncoder = this.timestampEncoder;
         header.sendingTime(timestampEncoder.buffer(), timestampEncoder.update(clock.time()));
         header.msgSeqNum(msgSeqNo);
@@ -364,25 +472,48 @@ public class SessionProxy
         }
     }
 
+    private boolean canUseTemplate(final AdminMessageTemplate template, final int lastMsgSeqNumProcessed)
+    {
+        return lastMsgSeqNumProcessed == NO_LAST_MSG_SEQ_NUM_PROCESSED && template.isRendered();
+    }
+
+    private int beginMessage(final AdminMessageTemplate template, final int msgSeqNo)
+    {
+        final UtcTimestampEncoder timestampEncoder = this.timestampEncoder;
+        final int sendingTimeLength = timestampEncoder.update(clock.time());
+        return template.beginMessage(buffer, 0, msgSeqNo, timestampEncoder.buffer(), sendingTimeLength);
+    }
+
     private long send(
         final long result,
         final int messageType,
         final int sequenceIndex,
         final Encoder encoder,
         final int msgSeqNo)
+    {
+        // The encoder is shared with other sessions, so don't leave this message's fields in it.
+        encoder.resetMessage();
+
+        return send(result, messageType, sequenceIndex, msgSeqNo);
+    }
+
+    private long send(final long result, final int messageType, final int sequenceIndex, final int msgSeqNo)
     {
         if (!libraryConnected)
         {
             return LIBRARY_DISCONNECTED;
         }
 
+        return saveMessage(result, messageType, sequenceIndex, msgSeqNo);
+    }
+
+    private long saveMessage(final long result, final int messageType, final int sequenceIndex, final int msgSeqNo)
+    {
         final int length = Encoder.length(result);
         final int offset = Encoder.offset(result);
-        final long position = gatewayPublication.saveMessage(
+        return gatewayPublication.saveMessage(
             buffer, offset, length,
             libraryId, messageType, sessionId, sequenceIndex, connectionId, OK, msgSeqNo);
-        encoder.resetMessage();
-        return position;
     }
 
     void libraryConnected(final boolean libraryConnected)
@@ -394,4 +525,22 @@ public class SessionProxy
     {
         return seqNumResetRequested;
     }
+
+    /**
+     * The encoders used to send session messages. A proxy resets an encoder and sets up its header each time that it
+     * uses it, so they can be shared by the proxies of every session that is used on the same thread.
+     */
+    public static final class Encoders
+    {
+        private final UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
+        private final LogonEncoder logon = new LogonEncoder();
+        private final ResendRequestEncoder resendRequest = new ResendRequestEncoder();
+        private final LogoutEncoder logout = new LogoutEncoder();
+        private final HeartbeatEncoder heartbeat = new HeartbeatEncoder();
+        private final RejectEncoder reject = new RejectEncoder();
+        private final TestRequestEncoder testRequest = new TestRequestEncoder();
+        private final SequenceResetEncoder sequenceReset = new SequenceResetEncoder();
+        private final AsciiFormatter lowSequenceNumber =
+            new AsciiFormatter("MsgSeqNum too low, expecting %s but received %s");
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.timing;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.CloseHelper;
+import org.agrona.ErrorHandler;
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.EpochClock;
+import org.agrona.concurrent.status.CountersReader;
+
+import java.util.Arrays;
+
+import static org.agrona.concurrent.status.CountersReader.*;
+
+/**
+ * Periodically snapshots every allocated counter of a set of types, eg the per session counters, and logs a histogram
+ * for each type of the per second rates of the counters of that type over the interval. The counters are read
+ * through a {@link CountersReader}, in the same way as external tooling, so recording them costs nothing extra on
+ * the threads that update them.
+ *
+ * The histograms are logged in the same format as {@link HistogramLogAgent}, with the counter type id as the id of
+ * each histogram.
+ */
+public class CounterRateAgent implements Agent
+{
+    private static final int NOT_SEEN = -1;
+    private static final int SIGNIFICANT_FIGURES = 3;
+
+    private final CountersReader countersReader;
+    private final Int2ObjectHashMap<Histogram> typeIdToHistogram = new Int2ObjectHashMap<>();
+    private final HistogramHandler histogramHandler;
+    private final long intervalInMs;
+    private final EpochClock milliClock;
+    private final String agentNamePrefix;
+
+    private long[] previousValues = new long[0];
+    private int[] lastSeenSnapshot = new int[0];
+    private int snapshot;
+    private long lastSnapshotTimeInMs = NOT_SEEN;
+    private long nextSnapshotTimeInMs = 0;
+
+    @SuppressWarnings("FinalParameters")
+    public CounterRateAgent(
+        final CountersReader countersReader,
+        final Int2ObjectHashMap<String> typeIdToName,
+        final String logFile,
+        final long intervalInMs,
+        final ErrorHandler errorHandler,
+        final EpochClock milliClock,
+        HistogramHandler histogramHandler,
+        final String agentNamePrefix)
+    {
+        this.countersReader = countersReader;
+        this.intervalInMs = intervalInMs;
+        this.milliClock = milliClock;
+        this.agentNamePrefix = agentNamePrefix;
+
+        if (histogramHandler == null)
+        {
+            histogramHandler = new HistogramLogWriter(typeIdToName.size(), logFile, errorHandler);
+        }
+
+        this.histogramHandler = histogramHandler;
+        typeIdToName.forEach((typeId, name) ->
+        {
+            typeIdToHistogram.put(typeId, new Histogram(SIGNIFICANT_FIGURES));
+            this.histogramHandler.identifyTimer(typeId, name);
+        });
+        histogramHandler.onEndTimerIdentification();
+    }
+
+    public int doWork() throws Exception
+    {
+        final long currentTimeInMs = milliClock.time();
+
+        if (currentTimeInMs > nextSnapshotTimeInMs)
+        {
+            snapshot(currentTimeInMs);
+
+            nextSnapshotTimeInMs = currentTimeInMs + intervalInMs;
+            return 1;
+        }
+
+        return 0;
+    }
+
+    private void snapshot(final long currentTimeInMs)
+    {
+        final long elapsedInMs = lastSnapshotTimeInMs == NOT_SEEN ? 0 : currentTimeInMs - lastSnapshotTimeInMs;
+        recordRates(elapsedInMs);
+        lastSnapshotTimeInMs = currentTimeInMs;
+
+        if (elapsedInMs > 0)
+        {
+            final HistogramHandler histogramHandler = this.histogramHandler;
+            histogramHandler.onBeginTimerUpdate(currentTimeInMs);
+            typeIdToHistogram.forEach((typeId, histogram) ->
+            {
+                histogramHandler.onTimerUpdate(typeId, histogram);
+                histogram.reset();
+            });
+            histogramHandler.onEndTimerUpdate();
+        }
+    }
+
+    private void recordRates(final long elapsedInMs)
+    {
+        final CountersReader countersReader = this.countersReader;
+        final int maxCounterId = countersReader.maxCounterId();
+        ensureCapacity(maxCounterId + 1);
+
+        final int previousSnapshot = snapshot;
+        final int snapshot = previousSnapshot + 1;
+        this.snapshot = snapshot;
+
+        for (int counterId = 0; counterId <= maxCounterId; counterId++)
+        {
+            final int state = countersReader.getCounterState(counterId);
+            if (state == RECORD_UNUSED)
+            {
+                break;
+            }
+
+            if (state != RECORD_ALLOCATED)
+            {
+                continue;
+            }
+
+            final int typeId = countersReader.metaDataBuffer().getInt(metaDataOffset(counterId) + TYPE_ID_OFFSET);
+            final Histogram histogram = typeIdToHistogram.get(typeId);
+            if (histogram == null)
+            {
+                continue;
+            }
+
+            final long value = countersReader.getCounterValue(counterId);
+            final long previousValue = previousValues[counterId];
+            // A counter that wasn't seen in the previous snapshot is new, or a freed id that has been reused, so it
+            // only has a rate from the next snapshot onwards.
+            if (elapsedInMs > 0 && lastSeenSnapshot[counterId] == previousSnapshot && value >= previousValue)
+            {
+                histogram.recordValue(((value - previousValue) * 1000) / elapsedInMs);
+            }
+
+            previousValues[counterId] = value;
+            lastSeenSnapshot[counterId] = snapshot;
+        }
+    }
+
+    private void ensureCapacity(final int length)
+    {
+        if (previousValues.length < length)
+        {
+            previousValues = Arrays.copyOf(previousValues, length);
+            lastSeenSnapshot = Arrays.copyOf(lastSeenSnapshot, length);
+        }
+    }
+
+    public String roleName()
+    {
+        return agentNamePrefix + "CounterRateLogger";
+    }
+
+    public void onClose()
+    {
+        CloseHelper.close(histogramHandler);
+    }
+}
@@ -22,6 +22,7 @@ import java.util.List;
 
 public class EngineTimers
 {
+    private final Timer inboundTimer;
     private final Timer outboundTimer;
     private final Timer sendTimer;
     private final List<Timer> timers;
@@ -30,7 +31,13 @@ public class EngineTimers
     {
         outboundTimer = new Timer(clock, "Outbound", 1);
         sendTimer = new Timer(clock, "Send", 2);
-        timers = Arrays.asList(outboundTimer, sendTimer);
+        inboundTimer = new Timer(clock, "Inbound", 3);
+        timers = Arrays.asList(outboundTimer, sendTimer, inboundTimer);
+    }
+
+    public Timer inboundTimer()
+    {
+        return inboundTimer;
     }
 
     public Timer outboundTimer()
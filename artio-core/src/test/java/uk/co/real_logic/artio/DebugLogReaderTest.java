@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.TRAILER_LENGTH;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static uk.co.real_logic.artio.DebugLogEncoder.*;
+
+public class DebugLogReaderTest
+{
+    private static final int CAPACITY = 1024;
+    private static final String THREAD_NAME = "framer";
+    private static final long TIMESTAMP = 123L;
+
+    private final RingBuffer ringBuffer = new ManyToOneRingBuffer(
+        new UnsafeBuffer(new byte[CAPACITY + TRAILER_LENGTH]));
+    private final DebugLogStringTable strings = new DebugLogStringTable();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final ByteArrayOutputStream outputBytes = new ByteArrayOutputStream();
+    private final PrintStream output = new PrintStream(outputBytes, true);
+
+    private final DebugLogEncoder encoder = new DebugLogEncoder(ringBuffer, strings, droppedRecords);
+    private final DebugLogReader reader = new DebugLogReader(ringBuffer, strings, droppedRecords, output);
+
+    @Test
+    public void shouldPrintFormattedRecord()
+    {
+        final UnsafeBuffer message = new UnsafeBuffer("8=FIX.4.4\0019=5\001".getBytes(US_ASCII));
+
+        encoder
+            .begin(PRINTF_RECORD, LogTag.FIX_MESSAGE, "%d %s %s: %s%n", THREAD_NAME, TIMESTAMP)
+            .append(42L)
+            .append(true)
+            .append((Object)"value")
+            .append(message, 0, message.capacity())
+            .commit();
+
+        assertEquals(1, reader.doWork());
+        assertEquals("123:framer[FIX_MESSAGE] : 42 true value: 8=FIX.4.4\0019=5\001\n", output());
+    }
+
+    @Test
+    public void shouldPrintBytesBeforeByteBufferPosition()
+    {
+        final ByteBuffer byteBuffer = ByteBuffer.wrap("35=0\001".getBytes(US_ASCII));
+        byteBuffer.position(byteBuffer.limit());
+
+        encoder
+            .begin(PRINTF_RECORD, LogTag.FIX_MESSAGE, "Read %s%n", THREAD_NAME, TIMESTAMP)
+            .append(byteBuffer, byteBuffer.position() - 5, 5)
+            .commit();
+
+        reader.doWork();
+
+        assertEquals("123:framer[FIX_MESSAGE] : Read 35=0\001\n", output());
+        assertEquals(5, byteBuffer.position());
+    }
+
+    @Test
+    public void shouldPrintLineRecord()
+    {
+        encoder.begin(PRINTLN_RECORD, LogTag.GATEWAY_MESSAGE, null, THREAD_NAME, TIMESTAMP).append("hello").commit();
+
+        reader.doWork();
+
+        assertEquals("framerhello\n", output());
+    }
+
+    @Test
+    public void shouldNotWriteDiscardedRecords()
+    {
+        encoder.begin(DISCARDED_RECORD, LogTag.GATEWAY_MESSAGE, null, THREAD_NAME, TIMESTAMP).append("hello").commit();
+
+        assertEquals(0, reader.doWork());
+        assertEquals("", output());
+    }
+
+    @Test
+    public void shouldReportDroppedRecordsWhenBufferIsFull()
+    {
+        final UnsafeBuffer message = new UnsafeBuffer(new byte[64]);
+        for (int i = 0; i < 12; i++)
+        {
+            encoder
+                .begin(PRINTF_RECORD, LogTag.FIX_MESSAGE, "%s%n", THREAD_NAME, TIMESTAMP)
+                .append(message, 0, message.capacity())
+                .commit();
+        }
+
+        final long droppedRecords = this.droppedRecords.get();
+        assertThat(droppedRecords, greaterThan(0L));
+
+        reader.doWork();
+
+        assertThat(output(), containsString("Dropped " + droppedRecords + " debug log records"));
+    }
+
+    @Test
+    public void shouldDropRecordsLongerThanMaxMessageLength()
+    {
+        final UnsafeBuffer message = new UnsafeBuffer(new byte[ringBuffer.maxMsgLength()]);
+
+        encoder
+            .begin(PRINTF_RECORD, LogTag.FIX_MESSAGE, "%s%n", THREAD_NAME, TIMESTAMP)
+            .append(message, 0, message.capacity())
+            .commit();
+
+        assertEquals(1, droppedRecords.get());
+        assertEquals(0, ringBuffer.size());
+    }
+
+    private String output()
+    {
+        return new String(outputBytes.toByteArray(), US_ASCII).replace(System.lineSeparator(), "\n");
+    }
+}
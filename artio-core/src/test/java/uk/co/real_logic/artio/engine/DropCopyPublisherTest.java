@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+
+import static io.aeron.Publication.BACK_PRESSURED;
+import static io.aeron.Publication.CLOSED;
+import static io.aeron.logbuffer.FrameDescriptor.UNFRAGMENTED;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class DropCopyPublisherTest
+{
+    private static final long SESSION_ID = 1;
+    private static final long OTHER_SESSION_ID = 2;
+    private static final int MAX_BYTES_IN_BUFFER = 256;
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final ExclusivePublication publication = mock(ExclusivePublication.class);
+    private final AtomicCounter droppedMessages = mock(AtomicCounter.class);
+    private final Header header = mock(Header.class);
+
+    private final DropCopyPublisher dropCopyPublisher = new DropCopyPublisher(
+        (message) -> message.session() == SESSION_ID,
+        publication,
+        MAX_BYTES_IN_BUFFER,
+        droppedMessages);
+
+    @Before
+    public void setUp()
+    {
+        when(header.flags()).thenReturn(UNFRAGMENTED);
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(1L);
+    }
+
+    @Test
+    public void shouldPublishMatchingMessages()
+    {
+        final int length = onMessage(SESSION_ID);
+
+        verify(publication).offer(buffer, 0, length);
+    }
+
+    @Test
+    public void shouldNotPublishOtherMessages()
+    {
+        onMessage(OTHER_SESSION_ID);
+
+        verify(publication, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldBufferMessagesWhenBackPressured()
+    {
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(BACK_PRESSURED);
+
+        final int length = onMessage(SESSION_ID);
+        onMessage(SESSION_ID);
+
+        assertEquals(2 * (length + 4), dropCopyPublisher.bytesInBuffer());
+        verify(publication, times(1)).offer(any(DirectBuffer.class), anyInt(), anyInt());
+
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(1L);
+
+        assertEquals(2, dropCopyPublisher.doWork());
+        assertEquals(0, dropCopyPublisher.bytesInBuffer());
+        verify(publication, times(3)).offer(any(DirectBuffer.class), anyInt(), eq(length));
+        verifyZeroInteractions(droppedMessages);
+    }
+
+    @Test
+    public void shouldDropMessagesWhenBufferIsFull()
+    {
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(BACK_PRESSURED);
+
+        final int length = onMessage(SESSION_ID);
+        final int messagesThatFit = MAX_BYTES_IN_BUFFER / (length + 4);
+        for (int i = 1; i < messagesThatFit + 1; i++)
+        {
+            onMessage(SESSION_ID);
+        }
+
+        assertEquals(messagesThatFit * (length + 4), dropCopyPublisher.bytesInBuffer());
+        verify(droppedMessages).increment();
+    }
+
+    @Test
+    public void shouldDropMessagesWhenPublicationClosed()
+    {
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(CLOSED);
+
+        onMessage(SESSION_ID);
+
+        assertEquals(0, dropCopyPublisher.bytesInBuffer());
+        verify(droppedMessages).increment();
+    }
+
+    private int onMessage(final long sessionId)
+    {
+        final byte[] body = "35=8\00149=sender\00156=target\001".getBytes(US_ASCII);
+        final FixMessageEncoder encoder = new FixMessageEncoder();
+        encoder
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .session(sessionId)
+            .putBody(body, 0, body.length);
+
+        final int length = MessageHeaderEncoder.ENCODED_LENGTH + encoder.encodedLength();
+        dropCopyPublisher.onFragment(buffer, 0, length, header);
+        return length;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.Agent;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+
+import static io.aeron.CommonContext.IPC_CHANNEL;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class InvokerEngineSchedulerTest
+{
+    private Agent framer = mock(Agent.class);
+    private Agent indexingAgent = mock(Agent.class);
+    private Agent monitoringAgent = mock(Agent.class);
+    private EngineConfiguration configuration = mock(EngineConfiguration.class);
+    private Agent conductorAgent = mock(Agent.class);
+    private ErrorHandler mockErrorHandler = mock(ErrorHandler.class);
+    private RecordingCoordinator recordingCoordinator = mock(RecordingCoordinator.class);
+
+    private InvokerEngineScheduler scheduler = new InvokerEngineScheduler();
+
+    @Test
+    public void shouldInvokeAllAgentsOnCallingThread() throws Exception
+    {
+        when(framer.doWork()).thenReturn(2);
+        when(indexingAgent.doWork()).thenReturn(1);
+
+        launch();
+
+        assertEquals(3, scheduler.invoke());
+
+        verify(monitoringAgent).doWork();
+        verify(framer).doWork();
+        verify(indexingAgent).doWork();
+        verify(conductorAgent).doWork();
+
+        scheduler.close();
+    }
+
+    @Test
+    public void shouldReportErrorsAndContinueInvoking() throws Exception
+    {
+        when(framer.doWork()).thenThrow(IOException.class);
+
+        launch();
+
+        scheduler.invoke();
+        scheduler.invoke();
+
+        verify(mockErrorHandler).onError(any(IOException.class));
+        verify(indexingAgent).doWork();
+        verify(conductorAgent).doWork();
+
+        scheduler.close();
+    }
+
+    @Test
+    public void shouldCloseRecordingCoordinatorAfterFramerAndBeforeConductor()
+    {
+        launch();
+
+        scheduler.close();
+
+        final InOrder inOrder = inOrder(framer, recordingCoordinator, conductorAgent);
+        inOrder.verify(framer).onClose();
+        inOrder.verify(recordingCoordinator).close();
+        inOrder.verify(conductorAgent).onClose();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotLaunchTwice()
+    {
+        launch();
+        launch();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectConfigurationWithMoreThanOneReplayWorker()
+    {
+        new EngineConfiguration()
+            .libraryAeronChannel(IPC_CHANNEL)
+            .scheduler(scheduler)
+            .replayWorkerCount(2)
+            .conclude();
+    }
+
+    private void launch()
+    {
+        scheduler.launch(
+            configuration,
+            mockErrorHandler,
+            framer,
+            indexingAgent,
+            monitoringAgent,
+            conductorAgent,
+            recordingCoordinator);
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.Test;
 
 import java.io.IOException;
 
+import static io.aeron.CommonContext.IPC_CHANNEL;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.Timing.assertEventuallyTrue;
 
@@ -58,4 +59,24 @@ public class LowResourceEngineSchedulerTest
             );
         }
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectConfigurationWithMoreThanOneReplayWorker()
+    {
+        new EngineConfiguration()
+            .libraryAeronChannel(IPC_CHANNEL)
+            .scheduler(new LowResourceEngineScheduler())
+            .replayWorkerCount(2)
+            .conclude();
+    }
+
+    @Test
+    public void shouldAllowConfigurationWithOneReplayWorker()
+    {
+        new EngineConfiguration()
+            .libraryAeronChannel(IPC_CHANNEL)
+            .scheduler(new LowResourceEngineScheduler())
+            .replayWorkerCount(1)
+            .conclude();
+    }
 }
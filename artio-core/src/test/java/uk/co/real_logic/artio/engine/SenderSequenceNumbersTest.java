@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine;
+
+import org.agrona.concurrent.IdleStrategy;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static uk.co.real_logic.artio.engine.SenderSequenceNumbers.UNKNOWN_SESSION;
+
+public class SenderSequenceNumbersTest
+{
+    private static final long CONNECTION_ID = 1;
+    private static final int SEQUENCE_NUMBER = 5;
+
+    private final SenderSequenceNumbers senderSequenceNumbers =
+        new SenderSequenceNumbers(mock(IdleStrategy.class), 2);
+
+    @Test
+    public void shouldNotifyEachReaderOfNewSenders()
+    {
+        final SenderSequenceNumber senderSequenceNumber = senderSequenceNumbers.onNewSender(CONNECTION_ID);
+        senderSequenceNumber.onNewMessage(SEQUENCE_NUMBER);
+
+        assertEquals(UNKNOWN_SESSION, senderSequenceNumbers.lastSentSequenceNumber(1, CONNECTION_ID));
+
+        assertEquals(1, senderSequenceNumbers.poll(0));
+        assertEquals(1, senderSequenceNumbers.poll(1));
+
+        assertEquals(SEQUENCE_NUMBER, senderSequenceNumbers.lastSentSequenceNumber(CONNECTION_ID));
+        assertEquals(SEQUENCE_NUMBER, senderSequenceNumbers.lastSentSequenceNumber(1, CONNECTION_ID));
+    }
+
+    @Test
+    public void shouldNotifyEachReaderOfClosedSenders()
+    {
+        final SenderSequenceNumber senderSequenceNumber = senderSequenceNumbers.onNewSender(CONNECTION_ID);
+        senderSequenceNumbers.poll(0);
+        senderSequenceNumbers.poll(1);
+
+        senderSequenceNumber.close();
+
+        assertEquals(1, senderSequenceNumbers.poll(1));
+        assertEquals(UNKNOWN_SESSION, senderSequenceNumbers.lastSentSequenceNumber(1, CONNECTION_ID));
+        assertEquals(1, senderSequenceNumbers.poll(0));
+        assertEquals(UNKNOWN_SESSION, senderSequenceNumbers.lastSentSequenceNumber(0, CONNECTION_ID));
+    }
+}
@@ -21,7 +21,6 @@ import io.aeron.logbuffer.ControlledFragmentHandler.Action;
 import io.aeron.logbuffer.Header;
 import org.agrona.ErrorHandler;
 import org.agrona.LangUtil;
-import org.agrona.concurrent.AgentInvoker;
 import org.agrona.concurrent.QueuedPipe;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
@@ -35,7 +34,6 @@ import uk.co.real_logic.artio.engine.CompletionPosition;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
 import uk.co.real_logic.artio.engine.RecordingCoordinator;
 import uk.co.real_logic.artio.engine.SessionInfo;
-import uk.co.real_logic.artio.engine.framer.SubscriptionSlowPeeker.LibrarySlowPeeker;
 import uk.co.real_logic.artio.engine.logger.ReplayQuery;
 import uk.co.real_logic.artio.engine.logger.SequenceNumberIndexReader;
 import uk.co.real_logic.artio.messages.*;
@@ -108,10 +106,7 @@ public class FramerTest
     private final GatewaySession gatewaySession = mock(GatewaySession.class);
     private final Session session = mock(Session.class);
     private final Subscription outboundLibrarySubscription = mock(Subscription.class);
-    private final Subscription outboundSlowSubscription = mock(Subscription.class);
     private final Image replayImage = mock(Image.class);
-    private final Image replaySlowImage = mock(Image.class);
-    private final Image peekImage = mock(Image.class);
     private final Image normalImage = mock(Image.class);
     private final CompositeKey sessionKey = SessionIdStrategy
         .senderAndTarget()
@@ -140,12 +135,10 @@ public class FramerTest
 
         clientBuffer.putInt(10, 5);
 
-        when(outboundSlowSubscription.hasNoImages()).thenReturn(false);
-        when(outboundSlowSubscription.imageBySessionId(anyInt())).thenReturn(peekImage);
         when(outboundLibrarySubscription.imageBySessionId(anyInt())).thenReturn(normalImage);
 
         when(mockEndPointFactory.receiverEndPoint(
-            any(), connectionId.capture(), anyLong(), anyInt(), anyInt(), any()))
+            any(), connectionId.capture(), anyLong(), anyInt(), anyInt(), any(), any()))
             .thenReturn(mockReceiverEndPoint);
 
         when(mockEndPointFactory.senderEndPoint(any(), anyLong(), anyInt(), any(), any()))
@@ -169,9 +162,7 @@ public class FramerTest
             engineConfiguration,
             mockEndPointFactory,
             outboundLibrarySubscription,
-            outboundSlowSubscription,
-            replayImage,
-            replaySlowImage,
+            new Image[]{ replayImage },
             replayQuery,
             mock(GatewayPublication.class),
             inboundPublication,
@@ -186,7 +177,6 @@ public class FramerTest
             mock(CompletionPosition.class),
             mock(CompletionPosition.class),
             finalImagePositions,
-            mock(AgentInvoker.class),
             mock(RecordingCoordinator.class));
 
         when(sessionContexts.onLogon(any())).thenReturn(new SessionContext(SESSION_ID,
@@ -769,7 +759,6 @@ public class FramerTest
             anyInt(),
             anyInt(),
             any(),
-            any(),
             any());
     }
 
@@ -920,10 +909,10 @@ public class FramerTest
     private void verifyEndpointsCreated()
     {
         verify(mockEndPointFactory).receiverEndPoint(
-            notNull(), anyLong(), anyLong(), anyInt(), eq(ENGINE_LIBRARY_ID), eq(framer));
+            notNull(), anyLong(), anyLong(), anyInt(), eq(ENGINE_LIBRARY_ID), eq(framer), any());
 
         verify(mockEndPointFactory).senderEndPoint(
-            notNull(), anyLong(), eq(ENGINE_LIBRARY_ID), any(LibrarySlowPeeker.class), eq(framer));
+            notNull(), anyLong(), eq(ENGINE_LIBRARY_ID), eq(framer), any());
     }
 
     private void verifyLibraryTimeout()
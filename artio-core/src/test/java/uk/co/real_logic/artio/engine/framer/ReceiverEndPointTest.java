@@ -33,6 +33,7 @@ import uk.co.real_logic.artio.protocol.GatewayPublication;
 import uk.co.real_logic.artio.session.CompositeKey;
 import uk.co.real_logic.artio.session.Session;
 import uk.co.real_logic.artio.session.SessionIdStrategy;
+import uk.co.real_logic.artio.timing.Timer;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -59,6 +60,7 @@ public class ReceiverEndPointTest
     private static final int BUFFER_SIZE = 16 * 1024;
     private static final int SEQUENCE_INDEX = 0;
     private static final int BACKPRESSURED_REQUIRED_POSITION = 1024;
+    private static final long READ_TIMESTAMP = 123_456_789L;
 
     private TcpChannel mockChannel = mock(TcpChannel.class);
     private GatewayPublication publication = mock(GatewayPublication.class);
@@ -72,6 +74,7 @@ public class ReceiverEndPointTest
     private final AuthenticationResult backpressuredAuthenticationResult = new AuthenticationResult(
         gatewaySession, BACKPRESSURED_REQUIRED_POSITION);
     private GatewaySessions mockGatewaySessions = mock(GatewaySessions.class);
+    private Timer inboundTimer = mock(Timer.class);
     private CompositeKey sessionKey = SessionIdStrategy
         .senderAndTarget()
         .onInitiateLogon("ACCEPTOR", "", "", "INIATOR", "", "");
@@ -80,7 +83,7 @@ public class ReceiverEndPointTest
         mockChannel, BUFFER_SIZE, publication,
         CONNECTION_ID, UNKNOWN, SEQUENCE_INDEX, mockSessionContexts,
         messagesRead, framer, errorHandler, LIBRARY_ID,
-        mockGatewaySessions);
+        mockGatewaySessions, () -> READ_TIMESTAMP, inboundTimer, null);
 
     @Before
     public void setUp()
@@ -133,6 +136,17 @@ public class ReceiverEndPointTest
         sessionReceivesOneMessage();
     }
 
+    @Test
+    public void shouldTimeFramingFromSocketRead()
+    {
+        theEndpointReceivesACompleteMessage();
+
+        polls(2 * MSG_LEN);
+
+        savesAFramedMessage();
+        verify(inboundTimer).recordSince(READ_TIMESTAMP);
+    }
+
     @Test
     public void shouldFrameValidFixMessageWhenBackpressured()
     {
@@ -403,7 +417,8 @@ public class ReceiverEndPointTest
     {
         when(publication
             .saveMessage(
-                anyBuffer(), anyInt(), anyInt(), anyInt(), anyInt(), anyLong(), anyInt(), anyLong(), any(), anyInt()))
+                anyBuffer(), anyInt(), anyInt(), anyInt(), anyInt(), anyLong(), anyInt(), anyLong(), any(), anyInt(),
+                anyLong()))
             .thenReturn(BACK_PRESSURED, POSITION);
     }
 
@@ -433,7 +448,7 @@ public class ReceiverEndPointTest
         verify(publication, mode).saveMessage(
             anyBuffer(), eq(0), eq(length), eq(LIBRARY_ID),
             anyInt(), anyLong(), anyInt(), eq(CONNECTION_ID),
-            eq(status), eq(0));
+            eq(status), eq(0), eq(READ_TIMESTAMP));
     }
 
     private void verifyDisconnected()
@@ -475,7 +490,7 @@ public class ReceiverEndPointTest
         return verify(publication, times(numberOfMessages)).saveMessage(
             anyBuffer(), eq(0), eq(msgLen), eq(LIBRARY_ID),
             eq(messageType), eq(SESSION_ID), eq(SEQUENCE_INDEX), eq(CONNECTION_ID),
-            eq(status), eq(0));
+            eq(status), eq(0), eq(READ_TIMESTAMP));
     }
 
     private void savesTwoFramedMessages(final int firstMessageSaveAttempts)
@@ -491,7 +506,8 @@ public class ReceiverEndPointTest
             eq(SEQUENCE_INDEX),
             eq(CONNECTION_ID),
             eq(OK),
-            eq(0));
+            eq(0),
+            eq(READ_TIMESTAMP));
 
         inOrder.verify(publication, times(1)).saveMessage(
             anyBuffer(),
@@ -503,7 +519,8 @@ public class ReceiverEndPointTest
             eq(SEQUENCE_INDEX),
             eq(CONNECTION_ID),
             eq(OK),
-            eq(0));
+            eq(0),
+            eq(READ_TIMESTAMP));
 
         inOrder.verifyNoMoreInteractions();
     }
@@ -607,7 +624,8 @@ public class ReceiverEndPointTest
             anyInt(),
             eq(CONNECTION_ID),
             eq(INVALID_CHECKSUM),
-            eq(0));
+            eq(0),
+            eq(READ_TIMESTAMP));
     }
 
     private void sessionReceivesOneMessage()
@@ -15,42 +15,41 @@
  */
 package uk.co.real_logic.artio.engine.framer;
 
-import io.aeron.logbuffer.ControlledFragmentHandler.Action;
 import org.agrona.ErrorHandler;
-import org.agrona.LangUtil;
+import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Before;
 import org.junit.Test;
 import org.mockito.stubbing.Answer;
 import org.mockito.verification.VerificationMode;
+import uk.co.real_logic.artio.SessionCounters;
+import uk.co.real_logic.artio.decoder.RejectDecoder;
 import uk.co.real_logic.artio.engine.SenderSequenceNumber;
-import uk.co.real_logic.artio.messages.MessageHeaderDecoder;
+import uk.co.real_logic.artio.engine.SenderSequenceNumbers;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicLong;
 
-import static io.aeron.logbuffer.ControlledFragmentHandler.Action.CONTINUE;
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS;
-import static uk.co.real_logic.artio.engine.logger.ArchiveDescriptor.alignTerm;
+import static uk.co.real_logic.artio.messages.DisconnectReason.EXCEPTION;
 import static uk.co.real_logic.artio.messages.DisconnectReason.SLOW_CONSUMER;
-import static uk.co.real_logic.artio.protocol.GatewayPublication.FRAME_SIZE;
 
 public class SenderEndPointTest
 {
     private static final long CONNECTION_ID = 1;
     private static final int LIBRARY_ID = 2;
-    private static final int HEADER_LENGTH = MessageHeaderDecoder.ENCODED_LENGTH;
+    private static final int MESSAGE_TYPE = 'D';
 
-    private static final long POSITION = 8 * 1024;
     private static final int BODY_LENGTH = 84;
-    private static final int LENGTH = FRAME_SIZE + BODY_LENGTH;
-    private static final int FRAGMENT_LENGTH = alignTerm(HEADER_LENGTH + FRAME_SIZE + BODY_LENGTH);
-    private static final long BEGIN_POSITION = 8000;
     private static final int MAX_BYTES_IN_BUFFER = 3 * BODY_LENGTH;
+    private static final int PARTIAL_WRITE = 41;
 
     private TcpChannel tcpChannel = mock(TcpChannel.class);
     private AtomicCounter bytesInBuffer = fakeCounter();
@@ -59,73 +58,123 @@ public class SenderEndPointTest
     private Framer framer = mock(Framer.class);
     private ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
     private UnsafeBuffer buffer = new UnsafeBuffer(byteBuffer);
-    private BlockablePosition libraryBlockablePosition = mock(BlockablePosition.class);
-    private BlockablePosition replayBlockablePosition = mock(BlockablePosition.class);
     private SenderSequenceNumber senderSequenceNumber = mock(SenderSequenceNumber.class);
 
-    private SenderEndPoint endPoint = new SenderEndPoint(
-        CONNECTION_ID,
-        LIBRARY_ID,
-        libraryBlockablePosition,
-        replayBlockablePosition,
-        tcpChannel,
-        bytesInBuffer,
-        invalidLibraryAttempts,
-        errorHandler,
-        framer,
-        MAX_BYTES_IN_BUFFER,
-        DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
-        0,
-        senderSequenceNumber);
+    private final StringBuilder writtenBytes = new StringBuilder();
+    private int maxBytesPerWrite = Integer.MAX_VALUE;
+
+    private AtomicCounter throttledMessages = mock(AtomicCounter.class);
+
+    private SenderEndPoint endPoint = newEndPoint(null);
+
+    @Before
+    public void setUp() throws IOException
+    {
+        when(tcpChannel.write(any(ByteBuffer.class))).then((inv) ->
+        {
+            final ByteBuffer src = inv.getArgument(0);
+            final int length = Math.min(src.remaining(), maxBytesPerWrite);
+            for (int i = 0; i < length; i++)
+            {
+                writtenBytes.append((char)src.get());
+            }
+
+            return length;
+        });
+    }
+
+    @Test
+    public void shouldWriteMessage()
+    {
+        onOutboundMessage('A', 100);
+
+        assertWritten('A', BODY_LENGTH);
+        assertBytesInBuffer(0);
+        verifySlowStatus(true, never());
+    }
 
     @Test
-    public void shouldRetrySlowConsumerMessage()
+    public void shouldBufferUnsentBytesOfPartiallyWrittenMessage()
     {
-        becomeSlowConsumer();
+        channelWillWrite(PARTIAL_WRITE);
+        onOutboundMessage('A', 100);
+
+        assertWritten('A', PARTIAL_WRITE);
+        assertBytesInBuffer(BODY_LENGTH - PARTIAL_WRITE);
+        verifySlowStatus(true, times(1));
+    }
+
+    @Test
+    public void shouldRetryBufferedBytesWhenPolled()
+    {
+        becomeSlowConsumer('A');
 
         channelWillWrite(BODY_LENGTH);
+        assertEquals(1, endPoint.poll(100));
 
-        onSlowOutboundMessage();
-        byteBufferWritten();
+        assertWritten('A', BODY_LENGTH);
         assertBytesInBuffer(0);
-        verifyDoesNotBlockLibrary();
+        verifySlowStatus(false, times(1));
+        assertEquals(0, endPoint.poll(100));
     }
 
     @Test
-    public void shouldBeAbleToFragmentSlowConsumerRetries()
+    public void shouldBeAbleToFragmentRetries()
     {
-        becomeSlowConsumer();
-
-        final int firstWrites = 41;
-        final int remaining = BODY_LENGTH - firstWrites;
+        becomeSlowConsumer('A');
 
-        channelWillWrite(firstWrites);
-        onSlowOutboundMessage();
-        verifyBlocksLibraryAt(BEGIN_POSITION);
-        byteBufferWritten();
-        assertBytesInBuffer(remaining);
+        channelWillWrite(PARTIAL_WRITE);
+        endPoint.poll(100);
+        assertBytesInBuffer(BODY_LENGTH - PARTIAL_WRITE);
+        verifySlowStatus(false, never());
 
-        channelWillWrite(remaining);
-        onSlowOutboundMessage();
-        verifyDoesNotBlockLibrary();
-        byteBufferWritten();
+        channelWillWrite(BODY_LENGTH);
+        endPoint.poll(100);
+        assertWritten('A', BODY_LENGTH);
         assertBytesInBuffer(0);
+        verifySlowStatus(false, times(1));
         verifyNoMoreErrors();
     }
 
     @Test
-    public void shouldDisconnectSlowConsumerAfterTimeout() throws IOException
+    public void shouldBufferFurtherMessagesBehindUnsentBytes()
     {
-        long timeInMs = 100;
-        long position = POSITION;
+        becomeSlowConsumer('A');
+
         channelWillWrite(BODY_LENGTH);
-        onOutboundMessage(timeInMs, position);
+        onOutboundMessage('B', 100);
+        assertWritten("");
+        assertBytesInBuffer(2 * BODY_LENGTH);
 
-        timeInMs += 100;
-        position += FRAGMENT_LENGTH;
+        channelWillWrite(Integer.MAX_VALUE);
+        endPoint.poll(100);
+        assertWritten(repeat('A', BODY_LENGTH) + repeat('B', BODY_LENGTH));
+        assertBytesInBuffer(0);
+    }
 
+    @Test
+    public void shouldDisconnectWhenBufferIsFull()
+    {
+        becomeSlowConsumer('A');
+
+        onOutboundMessage('B', 100);
+        onOutboundMessage('C', 100);
+        verifySlowConsumerDisconnect(never());
+
+        onOutboundMessage('D', 100);
+        verifySlowConsumerDisconnect(times(1));
+        assertBytesInBuffer(MAX_BYTES_IN_BUFFER + BODY_LENGTH);
+    }
+
+    @Test
+    public void shouldDisconnectSlowConsumerAfterTimeout()
+    {
+        long timeInMs = 100;
+        onOutboundMessage('A', timeInMs);
+
+        timeInMs += 100;
         channelWillWrite(0);
-        onOutboundMessage(timeInMs, position);
+        onOutboundMessage('B', timeInMs);
 
         timeInMs += DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS + 1;
 
@@ -136,11 +185,12 @@ public class SenderEndPointTest
     }
 
     @Test
-    public void shouldNotDisconnectSlowConsumerBeforeTimeout() throws IOException
+    public void shouldNotDisconnectSlowConsumerBeforeTimeout()
     {
         long timeInMs = 100;
-        channelWillWrite(BODY_LENGTH);
-        onOutboundMessage(timeInMs, POSITION);
+        onOutboundMessage('A', timeInMs);
+        channelWillWrite(0);
+        onOutboundMessage('B', timeInMs);
 
         timeInMs += (DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS - 1);
 
@@ -151,19 +201,16 @@ public class SenderEndPointTest
     }
 
     @Test
-    public void shouldNotDisconnectSlowConsumerBeforeTimeoutOnSlowChannel() throws IOException
+    public void shouldNotDisconnectSlowConsumerBeforeTimeoutOnSlowChannel()
     {
-        final int replayWrites = 41;
-
         long timeInMs = 100;
         channelWillWrite(0);
-        onOutboundMessage(timeInMs, POSITION);
+        onOutboundMessage('A', timeInMs);
 
         timeInMs += (DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS - 1);
 
-        channelWillWrite(replayWrites);
-        onSlowOutboundMessage(timeInMs);
-        verifyBlocksLibraryAt(BEGIN_POSITION);
+        channelWillWrite(PARTIAL_WRITE);
+        endPoint.poll(timeInMs);
 
         timeInMs += (DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS - 1);
 
@@ -173,6 +220,23 @@ public class SenderEndPointTest
         verifyNoMoreErrors();
     }
 
+    @Test
+    public void shouldDisconnectSlowConsumerAfterTimeoutAfterFragment()
+    {
+        becomeSlowConsumer('A');
+
+        channelWillWrite(PARTIAL_WRITE);
+        endPoint.poll(100);
+
+        channelWillWrite(0);
+        endPoint.poll(100);
+
+        endPoint.checkTimeouts(DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS + 101);
+
+        verifySlowConsumerDisconnect(times(1));
+        errorLogged();
+    }
+
     @Test
     public void shouldNotDisconnectAtStartDueToTimeout()
     {
@@ -182,15 +246,13 @@ public class SenderEndPointTest
 
         verifySlowConsumerDisconnect(never());
         verifyNoMoreErrors();
-        verifyDoesNotBlockLibrary();
     }
 
     @Test
-    public void shouldNotDisconnectRegularConsumerDueToTimeout() throws IOException
+    public void shouldNotDisconnectRegularConsumerDueToTimeout()
     {
         long timeInMs = 100;
-        channelWillWrite(BODY_LENGTH);
-        onOutboundMessage(timeInMs, POSITION);
+        onOutboundMessage('A', timeInMs);
 
         timeInMs += (DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS + 1);
 
@@ -201,314 +263,415 @@ public class SenderEndPointTest
     }
 
     @Test
-    public void shouldDisconnectSlowConsumerAfterTimeoutAfterFragment() throws IOException
+    public void shouldHoldBackOutboundMessagesUntilReplayComplete()
     {
-        becomeSlowConsumer();
+        onReplayMessage('R');
+        assertReplayPaused();
 
-        final int firstWrites = 41;
+        onOutboundMessage('A', 100);
+        assertWritten('R', BODY_LENGTH);
+        assertBytesInBuffer(BODY_LENGTH);
 
-        channelWillWrite(firstWrites);
-        onSlowOutboundMessage();
-        verifyBlocksLibraryAt(BEGIN_POSITION);
+        onReplayMessage('S');
+        endPoint.onReplayComplete(100);
+        assertNotReplayPaused();
 
-        channelWillWrite(0);
-        onSlowOutboundMessage();
-        verifyBlocksLibraryAt(BEGIN_POSITION);
+        assertWritten(repeat('S', BODY_LENGTH) + repeat('A', BODY_LENGTH));
+        assertBytesInBuffer(0);
+        verifySlowStatus(true, never());
+    }
 
-        endPoint.checkTimeouts(DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS + 101);
+    @Test
+    public void shouldRecordSequenceNumberOfHeldBackMessagesWhenReplayCompletes()
+    {
+        senderSequenceNumber = new SenderSequenceNumbers(mock(IdleStrategy.class)).onNewSender(CONNECTION_ID);
+        endPoint = newEndPoint(null);
 
-        verifySlowConsumerDisconnect(times(1));
-        errorLogged();
+        endPoint.onOutboundMessage(LIBRARY_ID, MESSAGE_TYPE, buffer, 0, BODY_LENGTH, 5, 100);
+        onReplayMessage('R');
+        endPoint.onOutboundMessage(LIBRARY_ID, MESSAGE_TYPE, buffer, 0, BODY_LENGTH, 6, 100);
+        endPoint.onOutboundMessage(LIBRARY_ID, MESSAGE_TYPE, buffer, 0, BODY_LENGTH, 7, 100);
+        assertEquals(5, senderSequenceNumber.lastSentSequenceNumber());
+
+        endPoint.onReplayComplete(100);
+
+        assertEquals(7, senderSequenceNumber.lastSentSequenceNumber());
     }
 
     @Test
-    public void shouldBecomeReplaySlowConsumer()
+    public void shouldBufferHeldBackMessagesIfReplayCompletesWhenSlow()
     {
-        final long position = 0;
-        channelWillWrite(0);
-        onReplayMessage(0, position);
+        onReplayMessage('R');
+        onOutboundMessage('A', 100);
 
-        assertBytesInBuffer(BODY_LENGTH);
+        channelWillWrite(PARTIAL_WRITE);
+        endPoint.onReplayComplete(100);
+        assertWritten(repeat('R', BODY_LENGTH) + repeat('A', PARTIAL_WRITE));
+        assertBytesInBuffer(BODY_LENGTH - PARTIAL_WRITE);
+        verifySlowStatus(true, times(1));
+
+        channelWillWrite(Integer.MAX_VALUE);
+        endPoint.poll(100);
+        assertWritten('A', BODY_LENGTH - PARTIAL_WRITE);
+        assertBytesInBuffer(0);
     }
 
     @Test
-    public void shouldNotSendFurtherMessagesBeforeReplayRetry()
+    public void shouldSendReplayMessagesBehindUnsentBytes()
     {
-        long position = 0;
-        channelWillWrite(0);
-        onReplayMessage(0, position);
-        byteBufferWritten();
+        becomeSlowConsumer('A');
 
-        position += BODY_LENGTH;
+        onReplayMessage('R');
+        assertWritten("");
+        assertBytesInBuffer(2 * BODY_LENGTH);
 
-        onReplayMessage(0, position);
-        byteBufferNotWritten();
+        onOutboundMessage('B', 100);
+        endPoint.onReplayComplete(100);
+        assertBytesInBuffer(3 * BODY_LENGTH);
 
-        assertBytesInBuffer(BODY_LENGTH + BODY_LENGTH);
+        channelWillWrite(Integer.MAX_VALUE);
+        endPoint.poll(100);
+        assertWritten(repeat('A', BODY_LENGTH) + repeat('R', BODY_LENGTH) + repeat('B', BODY_LENGTH));
+        assertBytesInBuffer(0);
+        verifyNoMoreErrors();
     }
 
     @Test
-    public void shouldRetryReplaySlowConsumer()
+    public void shouldQueueMessagesOverTheThrottleRate()
     {
-        final long position = 0;
-        channelWillWrite(0);
-        onReplayMessage(0, position);
-        byteBufferWritten();
+        throttle(1, 1);
 
-        onNormalStreamReplayComplete();
-        assertReplayPaused();
+        onOutboundMessage('A', 0);
+        assertWritten('A', BODY_LENGTH);
 
-        channelWillWrite(BODY_LENGTH);
-        onSlowReplayMessage(0, position);
-        byteBufferWritten();
-        verifyDoesNotBlockLibrary();
+        onOutboundMessage('B', 0);
+        assertWritten("");
+        assertBytesInBuffer(BODY_LENGTH);
+        verify(throttledMessages).increment();
+        verifySlowStatus(true, times(1));
 
-        onSlowStreamReplayComplete();
-        assertNotReplayPaused();
+        assertEquals(0, endPoint.poll(500));
+        assertWritten("");
 
+        assertEquals(1, endPoint.poll(1000));
+        assertWritten('B', BODY_LENGTH);
         assertBytesInBuffer(0);
+        verifySlowStatus(false, times(1));
+        verify(senderSequenceNumber, times(2)).onNewMessage(anyInt());
     }
 
     @Test
-    public void shouldDisconnectReplaySlowConsumer()
+    public void shouldSendMessagesInOrderBehindThrottledMessages()
     {
-        long position = 0;
-        channelWillWrite(0);
-        onReplayMessage(0, position);
-
-        position += FRAGMENT_LENGTH;
-        onReplayMessage(0, position);
+        throttle(1, 1);
 
-        position += FRAGMENT_LENGTH;
-        onReplayMessage(0, position);
+        onOutboundMessage('A', 0);
+        onOutboundMessage('B', 0);
+        onOutboundMessage('C', 1000);
+        assertWritten('A', BODY_LENGTH);
 
-        position += FRAGMENT_LENGTH;
-        onReplayMessage(0, position);
+        endPoint.poll(1000);
+        assertWritten('B', BODY_LENGTH);
+        verifySlowStatus(false, never());
 
-        verifySlowConsumerDisconnect(times(1));
+        endPoint.poll(2000);
+        assertWritten('C', BODY_LENGTH);
+        verifySlowStatus(false, times(1));
     }
 
     @Test
-    public void shouldBeAbleToFragmentReplaySlowConsumerRetries()
+    public void shouldAllowBurstsUpToTheThrottleBurst()
     {
-        final int firstWrites = 41;
-        final int remaining = BODY_LENGTH - firstWrites;
+        throttle(1, 2);
 
-        final long position = POSITION;
-        channelWillWrite(0);
-        onReplayMessage(0, position);
-        byteBufferWritten();
-        verifyDoesNotBlockLibrary();
+        onOutboundMessage('A', 0);
+        onOutboundMessage('B', 0);
+        onOutboundMessage('C', 0);
 
-        onNormalStreamReplayComplete();
-        assertReplayPaused();
+        assertWritten(repeat('A', BODY_LENGTH) + repeat('B', BODY_LENGTH));
+        assertBytesInBuffer(BODY_LENGTH);
+    }
 
-        channelWillWrite(firstWrites);
-        onSlowReplayMessage(0, position);
-        byteBufferWritten();
-        assertBytesInBuffer(remaining);
-        verifyBlocksReplayAt(BEGIN_POSITION);
+    @Test
+    public void shouldNotThrottleReplayMessages()
+    {
+        throttle(1, 1);
 
-        onSlowStreamReplayComplete();
-        assertReplayPaused();
+        onOutboundMessage('A', 0);
+        onReplayMessage('R');
 
-        channelWillWrite(remaining);
-        onSlowReplayMessage(0, position);
-        byteBufferWritten();
-        assertBytesInBuffer(0);
-        verifyNoMoreErrors();
-        verifyDoesNotBlockLibrary();
+        assertWritten(repeat('A', BODY_LENGTH) + repeat('R', BODY_LENGTH));
+    }
 
-        onSlowStreamReplayComplete();
-        assertNotReplayPaused();
+    @Test
+    public void shouldDisconnectWhenThrottledMessagesFillBuffer()
+    {
+        throttle(1, 1);
+
+        onOutboundMessage('A', 0);
+        onOutboundMessage('B', 0);
+        onOutboundMessage('C', 0);
+        onOutboundMessage('D', 0);
+        verifySlowConsumerDisconnect(never());
+
+        onOutboundMessage('E', 0);
+        verifySlowConsumerDisconnect(times(1));
     }
 
     @Test
-    public void shouldNotSendSlowConsumerMessageUntilReplayComplete()
+    public void shouldStopDrainingThrottledMessagesOnceRemoved() throws IOException
     {
-        final int firstWrites = 41;
-        final int remaining = BODY_LENGTH - firstWrites;
+        throttle(1, 2);
+
+        onOutboundMessage('A', 0);
+        onOutboundMessage('B', 0);
+        onOutboundMessage('C', 0);
+        onOutboundMessage('D', 0);
+        onOutboundMessage('E', 0);
+        assertWritten(repeat('A', BODY_LENGTH) + repeat('B', BODY_LENGTH));
+
+        when(tcpChannel.write(any(ByteBuffer.class))).thenThrow(new IOException("Broken pipe"));
+        endPoint.poll(2000);
 
-        final long position = POSITION;
+        verify(tcpChannel, times(3)).write(any(ByteBuffer.class));
+        verify(errorHandler, times(1)).onError(any(Exception.class));
+        verify(framer, times(1)).onDisconnect(LIBRARY_ID, CONNECTION_ID, EXCEPTION);
+    }
+
+    @Test
+    public void shouldDisconnectReplaySlowConsumer()
+    {
         channelWillWrite(0);
-        onReplayMessage(0, position);
-        byteBufferWritten();
+        onReplayMessage('R');
+        onReplayMessage('S');
+        onReplayMessage('T');
+        verifySlowConsumerDisconnect(never());
 
-        onNormalStreamReplayComplete();
-        assertReplayPaused();
+        onReplayMessage('U');
+        verifySlowConsumerDisconnect(times(1));
+    }
 
-        channelWillWrite(firstWrites);
-        onSlowReplayMessage(0, position);
-        byteBufferWritten();
-        assertBytesInBuffer(remaining);
+    @Test
+    public void shouldCountSentAndReplayedMessages()
+    {
+        final SessionCounters sessionCounters = sessionCounters();
+        endPoint = newEndPoint(null, sessionCounters);
 
-        onSlowStreamReplayComplete();
-        assertReplayPaused();
+        onOutboundMessage('A', 100);
+        onReplayMessage('R');
+        endPoint.onReplayComplete(100);
 
-        onOutboundMessage(0, position);
-        byteBufferNotWritten();
-        assertBytesInBuffer(remaining + BODY_LENGTH);
+        verify(sessionCounters.messagesSent()).incrementOrdered();
+        verify(sessionCounters.bytesSent(), times(2)).getAndAddOrdered(BODY_LENGTH);
+        verify(sessionCounters.messagesResent()).incrementOrdered();
+        verify(sessionCounters.resendRequestsServed()).incrementOrdered();
+        verify(sessionCounters.gapFillsSent(), never()).incrementOrdered();
+        verify(sessionCounters.rejectsSent(), never()).incrementOrdered();
+    }
 
-        onSlowOutboundMessage();
-        byteBufferNotWritten();
-        assertBytesInBuffer(remaining + BODY_LENGTH);
-        verifyBlocksLibraryAt(BEGIN_POSITION);
+    @Test
+    public void shouldOnlyCountMessagesAndBytesOnceSent()
+    {
+        final SessionCounters sessionCounters = sessionCounters();
+        endPoint = newEndPoint(new MessageThrottle(1, 1, throttledMessages, 0), sessionCounters);
 
-        channelWillWrite(remaining);
-        onSlowReplayMessage(0, position);
-        byteBufferWritten();
-        assertBytesInBuffer(BODY_LENGTH);
+        channelWillWrite(PARTIAL_WRITE);
+        onOutboundMessage('A', 0);
+        onOutboundMessage('B', 0);
 
-        onSlowStreamReplayComplete();
-        assertNotReplayPaused();
+        verify(sessionCounters.messagesSent(), times(1)).incrementOrdered();
+        verify(sessionCounters.bytesSent()).getAndAddOrdered(PARTIAL_WRITE);
 
-        channelWillWrite(BODY_LENGTH);
-        onSlowOutboundMessage();
-        byteBufferWritten();
-        assertBytesInBuffer(0);
+        channelWillWrite(Integer.MAX_VALUE);
+        endPoint.poll(1000);
 
-        verifyNoMoreErrors();
+        verify(sessionCounters.messagesSent(), times(2)).incrementOrdered();
+        verify(sessionCounters.bytesSent()).getAndAddOrdered(2 * BODY_LENGTH - PARTIAL_WRITE);
+        verifyNoMoreInteractions(sessionCounters.bytesSent());
     }
 
     @Test
-    public void shouldNotSendReplayMessageUntilSlowConsumerComplete()
+    public void shouldCountMessagesHeldBackByReplayOnceReleased()
     {
-        final int firstWrites = 41;
-        final int remaining = BODY_LENGTH - firstWrites;
-        final long position = FRAGMENT_LENGTH;
+        final SessionCounters sessionCounters = sessionCounters();
+        endPoint = newEndPoint(null, sessionCounters);
 
-        becomeSlowConsumer();
+        onReplayMessage('R');
+        putMessage('J');
+        endPoint.onOutboundMessage(LIBRARY_ID, RejectDecoder.MESSAGE_TYPE, buffer, 0, BODY_LENGTH, 0, 100);
+        onOutboundMessage('A', 100);
 
-        channelWillWrite(firstWrites);
-        onSlowOutboundMessage();
-        byteBufferWritten();
-        assertBytesInBuffer(remaining);
-        verifyBlocksLibraryAt(BEGIN_POSITION);
+        verify(sessionCounters.messagesSent(), never()).incrementOrdered();
+        verify(sessionCounters.messagesSent(), never()).getAndAddOrdered(anyLong());
+        verify(sessionCounters.rejectsSent(), never()).getAndAddOrdered(anyLong());
 
-        channelWillWrite(0);
-        onReplayMessage(0, position);
-        byteBufferNotWritten();
-        assertBytesInBuffer(remaining + BODY_LENGTH);
+        endPoint.onReplayComplete(100);
 
-        onNormalStreamReplayComplete();
-        assertNotReplayPaused();
+        verify(sessionCounters.messagesSent()).getAndAddOrdered(2);
+        verify(sessionCounters.rejectsSent()).getAndAddOrdered(1);
+        verify(sessionCounters.messagesSent(), never()).incrementOrdered();
+    }
 
-        onSlowReplayMessage(0, position);
-        byteBufferNotWritten();
-        assertBytesInBuffer(remaining + BODY_LENGTH);
+    @Test
+    public void shouldNotCountMessagesHeldBackByReplayIfDisconnected()
+    {
+        final SessionCounters sessionCounters = sessionCounters();
+        endPoint = newEndPoint(null, sessionCounters);
 
-        onSlowStreamReplayComplete();
-        assertNotReplayPaused();
+        onReplayMessage('R');
+        onOutboundMessage('A', 100);
+        onOutboundMessage('B', 100);
+        onOutboundMessage('C', 100);
+        onOutboundMessage('D', 100);
+        verifySlowConsumerDisconnect(times(1));
 
-        channelWillWrite(remaining);
-        onSlowOutboundMessage();
-        byteBufferWritten();
-        assertBytesInBuffer(BODY_LENGTH);
+        endPoint.onReplayComplete(100);
 
-        channelWillWrite(BODY_LENGTH);
-        onSlowReplayMessage(0, BODY_LENGTH);
-        byteBufferWritten();
-        assertBytesInBuffer(0);
+        assertWritten('R', BODY_LENGTH);
+        verify(sessionCounters.messagesSent(), never()).incrementOrdered();
+        verify(sessionCounters.messagesSent(), never()).getAndAddOrdered(anyLong());
+    }
 
-        onSlowStreamReplayComplete();
-        assertNotReplayPaused();
+    @Test
+    public void shouldCountTimeSpentAsSlowConsumer()
+    {
+        final SessionCounters sessionCounters = sessionCounters();
+        endPoint = newEndPoint(null, sessionCounters);
 
-        verifyNoMoreErrors();
+        channelWillWrite(0);
+        onOutboundMessage('A', 100);
+        verifySlowStatus(true, times(1));
+
+        channelWillWrite(Integer.MAX_VALUE);
+        endPoint.poll(350);
+        verifySlowStatus(false, times(1));
+
+        verify(sessionCounters.slowTimeInMs()).getAndAddOrdered(250);
     }
 
-    private void byteBufferNotWritten()
+    private SessionCounters sessionCounters()
     {
-        byteBufferWritten(never());
+        final SessionCounters sessionCounters = mock(SessionCounters.class);
+        final AtomicCounter messagesSent = mock(AtomicCounter.class);
+        final AtomicCounter bytesSent = mock(AtomicCounter.class);
+        final AtomicCounter messagesResent = mock(AtomicCounter.class);
+        final AtomicCounter resendRequestsServed = mock(AtomicCounter.class);
+        final AtomicCounter gapFillsSent = mock(AtomicCounter.class);
+        final AtomicCounter rejectsSent = mock(AtomicCounter.class);
+        final AtomicCounter slowTimeInMs = mock(AtomicCounter.class);
+        when(sessionCounters.messagesSent()).thenReturn(messagesSent);
+        when(sessionCounters.bytesSent()).thenReturn(bytesSent);
+        when(sessionCounters.messagesResent()).thenReturn(messagesResent);
+        when(sessionCounters.resendRequestsServed()).thenReturn(resendRequestsServed);
+        when(sessionCounters.gapFillsSent()).thenReturn(gapFillsSent);
+        when(sessionCounters.rejectsSent()).thenReturn(rejectsSent);
+        when(sessionCounters.slowTimeInMs()).thenReturn(slowTimeInMs);
+        return sessionCounters;
     }
 
-    private void errorLogged()
+    private SenderEndPoint newEndPoint(final MessageThrottle throttle)
     {
-        verify(errorHandler).onError(any(IllegalStateException.class));
+        return newEndPoint(throttle, null);
     }
 
-    private void verifyNoMoreErrors()
+    private SenderEndPoint newEndPoint(final MessageThrottle throttle, final SessionCounters sessionCounters)
     {
-        verifyNoMoreInteractions(errorHandler);
+        return new SenderEndPoint(
+            CONNECTION_ID,
+            LIBRARY_ID,
+            tcpChannel,
+            bytesInBuffer,
+            invalidLibraryAttempts,
+            errorHandler,
+            framer,
+            MAX_BYTES_IN_BUFFER,
+            DEFAULT_SLOW_CONSUMER_TIMEOUT_IN_MS,
+            0,
+            senderSequenceNumber,
+            throttle,
+            sessionCounters);
     }
 
-    private void onOutboundMessage(final long timeInMs, final long position)
+    private void throttle(final int messagesPerSecond, final int burst)
     {
-        endPoint.onOutboundMessage(LIBRARY_ID, buffer, 0, BODY_LENGTH, 0, position, timeInMs);
+        endPoint = newEndPoint(new MessageThrottle(messagesPerSecond, burst, throttledMessages, 0));
     }
 
-    private void onReplayMessage(final long timeInMs, final long position)
+    private void becomeSlowConsumer(final char content)
     {
-        endPoint.onReplayMessage(buffer, 0, BODY_LENGTH, timeInMs, position);
+        channelWillWrite(0);
+        onOutboundMessage(content, 0);
+        assertBytesInBuffer(BODY_LENGTH);
+        verifySlowStatus(true, times(1));
     }
 
-    private void onSlowReplayMessage(final long timeInMs, final long position)
+    private void onOutboundMessage(final char content, final long timeInMs)
     {
-        endPoint.onSlowReplayMessage(buffer, 0, BODY_LENGTH, timeInMs, position);
+        putMessage(content);
+        endPoint.onOutboundMessage(LIBRARY_ID, MESSAGE_TYPE, buffer, 0, BODY_LENGTH, 0, timeInMs);
     }
 
-    private void verifySlowConsumerDisconnect(final VerificationMode times)
+    private void onReplayMessage(final char content)
     {
-        verify(framer, times).onDisconnect(LIBRARY_ID, CONNECTION_ID, SLOW_CONSUMER);
+        putMessage(content);
+        endPoint.onReplayMessage(MESSAGE_TYPE, buffer, 0, BODY_LENGTH, 0);
     }
 
-    private void byteBufferWritten()
+    private void putMessage(final char content)
     {
-        byteBufferWritten(times(1));
+        buffer.putStringWithoutLengthAscii(0, repeat(content, BODY_LENGTH));
     }
 
-    private void byteBufferWritten(final VerificationMode times)
+    private void channelWillWrite(final int maxBytesPerWrite)
     {
-        try
-        {
-            verify(tcpChannel, times).write(byteBuffer);
-            reset(tcpChannel);
-        }
-        catch (final IOException e)
+        this.maxBytesPerWrite = maxBytesPerWrite;
+    }
+
+    private void assertWritten(final char content, final int length)
+    {
+        assertWritten(repeat(content, length));
+    }
+
+    private void assertWritten(final String expected)
+    {
+        assertEquals(expected, writtenBytes.toString());
+        writtenBytes.setLength(0);
+    }
+
+    private static String repeat(final char content, final int length)
+    {
+        final StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
         {
-            LangUtil.rethrowUnchecked(e);
+            builder.append(content);
         }
+
+        return builder.toString();
     }
 
-    private void assertBytesInBuffer(final int bytes)
+    private void errorLogged()
     {
-        assertEquals(bytes, bytesInBuffer.get());
+        verify(errorHandler).onError(any(IllegalStateException.class));
     }
 
-    private void onSlowOutboundMessage()
+    private void verifyNoMoreErrors()
     {
-        onSlowOutboundMessage(100);
+        verifyNoMoreInteractions(errorHandler);
     }
 
-    private void onSlowOutboundMessage(final long timeInMs)
+    private void verifySlowConsumerDisconnect(final VerificationMode times)
     {
-        final Action action = endPoint.onSlowOutboundMessage(
-            buffer,
-            HEADER_LENGTH,
-            LENGTH,
-            POSITION,
-            BODY_LENGTH,
-            LIBRARY_ID,
-            timeInMs);
-        assertEquals(CONTINUE, action);
+        verify(framer, times).onDisconnect(LIBRARY_ID, CONNECTION_ID, SLOW_CONSUMER);
     }
 
-    private void becomeSlowConsumer()
+    private void verifySlowStatus(final boolean hasBecomeSlow, final VerificationMode times)
     {
-        channelWillWrite(0);
-        onOutboundMessage(0, POSITION);
-        byteBufferWritten();
+        verify(framer, times).slowStatus(LIBRARY_ID, CONNECTION_ID, hasBecomeSlow);
     }
 
-    private void channelWillWrite(final int bodyLength)
+    private void assertBytesInBuffer(final int bytes)
     {
-        try
-        {
-            when(tcpChannel.write(byteBuffer)).thenReturn(bodyLength);
-        }
-        catch (final IOException e)
-        {
-            LangUtil.rethrowUnchecked(e);
-        }
+        assertEquals(bytes, bytesInBuffer.get());
     }
 
     private AtomicCounter fakeCounter()
@@ -537,28 +700,6 @@ public class SenderEndPointTest
         return atomicCounter;
     }
 
-    private void verifyDoesNotBlockLibrary()
-    {
-        verify(libraryBlockablePosition, never()).blockPosition(anyLong());
-        verify(replayBlockablePosition, never()).blockPosition(anyLong());
-    }
-
-    private void verifyBlocksLibraryAt(final long position)
-    {
-        verifyBlocksAt(position, libraryBlockablePosition);
-    }
-
-    private void verifyBlocksReplayAt(final long position)
-    {
-        verifyBlocksAt(position, replayBlockablePosition);
-    }
-
-    private void verifyBlocksAt(final long position, final BlockablePosition blockablePosition)
-    {
-        verify(blockablePosition).blockPosition(position);
-        reset(blockablePosition);
-    }
-
     private void assertNotReplayPaused()
     {
         assertFalse("should not be replay paused", endPoint.replayPaused());
@@ -568,14 +709,4 @@ public class SenderEndPointTest
     {
         assertTrue("should be replay paused", endPoint.replayPaused());
     }
-
-    private void onSlowStreamReplayComplete()
-    {
-        endPoint.onReplayComplete();
-    }
-
-    private void onNormalStreamReplayComplete()
-    {
-        endPoint.onReplayComplete();
-    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.framer;
+
+import org.junit.Test;
+import uk.co.real_logic.artio.engine.SessionInfo;
+import uk.co.real_logic.artio.session.CompositeKey;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.co.real_logic.artio.engine.FixEngine.ENGINE_LIBRARY_ID;
+
+public class SessionAllocationStrategyTest
+{
+    private final SessionInfo session = session("ACCEPTOR", "INITIATOR", 0);
+
+    @Test
+    public void shouldKeepSessionsGatewayedByDefault()
+    {
+        assertEquals(ENGINE_LIBRARY_ID, SessionAllocationStrategy.gateway().allocate(session, libraries(2, 3)));
+    }
+
+    @Test
+    public void shouldRoundRobinInLibraryIdOrder()
+    {
+        final SessionAllocationStrategy strategy = SessionAllocationStrategy.roundRobin();
+        final List<LibraryInfo> libraries = libraries(5, 2, 3);
+
+        assertEquals(2, strategy.allocate(session, libraries));
+        assertEquals(3, strategy.allocate(session, libraries));
+        assertEquals(5, strategy.allocate(session, libraries));
+        assertEquals(2, strategy.allocate(session, libraries));
+    }
+
+    @Test
+    public void shouldRoundRobinWhenLibrariesChange()
+    {
+        final SessionAllocationStrategy strategy = SessionAllocationStrategy.roundRobin();
+
+        assertEquals(2, strategy.allocate(session, libraries(2, 3)));
+        assertEquals(4, strategy.allocate(session, libraries(2, 4)));
+        assertEquals(2, strategy.allocate(session, libraries(2, 3)));
+    }
+
+    @Test
+    public void shouldAllocateToLibraryThatHasReadFewestMessages()
+    {
+        final List<LibraryInfo> libraries = Arrays.asList(
+            library(2, session("A", "B", 100), session("A", "C", 5)),
+            library(3, session("A", "D", 20)),
+            library(4, session("A", "E", 50)));
+
+        assertEquals(3, SessionAllocationStrategy.leastLoaded().allocate(session, libraries));
+    }
+
+    @Test
+    public void shouldAllocateToLibraryWithFewestSessionsWhenEquallyLoaded()
+    {
+        final List<LibraryInfo> libraries = Arrays.asList(
+            library(2, session("A", "B", 0), session("A", "C", 0)),
+            library(3, session("A", "D", 0)),
+            library(4));
+
+        assertEquals(4, SessionAllocationStrategy.leastLoaded().allocate(session, libraries));
+    }
+
+    @Test
+    public void shouldConsistentlyHashSessionsToLibraries()
+    {
+        final SessionAllocationStrategy strategy = SessionAllocationStrategy.consistentHash();
+        final List<LibraryInfo> libraries = libraries(2, 3, 4, 5);
+
+        final int libraryId = strategy.allocate(session, libraries);
+
+        assertEquals(libraryId, strategy.allocate(session("ACCEPTOR", "INITIATOR", 100), libraries));
+        assertEquals(libraryId, SessionAllocationStrategy.consistentHash().allocate(session, libraries(5, 4, 3, 2)));
+    }
+
+    @Test
+    public void shouldOnlyMoveSessionsOfRemovedLibraryWhenConsistentHashing()
+    {
+        final SessionAllocationStrategy strategy = SessionAllocationStrategy.consistentHash();
+        final List<LibraryInfo> allLibraries = libraries(2, 3, 4, 5);
+        final List<LibraryInfo> remainingLibraries = libraries(2, 3, 4);
+
+        int movedToLibrary5 = 0;
+        for (int i = 0; i < 100; i++)
+        {
+            final SessionInfo session = session("ACCEPTOR", "INITIATOR" + i, 0);
+            final int before = strategy.allocate(session, allLibraries);
+            final int after = strategy.allocate(session, remainingLibraries);
+
+            if (before == 5)
+            {
+                movedToLibrary5++;
+                assertNotEquals(5, after);
+            }
+            else
+            {
+                assertEquals(before, after);
+            }
+        }
+
+        assertNotEquals(0, movedToLibrary5);
+    }
+
+    private static List<LibraryInfo> libraries(final int... libraryIds)
+    {
+        final List<LibraryInfo> libraries = new ArrayList<>();
+        for (final int libraryId : libraryIds)
+        {
+            libraries.add(library(libraryId));
+        }
+        return libraries;
+    }
+
+    private static LibraryInfo library(final int libraryId, final SessionInfo... sessions)
+    {
+        final LibraryInfo library = mock(LibraryInfo.class);
+        when(library.libraryId()).thenReturn(libraryId);
+        when(library.sessions()).thenReturn(Arrays.asList(sessions));
+        return library;
+    }
+
+    private static SessionInfo session(final String localCompId, final String remoteCompId, final long messagesRead)
+    {
+        final CompositeKey key = mock(CompositeKey.class);
+        when(key.localCompId()).thenReturn(localCompId);
+        when(key.remoteCompId()).thenReturn(remoteCompId);
+
+        final SessionInfo session = mock(SessionInfo.class);
+        when(session.sessionKey()).thenReturn(key);
+        when(session.messagesRead()).thenReturn(messagesRead);
+        return session;
+    }
+}
@@ -34,6 +34,7 @@ import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.IntStream;
 
@@ -160,6 +161,47 @@ public class SessionContextsTest
             .forEach((i) -> assertValuesEqual(contexts.get(i), contextsAfterRestart.onLogon(keys.get(i))));
     }
 
+    @Test
+    public void looksUpSessionsAfterIndexGrows()
+    {
+        final int sessionCount = 1000;
+        final AtomicBuffer buffer = new UnsafeBuffer(ByteBuffer.allocate(64 * 1024));
+        final SessionContexts sessionContexts = newSessionContexts(buffer);
+
+        final List<CompositeKey> keys = IntStream
+            .range(0, sessionCount)
+            .mapToObj((i) -> idStrategy.onInitiateLogon("s" + i, null, null, "t" + i, null, null))
+            .collect(toList());
+
+        final List<SessionContext> contexts = keys
+            .stream()
+            .map(sessionContexts::onLogon)
+            .collect(toList());
+
+        IntStream.range(0, sessionCount).forEach((i) ->
+        {
+            final SessionContext context = contexts.get(i);
+            assertEquals(context.sessionId(), sessionContexts.lookupSessionId(keys.get(i)));
+            assertTrue(sessionContexts.isKnownSessionId(context.sessionId()));
+        });
+
+        assertEquals(Session.UNKNOWN, sessionContexts.lookupSessionId(cSession));
+        assertFalse(sessionContexts.isKnownSessionId(sessionCount + LOWEST_VALID_SESSION_ID));
+    }
+
+    @Test
+    public void sequenceResetsSessionById()
+    {
+        final SessionContext aContext = sessionContexts.onLogon(aSession);
+        final SessionContext bContext = sessionContexts.onLogon(bSession);
+        final int bSequenceIndex = bContext.sequenceIndex();
+
+        sessionContexts.sequenceReset(aContext.sessionId());
+
+        assertEquals(SessionContext.UNKNOWN_SEQUENCE_INDEX + 1, aContext.sequenceIndex());
+        assertEquals(bSequenceIndex, bContext.sequenceIndex());
+    }
+
     @Test
     public void resetsSessionContexts()
     {
@@ -244,6 +286,24 @@ public class SessionContextsTest
         assertEquals(3, cContext.sessionId());
     }
 
+    @Test
+    public void handsOutSameSessionIdForCompositeKeysTooLargeToSave()
+    {
+        final char[] largeCompId = new char[BUFFER_SIZE];
+        Arrays.fill(largeCompId, 'a');
+        final CompositeKey largeSession = idStrategy.onInitiateLogon(
+            new String(largeCompId), null, null, "b", null, null);
+
+        final SessionContext firstContext = sessionContexts.onLogon(largeSession);
+        sessionContexts.onDisconnect(firstContext.sessionId());
+        final SessionContext secondContext = sessionContexts.onLogon(largeSession);
+
+        verify(errorHandler).onError(any(IllegalStateException.class));
+        assertEquals(firstContext.sessionId(), secondContext.sessionId());
+        assertEquals(firstContext.sessionId(), sessionContexts.lookupSessionId(largeSession));
+        assertTrue(sessionContexts.isKnownSessionId(firstContext.sessionId()));
+    }
+
     private void verifyNoBackUp()
     {
         verify(mappedFile, never()).transferTo(any());
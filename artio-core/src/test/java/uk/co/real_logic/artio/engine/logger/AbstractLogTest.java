@@ -189,7 +189,17 @@ public class AbstractLogTest
         return bufferHasResendRequest(endSeqNo, RESEND_TARGET);
     }
 
+    protected long bufferHasResendRequest(final int beginSeqNo, final int endSeqNo)
+    {
+        return bufferHasResendRequest(beginSeqNo, endSeqNo, RESEND_TARGET);
+    }
+
     protected long bufferHasResendRequest(final int endSeqNo, final String targetCompId)
+    {
+        return bufferHasResendRequest(BEGIN_SEQ_NO, endSeqNo, targetCompId);
+    }
+
+    protected long bufferHasResendRequest(final int beginSeqNo, final int endSeqNo, final String targetCompId)
     {
         final UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
         timestampEncoder.encode(System.currentTimeMillis());
@@ -204,7 +214,7 @@ public class AbstractLogTest
             .targetCompID(targetCompId);
 
         return resendRequest
-            .beginSeqNo(BEGIN_SEQ_NO)
+            .beginSeqNo(beginSeqNo)
             .endSeqNo(endSeqNo)
             .encode(new MutableAsciiBuffer(buffer), ENCODE_OFFSET);
     }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import uk.co.real_logic.artio.messages.FixMessageDecoder;
+import uk.co.real_logic.artio.messages.FixMessageEncoder;
+import uk.co.real_logic.artio.messages.MessageHeaderEncoder;
+
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static uk.co.real_logic.artio.engine.logger.FixMessagePredicates.*;
+
+public class FixMessagePredicatesTest
+{
+    private static final int OFFSET = 8;
+    private static final int NEWER_BLOCK_LENGTH = FixMessageEncoder.BLOCK_LENGTH + 16;
+    private static final String MESSAGE =
+        "8=FIX.4.4\0019=0049\00135=0\00149=sender\00156=target\00134=1\001" +
+        "52=20090323-15:40:29\001112=abc\00110=017\001";
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+    private final FixMessageDecoder message = new FixMessageDecoder();
+
+    @Test
+    public void shouldMatchFieldValue()
+    {
+        bufferContainsMessage(MESSAGE);
+
+        assertTrue(fieldOf(49, "sender").test(message));
+        assertTrue(fieldOf(112, "abc").test(message));
+    }
+
+    @Test
+    public void shouldNotMatchDifferentFieldValue()
+    {
+        bufferContainsMessage(MESSAGE);
+
+        assertFalse(fieldOf(49, "target").test(message));
+        assertFalse(fieldOf(49, "sende").test(message));
+        assertFalse(fieldOf(49, "senders").test(message));
+    }
+
+    @Test
+    public void shouldNotMatchMissingField()
+    {
+        bufferContainsMessage(MESSAGE);
+
+        assertFalse(fieldOf(50, "sender").test(message));
+    }
+
+    @Test
+    public void shouldMatchMultipleFields()
+    {
+        bufferContainsMessage(MESSAGE);
+
+        assertTrue(sessionOf("sender", "target").test(message));
+        assertFalse(sessionOf("target", "sender").test(message));
+        assertFalse(fieldsOf(new int[]{ 49, 50 }, new String[]{ "sender", "sub" }).test(message));
+    }
+
+    @Test
+    public void shouldMatchFinalFieldWithoutSeparator()
+    {
+        bufferContainsMessage("35=0\00149=sender");
+
+        assertTrue(fieldOf(49, "sender").test(message));
+    }
+
+    @Test
+    public void shouldMatchIrrespectiveOfDecoderLimit()
+    {
+        bufferContainsMessage(MESSAGE);
+        message.body();
+
+        assertTrue(sessionOf("sender", "target").and(fieldOf(35, "0")).test(message));
+    }
+
+    @Test
+    public void shouldMatchBodyWithoutCopying()
+    {
+        bufferContainsMessage(MESSAGE);
+
+        assertTrue(bodyMatches(Pattern.compile(".*112=abc.*")).test(message));
+        assertFalse(bodyMatches(Pattern.compile(".*112=def.*")).test(message));
+    }
+
+    @Test
+    public void shouldMatchDecodedHeader()
+    {
+        bufferContainsMessage(MESSAGE);
+
+        assertTrue(whereHeader(senderCompIdOf("sender").and(targetCompIdOf("target"))).test(message));
+        assertFalse(whereHeader(senderCompIdOf("target")).test(message));
+    }
+
+    @Test
+    public void shouldMatchMessagesWrittenWithADifferentBlockLength()
+    {
+        bufferContainsMessage(MESSAGE, NEWER_BLOCK_LENGTH);
+
+        assertTrue(fieldOf(112, "abc").test(message));
+        assertTrue(bodyMatches(Pattern.compile(".*112=abc.*")).test(message));
+        assertTrue(whereHeader(senderCompIdOf("sender").and(targetCompIdOf("target"))).test(message));
+    }
+
+    @Test
+    public void shouldRewrapFilteredMessagesWithTheirActingBlockLength()
+    {
+        bufferContainsMessage(MESSAGE, NEWER_BLOCK_LENGTH);
+        final int offset = message.offset();
+        final FixMessageConsumer consumer = mock(FixMessageConsumer.class);
+
+        filterBy(consumer, fieldOf(112, "abc")).onMessage(message, buffer, offset, 0, null);
+
+        verify(consumer).onMessage(message, buffer, offset, 0, null);
+        assertEquals(MESSAGE, message.body());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateTags()
+    {
+        fieldsOf(new int[]{ 49, 49 }, new String[]{ "sender", "sender" });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMismatchedTagsAndValues()
+    {
+        fieldsOf(new int[]{ 49, 56 }, new String[]{ "sender" });
+    }
+
+    private void bufferContainsMessage(final String body)
+    {
+        bufferContainsMessage(body, FixMessageEncoder.BLOCK_LENGTH);
+    }
+
+    // Simulates a message archived by a version of the schema with a different block length.
+    private void bufferContainsMessage(final String body, final int blockLength)
+    {
+        final byte[] bodyBytes = body.getBytes(US_ASCII);
+        final MessageHeaderEncoder header = new MessageHeaderEncoder();
+        final FixMessageEncoder encoder = new FixMessageEncoder();
+        final int messageOffset = OFFSET + MessageHeaderEncoder.ENCODED_LENGTH;
+
+        encoder
+            .wrapAndApplyHeader(buffer, OFFSET, header)
+            .session(1L);
+        header.blockLength(blockLength);
+        encoder.limit(messageOffset + blockLength);
+        encoder.putBody(bodyBytes, 0, bodyBytes.length);
+
+        message.wrap(buffer, messageOffset, blockLength, FixMessageEncoder.SCHEMA_VERSION);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import io.aeron.Aeron;
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static io.aeron.CommonContext.IPC_CHANNEL;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class IndexCatchupTest
+{
+    private static final int ARCHIVE_REPLAY_STREAM = 11;
+    private static final int AERON_SESSION_ID = 5;
+    private static final long INBOUND_RECORDING_ID = 1;
+    private static final long OUTBOUND_RECORDING_ID = 2;
+    private static final long CAUGHT_UP_RECORDING_ID = 3;
+    private static final int INBOUND_REPLAY_SESSION_ID = 21;
+    private static final int OUTBOUND_REPLAY_SESSION_ID = 22;
+
+    private final AeronArchive aeronArchive = mock(AeronArchive.class);
+    private final Subscription subscription = mock(Subscription.class);
+    private final ErrorHandler errorHandler = mock(ErrorHandler.class);
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[64]);
+
+    private final Index behindIndex = mock(Index.class);
+    private final Index aheadIndex = mock(Index.class);
+
+    private final Header inboundFragmentAt150 = header(150);
+    private final Header inboundFragmentAt250 = header(250);
+    private final Header inboundFragmentAt400 = header(400);
+    private final Header outboundFragmentAt600 = header(600);
+
+    @Before
+    public void setUp()
+    {
+        final AeronArchive.Context context = mock(AeronArchive.Context.class);
+        final Aeron aeron = mock(Aeron.class);
+        when(aeronArchive.context()).thenReturn(context);
+        when(context.aeron()).thenReturn(aeron);
+        when(aeron.addSubscription(IPC_CHANNEL, ARCHIVE_REPLAY_STREAM)).thenReturn(subscription);
+
+        indexedPositions(behindIndex, 100, 500, 700);
+        indexedPositions(aheadIndex, 200, 550, 700);
+
+        when(aeronArchive.getStopPosition(INBOUND_RECORDING_ID)).thenReturn(400L);
+        when(aeronArchive.getStopPosition(OUTBOUND_RECORDING_ID)).thenReturn(600L);
+        when(aeronArchive.getStopPosition(CAUGHT_UP_RECORDING_ID)).thenReturn(700L);
+
+        when(aeronArchive.startReplay(INBOUND_RECORDING_ID, 100, 300, IPC_CHANNEL, ARCHIVE_REPLAY_STREAM))
+            .thenReturn((long)INBOUND_REPLAY_SESSION_ID);
+        when(aeronArchive.startReplay(OUTBOUND_RECORDING_ID, 500, 100, IPC_CHANNEL, ARCHIVE_REPLAY_STREAM))
+            .thenReturn((long)OUTBOUND_REPLAY_SESSION_ID);
+
+        replays(INBOUND_REPLAY_SESSION_ID, inboundFragmentAt150, inboundFragmentAt250, inboundFragmentAt400);
+        replays(OUTBOUND_REPLAY_SESSION_ID, outboundFragmentAt600);
+    }
+
+    @Test(timeout = 10_000)
+    public void shouldReplayEachRecordingOnceFromLowestIndexedPosition()
+    {
+        catchup();
+
+        verify(aeronArchive).startReplay(INBOUND_RECORDING_ID, 100, 300, IPC_CHANNEL, ARCHIVE_REPLAY_STREAM);
+        verify(aeronArchive).startReplay(OUTBOUND_RECORDING_ID, 500, 100, IPC_CHANNEL, ARCHIVE_REPLAY_STREAM);
+        verify(aeronArchive, times(2)).startReplay(anyLong(), anyLong(), anyLong(), anyString(), anyInt());
+        verify(aeronArchive, never()).startReplay(
+            eq(CAUGHT_UP_RECORDING_ID), anyLong(), anyLong(), anyString(), anyInt());
+        verifyNoMoreInteractions(errorHandler);
+    }
+
+    @Test(timeout = 10_000)
+    public void shouldOnlyPassFragmentsToIndicesThatHaveNotIndexedThem()
+    {
+        catchup();
+
+        verifyIndexed(behindIndex, inboundFragmentAt150);
+        verifyIndexed(behindIndex, inboundFragmentAt250);
+        verifyIndexed(behindIndex, inboundFragmentAt400);
+        verifyIndexed(behindIndex, outboundFragmentAt600);
+
+        verifyIndexed(aheadIndex, inboundFragmentAt250);
+        verifyIndexed(aheadIndex, inboundFragmentAt400);
+        verifyIndexed(aheadIndex, outboundFragmentAt600);
+        verify(aheadIndex, never()).onFragment(any(), anyInt(), anyInt(), eq(inboundFragmentAt150));
+    }
+
+    private void catchup()
+    {
+        new IndexCatchup(aeronArchive, errorHandler, ARCHIVE_REPLAY_STREAM)
+            .add(Arrays.asList(behindIndex, aheadIndex))
+            .run();
+    }
+
+    private void verifyIndexed(final Index index, final Header header)
+    {
+        verify(index).onFragment(any(), anyInt(), anyInt(), eq(header));
+    }
+
+    private void indexedPositions(
+        final Index index, final long inboundPosition, final long outboundPosition, final long caughtUpPosition)
+    {
+        doAnswer((inv) ->
+        {
+            final IndexedPositionConsumer consumer = inv.getArgument(0);
+            consumer.accept(AERON_SESSION_ID, INBOUND_RECORDING_ID, inboundPosition);
+            consumer.accept(AERON_SESSION_ID, OUTBOUND_RECORDING_ID, outboundPosition);
+            consumer.accept(AERON_SESSION_ID, CAUGHT_UP_RECORDING_ID, caughtUpPosition);
+            return null;
+        }).when(index).readLastPosition(any());
+    }
+
+    // Each poll of the replay's image delivers the next fragment, until the recording's stop position is reached.
+    private void replays(final int replaySessionId, final Header... fragments)
+    {
+        final Image image = mock(Image.class);
+        final long[] position = {0};
+        final int[] nextFragment = {0};
+
+        when(subscription.imageBySessionId(replaySessionId)).thenReturn(image);
+        when(image.position()).then((inv) -> position[0]);
+        when(image.poll(any(), anyInt())).then((inv) ->
+        {
+            if (nextFragment[0] == fragments.length)
+            {
+                return 0;
+            }
+
+            final Header header = fragments[nextFragment[0]++];
+            final FragmentHandler handler = inv.getArgument(0);
+            handler.onFragment(buffer, 0, buffer.capacity(), header);
+            position[0] = header.position();
+            return 1;
+        });
+    }
+
+    private static Header header(final long position)
+    {
+        final Header header = mock(Header.class);
+        when(header.position()).thenReturn(position);
+        return header;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.engine.logger;
+
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class ReplayIndexFilePoolTest
+{
+    private static final String DIR = IoUtil.tmpDirName() + File.separator + "ReplayIndexFilePoolTest";
+    private static final String DIR_0 = DIR + File.separator + "shard-0";
+    private static final String DIR_1 = DIR + File.separator + "shard-1";
+    private static final String[] DIRS = { DIR_0, DIR_1 };
+    private static final int STREAM_ID = 1;
+    private static final int INDEX_FILE_SIZE = 16 * 1024;
+    private static final int POOL_SIZE = 2;
+
+    private final ErrorHandler errorHandler = mock(ErrorHandler.class);
+
+    private ReplayIndexFilePool pool;
+
+    @Before
+    public void setUp()
+    {
+        IoUtil.delete(new File(DIR), true);
+        pool = newPool();
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.close();
+        IoUtil.delete(new File(DIR), true);
+        verifyNoMoreInteractions(errorHandler);
+    }
+
+    @Test
+    public void shouldFillPoolInEachDirectoryOnCreation()
+    {
+        assertEquals(POOL_SIZE, pool.spareFileCount(DIR_0));
+        assertEquals(POOL_SIZE, pool.spareFileCount(DIR_1));
+        assertEquals(POOL_SIZE, fileCount(DIR_0));
+        assertEquals(POOL_SIZE, fileCount(DIR_1));
+    }
+
+    @Test
+    public void shouldHandOutSpareFileForNewSessionFile()
+    {
+        final File file = new File(DIR_1, "replay-index-1-1");
+
+        final ByteBuffer buffer = pool.map(file, INDEX_FILE_SIZE);
+
+        assertTrue(file.exists());
+        assertEquals(INDEX_FILE_SIZE, buffer.capacity());
+        assertEquals(POOL_SIZE - 1, pool.spareFileCount(DIR_1));
+        assertEquals(POOL_SIZE, fileCount(DIR_1));
+        IoUtil.unmap(buffer);
+    }
+
+    @Test
+    public void shouldReplenishPoolInDutyCycle()
+    {
+        IoUtil.unmap(pool.map(new File(DIR_0, "replay-index-2-1"), INDEX_FILE_SIZE));
+
+        assertEquals(1, pool.doWork());
+        assertEquals(0, pool.doWork());
+
+        assertEquals(POOL_SIZE, pool.spareFileCount(DIR_0));
+        assertEquals(POOL_SIZE + 1, fileCount(DIR_0));
+    }
+
+    @Test
+    public void shouldMapExistingFileRatherThanSpareFile()
+    {
+        final File file = new File(DIR_0, "replay-index-2-1");
+        final ByteBuffer buffer = pool.map(file, INDEX_FILE_SIZE);
+        buffer.put(0, (byte)1);
+        IoUtil.unmap(buffer);
+
+        final ByteBuffer existingBuffer = pool.map(file, INDEX_FILE_SIZE);
+
+        assertEquals(1, existingBuffer.get(0));
+        assertEquals(POOL_SIZE - 1, pool.spareFileCount(DIR_0));
+        IoUtil.unmap(existingBuffer);
+    }
+
+    @Test
+    public void shouldReuseSpareFilesAfterRestart()
+    {
+        pool.close();
+        pool = newPool();
+
+        assertEquals(POOL_SIZE, pool.spareFileCount(DIR_0));
+        assertEquals(POOL_SIZE, fileCount(DIR_0));
+    }
+
+    private ReplayIndexFilePool newPool()
+    {
+        return new ReplayIndexFilePool(DIRS, STREAM_ID, INDEX_FILE_SIZE, POOL_SIZE, true, errorHandler);
+    }
+
+    private int fileCount(final String dir)
+    {
+        return new File(dir).list().length;
+    }
+}
@@ -44,11 +44,16 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.stream.IntStream;
 
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 import static uk.co.real_logic.artio.TestFixtures.cleanupMediaDriver;
 import static uk.co.real_logic.artio.TestFixtures.largeTestReqId;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.*;
+import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.INITIAL_RECORD_OFFSET;
 import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.RECORD_LENGTH;
 import static uk.co.real_logic.artio.engine.logger.ReplayIndexDescriptor.REPLAY_POSITION_BUFFER_SIZE;
 import static uk.co.real_logic.artio.engine.logger.Replayer.MOST_RECENT_MESSAGE;
@@ -92,6 +97,51 @@ public class ReplayIndexTest extends AbstractLogTest
             recordingIdLookup);
     }
 
+    private void newSegmentedReplayIndex(final int ringRecords, final long segmentsMaxTotalSize)
+    {
+        newSegmentedReplayIndex(ringRecords, segmentsMaxTotalSize, new String[]{ DEFAULT_LOG_FILE_DIR });
+    }
+
+    private void newSegmentedReplayIndex(
+        final int ringRecords, final long segmentsMaxTotalSize, final String[] replayIndexDirs)
+    {
+        IoUtil.delete(new File(DEFAULT_LOG_FILE_DIR), true);
+
+        final int indexFileSize = INITIAL_RECORD_OFFSET + ringRecords * RECORD_LENGTH;
+        final ByteBuffer segmentedIndexBuffer = ByteBuffer.allocate(indexFileSize);
+        when(newBufferFactory.map(any(), anyInt())).thenReturn(segmentedIndexBuffer);
+        when(existingBufferFactory.map(
+            ReplayIndexDescriptor.replayIndexFile(replayIndexDirs, SESSION_ID, STREAM_ID)))
+            .thenReturn(segmentedIndexBuffer);
+
+        replayIndex.close();
+        replayIndex = new ReplayIndex(
+            DEFAULT_LOG_FILE_DIR,
+            replayIndexDirs,
+            STREAM_ID,
+            indexFileSize,
+            DEFAULT_LOGGER_CACHE_NUM_SETS,
+            DEFAULT_LOGGER_CACHE_SET_SIZE,
+            newBufferFactory,
+            replayPositionBuffer,
+            errorHandler,
+            recordingIdLookup,
+            segmentsMaxTotalSize,
+            ReplayIndexSegmentDescriptor.MAX_BLOCK_LENGTH);
+
+        query = new ReplayQuery(
+            replayIndexDirs,
+            DEFAULT_LOGGER_CACHE_NUM_SETS,
+            DEFAULT_LOGGER_CACHE_SET_SIZE,
+            existingBufferFactory,
+            DEFAULT_OUTBOUND_LIBRARY_STREAM,
+            new NoOpIdleStrategy(),
+            aeronArchive,
+            errorHandler,
+            DEFAULT_ARCHIVE_REPLAY_STREAM,
+            true);
+    }
+
     private Aeron aeron()
     {
         return aeronArchive.context().aeron();
@@ -291,6 +341,95 @@ public class ReplayIndexTest extends AbstractLogTest
         verifyMessagesRead(expectedMessages);
     }
 
+    @Test(timeout = 20_000L)
+    public void shouldQueryRecordsCompactedIntoSegmentsOnceBufferLapped()
+    {
+        final int ringRecords = 64;
+        final int totalRecords = ringRecords * 3 + 5;
+        newSegmentedReplayIndex(ringRecords, Long.MAX_VALUE);
+
+        try
+        {
+            IntStream.rangeClosed(1, totalRecords).forEach(
+                (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+
+            assertEquals(totalRecords, query(1, SEQUENCE_INDEX, totalRecords, SEQUENCE_INDEX));
+            verifyMessagesRead(totalRecords);
+
+            reset(mockHandler);
+            assertEquals(10, query(11, SEQUENCE_INDEX, 20, SEQUENCE_INDEX));
+            verifyMessagesRead(10);
+        }
+        finally
+        {
+            replayIndex.close();
+            IoUtil.delete(new File(DEFAULT_LOG_FILE_DIR), false);
+        }
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldDeleteOldestSegmentsWhenOverMaxTotalSize()
+    {
+        final int ringRecords = 64;
+        final int totalRecords = ringRecords * 10;
+        newSegmentedReplayIndex(ringRecords, 1);
+
+        try
+        {
+            IntStream.rangeClosed(1, totalRecords).forEach(
+                (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+
+            final int msgCount = query(1, SEQUENCE_INDEX, totalRecords, SEQUENCE_INDEX);
+            assertThat(msgCount, greaterThanOrEqualTo(ringRecords));
+            assertThat(msgCount, lessThan(totalRecords));
+
+            // Only the most recent messages are retained
+            reset(mockHandler);
+            final int beginSequenceNumber = totalRecords - ringRecords + 1;
+            assertEquals(ringRecords, query(beginSequenceNumber, SEQUENCE_INDEX, totalRecords, SEQUENCE_INDEX));
+        }
+        finally
+        {
+            replayIndex.close();
+            IoUtil.delete(new File(DEFAULT_LOG_FILE_DIR), false);
+        }
+    }
+
+    @Test(timeout = 20_000L)
+    public void shouldShardSessionFilesAcrossReplayIndexDirs()
+    {
+        final String[] replayIndexDirs = {
+            DEFAULT_LOG_FILE_DIR + File.separator + "shard-0",
+            DEFAULT_LOG_FILE_DIR + File.separator + "shard-1" };
+        final int ringRecords = 64;
+        final int totalRecords = ringRecords * 3 + 5;
+        final int indexFileSize = INITIAL_RECORD_OFFSET + ringRecords * RECORD_LENGTH;
+        newSegmentedReplayIndex(ringRecords, Long.MAX_VALUE, replayIndexDirs);
+        final File otherSessionFile = new File(replayIndexDirs[0], "replay-index-2-" + STREAM_ID);
+        when(newBufferFactory.map(eq(otherSessionFile), anyInt())).thenReturn(ByteBuffer.allocate(indexFileSize));
+
+        try
+        {
+            IntStream.rangeClosed(1, totalRecords).forEach(
+                (seqNum) -> indexExampleMessage(SESSION_ID, seqNum, SEQUENCE_INDEX));
+            indexExampleMessage(SESSION_ID_2, SEQUENCE_NUMBER, SEQUENCE_INDEX);
+
+            verify(newBufferFactory).map(eq(new File(replayIndexDirs[1], "replay-index-1-" + STREAM_ID)), anyInt());
+            verify(newBufferFactory).map(eq(otherSessionFile), anyInt());
+            final String[] segmentFiles = new File(replayIndexDirs[1]).list(
+                (dir, name) -> name.startsWith(ReplayIndexSegmentDescriptor.segmentFilePrefix(SESSION_ID, STREAM_ID)));
+            assertThat(segmentFiles.length, greaterThan(0));
+
+            assertEquals(totalRecords, query(1, SEQUENCE_INDEX, totalRecords, SEQUENCE_INDEX));
+            verifyMessagesRead(totalRecords);
+        }
+        finally
+        {
+            replayIndex.close();
+            IoUtil.delete(new File(DEFAULT_LOG_FILE_DIR), false);
+        }
+    }
+
     @Test(timeout = 20_000L)
     public void shouldUpdatePositionForIndexedRecord()
     {
@@ -195,7 +195,97 @@ public class ReplayerTest extends AbstractLogTest
         assertHasResentWithPossDupFlag(srcLength, times(2));
     }
 
-    // TODO: queue replay requests by fix session
+    @Test
+    public void shouldMergeOverlappingReplayRequestsForTheSameSession()
+    {
+        final int endSeqNo = END_SEQ_NO + 2;
+        setupCapturingClaim();
+        setReplayedMessages(endSeqNo - BEGIN_SEQ_NO + 1);
+        onReplay(END_SEQ_NO, inv -> true);
+
+        onReplay(BEGIN_SEQ_NO + 1, endSeqNo);
+
+        verify(replayQuery).query(
+            any(), eq(SESSION_ID), eq(BEGIN_SEQ_NO), eq(SEQUENCE_INDEX), eq(endSeqNo), eq(SEQUENCE_INDEX));
+        final List<ControlledFragmentHandler> handlers = handler.getAllValues();
+        assertEquals(2, handlers.size());
+        assertSame(handlers.get(0), handlers.get(1));
+
+        replayer.doWork();
+        replayer.doWork();
+
+        verifyReplayCompleteMessageSent();
+        verify(publication, times(1)).tryClaim(
+            MessageHeaderDecoder.ENCODED_LENGTH + ReplayCompleteDecoder.BLOCK_LENGTH, claim);
+    }
+
+    @Test
+    public void shouldMergeAdjacentReplayRequestUpToMostRecentMessage()
+    {
+        onReplay(END_SEQ_NO, inv -> true);
+
+        onReplay(END_SEQ_NO + 1, MOST_RECENT_MESSAGE);
+
+        verify(replayQuery).query(
+            any(), eq(SESSION_ID), eq(BEGIN_SEQ_NO), eq(SEQUENCE_INDEX), eq(MOST_RECENT_MESSAGE), eq(SEQUENCE_INDEX));
+        final List<ControlledFragmentHandler> handlers = handler.getAllValues();
+        assertSame(handlers.get(0), handlers.get(1));
+    }
+
+    @Test
+    public void shouldNotMergeDisjointReplayRequests()
+    {
+        onReplay(END_SEQ_NO, inv -> true);
+
+        onReplay(END_SEQ_NO + 2, END_SEQ_NO + 3);
+
+        final List<ControlledFragmentHandler> handlers = handler.getAllValues();
+        assertEquals(2, handlers.size());
+        assertNotSame(handlers.get(0), handlers.get(1));
+    }
+
+    @Test
+    public void shouldNotMergeReplayRequestsOnceReplayHasStarted()
+    {
+        onReplay(END_SEQ_NO, inv -> true);
+        when(replayOperation.hasStarted()).thenReturn(true);
+
+        onReplay(BEGIN_SEQ_NO, END_SEQ_NO + 1);
+
+        final List<ControlledFragmentHandler> handlers = handler.getAllValues();
+        assertEquals(2, handlers.size());
+        assertNotSame(handlers.get(0), handlers.get(1));
+    }
+
+    @Test
+    public void shouldOnlyReplaySessionsAssignedToWorker()
+    {
+        final Replayer otherWorker = new Replayer(
+            replayQuery,
+            publication,
+            claim,
+            idleStrategy,
+            errorHandler,
+            MAX_CLAIM_ATTEMPTS,
+            subscription,
+            DEFAULT_NAME_PREFIX,
+            clock,
+            EngineConfiguration.DEFAULT_GAPFILL_ON_REPLAY_MESSAGE_TYPES,
+            replayHandler,
+            senderSequenceNumbers,
+            (int)((SESSION_ID + 1) % 2),
+            2);
+
+        final long result = bufferHasResendRequest(END_SEQ_NO);
+        final int length = Encoder.length(result);
+        final int offset = Encoder.offset(result);
+        final Action action = otherWorker.onMessage(
+            buffer, offset, length,
+            LIBRARY_ID, CONNECTION_ID, SESSION_ID, SEQUENCE_INDEX, ResendRequestDecoder.MESSAGE_TYPE, 0L, OK, 0, 0L);
+
+        assertEquals(CONTINUE, action);
+        verifyNoMoreInteractions(replayQuery);
+    }
 
     @Test
     public void shouldGapFillAdminMessages()
@@ -653,6 +743,12 @@ public class ReplayerTest extends AbstractLogTest
         onMessage(ResendRequestDecoder.MESSAGE_TYPE, result, COMMIT);
     }
 
+    private void onReplay(final int beginSeqNo, final int endSeqNo)
+    {
+        final long result = bufferHasResendRequest(beginSeqNo, endSeqNo);
+        onMessage(ResendRequestDecoder.MESSAGE_TYPE, result, COMMIT);
+    }
+
     private void onReplayOtherSession(final int endSeqNo)
     {
         whenReplayQueried().thenReturn(true);
@@ -64,6 +64,7 @@ public class SequenceNumberIndexTest extends AbstractLogTest
     private Aeron aeron;
     private Publication publication;
     private Subscription subscription;
+    private long timeInMs = 0;
 
     @Before
     public void setUp()
@@ -242,6 +243,43 @@ public class SequenceNumberIndexTest extends AbstractLogTest
         }
     }
 
+    @Test
+    public void shouldSaveIndexUponCheckpoint()
+    {
+        final long checkpointIntervalInMs = 100;
+        writer.close();
+        writer = new SequenceNumberIndexWriter(
+            inMemoryBuffer, newIndexFile(), errorHandler, STREAM_ID, recordingIdLookup,
+            () -> timeInMs, checkpointIntervalInMs);
+
+        assertEquals(0, writer.doWork());
+
+        indexFixMessage();
+        assertEquals(1, writer.doWork());
+        assertEquals(0, writer.doWork());
+        assertIndexFileContainsSequenceNumber(SEQUENCE_NUMBER);
+
+        bufferContainsExampleMessage(true, SESSION_ID, SEQUENCE_NUMBER + 1, SEQUENCE_INDEX);
+        indexRecord();
+        assertEquals(0, writer.doWork());
+        assertIndexFileContainsSequenceNumber(SEQUENCE_NUMBER);
+
+        timeInMs += checkpointIntervalInMs;
+        assertEquals(1, writer.doWork());
+        assertIndexFileContainsSequenceNumber(SEQUENCE_NUMBER + 1);
+    }
+
+    private void assertIndexFileContainsSequenceNumber(final int sequenceNumber)
+    {
+        try (MappedFile mappedFile = newIndexFile())
+        {
+            final SequenceNumberIndexReader newReader = new SequenceNumberIndexReader(
+                mappedFile.buffer(), errorHandler);
+
+            assertLastKnownSequenceNumberIs(SESSION_ID, sequenceNumber, newReader);
+        }
+    }
+
     @Test
     public void shouldAlignMessagesAndNotOverlapCheckSums()
     {
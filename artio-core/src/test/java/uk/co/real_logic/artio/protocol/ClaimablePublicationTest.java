@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.protocol;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.logbuffer.BufferClaim;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Test;
+
+import static io.aeron.Publication.BACK_PRESSURED;
+import static io.aeron.Publication.CLOSED;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class ClaimablePublicationTest
+{
+    private static final int LENGTH = 64;
+
+    private final ExclusivePublication dataPublication = mock(ExclusivePublication.class);
+    private final IdleStrategy idleStrategy = mock(IdleStrategy.class);
+    private final AtomicCounter fails = mock(AtomicCounter.class);
+    private final BufferClaim bufferClaim = new BufferClaim();
+
+    @Test
+    public void shouldNotIdleWhenClaimSucceeds()
+    {
+        when(dataPublication.tryClaim(anyInt(), any())).thenReturn(1024L);
+
+        assertEquals(1024L, newPublication(3).claim(LENGTH, bufferClaim));
+
+        verifyZeroInteractions(idleStrategy, fails);
+    }
+
+    @Test
+    public void shouldReturnImmediatelyWhenNonBlocking()
+    {
+        when(dataPublication.tryClaim(anyInt(), any())).thenReturn(BACK_PRESSURED);
+
+        assertEquals(BACK_PRESSURED, newPublication(0).claim(LENGTH, bufferClaim));
+
+        verify(dataPublication, times(1)).tryClaim(anyInt(), any());
+        verify(idleStrategy, never()).idle();
+        verify(fails).increment();
+    }
+
+    @Test
+    public void shouldRetryUpToMaxClaimAttempts()
+    {
+        when(dataPublication.tryClaim(anyInt(), any())).thenReturn(BACK_PRESSURED);
+
+        assertEquals(BACK_PRESSURED, newPublication(3).claim(LENGTH, bufferClaim));
+
+        verify(dataPublication, times(4)).tryClaim(anyInt(), any());
+        verify(idleStrategy, times(3)).idle();
+    }
+
+    @Test
+    public void shouldReturnPositionOnceRetrySucceeds()
+    {
+        when(dataPublication.tryClaim(anyInt(), any())).thenReturn(BACK_PRESSURED, 1024L);
+
+        assertEquals(1024L, newPublication(3).claim(LENGTH, bufferClaim));
+
+        verify(idleStrategy, times(1)).idle();
+        verify(idleStrategy).reset();
+    }
+
+    @Test(expected = NotConnectedException.class)
+    public void shouldNotRetryClosedPublication()
+    {
+        when(dataPublication.tryClaim(anyInt(), any())).thenReturn(CLOSED);
+
+        try
+        {
+            newPublication(3).claim(LENGTH, bufferClaim);
+        }
+        finally
+        {
+            verify(idleStrategy, never()).idle();
+        }
+    }
+
+    private ClaimablePublication newPublication(final int maxClaimAttempts)
+    {
+        return new ClaimablePublication(maxClaimAttempts, idleStrategy, fails, dataPublication);
+    }
+}
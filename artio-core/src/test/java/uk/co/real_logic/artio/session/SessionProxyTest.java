@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.EpochClock;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.builder.*;
+import uk.co.real_logic.artio.fields.RejectReason;
+import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
+import uk.co.real_logic.artio.protocol.GatewayPublication;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.co.real_logic.artio.session.SessionProxy.NO_LAST_MSG_SEQ_NUM_PROCESSED;
+
+public class SessionProxyTest
+{
+    private static final long TIME = 1_550_000_000_123L;
+    private static final int[] SEQUENCE_NUMBERS = {1, 9, 10, 99, 100, 12_345, Integer.MAX_VALUE};
+    private static final char[] TEST_REQ_ID = "TEST_REQ".toCharArray();
+
+    private final MutableAsciiBuffer buffer = new MutableAsciiBuffer(new byte[8 * 1024]);
+    private final MutableAsciiBuffer expectedBuffer = new MutableAsciiBuffer(new byte[8 * 1024]);
+    private final GatewayPublication gatewayPublication = mock(GatewayPublication.class);
+    private final EpochClock clock = mock(EpochClock.class);
+    private final SessionIdStrategy sessionIdStrategy = new SenderTargetAndSubSessionIdStrategy();
+    private final CompositeKey sessionKey = sessionIdStrategy.onInitiateLogon(
+        "SENDER", "SENDER_SUB", null, "TARGET", "TARGET_SUB", null);
+    private final UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
+    private final List<String> sentMessages = new ArrayList<>();
+
+    private SessionProxy proxy;
+
+    @Before
+    public void setUp()
+    {
+        when(clock.time()).thenReturn(TIME);
+        doAnswer(inv ->
+        {
+            final DirectBuffer srcBuffer = inv.getArgument(0);
+            sentMessages.add(srcBuffer.getStringWithoutLengthAscii(inv.getArgument(1), inv.getArgument(2)));
+            return 1L;
+        }).when(gatewayPublication).saveMessage(
+            any(), anyInt(), anyInt(), anyInt(), anyInt(), anyLong(), anyInt(), anyLong(), any(), anyInt());
+
+        proxy = new SessionProxy(
+            buffer, gatewayPublication, sessionIdStrategy, new NoSessionCustomisationStrategy(), clock, 1, 2);
+        proxy.setupSession(3, sessionKey);
+    }
+
+    @Test
+    public void shouldSendSameHeartbeatsAsEncoder()
+    {
+        final HeartbeatEncoder heartbeat = new HeartbeatEncoder();
+        for (final int sequenceNumber : SEQUENCE_NUMBERS)
+        {
+            proxy.heartbeat(sequenceNumber, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+            assertSent(heartbeat, sequenceNumber);
+
+            proxy.heartbeat(TEST_REQ_ID, TEST_REQ_ID.length, sequenceNumber, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+            heartbeat.testReqID(TEST_REQ_ID);
+            assertSent(heartbeat, sequenceNumber);
+            heartbeat.resetTestReqID();
+        }
+    }
+
+    @Test
+    public void shouldSendSameTestRequestsAsEncoder()
+    {
+        final TestRequestEncoder testRequest = new TestRequestEncoder();
+        for (final int sequenceNumber : SEQUENCE_NUMBERS)
+        {
+            proxy.testRequest(sequenceNumber, "TEST_REQ_" + sequenceNumber, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+            testRequest.testReqID("TEST_REQ_" + sequenceNumber);
+            assertSent(testRequest, sequenceNumber);
+        }
+    }
+
+    @Test
+    public void shouldSendSameSequenceResetsAsEncoder()
+    {
+        final SequenceResetEncoder sequenceReset = new SequenceResetEncoder();
+        for (final int sequenceNumber : SEQUENCE_NUMBERS)
+        {
+            proxy.sequenceReset(sequenceNumber, sequenceNumber + 1, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+            sequenceReset.newSeqNo(sequenceNumber + 1);
+            assertSent(sequenceReset, sequenceNumber);
+        }
+    }
+
+    @Test
+    public void shouldSendSameResendRequestsAsEncoder()
+    {
+        final ResendRequestEncoder resendRequest = new ResendRequestEncoder();
+        for (final int sequenceNumber : SEQUENCE_NUMBERS)
+        {
+            proxy.resendRequest(sequenceNumber, 5, sequenceNumber, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+            resendRequest.beginSeqNo(5).endSeqNo(sequenceNumber);
+            assertSent(resendRequest, sequenceNumber);
+        }
+    }
+
+    @Test
+    public void shouldEncodeHeartbeatWithLastMsgSeqNumProcessed()
+    {
+        proxy.heartbeat(2, 0, 1);
+        proxy.heartbeat(3, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+
+        assertThat(sentMessages.get(0), containsString("\00134=2\001"));
+        assertThat(sentMessages.get(0), containsString("\001369=1\001"));
+        assertThat(sentMessages.get(1), containsString("\00134=3\001"));
+    }
+
+    @Test
+    public void shouldSendOwnHeaderFieldsWhenSharingEncoders()
+    {
+        final SessionProxy.Encoders encoders = new SessionProxy.Encoders();
+        final CompositeKey otherSessionKey = sessionIdStrategy.onInitiateLogon(
+            "OTHER_SENDER", "", null, "OTHER_TARGET", null, null);
+        proxy = newProxy(encoders);
+        proxy.setupSession(3, sessionKey);
+        final SessionProxy otherProxy = newProxy(encoders);
+        otherProxy.setupSession(4, otherSessionKey);
+
+        proxy.logout(2, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+        otherProxy.logout(5, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+        proxy.heartbeat(3, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+
+        assertThat(sentMessages.get(0), containsString("\00149=SENDER\00156=TARGET\00134=2\00150=SENDER_SUB\001"));
+        assertThat(sentMessages.get(1), containsString("\00149=OTHER_SENDER\00156=OTHER_TARGET\00134=5\00152="));
+        assertThat(sentMessages.get(2), containsString("\00149=SENDER\00156=TARGET\00134=3\00150=SENDER_SUB\001"));
+    }
+
+    @Test
+    public void shouldNotLeakFieldsOfUnsentMessageWhenSharingEncoders()
+    {
+        final SessionProxy.Encoders encoders = new SessionProxy.Encoders();
+        proxy = newProxy(encoders);
+        proxy.setupSession(3, sessionKey);
+        final SessionProxy otherProxy = newProxy(encoders);
+        otherProxy.setupSession(4, sessionKey);
+
+        proxy.libraryConnected(false);
+        assertEquals(
+            Session.LIBRARY_DISCONNECTED, proxy.logon(10, 1, "user", "pass", false, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED));
+        otherProxy.logon(10, 1, null, null, false, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+
+        assertEquals(1, sentMessages.size());
+        assertThat(sentMessages.get(0), not(containsString("553=")));
+        assertThat(sentMessages.get(0), not(containsString("554=")));
+    }
+
+    @Test
+    public void shouldNotLeakFieldsOfMessageThatFailedToEncodeWhenSharingEncoders()
+    {
+        final SessionProxy.Encoders encoders = new SessionProxy.Encoders();
+        final SessionCustomisationStrategy failingStrategy = mock(SessionCustomisationStrategy.class);
+        doThrow(new IllegalStateException("failed to customise"))
+            .when(failingStrategy).configureLogout(any(), anyLong());
+        proxy = newProxy(encoders, failingStrategy);
+        proxy.setupSession(3, sessionKey);
+        final SessionProxy otherProxy = newProxy(encoders);
+        otherProxy.setupSession(4, sessionKey);
+
+        try
+        {
+            proxy.logout(2, 0, RejectReason.VALUE_IS_INCORRECT.representation(), NO_LAST_MSG_SEQ_NUM_PROCESSED);
+            fail("Expected customisation to fail");
+        }
+        catch (final IllegalStateException ex)
+        {
+            assertEquals("failed to customise", ex.getMessage());
+        }
+        otherProxy.logout(5, 0, NO_LAST_MSG_SEQ_NUM_PROCESSED);
+
+        assertEquals(1, sentMessages.size());
+        assertThat(sentMessages.get(0), not(containsString("58=")));
+    }
+
+    private SessionProxy newProxy(final SessionProxy.Encoders encoders)
+    {
+        return newProxy(encoders, new NoSessionCustomisationStrategy());
+    }
+
+    private SessionProxy newProxy(
+        final SessionProxy.Encoders encoders, final SessionCustomisationStrategy customisationStrategy)
+    {
+        return new SessionProxy(
+            buffer, gatewayPublication, sessionIdStrategy, customisationStrategy, clock, 1, 2, encoders);
+    }
+
+    private void assertSent(final Encoder encoder, final int sequenceNumber)
+    {
+        final HeaderEncoder header = (HeaderEncoder)encoder.header();
+        sessionIdStrategy.setupSession(sessionKey, header);
+        header
+            .msgSeqNum(sequenceNumber)
+            .sendingTime(timestampEncoder.buffer(), timestampEncoder.encode(TIME));
+
+        final long result = encoder.encode(expectedBuffer, 0);
+        final String expected = expectedBuffer.getStringWithoutLengthAscii(
+            Encoder.offset(result), Encoder.length(result));
+
+        assertEquals(1, sentMessages.size());
+        assertEquals(expected, sentMessages.remove(0));
+    }
+}
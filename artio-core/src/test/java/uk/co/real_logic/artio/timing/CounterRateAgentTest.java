@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.timing;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.ErrorHandler;
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.concurrent.EpochClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.agrona.concurrent.status.CountersReader.COUNTER_LENGTH;
+import static org.agrona.concurrent.status.CountersReader.METADATA_LENGTH;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static uk.co.real_logic.artio.CommonConfiguration.DEFAULT_NAME_PREFIX;
+
+public class CounterRateAgentTest
+{
+    private static final int COUNTERS = 8;
+    private static final int TYPE_ID = 10_100;
+    private static final int OTHER_TYPE_ID = 10_101;
+
+    private final EpochClock clock = mock(EpochClock.class);
+    private final HistogramHandler histogramHandler = mock(HistogramHandler.class);
+    private final CountersManager countersManager = new CountersManager(
+        new UnsafeBuffer(new byte[COUNTERS * METADATA_LENGTH]),
+        new UnsafeBuffer(new byte[COUNTERS * COUNTER_LENGTH]));
+    private final List<Histogram> histograms = new ArrayList<>();
+
+    private final CounterRateAgent agent = newAgent();
+
+    @Test
+    public void shouldLogRatesOfCountersOfTrackedType() throws Exception
+    {
+        final AtomicCounter first = countersManager.newCounter("first", TYPE_ID);
+        final AtomicCounter second = countersManager.newCounter("second", TYPE_ID);
+        final AtomicCounter untracked = countersManager.newCounter("untracked", OTHER_TYPE_ID);
+
+        snapshotAt(1_000);
+        verify(histogramHandler, never()).onBeginTimerUpdate(anyLong());
+
+        first.getAndAdd(10);
+        second.getAndAdd(40);
+        untracked.getAndAdd(1_000);
+        snapshotAt(3_000);
+
+        verify(histogramHandler).onBeginTimerUpdate(3_000);
+        assertEquals(1, histograms.size());
+        final Histogram histogram = histograms.get(0);
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(5, histogram.getMinValue());
+        assertEquals(20, histogram.getMaxValue(), 0.01 * 20);
+    }
+
+    @Test
+    public void shouldOnlyLogRatesOfCountersOnceTheyHaveBeenSeen() throws Exception
+    {
+        snapshotAt(1_000);
+
+        final AtomicCounter counter = countersManager.newCounter("counter", TYPE_ID);
+        counter.getAndAdd(10);
+        snapshotAt(2_000);
+
+        counter.getAndAdd(10);
+        snapshotAt(3_000);
+
+        assertEquals(2, histograms.size());
+        assertEquals(0, histograms.get(0).getTotalCount());
+        assertEquals(1, histograms.get(1).getTotalCount());
+        assertEquals(10, histograms.get(1).getMaxValue());
+    }
+
+    private void snapshotAt(final long timeInMs) throws Exception
+    {
+        when(clock.time()).thenReturn(timeInMs);
+        agent.doWork();
+    }
+
+    private CounterRateAgent newAgent()
+    {
+        doAnswer(inv ->
+        {
+            histograms.add(((Histogram)inv.getArgument(1)).copy());
+            return null;
+        }).when(histogramHandler).onTimerUpdate(anyInt(), any());
+
+        final Int2ObjectHashMap<String> types = new Int2ObjectHashMap<>();
+        types.put(TYPE_ID, "Type");
+        return new CounterRateAgent(
+            countersManager,
+            types,
+            null,
+            100,
+            mock(ErrorHandler.class),
+            clock,
+            histogramHandler,
+            DEFAULT_NAME_PREFIX);
+    }
+}
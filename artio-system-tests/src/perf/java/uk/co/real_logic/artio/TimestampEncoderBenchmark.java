@@ -17,7 +17,9 @@ package uk.co.real_logic.artio;
 
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
+import uk.co.real_logic.artio.fields.EpochFractionFormat;
 import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
 
 import java.util.concurrent.TimeUnit;
 
@@ -30,11 +32,24 @@ import java.util.concurrent.TimeUnit;
 public class TimestampEncoderBenchmark
 {
     private UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
+    private UtcTimestampEncoder nanoTimestampEncoder = new UtcTimestampEncoder(EpochFractionFormat.NANOSECONDS);
+    private MutableAsciiBuffer buffer = new MutableAsciiBuffer(new byte[UtcTimestampEncoder.LENGTH_WITH_NANOSECONDS]);
 
     @Setup
     public void initialiseTimestamp()
     {
         timestampEncoder.initialise(System.currentTimeMillis());
+        nanoTimestampEncoder.initialise(epochNanos());
+    }
+
+    // Renders the whole timestamp every time, for comparison with the cached prefix of the instance encoder.
+    @Benchmark
+    public void encodeTimestampWithoutCache(final Blackhole bh)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+
+        bh.consume(UtcTimestampEncoder.encode(System.currentTimeMillis(), buffer, 0));
+        bh.consume(buffer);
     }
 
     @Benchmark
@@ -55,6 +70,24 @@ public class TimestampEncoderBenchmark
         bh.consume(timestampEncoder.buffer());
     }
 
+    @Benchmark
+    public void encodeTimestampNanosWithoutCache(final Blackhole bh)
+    {
+        final MutableAsciiBuffer buffer = this.buffer;
+
+        bh.consume(UtcTimestampEncoder.encodeNanos(epochNanos(), buffer, 0));
+        bh.consume(buffer);
+    }
+
+    @Benchmark
+    public void updateTimestampNanos(final Blackhole bh)
+    {
+        final UtcTimestampEncoder nanoTimestampEncoder = this.nanoTimestampEncoder;
+
+        bh.consume(nanoTimestampEncoder.update(epochNanos()));
+        bh.consume(nanoTimestampEncoder.buffer());
+    }
+
     @Benchmark
     public void noise(final Blackhole bh)
     {
@@ -63,4 +96,8 @@ public class TimestampEncoderBenchmark
         bh.consume(System.currentTimeMillis());
     }
 
+    private static long epochNanos()
+    {
+        return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) + Math.floorMod(System.nanoTime(), 1_000_000L);
+    }
 }
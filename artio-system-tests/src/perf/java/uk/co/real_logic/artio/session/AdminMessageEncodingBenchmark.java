@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2017 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.session;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.co.real_logic.artio.builder.HeartbeatEncoder;
+import uk.co.real_logic.artio.fields.UtcTimestampEncoder;
+import uk.co.real_logic.artio.util.MutableAsciiBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Compares sending a heartbeat with a TestReqID through its encoder against sending it from an
+ * {@link AdminMessageTemplate}, as {@link SessionProxy} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AdminMessageEncodingBenchmark
+{
+    private static final byte[] TEST_REQ_ID_FIELD = "112=".getBytes(US_ASCII);
+
+    private UtcTimestampEncoder timestampEncoder = new UtcTimestampEncoder();
+    private HeartbeatEncoder heartbeatEncoder = new HeartbeatEncoder();
+    private AdminMessageTemplate heartbeatTemplate = new AdminMessageTemplate(null);
+    private MutableAsciiBuffer buffer = new MutableAsciiBuffer(new byte[8 * 1024]);
+
+    // deliberately not static/final
+    private int sequenceNumber = 10;
+    private char[] testReqId = "TEST_REQ_ID".toCharArray();
+
+    @Setup
+    public void setup()
+    {
+        heartbeatEncoder
+            .header()
+            .senderCompID("ABC_DEFG01")
+            .targetCompID("CCG")
+            .msgSeqNum(sequenceNumber)
+            .sendingTime(timestampEncoder.buffer(), timestampEncoder.encode(System.currentTimeMillis()));
+
+        heartbeatTemplate.render(buffer, heartbeatEncoder.encode(buffer, 0));
+    }
+
+    @Benchmark
+    public void encodeHeartbeat(final Blackhole bh)
+    {
+        final UtcTimestampEncoder timestampEncoder = this.timestampEncoder;
+
+        heartbeatEncoder
+            .testReqID(testReqId)
+            .header()
+            .msgSeqNum(sequenceNumber)
+            .sendingTime(timestampEncoder.buffer(), timestampEncoder.update(System.currentTimeMillis()));
+
+        bh.consume(heartbeatEncoder.encode(buffer, 0));
+    }
+
+    @Benchmark
+    public void encodeHeartbeatFromTemplate(final Blackhole bh)
+    {
+        final UtcTimestampEncoder timestampEncoder = this.timestampEncoder;
+        final AdminMessageTemplate heartbeatTemplate = this.heartbeatTemplate;
+
+        final int sendingTimeLength = timestampEncoder.update(System.currentTimeMillis());
+        int position = heartbeatTemplate.beginMessage(
+            buffer, 0, sequenceNumber, timestampEncoder.buffer(), sendingTimeLength);
+        position = heartbeatTemplate.putField(position, TEST_REQ_ID_FIELD, testReqId, testReqId.length);
+
+        bh.consume(heartbeatTemplate.finishMessage(position));
+    }
+}
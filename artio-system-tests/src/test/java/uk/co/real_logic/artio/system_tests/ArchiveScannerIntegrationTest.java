@@ -15,6 +15,7 @@
  */
 package uk.co.real_logic.artio.system_tests;
 
+import io.aeron.archive.client.AeronArchive;
 import org.agrona.CloseHelper;
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -22,6 +23,7 @@ import org.junit.Test;
 import uk.co.real_logic.artio.CommonConfiguration;
 import uk.co.real_logic.artio.engine.EngineConfiguration;
 import uk.co.real_logic.artio.engine.logger.FixArchiveScanner;
+import uk.co.real_logic.artio.engine.logger.FixArchiveTail;
 import uk.co.real_logic.artio.engine.logger.FixMessageConsumer;
 import uk.co.real_logic.artio.library.LibraryConfiguration;
 
@@ -29,9 +31,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertTrue;
 import static uk.co.real_logic.artio.TestFixtures.largeTestReqId;
 import static uk.co.real_logic.artio.TestFixtures.launchMediaDriver;
+import static uk.co.real_logic.artio.Timing.assertEventuallyTrue;
 import static uk.co.real_logic.artio.engine.EngineConfiguration.DEFAULT_ARCHIVE_SCANNER_STREAM;
 import static uk.co.real_logic.artio.system_tests.SystemTestUtil.*;
 
@@ -96,6 +103,62 @@ public class ArchiveScannerIntegrationTest extends AbstractGatewayToGatewaySyste
         assertArchiveContainsMessages("hi");
     }
 
+    @Test
+    public void canTailArchiveAndResumeFromCheckpoint()
+    {
+        setupAndExchangeMessages();
+
+        final List<String> messages = new ArrayList<>();
+        final FixMessageConsumer fixMessageConsumer =
+            (message, buffer, offset, length, header) -> messages.add(message.body());
+        final EngineConfiguration configuration = acceptingEngine.configuration();
+
+        try (AeronArchive aeronArchive = AeronArchive.connect(new AeronArchive.Context()
+            .aeronDirectoryName(configuration.aeronContext().aeronDirectoryName())))
+        {
+            final FixArchiveTail.Context context = new FixArchiveTail.Context()
+                .aeronArchive(aeronArchive)
+                .aeronChannel(configuration.libraryAeronChannel())
+                .queryStreamId(configuration.outboundLibraryStream())
+                .tailStreamId(DEFAULT_ARCHIVE_SCANNER_STREAM)
+                .recordingLookupIntervalInMs(1);
+
+            final long recordingId;
+            final long position;
+            try (FixArchiveTail tail = new FixArchiveTail(context, fixMessageConsumer))
+            {
+                pollUntilContains(tail, messages, "\001112=hi");
+                assertTrue(tail.isLive());
+
+                recordingId = tail.recordingId();
+                position = tail.position();
+            }
+
+            messages.clear();
+            messagesCanBeExchanged();
+
+            context.resumeFrom(recordingId, position);
+            try (FixArchiveTail tail = new FixArchiveTail(context, fixMessageConsumer))
+            {
+                pollUntilContains(tail, messages, "\001112=hi");
+
+                assertThat(messages.toString(), messages, everyItem(
+                    not(containsString("35=A\00149=acceptor\00156=initiator\00134=1"))));
+            }
+        }
+    }
+
+    private void pollUntilContains(final FixArchiveTail tail, final List<String> messages, final String content)
+    {
+        assertEventuallyTrue(
+            "Failed to tail archive: " + messages,
+            () ->
+            {
+                tail.poll(10);
+                return messages.stream().anyMatch(message -> message.contains(content));
+            });
+    }
+
     private void setupAndExchangeMessages()
     {
         messagesCanBeExchanged();
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.system_tests;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.Constants;
+import uk.co.real_logic.artio.builder.ExampleMessageEncoder;
+import uk.co.real_logic.artio.builder.ResendRequestEncoder;
+import uk.co.real_logic.artio.engine.DefaultEngineScheduler;
+import uk.co.real_logic.artio.engine.FixEngine;
+import uk.co.real_logic.artio.session.Session;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.*;
+import static uk.co.real_logic.artio.Constants.EXAMPLE_MESSAGE_MESSAGE_AS_STR;
+import static uk.co.real_logic.artio.TestFixtures.launchMediaDriver;
+import static uk.co.real_logic.artio.Timing.assertEventuallyTrue;
+import static uk.co.real_logic.artio.system_tests.SystemTestUtil.*;
+
+public class ReplayWorkersSystemTest extends AbstractGatewayToGatewaySystemTest
+{
+    private static final int REPLAY_WORKER_COUNT = 2;
+
+    private Session initiatingSession2;
+    private Session acceptingSession2;
+
+    @Before
+    public void launch()
+    {
+        delete(ACCEPTOR_LOGS);
+        delete(CLIENT_LOGS);
+
+        mediaDriver = launchMediaDriver();
+
+        launchAcceptingEngine();
+        initiatingEngine = FixEngine.launch(initiatingConfig(libraryAeronPort)
+            .replayWorkerCount(REPLAY_WORKER_COUNT)
+            .scheduler(new DefaultEngineScheduler()));
+
+        acceptingLibrary = newAcceptingLibrary(acceptingHandler);
+        initiatingLibrary = newInitiatingLibrary(libraryAeronPort, initiatingHandler);
+        testSystem = new TestSystem(acceptingLibrary, initiatingLibrary);
+
+        connectSessions();
+        initiatingSession2 = testSystem.awaitReply(initiate(initiatingLibrary, port, INITIATOR_ID2, ACCEPTOR_ID))
+            .resultIfPresent();
+        assertConnected(initiatingSession2);
+
+        acceptingSession = acquireAcceptingSessionFor(INITIATOR_ID);
+        acceptingSession2 = acquireAcceptingSessionFor(INITIATOR_ID2);
+    }
+
+    @Test
+    public void shouldProcessResendRequestsForSessionsOnDifferentReplayWorkers()
+    {
+        assertNotEquals(
+            "Sessions should be assigned to different replay workers",
+            initiatingSession.id() % REPLAY_WORKER_COUNT,
+            initiatingSession2.id() % REPLAY_WORKER_COUNT);
+
+        final int sequenceNumber = sendExampleMessage(initiatingSession, "first");
+        final int sequenceNumber2 = sendExampleMessage(initiatingSession2, "second");
+
+        acceptingOtfAcceptor.messages().clear();
+        sendResendRequest(acceptingSession, sequenceNumber);
+        sendResendRequest(acceptingSession2, sequenceNumber2);
+
+        assertEventuallyTrue("Failed to receive both resent messages",
+            () ->
+            {
+                testSystem.poll();
+
+                assertResent(INITIATOR_ID, sequenceNumber, "first");
+                assertResent(INITIATOR_ID2, sequenceNumber2, "second");
+            });
+    }
+
+    private Session acquireAcceptingSessionFor(final String initiatorId)
+    {
+        final long sessionId = acceptingHandler.awaitSessionIdFor(
+            initiatorId, ACCEPTOR_ID, testSystem::poll, (int)AWAIT_TIMEOUT);
+        final Session session = acquireSession(acceptingHandler, acceptingLibrary, sessionId, testSystem);
+        assertNotNull("unable to acquire accepting session for " + initiatorId, session);
+
+        return session;
+    }
+
+    private int sendExampleMessage(final Session session, final String testReqID)
+    {
+        final ExampleMessageEncoder exampleMessage = new ExampleMessageEncoder();
+        exampleMessage.testReqID(testReqID);
+        final long position = session.send(exampleMessage);
+        assertThat(position, greaterThan(0L));
+
+        final int sequenceNumber = session.lastSentMsgSeqNum();
+        assertEventuallyTrue("Failed to receive " + testReqID,
+            () ->
+            {
+                testSystem.poll();
+                return acceptingOtfAcceptor
+                    .messages()
+                    .stream()
+                    .anyMatch((message) -> testReqID.equals(message.testReqId()));
+            });
+
+        return sequenceNumber;
+    }
+
+    private void sendResendRequest(final Session session, final int sequenceNumber)
+    {
+        final ResendRequestEncoder resendRequest = new ResendRequestEncoder()
+            .beginSeqNo(sequenceNumber)
+            .endSeqNo(sequenceNumber);
+
+        testSystem.send(session, resendRequest);
+    }
+
+    private void assertResent(final String senderCompId, final int sequenceNumber, final String testReqID)
+    {
+        assertTrue("No resent message from " + senderCompId, acceptingOtfAcceptor
+            .messages()
+            .stream()
+            .anyMatch((message) -> isResent(message, senderCompId, sequenceNumber, testReqID)));
+    }
+
+    private static boolean isResent(
+        final FixMessage message, final String senderCompId, final int sequenceNumber, final String testReqID)
+    {
+        return EXAMPLE_MESSAGE_MESSAGE_AS_STR.equals(message.msgType()) &&
+            "Y".equals(message.possDup()) &&
+            senderCompId.equals(message.get(Constants.SENDER_COMP_ID)) &&
+            sequenceNumber == message.messageSequenceNumber() &&
+            testReqID.equals(message.testReqId());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015-2019 Real Logic Ltd, Adaptive Financial Consulting Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.co.real_logic.artio.system_tests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.real_logic.artio.engine.EngineConfiguration;
+import uk.co.real_logic.artio.engine.FixEngine;
+import uk.co.real_logic.artio.engine.framer.SessionAllocationStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static uk.co.real_logic.artio.TestFixtures.cleanupMediaDriver;
+import static uk.co.real_logic.artio.TestFixtures.launchMediaDriver;
+import static uk.co.real_logic.artio.Timing.assertEventuallyTrue;
+import static uk.co.real_logic.artio.dictionary.generation.Exceptions.closeAll;
+import static uk.co.real_logic.artio.system_tests.SystemTestUtil.*;
+
+public class SessionAllocationSystemTest extends AbstractGatewayToGatewaySystemTest
+{
+    @Before
+    public void launch()
+    {
+        delete(ACCEPTOR_LOGS);
+
+        mediaDriver = launchMediaDriver();
+
+        final EngineConfiguration acceptingConfig = acceptingConfig(port, ACCEPTOR_ID, INITIATOR_ID);
+        acceptingConfig.sessionAllocationStrategy(SessionAllocationStrategy.roundRobin());
+        acceptingEngine = FixEngine.launch(acceptingConfig);
+        initiatingEngine = launchInitiatingEngine(libraryAeronPort);
+
+        acceptingLibrary = newAcceptingLibrary(acceptingHandler);
+        initiatingLibrary = newInitiatingLibrary(libraryAeronPort, initiatingHandler);
+        testSystem = new TestSystem(acceptingLibrary, initiatingLibrary);
+
+        connectSessions();
+    }
+
+    @Test
+    public void shouldAllocateAcceptedSessionToLibraryWithoutRequest()
+    {
+        assertEventuallyTrue("session never allocated to the library",
+            () ->
+            {
+                testSystem.poll();
+
+                return acceptingHandler.lastSession() != null;
+            });
+
+        acceptingSession = acceptingHandler.lastSession();
+        assertEquals(1, acceptingLibrary.sessions().size());
+
+        messagesCanBeExchanged();
+    }
+
+    @After
+    public void shutdown()
+    {
+        closeAll(
+            initiatingLibrary,
+            acceptingLibrary,
+            initiatingEngine,
+            acceptingEngine,
+            () -> cleanupMediaDriver(mediaDriver));
+    }
+}